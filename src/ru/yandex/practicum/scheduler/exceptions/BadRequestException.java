@@ -0,0 +1,8 @@
+package ru.yandex.practicum.scheduler.exceptions;
+
+public class BadRequestException extends RuntimeException {
+
+    public BadRequestException(String message) {
+        super(message);
+    }
+}
@@ -6,6 +6,10 @@ public class ManagerSaveException extends RuntimeException {
         super();
     }
 
+    public ManagerSaveException(String message) {
+        super(message);
+    }
+
     public ManagerSaveException(String message, Throwable cause) {
         super(message, cause);
     }
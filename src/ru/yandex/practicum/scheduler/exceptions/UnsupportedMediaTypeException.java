@@ -0,0 +1,8 @@
+package ru.yandex.practicum.scheduler.exceptions;
+
+public class UnsupportedMediaTypeException extends RuntimeException {
+
+    public UnsupportedMediaTypeException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,465 @@
+package ru.yandex.practicum.scheduler.managers;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import ru.yandex.practicum.scheduler.managers.interfaces.HistoryManager;
+import ru.yandex.practicum.scheduler.managers.interfaces.TaskStore;
+import ru.yandex.practicum.scheduler.managers.queries.TaskQuery;
+import ru.yandex.practicum.scheduler.managers.stores.InMemoryTaskStore;
+import ru.yandex.practicum.scheduler.models.Epic;
+import ru.yandex.practicum.scheduler.models.Subtask;
+import ru.yandex.practicum.scheduler.models.Task;
+import ru.yandex.practicum.scheduler.models.enums.TaskTypes;
+
+// Потокобезопасный менеджер задач.
+// Хранилища сущностей и итогов эпиков - ConcurrentHashMap, поэтому получение по ИД и списков не блокируется.
+// Список приоритетов и индекс интервалов защищены блокировкой чтения-записи:
+// проверки пересечений и чтение списка приоритетов выполняются параллельно, изменения - по одному.
+// Изменения подзадач и эпиков блокируют только полосу (stripe) своего эпика,
+// поэтому изменения разных эпиков выполняются параллельно.
+// Эпики изменяются на месте, поэтому наружу отдаются их копии, снятые под блокировкой полосы эпика:
+// иначе сериализация эпика во время изменения его подзадач увидела бы наполовину обновлённый эпик.
+public class ConcurrentTaskManager extends InMemoryTaskManager {
+
+    private static final int EPIC_LOCK_STRIPES = 64;
+    private final ReentrantReadWriteLock timeLock = new ReentrantReadWriteLock();
+    private final ReentrantLock[] epicLocks = new ReentrantLock[EPIC_LOCK_STRIPES];
+
+    public ConcurrentTaskManager(HistoryManager historyManager) {
+        this(historyManager, InMemoryTaskStore.concurrent());
+    }
+
+    // Хранилище должно допускать чтение по ИД и списков параллельно с изменениями.
+    // Временная шкала хранилища изменяется только под блокировкой списка приоритетов.
+    public ConcurrentTaskManager(HistoryManager historyManager, TaskStore store) {
+        super(historyManager instanceof SynchronizedHistoryManager ? historyManager
+                : new SynchronizedHistoryManager(historyManager), store, new ConcurrentHashMap<>());
+        for (int i = 0; i < epicLocks.length; i++) {
+            epicLocks[i] = new ReentrantLock();
+        }
+    }
+
+    @Override
+    public List<Task> getPrioritizedTasks() {
+        timeLock.readLock().lock();
+        try {
+            return super.getPrioritizedTasks();
+        } finally {
+            timeLock.readLock().unlock();
+        }
+    }
+
+    // Шкала - TreeSet, который нельзя обходить параллельно с изменениями, а держать блокировку чтения
+    // всё время обхода нельзя: action может долго писать ответ медленному клиенту и задерживать изменения.
+    // Поэтому обходится копия ссылок. Задачи, эпики и подзадачи обходятся без копирования:
+    // обход ConcurrentHashMap допускает параллельные изменения.
+    @Override
+    public void forEachPrioritizedTask(Consumer<? super Task> action) {
+        getPrioritizedTasks().forEach(action);
+    }
+
+    // Страница по шкале собирается под блокировкой чтения: обход индекса интервалов короткий
+    // и не выполняет ввод-вывод, в отличие от forEachPrioritizedTask
+    @Override
+    protected void walkTimeline(LocalDateTime start, int afterId, Predicate<? super Task> action) {
+        timeLock.readLock().lock();
+        try {
+            super.walkTimeline(start, afterId, action);
+        } finally {
+            timeLock.readLock().unlock();
+        }
+    }
+
+    @Override
+    protected void checkIntersectionByTimeBetweenTaskAndStorage(Task task) {
+        timeLock.readLock().lock();
+        try {
+            super.checkIntersectionByTimeBetweenTaskAndStorage(task);
+        } finally {
+            timeLock.readLock().unlock();
+        }
+    }
+
+    @Override
+    protected void checkIntersectionByTimeBetweenTaskAndStorage(Task task, Set<Integer> ignoredIds) {
+        timeLock.readLock().lock();
+        try {
+            super.checkIntersectionByTimeBetweenTaskAndStorage(task, ignoredIds);
+        } finally {
+            timeLock.readLock().unlock();
+        }
+    }
+
+    @Override
+    protected void addPrioritizedTask(Task task) {
+        // Проверка пересечения и добавление выполняются под одной блокировкой
+        timeLock.writeLock().lock();
+        try {
+            super.addPrioritizedTask(task);
+        } finally {
+            timeLock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    protected void restorePrioritizedTask(Task task) {
+        timeLock.writeLock().lock();
+        try {
+            super.restorePrioritizedTask(task);
+        } finally {
+            timeLock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    protected void restorePrioritizedTasks(Collection<? extends Task> restoredTasks) {
+        timeLock.writeLock().lock();
+        try {
+            super.restorePrioritizedTasks(restoredTasks);
+        } finally {
+            timeLock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    protected void replacePrioritizedTask(Task task) {
+        timeLock.writeLock().lock();
+        try {
+            super.replacePrioritizedTask(task);
+        } finally {
+            timeLock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    protected void deletePrioritizedTask(Task task) {
+        timeLock.writeLock().lock();
+        try {
+            super.deletePrioritizedTask(task);
+        } finally {
+            timeLock.writeLock().unlock();
+        }
+    }
+
+    // Обновление и удаление задачи выполняются под блокировкой записи целиком: иначе обновление,
+    // начатое до удаления, может вернуть удалённую задачу на шкалу уже после удаления
+    @Override
+    public void updateTask(Task task) {
+        timeLock.writeLock().lock();
+        try {
+            super.updateTask(task);
+        } finally {
+            timeLock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void deleteTask(Integer id) {
+        timeLock.writeLock().lock();
+        try {
+            super.deleteTask(id);
+        } finally {
+            timeLock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public List<Task> getHistory() {
+        List<Task> history = new ArrayList<>(super.getHistory());
+        history.replaceAll(task -> task instanceof Epic epic ? snapshotOf(epic) : task);
+        return history;
+    }
+
+    @Override
+    public List<Epic> getEpics() {
+        List<Epic> epics = super.getEpics();
+        epics.replaceAll(this::snapshotOf);
+        return epics;
+    }
+
+    @Override
+    public void forEachEpic(Consumer<? super Epic> action) {
+        super.forEachEpic(epic -> action.accept(snapshotOf(epic)));
+    }
+
+    @Override
+    public Optional<Epic> getEpicById(Integer id) {
+        return super.getEpicById(id).map(this::snapshotOf);
+    }
+
+    @Override
+    public List<Epic> findEpics(TaskQuery query) {
+        List<Epic> epics = new ArrayList<>(super.findEpics(query));
+        epics.replaceAll(this::snapshotOf);
+        return epics;
+    }
+
+    @Override
+    public void updateEpic(Epic epic) {
+        ReentrantLock lock = getEpicLock(epic.getId());
+        lock.lock();
+        try {
+            super.updateEpic(epic);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void deleteEpic(Integer id) {
+        if (id == null) {
+            return;
+        }
+        ReentrantLock lock = getEpicLock(id);
+        lock.lock();
+        try {
+            super.deleteEpic(id);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void deleteEpics() {
+        lockAllEpics();
+        try {
+            super.deleteEpics();
+        } finally {
+            unlockAllEpics();
+        }
+    }
+
+    @Override
+    public List<Subtask> getEpicSubtasks(Integer epicId) {
+        // Список подзадач эпика изменяется под блокировкой эпика
+        ReentrantLock lock = getEpicLock(epicId);
+        lock.lock();
+        try {
+            return super.getEpicSubtasks(epicId);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    protected List<Subtask> findEpicSubtasks(TaskQuery query) {
+        ReentrantLock lock = getEpicLock(query.getEpicId());
+        lock.lock();
+        try {
+            return super.findEpicSubtasks(query);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public Integer createSubtask(Subtask subtask) {
+        if (subtask == null || subtask.getEpicId() == null) {
+            return super.createSubtask(subtask);
+        }
+        ReentrantLock lock = getEpicLock(subtask.getEpicId());
+        lock.lock();
+        try {
+            return super.createSubtask(subtask);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void updateSubtask(Subtask subtask) {
+        if (subtask == null || subtask.getId() == null || subtask.getEpicId() == null) {
+            super.updateSubtask(subtask);
+            return;
+        }
+        while (true) {
+            Subtask storedSubtask = store.get(TaskTypes.SUBTASK, subtask.getId());
+            if (storedSubtask == null) {
+                return;
+            }
+            // Подзадача может переноситься в другой эпик, поэтому блокируем оба эпика
+            Integer previousEpicId = storedSubtask.getEpicId();
+            // Захватываем полосы в порядке возрастания номера, чтобы исключить взаимоблокировку
+            int firstStripe = Math.min(getEpicStripe(previousEpicId), getEpicStripe(subtask.getEpicId()));
+            int secondStripe = Math.max(getEpicStripe(previousEpicId), getEpicStripe(subtask.getEpicId()));
+            epicLocks[firstStripe].lock();
+            epicLocks[secondStripe].lock();
+            try {
+                // Если подзадачу успели перенести в другой эпик, повторяем попытку
+                Subtask currentSubtask = store.get(TaskTypes.SUBTASK, subtask.getId());
+                if (currentSubtask == null || previousEpicId.equals(currentSubtask.getEpicId())) {
+                    super.updateSubtask(subtask);
+                    return;
+                }
+            } finally {
+                epicLocks[secondStripe].unlock();
+                epicLocks[firstStripe].unlock();
+            }
+        }
+    }
+
+    @Override
+    public void deleteSubtask(Integer id) {
+        if (id == null) {
+            return;
+        }
+        while (true) {
+            Subtask storedSubtask = store.get(TaskTypes.SUBTASK, id);
+            if (storedSubtask == null) {
+                return;
+            }
+            ReentrantLock lock = getEpicLock(storedSubtask.getEpicId());
+            lock.lock();
+            try {
+                // Если подзадачу успели перенести в другой эпик, повторяем попытку
+                Subtask currentSubtask = store.get(TaskTypes.SUBTASK, id);
+                if (currentSubtask == null || storedSubtask.getEpicId().equals(currentSubtask.getEpicId())) {
+                    super.deleteSubtask(id);
+                    return;
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    @Override
+    public void deleteSubtasks() {
+        lockAllEpics();
+        try {
+            super.deleteSubtasks();
+        } finally {
+            unlockAllEpics();
+        }
+    }
+
+    @Override
+    public List<Integer> createTasks(List<Task> tasks) {
+        // Пакет проверяется и добавляется под одной блокировкой списка приоритетов
+        timeLock.writeLock().lock();
+        try {
+            return super.createTasks(tasks);
+        } finally {
+            timeLock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void updateTasks(List<Task> tasks) {
+        timeLock.writeLock().lock();
+        try {
+            super.updateTasks(tasks);
+        } finally {
+            timeLock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void deleteTasks(Collection<Integer> ids) {
+        timeLock.writeLock().lock();
+        try {
+            super.deleteTasks(ids);
+        } finally {
+            timeLock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void updateEpics(List<Epic> epics) {
+        lockAllEpics();
+        try {
+            super.updateEpics(epics);
+        } finally {
+            unlockAllEpics();
+        }
+    }
+
+    @Override
+    public void deleteEpics(Collection<Integer> ids) {
+        lockAllEpics();
+        try {
+            super.deleteEpics(ids);
+        } finally {
+            unlockAllEpics();
+        }
+    }
+
+    @Override
+    public List<Integer> createSubtasks(List<Subtask> subtasks) {
+        lockAllEpics();
+        timeLock.writeLock().lock();
+        try {
+            return super.createSubtasks(subtasks);
+        } finally {
+            timeLock.writeLock().unlock();
+            unlockAllEpics();
+        }
+    }
+
+    @Override
+    public void updateSubtasks(List<Subtask> subtasks) {
+        lockAllEpics();
+        timeLock.writeLock().lock();
+        try {
+            super.updateSubtasks(subtasks);
+        } finally {
+            timeLock.writeLock().unlock();
+            unlockAllEpics();
+        }
+    }
+
+    @Override
+    public void deleteSubtasks(Collection<Integer> ids) {
+        lockAllEpics();
+        try {
+            super.deleteSubtasks(ids);
+        } finally {
+            unlockAllEpics();
+        }
+    }
+
+    // Копия эпика вместе со списком подзадач, снятая под блокировкой полосы эпика
+    private Epic snapshotOf(Epic epic) {
+        ReentrantLock lock = getEpicLock(epic.getId());
+        lock.lock();
+        try {
+            Epic copy = new Epic(epic.getId(), epic.getStatus(), epic.getName(), epic.getDescription());
+            copy.setStartTime(epic.getStartTime());
+            copy.setEndTime(epic.getEndTime());
+            copy.setDuration(epic.getDuration());
+            copy.addSubtasks(epic.getSubtaskIds());
+            return copy;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private int getEpicStripe(Integer epicId) {
+        return Math.floorMod(epicId == null ? 0 : epicId.hashCode(), epicLocks.length);
+    }
+
+    private ReentrantLock getEpicLock(Integer epicId) {
+        return epicLocks[getEpicStripe(epicId)];
+    }
+
+    private void lockAllEpics() {
+        for (ReentrantLock lock : epicLocks) {
+            lock.lock();
+        }
+    }
+
+    private void unlockAllEpics() {
+        for (int i = epicLocks.length - 1; i >= 0; i--) {
+            epicLocks[i].unlock();
+        }
+    }
+}
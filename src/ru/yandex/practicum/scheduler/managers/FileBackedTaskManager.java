@@ -1,33 +1,211 @@
 package ru.yandex.practicum.scheduler.managers;
 
-import java.io.BufferedReader;
 import java.io.File;
-import java.io.FileReader;
-import java.io.FileWriter;
+import java.io.FileOutputStream;
+import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.nio.channels.FileChannel;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
 import java.time.Duration;
 import java.time.LocalDateTime;
-import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
 import ru.yandex.practicum.scheduler.exceptions.ManagerSaveException;
+import ru.yandex.practicum.scheduler.managers.indexes.EpicAggregate;
 import ru.yandex.practicum.scheduler.managers.interfaces.HistoryManager;
+import ru.yandex.practicum.scheduler.managers.interfaces.TaskManager;
+import ru.yandex.practicum.scheduler.managers.interfaces.TaskStore;
+import ru.yandex.practicum.scheduler.managers.persistence.BinarySnapshot;
+import ru.yandex.practicum.scheduler.managers.persistence.CompressionTypes;
+import ru.yandex.practicum.scheduler.managers.persistence.CsvTaskReader;
+import ru.yandex.practicum.scheduler.managers.persistence.CsvTaskWriter;
+import ru.yandex.practicum.scheduler.managers.persistence.PersistenceTypes;
+import ru.yandex.practicum.scheduler.managers.persistence.SegmentedStore;
+import ru.yandex.practicum.scheduler.managers.persistence.SnapshotCompression;
+import ru.yandex.practicum.scheduler.managers.persistence.SnapshotFormats;
+import ru.yandex.practicum.scheduler.managers.persistence.SyncTypes;
+import ru.yandex.practicum.scheduler.managers.persistence.WriteAheadLog;
+import ru.yandex.practicum.scheduler.managers.queries.TaskQuery;
+import ru.yandex.practicum.scheduler.managers.stores.InMemoryTaskStore;
 import ru.yandex.practicum.scheduler.models.Epic;
 import ru.yandex.practicum.scheduler.models.Subtask;
 import ru.yandex.practicum.scheduler.models.Task;
-import ru.yandex.practicum.scheduler.models.enums.StatusTypes;
 import ru.yandex.practicum.scheduler.models.enums.TaskTypes;
 
-public class FileBackedTaskManager extends InMemoryTaskManager {
+// Менеджер задач, сохраняющий состояние в файл.
+// Изменения выполняются под общей блокировкой, а ожидание сохранения на диск - после её снятия,
+// поэтому изменения из разных потоков попадают в одну группу записи журнала и сбрасываются на диск вместе.
+// Метод изменения возвращает управление только после того, как изменение сохранено согласно политике сброса.
+// В режиме отложенной записи (setWriteDelay) изменения только отмечаются, а поток записи сохраняет
+// все изменения за период задержки одной записью снимка, сегментов или журнала.
+public class FileBackedTaskManager extends InMemoryTaskManager implements AutoCloseable {
 
-    private static final String FILE_HEADER = "ID,TYPE,NAME,STATUS,DESCRIPTION,EPIC,START_TIME,DURATION";
+    private static final String LOG_SUFFIX = ".wal";
+    private static final String PUT_RECORD = "PUT";
+    private static final String DELETE_RECORD = "DEL";
+    private static final int DEFAULT_CHECKPOINT_INTERVAL = 10_000;
     private final File file;
+    private final WriteAheadLog writeAheadLog;
+    // Изменения, ещё не записанные в журнал
+    private final List<String> pendingRecords = new ArrayList<>();
+    private final SegmentedStore segmentedStore;
+    // Номера сегментов с изменёнными записями, ещё не перезаписанных на диск
+    private final Set<Integer> dirtySegments = new HashSet<>();
+    private final ReentrantLock stateLock = new ReentrantLock();
+    // Фиксация журнала последнего изменения, сохранения которой ждёт изменивший поток
+    private CompletableFuture<?> unsyncedCommit;
+    private SyncTypes syncType = SyncTypes.EVERY_WRITE;
+    private SnapshotFormats snapshotFormat = SnapshotFormats.BINARY;
+    private CompressionTypes snapshotCompression = CompressionTypes.NONE;
+    private int checkpointInterval = DEFAULT_CHECKPOINT_INTERVAL;
+    private Duration checkpointPeriod;
+    private long lastCheckpointNanos = System.nanoTime();
+    // Снимок и журнал соответствуют состоянию менеджера. Новый менеджер при первом изменении записывает снимок.
+    private boolean logInitialized;
+    // Поток фоновой записи снимков и последняя запущенная запись
+    private ExecutorService compactor;
+    private Future<?> lastCompaction;
+    // Задержка отложенной записи. null - изменения сохраняются в потоке, который их выполнил.
+    private Duration writeDelay;
+    private ScheduledExecutorService writer;
+    // Запись, которая сохранит ещё не сохранённые изменения. null, если таких изменений нет.
+    private CompletableFuture<Void> pendingWrite;
+    // Последняя запланированная запись: записи выполняются по порядку, поэтому её завершение
+    // означает сохранение всех изменений до неё
+    private CompletableFuture<Void> lastWrite;
+    // Следующая отложенная запись должна перезаписать все сегменты
+    private boolean rewriteAllPending;
+    // Пока выполняется транзакция, сохранение в файл откладывается до её завершения
+    private boolean inTransaction;
+    private boolean savePending;
+    // Журнал отката транзакции: состояние сущностей до их первого изменения в ней
+    private final Map<Integer, EntitySnapshot> undoLog = new HashMap<>();
+    // Последний выданный ИД и порядок ИД истории на начало транзакции
+    private long transactionLastId;
+    private List<Integer> transactionHistory;
+    // Во время загрузки список приоритетов и индекс интервалов не заполняются
+    private boolean timeIndexDeferred;
+    // Построение списка приоритетов и индекса интервалов в фоновом потоке. null, если они уже построены.
+    private volatile CompletableFuture<Void> timeIndexReady;
 
     public FileBackedTaskManager(HistoryManager historyManager, File file) {
-        super(historyManager);
+        this(historyManager, file, PersistenceTypes.SNAPSHOT);
+    }
+
+    public FileBackedTaskManager(HistoryManager historyManager, File file, PersistenceTypes persistenceType) {
+        this(historyManager, file, persistenceType, new InMemoryTaskStore());
+    }
+
+    // Сохранение в файл поверх другого хранилища. Хранилище должно быть пустым: состояние загружается из файла.
+    public FileBackedTaskManager(HistoryManager historyManager, File file, PersistenceTypes persistenceType,
+                                 TaskStore store) {
+        super(historyManager, store);
         this.file = file;
+        this.writeAheadLog = persistenceType == PersistenceTypes.WRITE_AHEAD_LOG
+                ? new WriteAheadLog(getLogPath(file)) : null;
+        this.segmentedStore = persistenceType == PersistenceTypes.SEGMENTED
+                ? new SegmentedStore(file.toPath(), SegmentedStore.DEFAULT_SEGMENT_SIZE) : null;
+    }
+
+    static Path getLogPath(File file) {
+        return file.toPath().resolveSibling(file.getName() + LOG_SUFFIX);
+    }
+
+    // Количество записей активного сегмента журнала, после которого запускается фоновая запись снимка
+    public void setCheckpointInterval(int checkpointInterval) {
+        if (checkpointInterval < 1) {
+            throw new IllegalArgumentException("Интервал записи снимка должен быть положительным");
+        }
+        this.checkpointInterval = checkpointInterval;
+    }
+
+    // Время, после которого изменения журнала переносятся в снимок, даже если журнал ещё мал.
+    // null отключает запись снимка по времени.
+    public void setCheckpointPeriod(Duration checkpointPeriod) {
+        if (checkpointPeriod != null && checkpointPeriod.isNegative()) {
+            throw new IllegalArgumentException("Период записи снимка не может быть отрицательным");
+        }
+        this.checkpointPeriod = checkpointPeriod;
+    }
+
+    // Задаёт момент, после которого изменение считается сохранённым.
+    // Период используется только для PERIODIC: фиксации за период сбрасываются на диск одним вызовом.
+    public void setSyncPolicy(SyncTypes syncType, Duration syncPeriod) {
+        if (syncType == null) {
+            throw new IllegalArgumentException("Политика сброса не может быть null");
+        }
+        if (writeAheadLog != null) {
+            writeAheadLog.setSyncPolicy(syncType, syncPeriod);
+        }
+        if (segmentedStore != null) {
+            segmentedStore.setSyncType(syncType);
+        }
+        this.syncType = syncType;
+    }
+
+    // Включает отложенную запись: изменение возвращает управление, не дожидаясь записи в файл,
+    // а поток записи через delay после первого несохранённого изменения сохраняет все накопленные.
+    // null возвращает синхронную запись, предварительно сохранив накопленные изменения.
+    public void setWriteDelay(Duration delay) {
+        if (delay != null && delay.isNegative()) {
+            throw new IllegalArgumentException("Задержка записи не может быть отрицательной");
+        }
+        stateLock.lock();
+        try {
+            writeDelay = delay;
+        } finally {
+            stateLock.unlock();
+        }
+        if (delay == null) {
+            flush();
+        }
+    }
+
+    // Формат, в котором записываются снимки. При загрузке формат определяется по содержимому файла,
+    // поэтому снимок CSV загружается в любом режиме, а следующая запись сохранит его в выбранном формате.
+    public void setSnapshotFormat(SnapshotFormats snapshotFormat) {
+        if (snapshotFormat == null) {
+            throw new IllegalArgumentException("Формат снимка не может быть null");
+        }
+        this.snapshotFormat = snapshotFormat;
+    }
+
+    // Сжатие, с которым записываются снимки. При загрузке сжатие определяется по содержимому файла.
+    public void setSnapshotCompression(CompressionTypes snapshotCompression) {
+        if (snapshotCompression == null) {
+            throw new IllegalArgumentException("Сжатие снимка не может быть null");
+        }
+        this.snapshotCompression = snapshotCompression;
     }
 
     public static void main(String[] args) {
@@ -76,185 +254,1388 @@ public class FileBackedTaskManager extends InMemoryTaskManager {
         return result;
     }
 
-    static FileBackedTaskManager loadFromFile(File file) {
-        FileBackedTaskManager fileTaskManager = new FileBackedTaskManager(Managers.getDefaultHistory(), file);
-        // try with resources
-        try (BufferedReader br = new BufferedReader(new FileReader(file, StandardCharsets.UTF_8))) {
-            // Пока есть что читать
-            while (br.ready()) {
-                // получаем строку
-                String line = br.readLine();
-                // Если строка пустая или это заголовок файла
-                if (line.isBlank() || line.equals(FILE_HEADER)) {
-                    // пропускаем её
-                    continue;
+    public static FileBackedTaskManager loadFromFile(File file) {
+        // Если рядом со снимком есть журнал или каталог сегментов, загружаем менеджер в соответствующем режиме
+        PersistenceTypes persistenceType = PersistenceTypes.SNAPSHOT;
+        if (Files.exists(getLogPath(file))) {
+            persistenceType = PersistenceTypes.WRITE_AHEAD_LOG;
+        } else if (Files.isDirectory(SegmentedStore.getDirectory(file.toPath()))) {
+            persistenceType = PersistenceTypes.SEGMENTED;
+        }
+        return loadFromFile(file, persistenceType);
+    }
+
+    public static FileBackedTaskManager loadFromFile(File file, PersistenceTypes persistenceType) {
+        return loadFromFile(file, persistenceType, true);
+    }
+
+    // Загружает менеджер из снимка и журнала.
+    // Если deferTimeIndex, то при загрузке заполняются только хранилища и итоги эпиков, а список приоритетов
+    // и индекс интервалов строятся в фоновом потоке. Менеджер сразу отвечает на запросы по ИД и спискам,
+    // а операции, которым нужен индекс, дожидаются его построения.
+    public static FileBackedTaskManager loadFromFile(File file, PersistenceTypes persistenceType,
+                                                     boolean deferTimeIndex) {
+        FileBackedTaskManager fileTaskManager = new FileBackedTaskManager(Managers.getDefaultHistory(), file,
+                persistenceType);
+        fileTaskManager.timeIndexDeferred = deferTimeIndex;
+        WriteAheadLog log = fileTaskManager.writeAheadLog;
+        if (fileTaskManager.segmentedStore != null) {
+            fileTaskManager.readSegments();
+        }
+        // До первой записи снимка в режиме журнала файла снимка может не быть
+        long snapshotLsn = fileTaskManager.segmentedStore == null && (log == null || file.exists())
+                ? fileTaskManager.readSnapshot() : 0;
+
+        if (log != null) {
+            // Повторяем изменения журнала, которых нет в снимке
+            log.replay(snapshotLsn, fileTaskManager::applyLogRecords);
+            fileTaskManager.logInitialized = true;
+        }
+
+        if (deferTimeIndex) {
+            fileTaskManager.buildTimeIndexInBackground();
+        }
+        return fileTaskManager;
+    }
+
+    private void buildTimeIndexInBackground() {
+        // Список берётся в текущем потоке: фоновый поток не обращается к хранилищам,
+        // а к списку приоритетов и индексу остальные потоки обращаются только после его завершения
+        List<Task> timedTasks = new ArrayList<>(store.size(TaskTypes.TASK) + store.size(TaskTypes.SUBTASK));
+        timedTasks.addAll(store.scan(TaskTypes.TASK));
+        timedTasks.addAll(store.scan(TaskTypes.SUBTASK));
+        timeIndexDeferred = false;
+
+        CompletableFuture<Void> ready = new CompletableFuture<>();
+        timeIndexReady = ready;
+        Thread builder = new Thread(() -> {
+            try {
+                super.restorePrioritizedTasks(timedTasks);
+                ready.complete(null);
+            } catch (RuntimeException e) {
+                ready.completeExceptionally(e);
+            }
+        }, "task-manager-time-index");
+        builder.setDaemon(true);
+        builder.start();
+    }
+
+    // Ждёт построения списка приоритетов и индекса интервалов после загрузки
+    public void awaitTimeIndex() {
+        CompletableFuture<Void> ready = timeIndexReady;
+        if (ready == null) {
+            return;
+        }
+        try {
+            ready.join();
+        } catch (CompletionException e) {
+            throw new ManagerSaveException("Ошибка при построении индекса " + file.getPath(), e.getCause());
+        }
+        timeIndexReady = null;
+    }
+
+    @Override
+    protected void checkIntersectionByTimeBetweenTaskAndStorage(Task task) {
+        awaitTimeIndex();
+        super.checkIntersectionByTimeBetweenTaskAndStorage(task);
+    }
+
+    @Override
+    protected void checkIntersectionByTimeBetweenTaskAndStorage(Task task, Set<Integer> ignoredIds) {
+        awaitTimeIndex();
+        super.checkIntersectionByTimeBetweenTaskAndStorage(task, ignoredIds);
+    }
+
+    @Override
+    protected void addPrioritizedTask(Task task) {
+        awaitTimeIndex();
+        super.addPrioritizedTask(task);
+    }
+
+    @Override
+    protected void restorePrioritizedTask(Task task) {
+        // Во время загрузки задача попадёт в индекс при его построении
+        if (!timeIndexDeferred) {
+            awaitTimeIndex();
+            super.restorePrioritizedTask(task);
+        }
+    }
+
+    @Override
+    protected void restorePrioritizedTasks(Collection<? extends Task> restoredTasks) {
+        if (!timeIndexDeferred) {
+            awaitTimeIndex();
+            super.restorePrioritizedTasks(restoredTasks);
+        }
+    }
+
+    @Override
+    protected void replacePrioritizedTask(Task task) {
+        awaitTimeIndex();
+        super.replacePrioritizedTask(task);
+    }
+
+    @Override
+    protected void deletePrioritizedTask(Task task) {
+        if (!timeIndexDeferred) {
+            awaitTimeIndex();
+            super.deletePrioritizedTask(task);
+        }
+    }
+
+    private long readSnapshot() {
+        List<Task> entities = new ArrayList<>();
+        long snapshotLsn = readSnapshot(entities);
+        bulkRestore(entities);
+        return snapshotLsn;
+    }
+
+    // Читает сущности снимка в список, не меняя состояние менеджера. Возвращает номер фиксации снимка.
+    private long readSnapshot(List<Task> entities) {
+        long snapshotLsn;
+        try {
+            CompressionTypes compression = SnapshotCompression.detect(file.toPath());
+            if (compression != CompressionTypes.NONE) {
+                snapshotLsn = readCompressedSnapshot(compression, entities);
+            } else if (BinarySnapshot.isBinary(file.toPath())) {
+                // Декодируем записи прямо из отображённого в память файла
+                try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+                    snapshotLsn = BinarySnapshot.read(channel, entities::add);
                 }
-                // Создаём объект из строки
-                Task task = fileTaskManager.fromString(line);
-                // Сравниваем полученный rowId и счётчик
-                if (task.getId() > fileTaskManager.generatedId) {
-                    fileTaskManager.generatedId = task.getId();
+            } else {
+                snapshotLsn = readCsvSnapshot(entities);
+            }
+        } catch (IOException e) {
+            throw new ManagerSaveException("Ошибка при загрузке из файла " + file.getPath(), e);
+        }
+        return snapshotLsn;
+    }
+
+    private void readSegments() {
+        List<Task> entities = new ArrayList<>();
+        segmentedStore.read(entities::add);
+        bulkRestore(entities);
+        // Сегменты соответствуют состоянию менеджера, следующие изменения перезапишут только свои сегменты
+        logInitialized = true;
+    }
+
+    // Восстанавливает сущности снимка в пустой менеджер без проверок и пересчётов на каждую запись.
+    // Сущности раскладываются по хранилищам, подзадачи группируются по эпикам, и итоги каждого эпика
+    // вычисляются за один проход по его подзадачам. Список приоритетов и индекс интервалов строятся
+    // после одной сортировки. Время загрузки растёт линейно от числа записей, не считая сортировки.
+    private void bulkRestore(List<Task> entities) {
+        Map<Integer, List<Subtask>> subtasksByEpic = new HashMap<>();
+        List<Task> timedTasks = new ArrayList<>(entities.size());
+        int maxId = 0;
+        for (Task task : entities) {
+            maxId = Math.max(maxId, task.getId());
+            switch (task.getType()) {
+                case TASK -> {
+                    store.put(task);
+                    timedTasks.add(task);
                 }
-                // В зависимости от типа объекта добавляем значение в хранилище
-                switch (task.getType()) {
-                    case TASK -> {
-                        // Добавляем задачу в список приоритетов
-                        fileTaskManager.addPrioritizedTask(task);
-                        // Добавляем задачу в хранилище
-                        fileTaskManager.tasks.put(task.getId(), task);
-                    }
-                    case EPIC -> fileTaskManager.epics.put(task.getId(), (Epic) task);
-                    case SUBTASK -> {
-                        Subtask subtask = (Subtask) task;
-                        // Добавляем подзадачу в список приоритетов
-                        fileTaskManager.addPrioritizedTask(task);
-                        // Добавляем подзадачу в хранилище
-                        fileTaskManager.subtasks.put(task.getId(), subtask);
-                        // Получаем родительский эпик
-                        Epic recevedEpic = fileTaskManager.getEpicInternal(subtask.getEpicId());
-                        recevedEpic.addSubtask(subtask.getId());
-                        fileTaskManager.updateEpic(recevedEpic);
-                    }
+                case EPIC -> {
+                    Epic epic = (Epic) task;
+                    // Подзадачи эпика будут добавлены вместе с самими подзадачами
+                    epic.clearSubtasks();
+                    store.put(epic);
+                }
+                case SUBTASK -> {
+                    Subtask subtask = (Subtask) task;
+                    store.put(subtask);
+                    subtasksByEpic.computeIfAbsent(subtask.getEpicId(), id -> new ArrayList<>()).add(subtask);
+                    timedTasks.add(subtask);
                 }
             }
+        }
+        // Сдвигаем счётчик ИД один раз за наибольший ИД снимка
+        idAllocator.advanceTo(maxId);
+
+        for (Map.Entry<Integer, List<Subtask>> entry : subtasksByEpic.entrySet()) {
+            Epic epic = getEpicInternal(entry.getKey());
+            if (epic == null) {
+                throw new ManagerSaveException("Эпик с id " + entry.getKey() + " не найден в снимке " + file.getPath());
+            }
+            epic.addSubtasks(entry.getValue().stream().map(Task::getId).toList());
+            EpicAggregate aggregate = getEpicAggregate(epic.getId());
+            entry.getValue().forEach(aggregate::add);
+            aggregate.applyTo(epic);
+        }
+
+        restorePrioritizedTasks(timedTasks);
+    }
+
+    // Распаковывает снимок потоком, не записывая распакованные данные на диск и не держа их в памяти целиком
+    private long readCompressedSnapshot(CompressionTypes compression, List<Task> entities) throws IOException {
+        try (InputStream in = SnapshotCompression.decompress(new FileInputStream(file), compression)) {
+            if (BinarySnapshot.isBinary(in)) {
+                return BinarySnapshot.read(in, entities::add);
+            }
+            return new CsvTaskReader(new InputStreamReader(in, StandardCharsets.UTF_8)).read(entities::add);
+        }
+    }
+
+    private long readCsvSnapshot(List<Task> entities) {
+        // try with resources
+        try (Reader reader = new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8)) {
+            // Заголовок и пустые строки пропускаются, номер фиксации журнала берётся из строки #LSN
+            return new CsvTaskReader(reader).read(entities::add);
         } catch (IOException e) {
             // При проблемах с файлом выбрасываем своё исключение
             throw new ManagerSaveException("Ошибка при загрузке из файла " + file.getPath(), e);
         }
+    }
+
+    private void applyLogRecords(List<String> records) {
+        for (String record : records) {
+            int comma = record.indexOf(',');
+            String operation = record.substring(0, comma);
+            String payload = record.substring(comma + 1);
+
+            if (operation.equals(PUT_RECORD)) {
+                // Добавляем или заменяем сущность
+                Task task = CsvTaskReader.parse(payload);
+                idAllocator.advanceTo(task.getId());
+                putRestored(task);
+            } else if (operation.equals(DELETE_RECORD)) {
+                deleteRestored(Integer.parseInt(payload));
+            }
+        }
+    }
 
-        return fileTaskManager;
+    private void deleteRestored(int id) {
+        // Удаляем сущность без записи в журнал, удаление эпика удаляет и его подзадачи
+        if (store.contains(TaskTypes.TASK, id)) {
+            super.deleteTask(id);
+        } else if (store.contains(TaskTypes.EPIC, id)) {
+            super.deleteEpic(id);
+        } else if (store.contains(TaskTypes.SUBTASK, id)) {
+            super.deleteSubtask(id);
+        }
     }
 
-    private void save() {
-        // try with resources
-        try (FileWriter fw = new FileWriter(file, StandardCharsets.UTF_8)) {
-            // Пишем первую строчку
-            fw.write(FILE_HEADER + "\n");
-            // Если в хранилище нет данных
-            if (getAllTasks().isEmpty()) {
-                // пишем пустую строку.
-                fw.write("");
-            } else {
-                // Иначе получаем все сущности
-                for (Task task : getAllTasks()) {
-                    // и записываем их в файл
-                    fw.write(task.toCSV() + "\n");
+    // Запускает запись снимка в фоновом потоке.
+    // В текущем потоке только переключается сегмент журнала, поэтому изменения, сделанные во время записи,
+    // попадают в новый сегмент и не теряются. Новый снимок фоновый поток собирает из прежнего снимка
+    // и закрытых сегментов. Копия состояния в текущем потоке снимается, только если снимок на диске
+    // может не соответствовать журналу: при первой записи снимка и после неудачной или ещё идущей записи.
+    // После замены снимка закрытые сегменты, изменения которых в него вошли, удаляются.
+    public Future<?> compact() {
+        stateLock.lock();
+        try {
+            if (inTransaction) {
+                throw new IllegalStateException("Снимок нельзя записать во время транзакции");
+            }
+            // При отложенной записи файл пишет только поток записи, поэтому полная запись выполняется им
+            if (writeDelay != null && writeAheadLog == null) {
+                rewriteAllPending = true;
+                return scheduleWrite(Duration.ZERO);
+            }
+            if (segmentedStore != null) {
+                writeSegments(true);
+                return CompletableFuture.completedFuture(null);
+            }
+            if (writeAheadLog == null) {
+                writeSnapshot(file, 0, getAllTasks());
+                return CompletableFuture.completedFuture(null);
+            }
+
+            List<Task> entities = isSnapshotReusable() ? null
+                    : getAllTasks().stream().map(FileBackedTaskManager::copyOf).toList();
+            long lsn = writeAheadLog.rotate();
+            lastCheckpointNanos = System.nanoTime();
+            logInitialized = true;
+            lastCompaction = getCompactor().submit(() ->
+                    writeCheckpoint(entities != null ? entities : readCheckpointState(lsn), lsn));
+            return lastCompaction;
+        } finally {
+            stateLock.unlock();
+        }
+    }
+
+    // Записывает снимок и ждёт завершения записи
+    public void checkpoint() {
+        try {
+            compact().get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ManagerSaveException("Прервано ожидание записи снимка " + file.getPath(), e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new ManagerSaveException("Ошибка при записи снимка " + file.getPath(), e.getCause());
+        }
+    }
+
+    // Снимок на диске вместе с закрытыми сегментами даёт состояние менеджера: он загружен при открытии
+    // или записан последней, успешно завершённой записью снимка
+    private boolean isSnapshotReusable() {
+        if (!logInitialized) {
+            return false;
+        }
+        if (lastCompaction == null) {
+            return true;
+        }
+        if (!lastCompaction.isDone() || lastCompaction.isCancelled()) {
+            return false;
+        }
+        try {
+            lastCompaction.get();
+            return true;
+        } catch (ExecutionException e) {
+            return false;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    // Собирает состояние на номер фиксации lsn: сущности прежнего снимка и изменения закрытых сегментов после него.
+    // Выполняется в потоке записи снимков и не обращается к хранилищам менеджера.
+    private List<Task> readCheckpointState(long lsn) {
+        Map<Integer, Task> entities = new LinkedHashMap<>();
+        // ИД подзадач каждого эпика: удаление эпика удаляет и его подзадачи
+        Map<Integer, Set<Integer>> subtasksByEpic = new HashMap<>();
+        long snapshotLsn = 0;
+        if (file.exists()) {
+            List<Task> snapshot = new ArrayList<>();
+            snapshotLsn = readSnapshot(snapshot);
+            snapshot.forEach(task -> putCheckpointEntity(entities, subtasksByEpic, task));
+        }
+        writeAheadLog.replayClosed(snapshotLsn, lsn, records -> {
+            for (String record : records) {
+                int comma = record.indexOf(',');
+                String operation = record.substring(0, comma);
+                String payload = record.substring(comma + 1);
+                if (operation.equals(PUT_RECORD)) {
+                    putCheckpointEntity(entities, subtasksByEpic, CsvTaskReader.parse(payload));
+                } else if (operation.equals(DELETE_RECORD)) {
+                    deleteCheckpointEntity(entities, subtasksByEpic, Integer.parseInt(payload));
                 }
             }
+        });
+        return new ArrayList<>(entities.values());
+    }
+
+    private static void putCheckpointEntity(Map<Integer, Task> entities, Map<Integer, Set<Integer>> subtasksByEpic,
+                                            Task task) {
+        // Подзадача могла перейти в другой эпик
+        if (entities.put(task.getId(), task) instanceof Subtask previous) {
+            Set<Integer> subtaskIds = subtasksByEpic.get(previous.getEpicId());
+            if (subtaskIds != null) {
+                subtaskIds.remove(previous.getId());
+            }
+        }
+        if (task instanceof Subtask subtask) {
+            subtasksByEpic.computeIfAbsent(subtask.getEpicId(), id -> new HashSet<>()).add(subtask.getId());
+        }
+    }
+
+    private static void deleteCheckpointEntity(Map<Integer, Task> entities,
+                                               Map<Integer, Set<Integer>> subtasksByEpic, int id) {
+        Task removed = entities.remove(id);
+        if (removed instanceof Subtask subtask) {
+            Set<Integer> subtaskIds = subtasksByEpic.get(subtask.getEpicId());
+            if (subtaskIds != null) {
+                subtaskIds.remove(id);
+            }
+        } else if (removed instanceof Epic) {
+            Set<Integer> subtaskIds = subtasksByEpic.remove(id);
+            if (subtaskIds != null) {
+                subtaskIds.forEach(entities::remove);
+            }
+        }
+    }
+
+    private void writeCheckpoint(List<Task> entities, long lsn) {
+        // Пишем снимок во временный файл и атомарно заменяем им прежний,
+        // чтобы при сбое остался либо старый, либо новый снимок
+        Path tempFile = file.toPath().resolveSibling(file.getName() + ".tmp");
+        writeSnapshot(tempFile.toFile(), lsn, entities);
+        try {
+            Files.move(tempFile, file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
         } catch (IOException e) {
-            // При проблемах с файлом выбрасываем своё исключение
-            throw new ManagerSaveException("Ошибка при сохранении в файл " + file.getPath(), e);
+            throw new ManagerSaveException("Ошибка при замене снимка " + file.getPath(), e);
+        }
+        // Снимок содержит все изменения закрытых сегментов, поэтому они больше не нужны
+        writeAheadLog.deleteClosedSegments(lsn);
+    }
+
+    private boolean isCompactionDue() {
+        // Пока предыдущая запись снимка не завершена, новую не запускаем.
+        // Если она завершилась ошибкой, закрытые сегменты остаются и войдут в следующий снимок.
+        if (lastCompaction != null && !lastCompaction.isDone()) {
+            return false;
+        }
+        long recordCount = writeAheadLog.getRecordCount();
+        return recordCount >= checkpointInterval || (checkpointPeriod != null && recordCount > 0
+                && System.nanoTime() - lastCheckpointNanos >= checkpointPeriod.toNanos());
+    }
+
+    private ExecutorService getCompactor() {
+        if (compactor == null) {
+            compactor = Executors.newSingleThreadExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "task-manager-compactor");
+                thread.setDaemon(true);
+                return thread;
+            });
         }
+        return compactor;
     }
 
-    private Task fromString(String line) {
-        // Создаём массив из строки
-        String[] paramsArray = line.split(",");
-        // Получаем тип сущности
-        TaskTypes type = TaskTypes.valueOf(paramsArray[1]);
-        // Получаем дату начала или null
-        LocalDateTime startTime =
-                paramsArray[6].isBlank() ? null : LocalDateTime.parse(paramsArray[6], Task.getFormatter());
-        // Получаем длительность или null
-        Duration duration =
-                paramsArray[7].isBlank() ? null : Duration.of(Integer.parseInt(paramsArray[7]), ChronoUnit.MINUTES);
+    // Сохраняет накопленные изменения, дожидается фоновой записи снимков и закрывает журнал.
+    // При следующем изменении потоки записи и журнал открываются заново.
+    @Override
+    public void close() {
+        flush();
+        // Поток записи берёт блокировку состояния, поэтому его завершения ждём без неё
+        ScheduledExecutorService closedWriter = read(() -> {
+            ScheduledExecutorService current = writer;
+            writer = null;
+            return current;
+        });
+        if (closedWriter != null) {
+            closedWriter.shutdown();
+            try {
+                closedWriter.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            // Отложенные записи завершённого потока отменяются: изменения, сделанные после flush,
+            // сохраняет новый поток записи
+            flush();
+        }
+        stateLock.lock();
+        try {
+            if (compactor != null) {
+                compactor.shutdown();
+                try {
+                    compactor.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                compactor = null;
+            }
+            if (writeAheadLog != null) {
+                writeAheadLog.close();
+            }
+        } finally {
+            stateLock.unlock();
+        }
+    }
+
+    // Выполняет изменение под блокировкой и ждёт сохранения его фиксации уже после снятия блокировки
+    private <T> T persist(Supplier<T> mutation) {
+        T result;
+        CompletableFuture<?> commit;
+        stateLock.lock();
+        try {
+            result = mutation.get();
+            commit = unsyncedCommit;
+            unsyncedCommit = null;
+        } finally {
+            stateLock.unlock();
+        }
+        awaitSynced(commit);
+        return result;
+    }
+
+    private void persist(Runnable mutation) {
+        persist(() -> {
+            mutation.run();
+            return null;
+        });
+    }
+
+    private <T> T read(Supplier<T> reader) {
+        stateLock.lock();
+        try {
+            return reader.get();
+        } finally {
+            stateLock.unlock();
+        }
+    }
+
+    private void awaitSynced(CompletableFuture<?> commit) {
+        if (commit == null) {
+            return;
+        }
+        try {
+            commit.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new ManagerSaveException("Ошибка при записи в журнал " + file.getPath(), e.getCause());
+        }
+    }
+
+    // Выполняет действия над менеджером как одну транзакцию.
+    // Файл перезаписывается один раз при успешном завершении.
+    // Если действие выбросило исключение, состояние менеджера в памяти возвращается к началу транзакции.
+    // Для отката запоминаются только сущности, которые транзакция изменяет, и они восстанавливаются на месте,
+    // поэтому ссылки на них остаются действительными. Сущности, созданные в транзакции, определяются по ИД.
+    // Вложенный вызов выполняется в рамках внешней транзакции.
+    // Другие потоки не видят и не изменяют состояние до завершения транзакции.
+    public void inTransaction(Consumer<TaskManager> action) {
+        persist(() -> {
+            if (inTransaction) {
+                action.accept(this);
+                return;
+            }
+
+            transactionLastId = idAllocator.getLastId();
+            transactionHistory = historyManager.getHistory().stream().map(Task::getId).toList();
+            inTransaction = true;
+            savePending = false;
+            try {
+                action.accept(this);
+                inTransaction = false;
+                if (savePending) {
+                    save();
+                }
+            } catch (RuntimeException e) {
+                inTransaction = false;
+                // Изменения откатанной транзакции не попадают в журнал
+                pendingRecords.clear();
+                rollback();
+                throw e;
+            } finally {
+                savePending = false;
+                undoLog.clear();
+                transactionHistory = null;
+            }
+        });
+    }
+
+    // Запоминает состояние сущности до её первого изменения в транзакции. Вызывается до изменения.
+    // Вместе с подзадачей запоминается её эпик, а вместе с эпиком - его подзадачи: они меняются вместе.
+    private void stage(Integer id) {
+        if (!inTransaction || id == null || undoLog.containsKey(id)) {
+            return;
+        }
+        // Сущности, созданной в транзакции, до неё не было
+        Task entity = id > transactionLastId ? null : findEntity(id);
+        undoLog.put(id, new EntitySnapshot(entity));
+        if (entity instanceof Subtask subtask) {
+            stage(subtask.getEpicId());
+        } else if (entity instanceof Epic epic) {
+            epic.getSubtaskIds().forEach(this::stage);
+        }
+    }
+
+    private void stageAll(Collection<? extends Task> entities) {
+        if (entities != null) {
+            entities.stream().filter(Objects::nonNull).forEach(entity -> stage(entity.getId()));
+        }
+    }
+
+    // Подзадача меняет эпик, к которому относится после изменения
+    private void stageEpics(Collection<? extends Subtask> subtasks) {
+        if (subtasks != null) {
+            subtasks.stream().filter(Objects::nonNull).forEach(subtask -> stage(subtask.getEpicId()));
+        }
+    }
+
+    // Возвращает изменённые в транзакции сущности в прежнее состояние
+    private void rollback() {
+        awaitTimeIndex();
+        // Сущности с ИД, выданными в транзакции, до неё отсутствовали
+        for (long id = transactionLastId + 1; id <= idAllocator.getLastId(); id++) {
+            undoLog.putIfAbsent((int) id, new EntitySnapshot(null));
+        }
+        // Убираем текущие версии сущностей
+        for (Integer id : undoLog.keySet()) {
+            Task current = findEntity(id);
+            if (current == null) {
+                continue;
+            }
+            if (current.getType() == TaskTypes.EPIC) {
+                epicAggregates.remove(id);
+            } else {
+                deletePrioritizedTask(current);
+            }
+            historyManager.remove(id);
+            store.remove(current.getType(), id);
+        }
+        // и возвращаем прежние
+        List<Epic> restoredEpics = new ArrayList<>();
+        for (EntitySnapshot snapshot : undoLog.values()) {
+            Task entity = snapshot.restore();
+            if (entity == null) {
+                continue;
+            }
+            store.put(entity);
+            if (entity instanceof Epic epic) {
+                restoredEpics.add(epic);
+            } else {
+                restorePrioritizedTask(entity);
+            }
+        }
+        // Итоги эпиков собираются заново по восстановленным подзадачам
+        for (Epic epic : restoredEpics) {
+            EpicAggregate aggregate = getEpicAggregate(epic.getId());
+            for (Integer subtaskId : epic.getSubtaskIds()) {
+                aggregate.add(store.get(TaskTypes.SUBTASK, subtaskId));
+            }
+            aggregate.applyTo(epic);
+        }
+        // Восстанавливаем историю в прежнем порядке
+        Set<Integer> historyIds = new HashSet<>(transactionHistory);
+        for (Task task : historyManager.getHistory()) {
+            if (!historyIds.contains(task.getId())) {
+                historyManager.remove(task.getId());
+            }
+        }
+        for (Integer id : transactionHistory) {
+            historyManager.addToHistory(findEntity(id));
+        }
+    }
 
-        // В зависимости от типа задачи
-        switch (type) {
+    // Добавляет или заменяет сохранённую ранее сущность.
+    // Пересечения не проверяются: восстанавливаемое состояние уже было проверено при изменении.
+    private void putRestored(Task task) {
+        // В зависимости от типа объекта добавляем значение в хранилище
+        switch (task.getType()) {
             case TASK -> {
-                return new Task(Integer.parseInt(paramsArray[0]), StatusTypes.valueOf(paramsArray[3]),
-                        paramsArray[2], paramsArray[4], startTime, duration);
+                Task storedTask = store.get(TaskTypes.TASK, task.getId());
+                if (storedTask != null) {
+                    deletePrioritizedTask(storedTask);
+                }
+                // Добавляем задачу в список приоритетов
+                restorePrioritizedTask(task);
+                // Добавляем задачу в хранилище
+                store.put(task);
+            }
+            case EPIC -> {
+                Epic epic = (Epic) task;
+                Epic storedEpic = store.get(TaskTypes.EPIC, epic.getId());
+                if (storedEpic != null) {
+                    // У существующего эпика меняются только наименование и описание
+                    storedEpic.setName(epic.getName());
+                    storedEpic.setDescription(epic.getDescription());
+                } else {
+                    // Подзадачи эпика будут добавлены вместе с самими подзадачами
+                    epic.clearSubtasks();
+                    store.put(epic);
+                }
+            }
+            case SUBTASK -> {
+                Subtask subtask = (Subtask) task;
+                Subtask storedSubtask = store.get(TaskTypes.SUBTASK, subtask.getId());
+                if (storedSubtask != null) {
+                    // Убираем прежнюю версию подзадачи из списка приоритетов и из её эпика
+                    deletePrioritizedTask(storedSubtask);
+                    Epic previousEpic = getEpicInternal(storedSubtask.getEpicId());
+                    previousEpic.deleteSubtask(storedSubtask);
+                    getEpicAggregate(previousEpic.getId()).remove(storedSubtask.getId());
+                    getEpicAggregate(previousEpic.getId()).applyTo(previousEpic);
+                }
+                // Добавляем подзадачу в список приоритетов
+                restorePrioritizedTask(subtask);
+                // Добавляем подзадачу в хранилище
+                store.put(subtask);
+                // Получаем родительский эпик
+                Epic epic = getEpicInternal(subtask.getEpicId());
+                // Добавляем подзадачу к эпику и его итогам
+                linkSubtaskToEpic(subtask, epic);
+                getEpicAggregate(epic.getId()).applyTo(epic);
             }
+        }
+    }
+
+    private static Task copyOf(Task task) {
+        switch (task.getType()) {
             case EPIC -> {
-                return new Epic(Integer.parseInt(paramsArray[0]), StatusTypes.valueOf(paramsArray[3]), paramsArray[2],
-                        paramsArray[4]);
+                Epic epic = (Epic) task;
+                Epic copy = new Epic(epic.getId(), epic.getStatus(), epic.getName(), epic.getDescription());
+                copy.setStartTime(epic.getStartTime());
+                copy.setEndTime(epic.getEndTime());
+                copy.setDuration(epic.getDuration());
+                return copy;
             }
             case SUBTASK -> {
-                // Получаем эпик из хранилища
-                Epic epic = getEpicInternal(Integer.parseInt(paramsArray[5]));
-                return new Subtask(Integer.parseInt(paramsArray[0]), StatusTypes.valueOf(paramsArray[3]),
-                        paramsArray[2], paramsArray[4], startTime, duration, epic.getId());
+                Subtask subtask = (Subtask) task;
+                return new Subtask(subtask.getId(), subtask.getStatus(), subtask.getName(), subtask.getDescription(),
+                        subtask.getStartTime(), subtask.getDuration(), subtask.getEpicId());
+            }
+            default -> {
+                return new Task(task.getId(), task.getStatus(), task.getName(), task.getDescription(),
+                        task.getStartTime(), task.getDuration());
+            }
+        }
+    }
+
+    private void save() {
+        // Внутри транзакции только отмечаем, что состояние нужно сохранить
+        if (inTransaction) {
+            savePending = true;
+            return;
+        }
+        // При отложенной записи изменения сохранит поток записи
+        if (writeDelay != null) {
+            if (pendingWrite == null) {
+                scheduleWrite(writeDelay);
+            }
+            return;
+        }
+        writeNow();
+    }
+
+    private void writeNow() {
+        if (segmentedStore != null) {
+            // Новый менеджер записывает все сегменты и удаляет файлы прежнего состояния
+            writeSegments(!logInitialized);
+            logInitialized = true;
+            return;
+        }
+        if (writeAheadLog == null) {
+            writeSnapshot(file, 0, getAllTasks());
+            return;
+        }
+        // Новый менеджер удаляет журнал прежнего состояния и начинает со снимка своего
+        if (!logInitialized) {
+            writeAheadLog.reset();
+            pendingRecords.clear();
+            checkpoint();
+            return;
+        }
+        // Ставим накопленные изменения в очередь журнала одной фиксацией.
+        // Её сохранения изменивший поток дождётся после снятия блокировки.
+        if (!pendingRecords.isEmpty()) {
+            unsyncedCommit = writeAheadLog.append(List.copyOf(pendingRecords));
+            pendingRecords.clear();
+        }
+        // Периодически переносим журнал в снимок
+        if (isCompactionDue()) {
+            compact();
+        }
+    }
+
+    // Перезаписывает сегменты с изменёнными записями или, если all, все сегменты
+    private void writeSegments(boolean all) {
+        segmentedStore.write(collectSegments(all), all);
+        // Если запись не удалась, сегменты остаются отмеченными и будут записаны при следующем сохранении
+        dirtySegments.clear();
+    }
+
+    private Map<Integer, List<Task>> collectSegments(boolean all) {
+        Map<Integer, List<Task>> segments = new HashMap<>();
+        if (all) {
+            for (Task task : getAllTasks()) {
+                segments.computeIfAbsent(segmentedStore.getSegment(task.getId()), segment -> new ArrayList<>())
+                        .add(task);
+            }
+        } else {
+            for (Integer segment : dirtySegments) {
+                segments.put(segment, collectSegment(segment));
+            }
+        }
+        return segments;
+    }
+
+    // Создаёт отложенную запись, если её ещё нет, планирует её выполнение через delay и возвращает её.
+    // Вызывается под блокировкой состояния.
+    private CompletableFuture<Void> scheduleWrite(Duration delay) {
+        if (pendingWrite == null) {
+            pendingWrite = new CompletableFuture<>();
+            lastWrite = pendingWrite;
+        }
+        getWriter().schedule(this::writeBehind, delay.toNanos(), TimeUnit.NANOSECONDS);
+        return pendingWrite;
+    }
+
+    // Выполняется в потоке записи. Копия изменённого состояния снимается под блокировкой,
+    // а запись в файл идёт после её снятия, поэтому изменения во время записи не ждут диска.
+    private void writeBehind() {
+        CompletableFuture<Void> write;
+        Runnable task;
+        stateLock.lock();
+        try {
+            write = pendingWrite;
+            // Запись уже выполнена раньше срока через flush или compact
+            if (write == null) {
+                return;
+            }
+            pendingWrite = null;
+            try {
+                task = prepareWrite();
+            } catch (RuntimeException e) {
+                write.completeExceptionally(e);
+                return;
+            }
+        } finally {
+            stateLock.unlock();
+        }
+        try {
+            task.run();
+            write.complete(null);
+        } catch (RuntimeException e) {
+            write.completeExceptionally(e);
+        }
+    }
+
+    private Runnable prepareWrite() {
+        if (segmentedStore != null) {
+            boolean all = !logInitialized || rewriteAllPending;
+            Map<Integer, List<Task>> segments = new HashMap<>();
+            collectSegments(all).forEach((segment, entities) ->
+                    segments.put(segment, entities.stream().map(FileBackedTaskManager::copyOf).toList()));
+            Set<Integer> writtenSegments = Set.copyOf(dirtySegments);
+            dirtySegments.clear();
+            logInitialized = true;
+            rewriteAllPending = false;
+            return () -> {
+                try {
+                    segmentedStore.write(segments, all);
+                } catch (RuntimeException e) {
+                    // Отмечаем сегменты снова, чтобы их записала следующая запись
+                    stateLock.lock();
+                    try {
+                        dirtySegments.addAll(writtenSegments);
+                        rewriteAllPending |= all;
+                    } finally {
+                        stateLock.unlock();
+                    }
+                    throw e;
+                }
+            };
+        }
+        if (writeAheadLog == null) {
+            rewriteAllPending = false;
+            List<Task> entities = getAllTasks().stream().map(FileBackedTaskManager::copyOf).toList();
+            return () -> writeSnapshot(file, 0, entities);
+        }
+        // Изменения за период задержки уходят в журнал одной фиксацией
+        writeNow();
+        CompletableFuture<?> commit = unsyncedCommit;
+        unsyncedCommit = null;
+        return () -> awaitSynced(commit);
+    }
+
+    private ScheduledExecutorService getWriter() {
+        if (writer == null) {
+            ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(1, runnable -> {
+                Thread thread = new Thread(runnable, "task-manager-writer");
+                thread.setDaemon(true);
+                return thread;
+            });
+            executor.setExecuteExistingDelayedTasksAfterShutdownPolicy(false);
+            writer = executor;
+        }
+        return writer;
+    }
+
+    // Сохраняет накопленные изменения, не дожидаясь окончания задержки, и ждёт их записи.
+    // При синхронной записи изменения уже сохранены и метод сразу возвращает управление.
+    public void flush() {
+        CompletableFuture<Void> write;
+        stateLock.lock();
+        try {
+            // Если прошлая запись не удалась, повторяем её: снимок и отмеченные сегменты пишутся заново
+            boolean failed = lastWrite != null && lastWrite.isCompletedExceptionally();
+            write = pendingWrite != null || failed ? scheduleWrite(Duration.ZERO) : lastWrite;
+        } finally {
+            stateLock.unlock();
+        }
+        awaitWritten(write);
+    }
+
+    // Ждёт, пока поток записи сохранит все изменения, сделанные до вызова, не ускоряя запись
+    public void awaitPersisted() {
+        awaitWritten(read(() -> lastWrite));
+    }
+
+    private void awaitWritten(CompletableFuture<Void> write) {
+        if (write == null) {
+            return;
+        }
+        try {
+            write.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new ManagerSaveException("Ошибка при записи в файл " + file.getPath(), e.getCause());
+        }
+    }
+
+    private List<Task> collectSegment(int segment) {
+        // Сегмент содержит непрерывный диапазон ИД, поэтому записи ищутся по ИД, а не перебором хранилищ
+        List<Task> result = new ArrayList<>();
+        int size = segmentedStore.getSegmentSize();
+        long from = (long) segment * size;
+        for (long id = from; id < from + size; id++) {
+            Task task = findEntity((int) id);
+            if (task != null) {
+                result.add(task);
+            }
+        }
+        return result;
+    }
+
+    // Сущность любого типа с указанным ИД или null
+    private Task findEntity(Integer id) {
+        for (TaskTypes type : TaskTypes.values()) {
+            Task task = store.get(type, id);
+            if (task != null) {
+                return task;
             }
         }
-        // В противном случае возвращаем null
         return null;
     }
 
+    private void markDirty(Integer id) {
+        if (segmentedStore != null && id != null) {
+            dirtySegments.add(segmentedStore.getSegment(id));
+        }
+    }
+
+    // Отмечает сегменты сущностей, которые изменятся вместе с указанной:
+    // эпика подзадачи (его итоги) и подзадач эпика (они удаляются вместе с ним).
+    // Вызывается до изменения, пока связи ещё прежние.
+    private void markRelated(Integer id) {
+        if (segmentedStore == null || id == null) {
+            return;
+        }
+        Subtask subtask = store.get(TaskTypes.SUBTASK, id);
+        if (subtask != null) {
+            markDirty(subtask.getEpicId());
+        }
+        Epic epic = store.get(TaskTypes.EPIC, id);
+        if (epic != null) {
+            epic.getSubtaskIds().forEach(this::markDirty);
+        }
+    }
+
+    private void logPut(Task task) {
+        if (task == null) {
+            return;
+        }
+        if (writeAheadLog != null) {
+            pendingRecords.add(PUT_RECORD + "," + CsvTaskWriter.format(task));
+        }
+        markDirty(task.getId());
+        if (task instanceof Subtask subtask) {
+            markDirty(subtask.getEpicId());
+        }
+    }
+
+    private void logDelete(Integer id) {
+        if (writeAheadLog != null && id != null) {
+            pendingRecords.add(DELETE_RECORD + "," + id);
+        }
+        markDirty(id);
+    }
+
+    private void writeSnapshot(File target, long lsn, List<Task> entities) {
+        // try with resources
+        try (FileOutputStream fileOut = new FileOutputStream(target);
+             OutputStream out = SnapshotCompression.compress(fileOut, snapshotCompression)) {
+            if (snapshotFormat == SnapshotFormats.BINARY) {
+                BinarySnapshot.write(out, lsn, entities);
+            } else {
+                // В режиме журнала пишем номер последней фиксации, вошедшей в снимок
+                writeCsv(out, writeAheadLog != null, lsn, entities);
+            }
+            SnapshotCompression.finish(out);
+            // Сбрасываем снимок на диск до его закрытия и замены им прежнего
+            if (syncType != SyncTypes.OS_MANAGED) {
+                fileOut.getFD().sync();
+            }
+        } catch (IOException e) {
+            // При проблемах с файлом выбрасываем своё исключение
+            throw new ManagerSaveException("Ошибка при сохранении в файл " + target.getPath(), e);
+        }
+    }
+
+    // Выгружает все сущности в файл CSV. Такой файл можно загрузить через loadFromFile.
+    public void exportCsv(File target) {
+        exportCsv(target, CompressionTypes.NONE);
+    }
+
+    // Выгружает все сущности в файл CSV, сжатый указанным способом. loadFromFile распакует его сам.
+    public void exportCsv(File target, CompressionTypes compression) {
+        List<Task> entities = read(this::getAllTasks);
+        try (OutputStream out = SnapshotCompression.compress(new FileOutputStream(target), compression)) {
+            writeCsv(out, false, 0, entities);
+            SnapshotCompression.finish(out);
+        } catch (IOException e) {
+            throw new ManagerSaveException("Ошибка при выгрузке в файл " + target.getPath(), e);
+        }
+    }
+
+    private static void writeCsv(OutputStream out, boolean withLsn, long lsn, List<Task> entities)
+            throws IOException {
+        CsvTaskWriter csvWriter = new CsvTaskWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        // Пишем первую строчку
+        csvWriter.writeHeader();
+        // В режиме журнала пишем номер последней фиксации, вошедшей в снимок
+        if (withLsn) {
+            csvWriter.writeLsn(lsn);
+        }
+        // Получаем все сущности и записываем их в файл
+        for (Task task : entities) {
+            csvWriter.write(task);
+        }
+        csvWriter.flush();
+    }
+
+    @Override
+    public List<Task> getHistory() {
+        return read(super::getHistory);
+    }
+
+    @Override
+    public List<Task> getTasks() {
+        return read(super::getTasks);
+    }
+
+    @Override
+    public List<Task> getPrioritizedTasks() {
+        return read(() -> {
+            awaitTimeIndex();
+            return super.getPrioritizedTasks();
+        });
+    }
+
+    // Чтение выполняется под общей блокировкой, которую нельзя держать, пока action пишет ответ
+    // медленному клиенту, поэтому обходятся копии из get-методов
+    @Override
+    public void forEachTask(Consumer<? super Task> action) {
+        getTasks().forEach(action);
+    }
+
+    @Override
+    public void forEachEpic(Consumer<? super Epic> action) {
+        getEpics().forEach(action);
+    }
+
+    @Override
+    public void forEachSubtask(Consumer<? super Subtask> action) {
+        getSubtasks().forEach(action);
+    }
+
+    @Override
+    public void forEachPrioritizedTask(Consumer<? super Task> action) {
+        getPrioritizedTasks().forEach(action);
+    }
+
+    @Override
+    public List<Task> findTasks(TaskQuery query) {
+        return read(() -> super.findTasks(query));
+    }
+
+    @Override
+    public List<Epic> findEpics(TaskQuery query) {
+        return read(() -> super.findEpics(query));
+    }
+
+    @Override
+    public List<Subtask> findSubtasks(TaskQuery query) {
+        return read(() -> super.findSubtasks(query));
+    }
+
+    @Override
+    public List<Task> findPrioritizedTasks(TaskQuery query) {
+        return read(() -> super.findPrioritizedTasks(query));
+    }
+
+    // Шкала после загрузки может ещё строиться в фоне
+    @Override
+    protected void walkTimeline(LocalDateTime start, int afterId, Predicate<? super Task> action) {
+        awaitTimeIndex();
+        super.walkTimeline(start, afterId, action);
+    }
+
+    @Override
+    public Optional<Task> getTaskById(Integer id) {
+        return read(() -> super.getTaskById(id));
+    }
+
+    @Override
+    public List<Epic> getEpics() {
+        return read(super::getEpics);
+    }
+
+    @Override
+    public Optional<Epic> getEpicById(Integer id) {
+        return read(() -> super.getEpicById(id));
+    }
+
+    @Override
+    public List<Subtask> getSubtasks() {
+        return read(super::getSubtasks);
+    }
+
+    @Override
+    public Optional<Subtask> getSubtaskById(Integer id) {
+        return read(() -> super.getSubtaskById(id));
+    }
+
+    @Override
+    public List<Subtask> getEpicSubtasks(Integer epicId) {
+        return read(() -> super.getEpicSubtasks(epicId));
+    }
+
     @Override
     public Integer createTask(Task task) {
-        super.createTask(task);
-        // Сохраняем состояние хранилища
-        save();
-        return task.getId();
+        return persist(() -> {
+            super.createTask(task);
+            logPut(task);
+            // Сохраняем состояние хранилища
+            save();
+            return task.getId();
+        });
     }
 
     @Override
     public void updateTask(Task task) {
-        super.updateTask(task);
-        save();
+        persist(() -> {
+            stage(task == null ? null : task.getId());
+            super.updateTask(task);
+            logPut(store.get(TaskTypes.TASK, task.getId()));
+            save();
+        });
     }
 
     @Override
     public void deleteTask(Integer id) {
-        super.deleteTask(id);
-        save();
+        persist(() -> {
+            stage(id);
+            super.deleteTask(id);
+            logDelete(id);
+            save();
+        });
     }
 
     @Override
     public void deleteTasks() {
-        super.deleteTasks();
-        save();
+        // Удаляем все задачи одной транзакцией
+        inTransaction(manager -> {
+            for (Task task : getTasks()) {
+                manager.deleteTask(task.getId());
+            }
+        });
     }
 
     @Override
     public Integer createEpic(Epic epic) {
-        super.createEpic(epic);
-        save();
-        return epic.getId();
+        return persist(() -> {
+            super.createEpic(epic);
+            logPut(epic);
+            save();
+            return epic.getId();
+        });
     }
 
     @Override
     public void updateEpic(Epic epic) {
-        super.updateEpic(epic);
-        save();
+        persist(() -> {
+            stage(epic == null ? null : epic.getId());
+            super.updateEpic(epic);
+            logPut(store.get(TaskTypes.EPIC, epic.getId()));
+            save();
+        });
     }
 
     @Override
     public void deleteEpic(Integer id) {
-        super.deleteEpic(id);
-        save();
+        persist(() -> {
+            stage(id);
+            markRelated(id);
+            super.deleteEpic(id);
+            // При восстановлении удаление эпика удаляет и его подзадачи
+            logDelete(id);
+            save();
+        });
     }
 
     @Override
     public void deleteEpics() {
-        for (Epic epic : epics.values()) {
-            deleteEpic(epic.getId());
-        }
+        // Удаляем все эпики одной транзакцией, чтобы перезаписать файл один раз
+        inTransaction(manager -> {
+            for (Epic epic : getEpics()) {
+                manager.deleteEpic(epic.getId());
+            }
+        });
     }
 
     @Override
     public Integer createSubtask(Subtask subtask) {
-        super.createSubtask(subtask);
-        save();
-        return subtask.getId();
+        return persist(() -> {
+            stage(subtask == null ? null : subtask.getEpicId());
+            super.createSubtask(subtask);
+            logPut(subtask);
+            save();
+            return subtask.getId();
+        });
     }
 
     @Override
     public void updateSubtask(Subtask subtask) {
-        super.updateSubtask(subtask);
-        save();
+        persist(() -> {
+            if (subtask != null) {
+                stage(subtask.getId());
+                stage(subtask.getEpicId());
+            }
+            // Подзадача может переноситься в другой эпик
+            markRelated(subtask == null ? null : subtask.getId());
+            super.updateSubtask(subtask);
+            logPut(store.get(TaskTypes.SUBTASK, subtask.getId()));
+            save();
+        });
     }
 
     @Override
     public void deleteSubtask(Integer id) {
-        super.deleteSubtask(id);
-        save();
+        persist(() -> {
+            stage(id);
+            markRelated(id);
+            super.deleteSubtask(id);
+            logDelete(id);
+            save();
+        });
     }
 
     @Override
     public void deleteSubtasks() {
-        for (Subtask subtask : subtasks.values()) {
-            deleteSubtask(subtask.getId());
+        inTransaction(manager -> {
+            for (Subtask subtask : getSubtasks()) {
+                manager.deleteSubtask(subtask.getId());
+            }
+        });
+    }
+
+    @Override
+    public List<Integer> createTasks(List<Task> tasks) {
+        return persist(() -> {
+            List<Integer> result = super.createTasks(tasks);
+            tasks.forEach(this::logPut);
+            // Сохраняем состояние хранилища один раз на весь пакет
+            save();
+            return result;
+        });
+    }
+
+    @Override
+    public void updateTasks(List<Task> tasks) {
+        persist(() -> {
+            stageAll(tasks);
+            super.updateTasks(tasks);
+            tasks.forEach(task -> logPut(store.get(TaskTypes.TASK, task.getId())));
+            save();
+        });
+    }
+
+    @Override
+    public void deleteTasks(Collection<Integer> ids) {
+        persist(() -> {
+            ids.forEach(this::stage);
+            super.deleteTasks(ids);
+            ids.forEach(this::logDelete);
+            save();
+        });
+    }
+
+    @Override
+    public List<Integer> createEpics(List<Epic> epics) {
+        return persist(() -> {
+            List<Integer> result = super.createEpics(epics);
+            epics.forEach(this::logPut);
+            save();
+            return result;
+        });
+    }
+
+    @Override
+    public void updateEpics(List<Epic> epics) {
+        persist(() -> {
+            stageAll(epics);
+            super.updateEpics(epics);
+            epics.forEach(epic -> logPut(store.get(TaskTypes.EPIC, epic.getId())));
+            save();
+        });
+    }
+
+    @Override
+    public void deleteEpics(Collection<Integer> ids) {
+        persist(() -> {
+            ids.forEach(this::stage);
+            ids.forEach(this::markRelated);
+            super.deleteEpics(ids);
+            ids.forEach(this::logDelete);
+            save();
+        });
+    }
+
+    @Override
+    public List<Integer> createSubtasks(List<Subtask> subtasks) {
+        return persist(() -> {
+            stageEpics(subtasks);
+            List<Integer> result = super.createSubtasks(subtasks);
+            subtasks.forEach(this::logPut);
+            save();
+            return result;
+        });
+    }
+
+    @Override
+    public void updateSubtasks(List<Subtask> subtasks) {
+        persist(() -> {
+            stageAll(subtasks);
+            stageEpics(subtasks);
+            subtasks.forEach(subtask -> markRelated(subtask.getId()));
+            super.updateSubtasks(subtasks);
+            subtasks.forEach(subtask -> logPut(store.get(TaskTypes.SUBTASK, subtask.getId())));
+            save();
+        });
+    }
+
+    @Override
+    public void deleteSubtasks(Collection<Integer> ids) {
+        persist(() -> {
+            ids.forEach(this::stage);
+            ids.forEach(this::markRelated);
+            super.deleteSubtasks(ids);
+            ids.forEach(this::logDelete);
+            save();
+        });
+    }
+
+    // Сущность до изменения в транзакции: ссылка на неё и значения полей. null - сущности не было.
+    private static class EntitySnapshot {
+
+        private final Task entity;
+        private final Task fields;
+        private final List<Integer> subtaskIds;
+
+        private EntitySnapshot(Task entity) {
+            this.entity = entity;
+            this.fields = entity == null ? null : copyOf(entity);
+            this.subtaskIds = entity instanceof Epic epic ? List.copyOf(epic.getSubtaskIds()) : List.of();
+        }
+
+        // Возвращает прежние значения полей в исходный объект
+        private Task restore() {
+            if (entity == null) {
+                return null;
+            }
+            entity.setStatus(fields.getStatus());
+            entity.setName(fields.getName());
+            entity.setDescription(fields.getDescription());
+            entity.setStartTime(fields.getStartTime());
+            entity.setDuration(fields.getDuration());
+            if (entity instanceof Subtask subtask) {
+                subtask.setEpicId(((Subtask) fields).getEpicId());
+            } else if (entity instanceof Epic epic) {
+                epic.setEndTime(fields.getEndTime());
+                epic.clearSubtasks();
+                epic.addSubtasks(subtaskIds);
+            }
+            return entity;
         }
     }
-}
\ No newline at end of file
+}
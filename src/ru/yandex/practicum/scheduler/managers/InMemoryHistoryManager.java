@@ -1,15 +1,14 @@
 package ru.yandex.practicum.scheduler.managers;
 
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
+import ru.yandex.practicum.scheduler.managers.collections.IntObjectHashMap;
 import ru.yandex.practicum.scheduler.managers.interfaces.HistoryManager;
 import ru.yandex.practicum.scheduler.models.Task;
 
 public class InMemoryHistoryManager implements HistoryManager {
 
-    private final Map<Integer, Node> history = new HashMap<>();
+    private final IntObjectHashMap<Node> history = new IntObjectHashMap<>();
     private Node head;
     private Node tail;
 
@@ -32,7 +31,7 @@ public class InMemoryHistoryManager implements HistoryManager {
         // Если узел существует
         if (node != null) {
             // Удаляем задачу из истории
-            history.remove(node.task.getId());
+            history.remove(id);
             // Удаляем узел
             removeNode(node);
         }
@@ -40,12 +39,11 @@ public class InMemoryHistoryManager implements HistoryManager {
 
     private void linkLast(Task task) {
         if (task != null) {
-            // Если в истории такой узел уже есть
-            if (history.containsKey(task.getId())) {
-                // Находим его
-                Node node = history.get(task.getId());
-                // Удаляем узел их хранилища
-                history.remove(task.getId());
+            int id = task.getId();
+            // Если в истории такой узел уже есть,
+            // то удаляем его из хранилища
+            Node node = history.remove(id);
+            if (node != null) {
                 // Удаляем узел
                 removeNode(node);
             }
@@ -55,7 +53,7 @@ public class InMemoryHistoryManager implements HistoryManager {
             Node newNode = new Node(newPrevious, task, null); // создаём новый элемент
 
             // Добавляем узел в коллекцию
-            history.put(task.getId(), newNode);
+            history.put(id, newNode);
 
             tail = newNode; // новый хвост - новый созданный элемент
 
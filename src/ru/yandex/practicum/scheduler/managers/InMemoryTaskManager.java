@@ -3,36 +3,65 @@ package ru.yandex.practicum.scheduler.managers;
 import java.time.Duration;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Comparator;
-import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
-import java.util.TreeSet;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
 import ru.yandex.practicum.scheduler.exceptions.NotAcceptableException;
+import ru.yandex.practicum.scheduler.exceptions.NotFoundException;
+import ru.yandex.practicum.scheduler.managers.collections.IntObjectHashMap;
+import ru.yandex.practicum.scheduler.managers.ids.IdAllocator;
+import ru.yandex.practicum.scheduler.managers.indexes.EpicAggregate;
 import ru.yandex.practicum.scheduler.managers.interfaces.HistoryManager;
 import ru.yandex.practicum.scheduler.managers.interfaces.TaskManager;
+import ru.yandex.practicum.scheduler.managers.interfaces.TaskStore;
+import ru.yandex.practicum.scheduler.managers.queries.TaskQuery;
+import ru.yandex.practicum.scheduler.managers.stores.InMemoryTaskStore;
 import ru.yandex.practicum.scheduler.models.Epic;
 import ru.yandex.practicum.scheduler.models.Subtask;
 import ru.yandex.practicum.scheduler.models.Task;
 import ru.yandex.practicum.scheduler.models.enums.StatusTypes;
+import ru.yandex.practicum.scheduler.models.enums.TaskTypes;
 
 public class InMemoryTaskManager implements TaskManager {
 
     protected final HistoryManager historyManager;
-    protected int generatedId = 0;
-    protected final Map<Integer, Task> tasks = new HashMap<>();
-    protected final Map<Integer, Epic> epics = new HashMap<>();
-    protected final Map<Integer, Subtask> subtasks = new HashMap<>();
-    protected final TreeSet<Task> prioritizedTasks = new TreeSet<>();
+    protected final IdAllocator idAllocator = new IdAllocator();
+    protected final TaskStore store;
+    protected final Map<Integer, EpicAggregate> epicAggregates;
+    // Режим сверки инкрементальных итогов эпиков с полным пересчётом
+    private boolean epicAggregatesVerification = false;
 
     public InMemoryTaskManager(HistoryManager historyManager) {
+        this(historyManager, new InMemoryTaskStore());
+    }
+
+    // Менеджер с теми же правилами планирования поверх другого хранилища
+    public InMemoryTaskManager(HistoryManager historyManager, TaskStore store) {
+        this(historyManager, store, new IntObjectHashMap<>());
+    }
+
+    // Наследник передаёт таблицу итогов эпиков по ИД, например потокобезопасную
+    protected InMemoryTaskManager(HistoryManager historyManager, TaskStore store,
+                                  Map<Integer, EpicAggregate> epicAggregates) {
         this.historyManager = historyManager;
+        this.store = store;
+        this.epicAggregates = epicAggregates;
     }
 
     protected int getNextId() {
-        return ++generatedId;
+        return idAllocator.nextIntId();
+    }
+
+    public void setEpicAggregatesVerification(boolean epicAggregatesVerification) {
+        this.epicAggregatesVerification = epicAggregatesVerification;
     }
 
     @Override
@@ -42,32 +71,51 @@ public class InMemoryTaskManager implements TaskManager {
 
     @Override
     public List<Task> getTasks() {
-        return new ArrayList<>(tasks.values());
+        return new ArrayList<>(store.<Task>scan(TaskTypes.TASK));
     }
 
     @Override
     public List<Task> getPrioritizedTasks() {
-        return prioritizedTasks.stream().toList();
+        return store.getTimeline();
+    }
+
+    @Override
+    public void forEachTask(Consumer<? super Task> action) {
+        store.<Task>scan(TaskTypes.TASK).forEach(action);
+    }
+
+    @Override
+    public void forEachPrioritizedTask(Consumer<? super Task> action) {
+        store.forEachInTimeline(action);
     }
 
-    private boolean checkIntersectionByTimeBetweenTwoTasks(Task firstTask, Task secondTask) {
-        // Проверяем пересечение времени старта и окончания задач.
-        // Если время начала или окончания обеих задач пустые
-        if (firstTask.getStartTime() == null || firstTask.getEndTime() == null || secondTask.getStartTime() == null
-                || secondTask.getEndTime() == null) {
+    protected void checkIntersectionByTimeBetweenTaskAndStorage(Task task) {
+        // Если в списке приоритетов нет других задач, то пересекаться не с чем
+        if (store.intervalCount() == 0 || (store.intervalCount() == 1 && store.hasInterval(task.getId()))) {
+            return;
+        }
+        // Если время начала или окончания задачи пустые
+        if (task.getStartTime() == null || task.getEndTime() == null) {
             throw new IllegalArgumentException("Дата начала и длительность не указаны");
-        } else {
-            // Иначе возвращаем результат проверки пересечения
-            return !(firstTask.getEndTime().isBefore(secondTask.getStartTime())
-                    || firstTask.getStartTime().isAfter(secondTask.getEndTime()));
+        }
+        // Ищем пересечение в индексе интервалов, пропуская саму задачу
+        if (store.findOverlap(task.getStartTime(), task.getEndTime(), task.getId()) != null) {
+            throw new NotAcceptableException("Найдено пересечение по времени выполнения");
         }
     }
 
-    protected void checkIntersectionByTimeBetweenTaskAndStorage(Task task) {
-        boolean result = getPrioritizedTasks().stream()
-                .filter(existingTask -> !existingTask.getId().equals(task.getId()))
-                .anyMatch(existingTask -> checkIntersectionByTimeBetweenTwoTasks(task, existingTask));
-        if (result) {
+    // Проверяет задачу на пересечение с задачами шкалы, кроме задач с ИД из ignoredIds.
+    // При обновлении пакета прежние версии его задач будут заменены, поэтому с ними задача не сравнивается.
+    protected void checkIntersectionByTimeBetweenTaskAndStorage(Task task, Set<Integer> ignoredIds) {
+        if (task.getStartTime() == null || task.getEndTime() == null) {
+            // Задача без времени допустима, только если на шкале нет других задач
+            long ignoredIntervals = ignoredIds.stream().filter(store::hasInterval).count();
+            if (store.intervalCount() > ignoredIntervals) {
+                throw new IllegalArgumentException("Дата начала и длительность не указаны");
+            }
+            return;
+        }
+        if (store.findOverlapIgnoring(task.getStartTime(), task.getEndTime(), ignoredIds) != null) {
             throw new NotAcceptableException("Найдено пересечение по времени выполнения");
         }
     }
@@ -75,19 +123,39 @@ public class InMemoryTaskManager implements TaskManager {
     protected void addPrioritizedTask(Task task) {
         // Проверяем пересечение с другими задачами
         checkIntersectionByTimeBetweenTaskAndStorage(task);
-        // и добавляем в список приоритетов
-        prioritizedTasks.add(task);
+        // и добавляем на временную шкалу хранилища
+        store.addToTimeline(task);
+    }
+
+    // Добавляет задачу в список приоритетов без проверки пересечений.
+    // Используется при восстановлении состояния и для пакета, который уже был проверен.
+    protected void restorePrioritizedTask(Task task) {
+        store.addToTimeline(task);
+    }
+
+    // Добавляет задачи в список приоритетов без проверки пересечений.
+    // Хранилище получает все задачи сразу и может построить шкалу целиком, а не по одной задаче.
+    protected void restorePrioritizedTasks(Collection<? extends Task> restoredTasks) {
+        store.addAllToTimeline(restoredTasks);
+    }
 
+    protected void replacePrioritizedTask(Task task) {
+        // Проверяем пересечение один раз до изменения списка приоритетов,
+        checkIntersectionByTimeBetweenTaskAndStorage(task);
+        // удаляем прежнюю версию задачи
+        deletePrioritizedTask(task);
+        // и добавляем новую без повторной проверки.
+        store.addToTimeline(task);
     }
 
     protected void deletePrioritizedTask(Task task) {
-        // Удаляем задачу из списка приоритетов
-        prioritizedTasks.remove(task);
+        // Удаляем задачу со шкалы по ИД: время задачи могло измениться
+        store.removeFromTimeline(task);
     }
 
     @Override
     public Optional<Task> getTaskById(Integer id) {
-        Task task = tasks.get(id);
+        Task task = store.get(TaskTypes.TASK, id);
 
         if (task != null) {
             historyManager.addToHistory(task);
@@ -105,7 +173,7 @@ public class InMemoryTaskManager implements TaskManager {
         // Добавляем задачу в список приоритетов
         addPrioritizedTask(task);
         // и в хранилище.
-        tasks.put(task.getId(), task);
+        store.put(task);
         // Возвращаем ИД добавленной задачи
         return task.getId();
     }
@@ -114,16 +182,13 @@ public class InMemoryTaskManager implements TaskManager {
     public void updateTask(Task task) {
         // Проверяем задачу на заполненность.
         if (task != null) {
-            // Проверяем задачу на пересечение.
-            checkIntersectionByTimeBetweenTaskAndStorage(task);
-            // Удаляем задачу из списка приоритетов если она есть,
-            // чтобы не искать лишний раз её в списке приоритетов.
-            deletePrioritizedTask(task);
-            // Снова добавляем задачу в список приоритетов.
-            addPrioritizedTask(task);
-            // Обновляем задачу, если она уже есть в хранилище.
-            if (tasks.containsKey(task.getId())) {
-                tasks.put(task.getId(), task);
+            // Обновляем задачу, только если она уже есть в хранилище:
+            // удалённая задача не должна вернуться в список приоритетов.
+            if (store.contains(TaskTypes.TASK, task.getId())) {
+                // Заменяем задачу в списке приоритетов, проверив её на пересечение,
+                replacePrioritizedTask(task);
+                // и в хранилище.
+                store.put(task);
             }
         } else {
             // Иначе выбрасываем исключение
@@ -134,13 +199,17 @@ public class InMemoryTaskManager implements TaskManager {
     @Override
     public void deleteTask(Integer id) {
         // Получаем задачу из хранилища
-        Task task = tasks.get(id);
+        Task task = store.get(TaskTypes.TASK, id);
+        // Задача уже удалена
+        if (task == null) {
+            return;
+        }
         // Удаляем задачу из списка приоритетов,
         deletePrioritizedTask(task);
         // истории
         historyManager.remove(id);
         // и хранилища
-        tasks.remove(id);
+        store.remove(TaskTypes.TASK, id);
     }
 
     @Override
@@ -152,7 +221,12 @@ public class InMemoryTaskManager implements TaskManager {
 
     @Override
     public List<Epic> getEpics() {
-        return new ArrayList<>(epics.values());
+        return new ArrayList<>(store.<Epic>scan(TaskTypes.EPIC));
+    }
+
+    @Override
+    public void forEachEpic(Consumer<? super Epic> action) {
+        store.<Epic>scan(TaskTypes.EPIC).forEach(action);
     }
 
     @Override
@@ -165,31 +239,45 @@ public class InMemoryTaskManager implements TaskManager {
     }
 
     protected Epic getEpicInternal(int id) {
-        return epics.get(id);
+        return store.get(TaskTypes.EPIC, id);
     }
 
     @Override
     public Integer createEpic(Epic epic) {
+        return addEpic(epic);
+    }
+
+    private Integer addEpic(Epic epic) {
         epic.setId(getNextId());
-        epics.put(epic.getId(), epic);
+        // Новый эпик не может содержать подзадач
+        epic.clearSubtasks();
+        store.put(epic);
         return epic.getId();
     }
 
     @Override
     public void updateEpic(Epic epic) {
-        if (epics.containsKey(epic.getId())) {
+        applyEpicUpdate(epic);
+    }
+
+    private void applyEpicUpdate(Epic epic) {
+        if (store.contains(TaskTypes.EPIC, epic.getId())) {
             Epic tempEpic = getEpicInternal(epic.getId());
 
             calculateEpicFields(tempEpic);
             tempEpic.setName(epic.getName());
             tempEpic.setDescription(epic.getDescription());
 
-            epics.put(tempEpic.getId(), tempEpic);
+            store.put(tempEpic);
         }
     }
 
     @Override
     public void deleteEpic(Integer id) {
+        removeEpic(id);
+    }
+
+    private void removeEpic(Integer id) {
         if (id != null) {
             // Получим все дочерние подзадачи эпика
             for (Subtask subtask : getEpicSubtasks(id)) {
@@ -198,12 +286,14 @@ public class InMemoryTaskManager implements TaskManager {
                 // истории обращений
                 historyManager.remove(subtask.getId());
                 // и хранилища.
-                subtasks.remove(subtask.getId());
+                store.remove(TaskTypes.SUBTASK, subtask.getId());
             }
-            // Удаляем эпик из истории
+            // Удаляем эпик из истории,
             historyManager.remove(id);
+            // итогов эпиков
+            epicAggregates.remove(id);
             // и из хранилища
-            epics.remove(id);
+            store.remove(TaskTypes.EPIC, id);
         }
     }
 
@@ -218,7 +308,12 @@ public class InMemoryTaskManager implements TaskManager {
 
     @Override
     public List<Subtask> getSubtasks() {
-        return new ArrayList<>(subtasks.values());
+        return new ArrayList<>(store.<Subtask>scan(TaskTypes.SUBTASK));
+    }
+
+    @Override
+    public void forEachSubtask(Consumer<? super Subtask> action) {
+        store.<Subtask>scan(TaskTypes.SUBTASK).forEach(action);
     }
 
     @Override
@@ -231,7 +326,7 @@ public class InMemoryTaskManager implements TaskManager {
     }
 
     private Subtask getSubtaskInternal(int id) {
-        return subtasks.get(id);
+        return store.get(TaskTypes.SUBTASK, id);
     }
 
     @Override
@@ -239,10 +334,17 @@ public class InMemoryTaskManager implements TaskManager {
         Epic epic = getEpicInternal(epicId);
 
         if (epic != null) {
-            return subtasks.values().stream()
-                    .filter(Objects::nonNull)
-                    .filter(subtask -> subtask.getEpicId().equals(epic.getId()))
-                    .toList();
+            // Получаем подзадачи по списку ИД эпика, не обходя всё хранилище
+            List<Integer> subtaskIds = epic.getSubtaskIds();
+            List<Subtask> result = new ArrayList<>(subtaskIds.size());
+            for (Integer subtaskId : subtaskIds) {
+                Subtask subtask = store.get(TaskTypes.SUBTASK, subtaskId);
+                // Пропускаем ИД, не относящиеся к эпику
+                if (subtask != null && epic.getId().equals(subtask.getEpicId())) {
+                    result.add(subtask);
+                }
+            }
+            return result;
         } else {
             return new ArrayList<>();
         }
@@ -258,14 +360,14 @@ public class InMemoryTaskManager implements TaskManager {
 
             // Если ИД полученного эпика не null,
             if (epic != null) {
-                // то добавляем подзадачу к эпику,
-                epic.addSubtask(subtask.getId());
-                // устанавливаем ИД подзадачи,
+                // то устанавливаем ИД подзадачи,
                 subtask.setId(getNextId());
                 // добавляем подзадачу в список приоритетов,
                 addPrioritizedTask(subtask);
                 // добавляем подзадачу в хранилище,
-                subtasks.put(subtask.getId(), subtask);
+                store.put(subtask);
+                // добавляем подзадачу к эпику и его итогам
+                linkSubtaskToEpic(subtask, epic);
                 // и пересчитываем поля эпика.
                 calculateEpicFields(epic);
                 // Возвращаем ИД подзадачи
@@ -283,19 +385,28 @@ public class InMemoryTaskManager implements TaskManager {
     public void updateSubtask(Subtask subtask) {
         if (subtask != null) {
             // Если подзадача есть в хранилище,
-            if (subtasks.containsKey(subtask.getId())) {
-                // то проверяем подзадачу на пересечение,
-                checkIntersectionByTimeBetweenTaskAndStorage(subtask);
-                // обновляем подзадачу,
-                subtasks.put(subtask.getId(), subtask);
-                // получаем эпик,
+            Subtask storedSubtask = store.get(TaskTypes.SUBTASK, subtask.getId());
+            if (storedSubtask != null) {
+                // то получаем эпик,
                 Epic epic = getEpicInternal(subtask.getEpicId());
-                // обновляем подзадачу в эпике
-                epic.updateSubtask(subtask.getId());
-                // удаляем подзадачу из списка приоритетов, если она есть
-                deletePrioritizedTask(subtask);
-                // и добавляем в список приоритетов снова.
-                addPrioritizedTask(subtask);
+                if (epic == null) {
+                    throw new IllegalArgumentException("Эпик с id " + subtask.getEpicId() + " не найден в хранилище");
+                }
+                // получаем эпик, к которому подзадача относилась до изменения,
+                Epic previousEpic = getEpicInternal(storedSubtask.getEpicId());
+                // заменяем подзадачу в списке приоритетов, проверив её на пересечение,
+                replacePrioritizedTask(subtask);
+                // обновляем подзадачу.
+                store.put(subtask);
+                // Если подзадача перенесена в другой эпик
+                if (previousEpic != null && !previousEpic.equals(epic)) {
+                    // удаляем её из прежнего эпика и пересчитываем его поля
+                    previousEpic.deleteSubtask(subtask);
+                    getEpicAggregate(previousEpic.getId()).remove(subtask.getId());
+                    calculateEpicFields(previousEpic);
+                }
+                // Добавляем подзадачу в эпик и заменяем её вклад в итоги эпика
+                linkSubtaskToEpic(subtask, epic);
                 // Пересчитываем поля эпика
                 calculateEpicFields(epic);
             }
@@ -307,20 +418,22 @@ public class InMemoryTaskManager implements TaskManager {
     @Override
     public void deleteSubtask(Integer id) {
         // Находим подзадачу
-        Subtask subtask = subtasks.get(id);
+        Subtask subtask = store.get(TaskTypes.SUBTASK, id);
 
         // Если подзадача найдена
         if (subtask != null) {
             // Получаем родительский эпик.
             Epic epic = getEpicInternal(subtask.getEpicId());
             // Удаляем подзадачу из хранилища.
-            subtasks.remove(id);
+            store.remove(TaskTypes.SUBTASK, id);
             // Удаляем подзадачу из списка приоритетов, если она есть.
             deletePrioritizedTask(subtask);
             // Удаляем подзадачу из истории.
             historyManager.remove(id);
-            // Удаляем подзадачу из эпика.
+            // Удаляем подзадачу из эпика
             epic.deleteSubtask(subtask);
+            // и его итогов.
+            getEpicAggregate(epic.getId()).remove(id);
             // Пересчитываем поля эпика
             calculateEpicFields(epic);
         }
@@ -336,79 +449,424 @@ public class InMemoryTaskManager implements TaskManager {
             historyManager.remove(subtask.getId());
         }
         // Очистим хранилище подзадач
-        subtasks.clear();
+        store.clear(TaskTypes.SUBTASK);
 
-        // Для каждого эпика
-        for (Epic epic : getEpics()) {
+        // Для каждого эпика хранилища
+        for (Epic epic : store.<Epic>scan(TaskTypes.EPIC)) {
             // Очищаем подзадачи
             epic.clearSubtasks();
+            // и итоги эпика,
+            getEpicAggregate(epic.getId()).clear();
             // и пересчитаем поля эпика
             calculateEpicFields(epic);
         }
 
     }
 
-    private void calculateEpicStatusField(Epic epic) {
-        StatusTypes resultStatus = StatusTypes.IN_PROGRESS;
-        long newQuantity = subtasks.values().stream()
-                .filter(Objects::nonNull)
-                .filter(subtask -> subtask.getEpicId().equals(epic.getId()))
-                .filter(subtask -> subtask.getStatus().equals(StatusTypes.NEW))
-                .count();
-        long doneQuantity = subtasks.values().stream()
-                .filter(Objects::nonNull)
-                .filter(subtask -> subtask.getEpicId().equals(epic.getId()))
-                .filter(subtask -> subtask.getStatus().equals(StatusTypes.DONE))
-                .count();
-
-        List<Subtask> receivedSubtasks = getEpicSubtasks(epic.getId());
-
-        if (receivedSubtasks.isEmpty()) {
-            resultStatus = StatusTypes.NEW;
-        } else if (newQuantity == receivedSubtasks.size()) {
-            resultStatus = StatusTypes.NEW;
-        } else if (doneQuantity == receivedSubtasks.size()) {
-            resultStatus = StatusTypes.DONE;
+    @Override
+    public List<Integer> createTasks(List<Task> tasks) {
+        // Проверяем весь пакет до изменения хранилища
+        checkBatch(tasks);
+        checkIntersectionByTimeForBatch(tasks);
+
+        List<Integer> result = new ArrayList<>(tasks.size());
+        for (Task task : tasks) {
+            // Устанавливаем ИД,
+            task.setId(getNextId());
+            // добавляем задачу в список приоритетов
+            addPrioritizedTask(task);
+            // и в хранилище.
+            store.put(task);
+            result.add(task.getId());
         }
+        return result;
+    }
 
-        epic.setStatus(resultStatus);
+    @Override
+    public void updateTasks(List<Task> tasks) {
+        checkBatch(tasks);
+        // Обновляем только задачи, которые есть в хранилище
+        List<Task> existingTasks = tasks.stream()
+                .filter(task -> store.contains(TaskTypes.TASK, task.getId()))
+                .toList();
+        List<Task> previousTasks = existingTasks.stream()
+                .map(task -> store.<Task>get(TaskTypes.TASK, task.getId()))
+                .toList();
+
+        // Проверяем пакет до изменения списка приоритетов. Прежние версии задач пакета не учитываются,
+        // чтобы задачи пакета могли меняться местами по времени.
+        checkIntersectionByTimeForBatch(existingTasks, getIds(existingTasks));
+        previousTasks.forEach(this::deletePrioritizedTask);
+        for (Task task : existingTasks) {
+            restorePrioritizedTask(task);
+            store.put(task);
+        }
+    }
+
+    @Override
+    public void deleteTasks(Collection<Integer> ids) {
+        for (Integer id : ids) {
+            Task task = store.get(TaskTypes.TASK, id);
+            if (task != null) {
+                deletePrioritizedTask(task);
+                historyManager.remove(id);
+                store.remove(TaskTypes.TASK, id);
+            }
+        }
+    }
+
+    @Override
+    public List<Integer> createEpics(List<Epic> epics) {
+        checkBatch(epics);
+
+        List<Integer> result = new ArrayList<>(epics.size());
+        for (Epic epic : epics) {
+            result.add(addEpic(epic));
+        }
+        return result;
     }
 
-    private void calculateEpicTimeFields(Epic epic) {
-        // Получаем эпик из хранилища
-        Epic receivedEpic = getEpicInternal(epic.getId());
+    @Override
+    public void updateEpics(List<Epic> epics) {
+        checkBatch(epics);
+
+        for (Epic epic : epics) {
+            applyEpicUpdate(epic);
+        }
+    }
+
+    @Override
+    public void deleteEpics(Collection<Integer> ids) {
+        for (Integer id : ids) {
+            removeEpic(id);
+        }
+    }
+
+    @Override
+    public List<Integer> createSubtasks(List<Subtask> subtasks) {
+        checkBatch(subtasks);
+        // Все эпики пакета должны существовать
+        for (Subtask subtask : subtasks) {
+            getExistingEpic(subtask.getEpicId());
+        }
+        checkIntersectionByTimeForBatch(subtasks);
 
-        if (receivedEpic != null) {
-            // Получаем подзадачи из полученного эпика
-            LocalDateTime startTime = subtasks.values().stream()
-                    .filter(subtask -> subtask.getEpicId().equals(epic.getId()))
-                    .filter(subtask -> subtask.getStartTime() != null)
-                    .min(Comparator.comparing(Task::getStartTime))
-                    .map(Task::getStartTime)
-                    .orElse(null);
+        // Эпики, поля которых нужно пересчитать
+        Set<Epic> affectedEpics = new LinkedHashSet<>();
+        List<Integer> result = new ArrayList<>(subtasks.size());
+        for (Subtask subtask : subtasks) {
+            Epic epic = getEpicInternal(subtask.getEpicId());
+            subtask.setId(getNextId());
+            addPrioritizedTask(subtask);
+            store.put(subtask);
+            linkSubtaskToEpic(subtask, epic);
+            affectedEpics.add(epic);
+            result.add(subtask.getId());
+        }
+        // Пересчитываем каждый затронутый эпик один раз
+        affectedEpics.forEach(this::calculateEpicFields);
+        return result;
+    }
 
-            LocalDateTime endTime = subtasks.values().stream()
-                    .filter(subtask -> subtask.getEpicId().equals(epic.getId()))
-                    .filter(subtask -> subtask.getStartTime() != null)
-                    .min(Comparator.comparing(Task::getStartTime))
-                    .map(Task::getStartTime)
-                    .orElse(null);
+    @Override
+    public void updateSubtasks(List<Subtask> subtasks) {
+        checkBatch(subtasks);
+        // Обновляем только подзадачи, которые есть в хранилище
+        List<Subtask> existingSubtasks = subtasks.stream()
+                .filter(subtask -> store.contains(TaskTypes.SUBTASK, subtask.getId()))
+                .toList();
+        for (Subtask subtask : existingSubtasks) {
+            getExistingEpic(subtask.getEpicId());
+        }
+        List<Subtask> previousSubtasks = existingSubtasks.stream()
+                .map(subtask -> store.<Subtask>get(TaskTypes.SUBTASK, subtask.getId()))
+                .toList();
 
-            Duration duration = subtasks.values().stream()
-                    .filter(subtask -> subtask.getEpicId().equals(epic.getId()))
-                    .map(Task::getDuration)
-                    .filter(Objects::nonNull)
-                    .reduce(Duration.ZERO, Duration::plus);
+        checkIntersectionByTimeForBatch(existingSubtasks, getIds(existingSubtasks));
+        previousSubtasks.forEach(this::deletePrioritizedTask);
 
-            // Устанавливаем полученные значения
-            epic.setStartTime(startTime);
-            epic.setEndTime(endTime);
-            epic.setDuration(duration);
+        Set<Epic> affectedEpics = new LinkedHashSet<>();
+        for (int i = 0; i < existingSubtasks.size(); i++) {
+            Subtask subtask = existingSubtasks.get(i);
+            Epic epic = getEpicInternal(subtask.getEpicId());
+            Epic previousEpic = getEpicInternal(previousSubtasks.get(i).getEpicId());
+
+            restorePrioritizedTask(subtask);
+            store.put(subtask);
+            // Если подзадача перенесена в другой эпик, удаляем её из прежнего
+            if (previousEpic != null && !previousEpic.equals(epic)) {
+                previousEpic.deleteSubtask(subtask);
+                getEpicAggregate(previousEpic.getId()).remove(subtask.getId());
+                affectedEpics.add(previousEpic);
+            }
+            linkSubtaskToEpic(subtask, epic);
+            affectedEpics.add(epic);
         }
+        affectedEpics.forEach(this::calculateEpicFields);
+    }
+
+    @Override
+    public void deleteSubtasks(Collection<Integer> ids) {
+        Set<Epic> affectedEpics = new LinkedHashSet<>();
+        for (Integer id : ids) {
+            Subtask subtask = store.remove(TaskTypes.SUBTASK, id);
+            if (subtask != null) {
+                Epic epic = getEpicInternal(subtask.getEpicId());
+                deletePrioritizedTask(subtask);
+                historyManager.remove(id);
+                epic.deleteSubtask(subtask);
+                getEpicAggregate(epic.getId()).remove(id);
+                affectedEpics.add(epic);
+            }
+        }
+        affectedEpics.forEach(this::calculateEpicFields);
+    }
+
+    @Override
+    public List<Task> findTasks(TaskQuery query) {
+        return find(TaskTypes.TASK, query);
+    }
+
+    @Override
+    public List<Epic> findEpics(TaskQuery query) {
+        return findById(TaskTypes.EPIC, query);
+    }
+
+    @Override
+    public List<Subtask> findSubtasks(TaskQuery query) {
+        if (query.getEpicId() != null) {
+            return findEpicSubtasks(query);
+        }
+        return find(TaskTypes.SUBTASK, query);
+    }
+
+    @Override
+    public List<Task> findPrioritizedTasks(TaskQuery query) {
+        return findByTime(null, query);
+    }
+
+    private <T extends Task> List<T> find(TaskTypes type, TaskQuery query) {
+        return query.hasTimeRange() ? findByTime(type, query) : findById(type, query);
+    }
+
+    // Страница в порядке ИД по индексу ИД хранилища
+    private <T extends Task> List<T> findById(TaskTypes type, TaskQuery query) {
+        List<T> page = new ArrayList<>();
+        int afterId = query.getAfter() == null ? Integer.MIN_VALUE : query.getAfter();
+        store.<T>walk(type, afterId, entity -> {
+            if (query.matches(entity)) {
+                page.add(entity);
+            }
+            return page.size() < query.getLimit();
+        });
+        return page;
+    }
+
+    // Страница в порядке времени начала по временной шкале: обход начинается с позиции курсора
+    // или с from и заканчивается на to. type == null - задачи и подзадачи вместе.
+    // Позиция курсора (время начала, ИД) из запроса не требует, чтобы сущность-курсор ещё существовала.
+    @SuppressWarnings("unchecked")
+    private <T extends Task> List<T> findByTime(TaskTypes type, TaskQuery query) {
+        LocalDateTime start = query.getFrom() == null ? LocalDateTime.MIN : query.getFrom();
+        int afterId = Integer.MIN_VALUE;
+        LocalDateTime cursorStart = query.getAfterStart();
+        int cursorId = query.getAfter() == null ? Integer.MAX_VALUE : query.getAfter();
+        if (cursorStart == null && query.getAfter() != null) {
+            Task cursor = getTimelineEntity(type, query.getAfter());
+            if (cursor == null || cursor.getStartTime() == null) {
+                throw new NotFoundException("Задача с id " + query.getAfter() + " не найдена в списке приоритетов");
+            }
+            cursorStart = cursor.getStartTime();
+        }
+        // Курсор раньше from не сдвигает начало обхода назад
+        if (cursorStart != null && !cursorStart.isBefore(start)) {
+            start = cursorStart;
+            afterId = cursorId;
+        }
+        List<T> page = new ArrayList<>();
+        walkTimeline(start, afterId, task -> {
+            if (query.getTo() != null && !task.getStartTime().isBefore(query.getTo())) {
+                return false;
+            }
+            if ((type == null || task.getType() == type) && query.matches(task)) {
+                page.add((T) task);
+            }
+            return page.size() < query.getLimit();
+        });
+        return page;
+    }
+
+    private Task getTimelineEntity(TaskTypes type, int id) {
+        if (type != null) {
+            return store.get(type, id);
+        }
+        Task task = store.get(TaskTypes.TASK, id);
+        return task != null ? task : store.get(TaskTypes.SUBTASK, id);
+    }
+
+    protected void walkTimeline(LocalDateTime start, int afterId, Predicate<? super Task> action) {
+        store.walkTimeline(start, afterId, action);
+    }
+
+    // Подзадачи эпика в порядке ИД. ИД эпика упорядочены, поэтому страница начинается с курсора
+    // за O(log k + размер страницы) без сортировки.
+    protected List<Subtask> findEpicSubtasks(TaskQuery query) {
+        Epic epic = getEpicInternal(query.getEpicId());
+        if (epic == null) {
+            return new ArrayList<>();
+        }
+        int afterId = query.getAfter() == null ? Integer.MIN_VALUE : query.getAfter();
+        List<Subtask> page = new ArrayList<>();
+        for (Integer subtaskId : epic.getSubtaskIdsAfter(afterId)) {
+            if (page.size() >= query.getLimit()) {
+                break;
+            }
+            Subtask subtask = getSubtaskInternal(subtaskId);
+            if (subtask != null && query.matches(subtask)) {
+                page.add(subtask);
+            }
+        }
+        return page;
+    }
+
+    private void checkBatch(List<? extends Task> batch) {
+        if (batch == null || batch.stream().anyMatch(Objects::isNull)) {
+            throw new IllegalArgumentException("Передан пустой пакет или пустая задача в пакете");
+        }
+    }
+
+    private Epic getExistingEpic(Integer epicId) {
+        Epic epic = epicId == null ? null : getEpicInternal(epicId);
+        if (epic == null) {
+            throw new IllegalArgumentException("Эпик с id " + epicId + " не найден в хранилище");
+        }
+        return epic;
+    }
+
+    protected void checkIntersectionByTimeForBatch(List<? extends Task> batch) {
+        checkIntersectionInsideBatch(batch);
+        // Проверяем каждую задачу пакета по индексу интервалов
+        for (Task task : batch) {
+            checkIntersectionByTimeBetweenTaskAndStorage(task);
+        }
+    }
+
+    // Проверяет обновляемый пакет, не сравнивая его задачи с их прежними версиями с ИД из ignoredIds
+    protected void checkIntersectionByTimeForBatch(List<? extends Task> batch, Set<Integer> ignoredIds) {
+        checkIntersectionInsideBatch(batch);
+        for (Task task : batch) {
+            checkIntersectionByTimeBetweenTaskAndStorage(task, ignoredIds);
+        }
+    }
+
+    private static Set<Integer> getIds(List<? extends Task> batch) {
+        Set<Integer> ids = new HashSet<>();
+        batch.forEach(task -> ids.add(task.getId()));
+        return ids;
+    }
+
+    private static void checkIntersectionInsideBatch(List<? extends Task> batch) {
+        // Сортируем задачи пакета по времени начала, чтобы найти пересечения внутри пакета за один проход
+        List<Task> sortedBatch = batch.stream()
+                .filter(task -> task.getStartTime() != null && task.getEndTime() != null)
+                .sorted(Comparator.comparing(Task::getStartTime))
+                .map(Task.class::cast)
+                .toList();
+        LocalDateTime maxEndTime = null;
+        for (Task task : sortedBatch) {
+            if (maxEndTime != null && !task.getStartTime().isAfter(maxEndTime)) {
+                throw new NotAcceptableException("Найдено пересечение по времени выполнения внутри пакета");
+            }
+            if (maxEndTime == null || task.getEndTime().isAfter(maxEndTime)) {
+                maxEndTime = task.getEndTime();
+            }
+        }
+    }
+
+    protected void linkSubtaskToEpic(Subtask subtask, Epic epic) {
+        // Добавляем подзадачу к эпику, если её там ещё нет,
+        epic.addSubtask(subtask.getId());
+        // и учитываем её в итогах эпика
+        getEpicAggregate(epic.getId()).add(subtask);
+    }
+
+    protected EpicAggregate getEpicAggregate(int epicId) {
+        return epicAggregates.computeIfAbsent(epicId, id -> new EpicAggregate());
     }
 
     private void calculateEpicFields(Epic epic) {
-        calculateEpicStatusField(epic);
-        calculateEpicTimeFields(epic);
+        // Переносим в эпик инкрементально поддерживаемые итоги
+        getEpicAggregate(epic.getId()).applyTo(epic);
+
+        if (epicAggregatesVerification) {
+            verifyEpicFields(epic);
+        }
+    }
+
+    private void verifyEpicFields(Epic epic) {
+        // Полный пересчёт полей эпика по всем подзадачам хранилища
+        Epic expected = new Epic(epic.getId(), StatusTypes.NEW, epic.getName(), epic.getDescription());
+        List<Subtask> epicSubtasks = store.<Subtask>scan(TaskTypes.SUBTASK).stream()
+                .filter(subtask -> epic.getId().equals(subtask.getEpicId()))
+                .toList();
+        calculateEpicStatusField(expected, epicSubtasks);
+        calculateEpicTimeFields(expected, epicSubtasks);
+
+        if (expected.getStatus() != epic.getStatus()
+                || !Objects.equals(expected.getStartTime(), epic.getStartTime())
+                || !Objects.equals(expected.getEndTime(), epic.getEndTime())
+                || !Objects.equals(expected.getDuration(), epic.getDuration())) {
+            throw new IllegalStateException("Итоги эпика с id " + epic.getId()
+                    + " не совпадают с полным пересчётом: " + epic + " / " + expected);
+        }
+    }
+
+    private void calculateEpicStatusField(Epic epic, List<Subtask> epicSubtasks) {
+        StatusTypes resultStatus = StatusTypes.IN_PROGRESS;
+        long newQuantity = 0;
+        long doneQuantity = 0;
+
+        // Считаем подзадачи эпика по статусам за один проход
+        for (Subtask subtask : epicSubtasks) {
+            if (subtask.getStatus() == StatusTypes.NEW) {
+                newQuantity++;
+            } else if (subtask.getStatus() == StatusTypes.DONE) {
+                doneQuantity++;
+            }
+        }
+
+        if (epicSubtasks.isEmpty()) {
+            resultStatus = StatusTypes.NEW;
+        } else if (newQuantity == epicSubtasks.size()) {
+            resultStatus = StatusTypes.NEW;
+        } else if (doneQuantity == epicSubtasks.size()) {
+            resultStatus = StatusTypes.DONE;
+        }
+
+        epic.setStatus(resultStatus);
+    }
+
+    private void calculateEpicTimeFields(Epic epic, List<Subtask> epicSubtasks) {
+        LocalDateTime startTime = null;
+        LocalDateTime endTime = null;
+        Duration duration = Duration.ZERO;
+
+        // Находим самое раннее начало, самое позднее окончание и суммарную длительность подзадач эпика
+        for (Subtask subtask : epicSubtasks) {
+            if (subtask.getStartTime() != null && (startTime == null || subtask.getStartTime().isBefore(startTime))) {
+                startTime = subtask.getStartTime();
+            }
+            if (subtask.getEndTime() != null && (endTime == null || subtask.getEndTime().isAfter(endTime))) {
+                endTime = subtask.getEndTime();
+            }
+            if (subtask.getDuration() != null) {
+                duration = duration.plus(subtask.getDuration());
+            }
+        }
+
+        // Устанавливаем полученные значения
+        epic.setStartTime(startTime);
+        epic.setEndTime(endTime);
+        epic.setDuration(duration);
     }
 }
@@ -1,13 +1,39 @@
 package ru.yandex.practicum.scheduler.managers;
 
+import java.io.File;
 import ru.yandex.practicum.scheduler.managers.interfaces.HistoryManager;
 import ru.yandex.practicum.scheduler.managers.interfaces.TaskManager;
+import ru.yandex.practicum.scheduler.managers.interfaces.TaskStore;
+import ru.yandex.practicum.scheduler.managers.persistence.PersistenceTypes;
 
 public class Managers {
     public static TaskManager getDefault() {
         return new InMemoryTaskManager(getDefaultHistory());
     }
 
+    // Менеджер с правилами планирования по умолчанию поверх указанного хранилища
+    public static TaskManager getDefault(TaskStore store) {
+        return new InMemoryTaskManager(getDefaultHistory(), store);
+    }
+
+    public static TaskManager getConcurrent() {
+        return new ConcurrentTaskManager(getDefaultHistory());
+    }
+
+    public static TaskManager getConcurrent(TaskStore store) {
+        return new ConcurrentTaskManager(getDefaultHistory(), store);
+    }
+
+    // Менеджер, сохраняющий состояние указанного хранилища в файл выбранным способом
+    public static FileBackedTaskManager getFileBacked(File file, PersistenceTypes persistenceType, TaskStore store) {
+        return new FileBackedTaskManager(getDefaultHistory(), file, persistenceType, store);
+    }
+
+    // Менеджер поверх встраиваемой базы H2 в файле file (к имени база добавит расширение .mv.db)
+    public static SqlTaskManager getSql(File file) {
+        return new SqlTaskManager(getDefaultHistory(), "jdbc:h2:file:" + file.getAbsolutePath());
+    }
+
     public static HistoryManager getDefaultHistory() {
         return new InMemoryHistoryManager();
     }
@@ -0,0 +1,1120 @@
+package ru.yandex.practicum.scheduler.managers;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Types;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
+import ru.yandex.practicum.scheduler.exceptions.ManagerSaveException;
+import ru.yandex.practicum.scheduler.exceptions.NotAcceptableException;
+import ru.yandex.practicum.scheduler.exceptions.NotFoundException;
+import ru.yandex.practicum.scheduler.managers.ids.IdAllocator;
+import ru.yandex.practicum.scheduler.managers.interfaces.HistoryManager;
+import ru.yandex.practicum.scheduler.managers.interfaces.TaskManager;
+import ru.yandex.practicum.scheduler.managers.queries.TaskQuery;
+import ru.yandex.practicum.scheduler.models.Epic;
+import ru.yandex.practicum.scheduler.models.Subtask;
+import ru.yandex.practicum.scheduler.models.Task;
+import ru.yandex.practicum.scheduler.models.enums.StatusTypes;
+import ru.yandex.practicum.scheduler.models.enums.TaskTypes;
+
+// Менеджер задач поверх встраиваемой SQL-базы, работающей в том же процессе (H2 в файловом режиме).
+// Задачи и подзадачи хранятся только в базе и читаются из неё при каждом запросе, поэтому размер доски
+// не ограничен кучей. В памяти остаются эпики со списками ИД подзадач: менеджер изменяет объекты эпиков
+// на месте, как и InMemoryTaskManager. Перед изменением эпика в транзакции запоминается его прежнее состояние,
+// и при откате транзакции эпики в памяти восстанавливаются вместе с базой.
+// Подзадачи эпика, список приоритетов и проверка пересечений - запросы по индексам на epic_id,
+// (start_time, end_time) и end_time, итоги эпика - агрегирующий запрос по индексу epic_id.
+// Изменения выполняются подготовленными запросами, пакеты - пакетом запросов в одной транзакции.
+// Как и InMemoryTaskManager, менеджер не потокобезопасен.
+public class SqlTaskManager implements TaskManager, AutoCloseable {
+
+    private static final String COLUMNS = "id, type, name, description, status, start_time, end_time, duration, "
+            + "epic_id";
+    private static final String[] SCHEMA = {
+            "CREATE TABLE IF NOT EXISTS tasks (id INT PRIMARY KEY, type VARCHAR(16) NOT NULL, name VARCHAR, "
+                    + "description VARCHAR, status VARCHAR(16), start_time TIMESTAMP(9), end_time TIMESTAMP(9), "
+                    + "duration BIGINT, epic_id INT)",
+            "CREATE INDEX IF NOT EXISTS tasks_epic_id ON tasks (epic_id)",
+            "CREATE INDEX IF NOT EXISTS tasks_status ON tasks (status)",
+            "CREATE INDEX IF NOT EXISTS tasks_time ON tasks (start_time, end_time)",
+            "CREATE INDEX IF NOT EXISTS tasks_end_time ON tasks (end_time)",
+            "CREATE TABLE IF NOT EXISTS epics (id INT PRIMARY KEY, name VARCHAR, description VARCHAR, "
+                    + "status VARCHAR(16), start_time TIMESTAMP(9), end_time TIMESTAMP(9), duration BIGINT)"
+    };
+    private static final String INSERT_TASK = "INSERT INTO tasks (" + COLUMNS + ") VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)";
+    private static final String UPDATE_TASK = "UPDATE tasks SET name = ?, description = ?, status = ?, "
+            + "start_time = ?, end_time = ?, duration = ?, epic_id = ? WHERE id = ? AND type = ?";
+    private static final String DELETE_TASK = "DELETE FROM tasks WHERE id = ? AND type = ?";
+    private static final String SELECT_BY_ID = "SELECT " + COLUMNS + " FROM tasks WHERE id = ? AND type = ?";
+    private static final String SELECT_BY_TYPE = "SELECT " + COLUMNS + " FROM tasks WHERE type = ? ORDER BY id";
+    private static final String SELECT_IDS_BY_TYPE = "SELECT id FROM tasks WHERE type = ?";
+    private static final String DELETE_BY_TYPE = "DELETE FROM tasks WHERE type = ?";
+    private static final String SELECT_BY_EPIC = "SELECT " + COLUMNS + " FROM tasks WHERE epic_id = ? ORDER BY id";
+    private static final String SELECT_IDS_BY_EPIC = "SELECT id FROM tasks WHERE epic_id = ?";
+    private static final String DELETE_BY_EPIC = "DELETE FROM tasks WHERE epic_id = ?";
+    // Интервалы в базе не пересекаются, поэтому времена начала различны и порядок индекса tasks_time
+    // совпадает с порядком приоритетов
+    private static final String SELECT_PRIORITIZED = "SELECT " + COLUMNS + " FROM tasks "
+            + "WHERE start_time IS NOT NULL ORDER BY start_time, end_time";
+    private static final String SELECT_OTHER_TIMED = "SELECT id FROM tasks WHERE start_time IS NOT NULL "
+            + "AND id <> ? LIMIT 1";
+    // Интервалы в базе не пересекаются и упорядочены по окончанию так же, как по началу, поэтому
+    // с [start, end] может пересекаться только первый интервал, оканчивающийся не раньше start.
+    // Пропускаемые ИД могут оказаться среди первых, поэтому читается на столько строк больше,
+    // сколько ИД пропускается.
+    private static final String SELECT_FIRST_ENDED = "SELECT id, start_time FROM tasks WHERE end_time >= ? "
+            + "ORDER BY end_time LIMIT ?";
+    private static final String SELECT_EPIC_TOTALS = "SELECT COUNT(*), "
+            + "SUM(CASE WHEN status = 'NEW' THEN 1 ELSE 0 END), SUM(CASE WHEN status = 'DONE' THEN 1 ELSE 0 END), "
+            + "MIN(start_time), MAX(end_time), SUM(duration) FROM tasks WHERE epic_id = ?";
+    private static final String SELECT_START_TIME = "SELECT start_time FROM tasks WHERE id = ?";
+    private static final String SELECT_TYPED_START_TIME = "SELECT start_time FROM tasks WHERE id = ? AND type = ?";
+    private static final String INSERT_EPIC = "INSERT INTO epics (id, name, description, status, start_time, "
+            + "end_time, duration) VALUES (?, ?, ?, ?, ?, ?, ?)";
+    private static final String UPDATE_EPIC_NAME = "UPDATE epics SET name = ?, description = ? WHERE id = ?";
+    private static final String UPDATE_EPIC_TOTALS = "UPDATE epics SET status = ?, start_time = ?, end_time = ?, "
+            + "duration = ? WHERE id = ?";
+    private static final String DELETE_EPIC = "DELETE FROM epics WHERE id = ?";
+
+    private final HistoryManager historyManager;
+    private final IdAllocator idAllocator = new IdAllocator();
+    private final String url;
+    private final Connection connection;
+    // Подготовленные запросы переиспользуются на всё время работы соединения
+    private final Map<String, PreparedStatement> statements = new HashMap<>();
+    // Эпики по ИД в порядке добавления
+    private final Map<Integer, Epic> epics = new LinkedHashMap<>();
+    // Состояние эпиков, изменённых в текущей транзакции, до её начала
+    private final Map<Integer, EpicSnapshot> stagedEpics = new HashMap<>();
+
+    // Открывает базу по адресу JDBC, например "jdbc:h2:file:/path/board", и создаёт схему, если её нет
+    public SqlTaskManager(HistoryManager historyManager, String url) {
+        this.historyManager = historyManager;
+        this.url = url;
+        try {
+            connection = DriverManager.getConnection(url);
+            connection.setAutoCommit(false);
+            try (Statement statement = connection.createStatement()) {
+                for (String sql : SCHEMA) {
+                    statement.execute(sql);
+                }
+            }
+            connection.commit();
+            loadEpics();
+        } catch (SQLException e) {
+            throw new ManagerSaveException("Ошибка при открытии базы " + url, e);
+        }
+    }
+
+    private void loadEpics() throws SQLException {
+        int maxId = 0;
+        try (Statement statement = connection.createStatement();
+             ResultSet rs = statement.executeQuery("SELECT id, name, description, status, start_time, end_time, "
+                     + "duration FROM epics ORDER BY id")) {
+            while (rs.next()) {
+                Epic epic = new Epic(rs.getInt(1), parseStatus(rs.getString(4)), rs.getString(2), rs.getString(3));
+                epic.setStartTime(rs.getObject(5, LocalDateTime.class));
+                epic.setEndTime(rs.getObject(6, LocalDateTime.class));
+                epic.setDuration(getDuration(rs, 7));
+                epics.put(epic.getId(), epic);
+                maxId = Math.max(maxId, epic.getId());
+            }
+        }
+        // Списки подзадач эпиков восстанавливаем одним проходом по индексу epic_id
+        Map<Integer, List<Integer>> subtaskIds = new HashMap<>();
+        try (Statement statement = connection.createStatement();
+             ResultSet rs = statement.executeQuery("SELECT id, epic_id FROM tasks WHERE epic_id IS NOT NULL "
+                     + "ORDER BY id")) {
+            while (rs.next()) {
+                subtaskIds.computeIfAbsent(rs.getInt(2), id -> new ArrayList<>()).add(rs.getInt(1));
+            }
+        }
+        subtaskIds.forEach((epicId, ids) -> {
+            Epic epic = epics.get(epicId);
+            if (epic != null) {
+                epic.addSubtasks(ids);
+            }
+        });
+        try (Statement statement = connection.createStatement();
+             ResultSet rs = statement.executeQuery("SELECT MAX(id) FROM tasks")) {
+            if (rs.next()) {
+                maxId = Math.max(maxId, rs.getInt(1));
+            }
+        }
+        idAllocator.advanceTo(maxId);
+    }
+
+    @Override
+    public void close() {
+        try {
+            for (PreparedStatement statement : statements.values()) {
+                statement.close();
+            }
+            statements.clear();
+            connection.close();
+        } catch (SQLException e) {
+            throw new ManagerSaveException("Ошибка при закрытии базы " + url, e);
+        }
+    }
+
+    @Override
+    public List<Task> getHistory() {
+        return historyManager.getHistory();
+    }
+
+    @Override
+    public List<Task> getTasks() {
+        return query(() -> selectByType(TaskTypes.TASK));
+    }
+
+    @Override
+    public List<Task> getPrioritizedTasks() {
+        return query(() -> select(prepare(SELECT_PRIORITIZED)));
+    }
+
+    // Строки передаются в action по мере чтения результата запроса, без сборки списка
+    @Override
+    public void forEachTask(Consumer<? super Task> action) {
+        query(() -> scanByType(TaskTypes.TASK, action));
+    }
+
+    @Override
+    public void forEachPrioritizedTask(Consumer<? super Task> action) {
+        query(() -> scan(prepare(SELECT_PRIORITIZED), action));
+    }
+
+    @Override
+    public Optional<Task> getTaskById(Integer id) {
+        Task task = query(() -> selectById(TaskTypes.TASK, id));
+        if (task != null) {
+            historyManager.addToHistory(task);
+        }
+        return Optional.ofNullable(task);
+    }
+
+    @Override
+    public Integer createTask(Task task) {
+        if (task == null) {
+            throw new IllegalArgumentException("Передана пустая задача");
+        }
+        return inTransaction(() -> {
+            checkIntersection(task, Set.of());
+            task.setId(idAllocator.nextIntId());
+            bindInsert(prepare(INSERT_TASK), task, null);
+            prepare(INSERT_TASK).executeUpdate();
+            return task.getId();
+        });
+    }
+
+    @Override
+    public void updateTask(Task task) {
+        if (task == null) {
+            throw new IllegalArgumentException("Передана пустая задача");
+        }
+        inTransaction(() -> {
+            checkIntersection(task, task.getId() == null ? Set.of() : Set.of(task.getId()));
+            bindUpdate(prepare(UPDATE_TASK), task, null);
+            prepare(UPDATE_TASK).executeUpdate();
+            return null;
+        });
+    }
+
+    @Override
+    public void deleteTask(Integer id) {
+        if (id == null) {
+            return;
+        }
+        inTransaction(() -> deleteById(TaskTypes.TASK, id));
+        historyManager.remove(id);
+    }
+
+    @Override
+    public void deleteTasks() {
+        List<Integer> ids = inTransaction(() -> deleteByType(TaskTypes.TASK));
+        ids.forEach(historyManager::remove);
+    }
+
+    @Override
+    public List<Integer> createTasks(List<Task> tasks) {
+        checkBatch(tasks);
+        return inTransaction(() -> {
+            checkIntersectionForBatch(tasks, Set.of());
+            PreparedStatement insert = prepare(INSERT_TASK);
+            List<Integer> result = new ArrayList<>(tasks.size());
+            for (Task task : tasks) {
+                task.setId(idAllocator.nextIntId());
+                bindInsert(insert, task, null);
+                insert.addBatch();
+                result.add(task.getId());
+            }
+            insert.executeBatch();
+            return result;
+        });
+    }
+
+    @Override
+    public void updateTasks(List<Task> tasks) {
+        checkBatch(tasks);
+        inTransaction(() -> {
+            // Обновляем только задачи, которые есть в базе
+            List<Task> existingTasks = new ArrayList<>(tasks.size());
+            for (Task task : tasks) {
+                if (selectById(TaskTypes.TASK, task.getId()) != null) {
+                    existingTasks.add(task);
+                }
+            }
+            // Прежние версии задач пакета не участвуют в проверке, чтобы задачи могли меняться местами
+            Set<Integer> ids = new HashSet<>();
+            existingTasks.forEach(task -> ids.add(task.getId()));
+            checkIntersectionForBatch(existingTasks, ids);
+
+            PreparedStatement update = prepare(UPDATE_TASK);
+            for (Task task : existingTasks) {
+                bindUpdate(update, task, null);
+                update.addBatch();
+            }
+            update.executeBatch();
+            return null;
+        });
+    }
+
+    @Override
+    public void deleteTasks(Collection<Integer> ids) {
+        inTransaction(() -> {
+            PreparedStatement delete = prepare(DELETE_TASK);
+            for (Integer id : ids) {
+                if (id != null) {
+                    delete.setInt(1, id);
+                    delete.setString(2, TaskTypes.TASK.name());
+                    delete.addBatch();
+                }
+            }
+            delete.executeBatch();
+            return null;
+        });
+        ids.stream().filter(Objects::nonNull).forEach(historyManager::remove);
+    }
+
+    @Override
+    public List<Epic> getEpics() {
+        return new ArrayList<>(epics.values());
+    }
+
+    @Override
+    public void forEachEpic(Consumer<? super Epic> action) {
+        epics.values().forEach(action);
+    }
+
+    @Override
+    public Optional<Epic> getEpicById(Integer id) {
+        Epic epic = id == null ? null : epics.get(id);
+        if (epic != null) {
+            historyManager.addToHistory(epic);
+        }
+        return Optional.ofNullable(epic);
+    }
+
+    @Override
+    public Integer createEpic(Epic epic) {
+        if (epic == null) {
+            throw new IllegalArgumentException("Передан пустой эпик");
+        }
+        return inTransaction(() -> {
+            PreparedStatement insert = prepare(INSERT_EPIC);
+            addEpic(insert, epic);
+            insert.executeUpdate();
+            return epic.getId();
+        });
+    }
+
+    private void addEpic(PreparedStatement insert, Epic epic) throws SQLException {
+        epic.setId(idAllocator.nextIntId());
+        // Новый эпик не может содержать подзадач
+        epic.clearSubtasks();
+        insert.setInt(1, epic.getId());
+        insert.setString(2, epic.getName());
+        insert.setString(3, epic.getDescription());
+        insert.setString(4, epic.getStatus() == null ? null : epic.getStatus().name());
+        insert.setObject(5, epic.getStartTime());
+        insert.setObject(6, epic.getEndTime());
+        setDuration(insert, 7, epic.getDuration());
+        stageEpic(epic.getId());
+        epics.put(epic.getId(), epic);
+    }
+
+    @Override
+    public void updateEpic(Epic epic) {
+        if (epic == null) {
+            throw new IllegalArgumentException("Передан пустой эпик");
+        }
+        inTransaction(() -> {
+            PreparedStatement update = prepare(UPDATE_EPIC_NAME);
+            if (applyEpicUpdate(update, epic)) {
+                update.executeUpdate();
+            }
+            return null;
+        });
+    }
+
+    private boolean applyEpicUpdate(PreparedStatement update, Epic epic) throws SQLException {
+        Epic storedEpic = epic.getId() == null ? null : epics.get(epic.getId());
+        if (storedEpic == null) {
+            return false;
+        }
+        // У эпика меняются только наименование и описание, остальные поля рассчитываются по подзадачам
+        stageEpic(storedEpic.getId());
+        storedEpic.setName(epic.getName());
+        storedEpic.setDescription(epic.getDescription());
+        update.setString(1, storedEpic.getName());
+        update.setString(2, storedEpic.getDescription());
+        update.setInt(3, storedEpic.getId());
+        return true;
+    }
+
+    @Override
+    public void deleteEpic(Integer id) {
+        if (id == null) {
+            return;
+        }
+        List<Integer> deletedIds = inTransaction(() -> {
+            List<Integer> result = new ArrayList<>();
+            removeEpic(id, result);
+            return result;
+        });
+        deletedIds.forEach(historyManager::remove);
+    }
+
+    // Удаляет эпик с подзадачами из базы и добавляет их ИД в deletedIds.
+    // Из истории они удаляются после фиксации транзакции.
+    private void removeEpic(Integer id, List<Integer> deletedIds) throws SQLException {
+        // Удаляем подзадачи эпика из базы
+        PreparedStatement selectIds = prepare(SELECT_IDS_BY_EPIC);
+        selectIds.setInt(1, id);
+        deletedIds.addAll(selectIds(selectIds));
+        PreparedStatement deleteSubtasks = prepare(DELETE_BY_EPIC);
+        deleteSubtasks.setInt(1, id);
+        deleteSubtasks.executeUpdate();
+        // Удаляем эпик из базы
+        deletedIds.add(id);
+        PreparedStatement deleteEpic = prepare(DELETE_EPIC);
+        deleteEpic.setInt(1, id);
+        deleteEpic.executeUpdate();
+        stageEpic(id);
+        epics.remove(id);
+    }
+
+    @Override
+    public void deleteEpics() {
+        deleteEpics(List.copyOf(epics.keySet()));
+    }
+
+    @Override
+    public List<Integer> createEpics(List<Epic> epics) {
+        checkBatch(epics);
+        return inTransaction(() -> {
+            PreparedStatement insert = prepare(INSERT_EPIC);
+            List<Integer> result = new ArrayList<>(epics.size());
+            for (Epic epic : epics) {
+                addEpic(insert, epic);
+                insert.addBatch();
+                result.add(epic.getId());
+            }
+            insert.executeBatch();
+            return result;
+        });
+    }
+
+    @Override
+    public void updateEpics(List<Epic> epics) {
+        checkBatch(epics);
+        inTransaction(() -> {
+            PreparedStatement update = prepare(UPDATE_EPIC_NAME);
+            for (Epic epic : epics) {
+                if (applyEpicUpdate(update, epic)) {
+                    update.addBatch();
+                }
+            }
+            update.executeBatch();
+            return null;
+        });
+    }
+
+    @Override
+    public void deleteEpics(Collection<Integer> ids) {
+        List<Integer> deletedIds = inTransaction(() -> {
+            List<Integer> result = new ArrayList<>();
+            for (Integer id : ids) {
+                if (id != null) {
+                    removeEpic(id, result);
+                }
+            }
+            return result;
+        });
+        deletedIds.forEach(historyManager::remove);
+    }
+
+    @Override
+    public List<Subtask> getSubtasks() {
+        return query(() -> selectByType(TaskTypes.SUBTASK));
+    }
+
+    @Override
+    public void forEachSubtask(Consumer<? super Subtask> action) {
+        query(() -> scanByType(TaskTypes.SUBTASK, action));
+    }
+
+    @Override
+    public Optional<Subtask> getSubtaskById(Integer id) {
+        Subtask subtask = query(() -> selectById(TaskTypes.SUBTASK, id));
+        if (subtask != null) {
+            historyManager.addToHistory(subtask);
+        }
+        return Optional.ofNullable(subtask);
+    }
+
+    @Override
+    public List<Subtask> getEpicSubtasks(Integer epicId) {
+        if (epicId == null || !epics.containsKey(epicId)) {
+            return new ArrayList<>();
+        }
+        return query(() -> {
+            PreparedStatement select = prepare(SELECT_BY_EPIC);
+            select.setInt(1, epicId);
+            return select(select);
+        });
+    }
+
+    @Override
+    public List<Task> findTasks(TaskQuery query) {
+        return query(() -> find(TaskTypes.TASK, query));
+    }
+
+    // Эпики берутся из памяти, но страница ИД выбирается по первичному ключу таблицы эпиков,
+    // где хранятся и итоги эпика для фильтров статуса и времени
+    @Override
+    public List<Epic> findEpics(TaskQuery query) {
+        return query(() -> {
+            List<Object> parameters = new ArrayList<>();
+            StringBuilder sql = new StringBuilder("SELECT id FROM epics WHERE id > ?");
+            parameters.add(query.getAfter() == null ? Integer.MIN_VALUE : query.getAfter());
+            appendFilters(sql, parameters, query);
+            sql.append(" ORDER BY id LIMIT ?");
+            parameters.add(query.getLimit());
+            List<Epic> page = new ArrayList<>();
+            for (Integer id : selectIds(bind(prepare(sql.toString()), parameters))) {
+                Epic epic = epics.get(id);
+                if (epic != null) {
+                    page.add(epic);
+                }
+            }
+            return page;
+        });
+    }
+
+    @Override
+    public List<Subtask> findSubtasks(TaskQuery query) {
+        return query(() -> find(TaskTypes.SUBTASK, query));
+    }
+
+    @Override
+    public List<Task> findPrioritizedTasks(TaskQuery query) {
+        return query(() -> find(null, query));
+    }
+
+    @Override
+    public Integer createSubtask(Subtask subtask) {
+        if (subtask == null) {
+            throw new IllegalArgumentException("Передана пустая подзадача");
+        }
+        return inTransaction(() -> {
+            checkIntersection(subtask, Set.of());
+            Epic epic = getExistingEpic(subtask.getEpicId());
+            subtask.setId(idAllocator.nextIntId());
+            bindInsert(prepare(INSERT_TASK), subtask, subtask.getEpicId());
+            prepare(INSERT_TASK).executeUpdate();
+            stageEpic(epic.getId());
+            epic.addSubtask(subtask.getId());
+            calculateEpicFields(epic);
+            return subtask.getId();
+        });
+    }
+
+    @Override
+    public void updateSubtask(Subtask subtask) {
+        if (subtask == null) {
+            throw new IllegalArgumentException("Передана пустая подзадача");
+        }
+        inTransaction(() -> {
+            Subtask storedSubtask = selectById(TaskTypes.SUBTASK, subtask.getId());
+            if (storedSubtask == null) {
+                return null;
+            }
+            Epic epic = getExistingEpic(subtask.getEpicId());
+            checkIntersection(subtask, Set.of(subtask.getId()));
+            bindUpdate(prepare(UPDATE_TASK), subtask, subtask.getEpicId());
+            prepare(UPDATE_TASK).executeUpdate();
+            // Если подзадача перенесена в другой эпик, удаляем её из прежнего и пересчитываем его поля
+            Epic previousEpic = epics.get(storedSubtask.getEpicId());
+            if (previousEpic != null && previousEpic != epic) {
+                stageEpic(previousEpic.getId());
+                previousEpic.deleteSubtask(subtask);
+                calculateEpicFields(previousEpic);
+            }
+            stageEpic(epic.getId());
+            epic.addSubtask(subtask.getId());
+            calculateEpicFields(epic);
+            return null;
+        });
+    }
+
+    @Override
+    public void deleteSubtask(Integer id) {
+        deleteSubtasks(id == null ? List.of() : List.of(id));
+    }
+
+    @Override
+    public void deleteSubtasks() {
+        List<Integer> ids = inTransaction(() -> {
+            List<Integer> deletedIds = deleteByType(TaskTypes.SUBTASK);
+            for (Epic epic : epics.values()) {
+                stageEpic(epic.getId());
+                epic.clearSubtasks();
+                calculateEpicFields(epic);
+            }
+            return deletedIds;
+        });
+        ids.forEach(historyManager::remove);
+    }
+
+    @Override
+    public List<Integer> createSubtasks(List<Subtask> subtasks) {
+        checkBatch(subtasks);
+        // Все эпики пакета должны существовать
+        for (Subtask subtask : subtasks) {
+            getExistingEpic(subtask.getEpicId());
+        }
+        return inTransaction(() -> {
+            checkIntersectionForBatch(subtasks, Set.of());
+            PreparedStatement insert = prepare(INSERT_TASK);
+            Set<Epic> affectedEpics = new LinkedHashSet<>();
+            List<Integer> result = new ArrayList<>(subtasks.size());
+            for (Subtask subtask : subtasks) {
+                Epic epic = epics.get(subtask.getEpicId());
+                subtask.setId(idAllocator.nextIntId());
+                bindInsert(insert, subtask, subtask.getEpicId());
+                insert.addBatch();
+                stageEpic(epic.getId());
+                epic.addSubtask(subtask.getId());
+                affectedEpics.add(epic);
+                result.add(subtask.getId());
+            }
+            insert.executeBatch();
+            // Пересчитываем каждый затронутый эпик один раз
+            for (Epic epic : affectedEpics) {
+                calculateEpicFields(epic);
+            }
+            return result;
+        });
+    }
+
+    @Override
+    public void updateSubtasks(List<Subtask> subtasks) {
+        checkBatch(subtasks);
+        inTransaction(() -> {
+            // Обновляем только подзадачи, которые есть в базе
+            List<Subtask> existingSubtasks = new ArrayList<>(subtasks.size());
+            List<Subtask> previousSubtasks = new ArrayList<>(subtasks.size());
+            for (Subtask subtask : subtasks) {
+                Subtask storedSubtask = selectById(TaskTypes.SUBTASK, subtask.getId());
+                if (storedSubtask != null) {
+                    getExistingEpic(subtask.getEpicId());
+                    existingSubtasks.add(subtask);
+                    previousSubtasks.add(storedSubtask);
+                }
+            }
+            Set<Integer> ids = new HashSet<>();
+            existingSubtasks.forEach(subtask -> ids.add(subtask.getId()));
+            checkIntersectionForBatch(existingSubtasks, ids);
+
+            PreparedStatement update = prepare(UPDATE_TASK);
+            Set<Epic> affectedEpics = new LinkedHashSet<>();
+            for (int i = 0; i < existingSubtasks.size(); i++) {
+                Subtask subtask = existingSubtasks.get(i);
+                bindUpdate(update, subtask, subtask.getEpicId());
+                update.addBatch();
+                Epic epic = epics.get(subtask.getEpicId());
+                Epic previousEpic = epics.get(previousSubtasks.get(i).getEpicId());
+                if (previousEpic != null && previousEpic != epic) {
+                    stageEpic(previousEpic.getId());
+                    previousEpic.deleteSubtask(subtask);
+                    affectedEpics.add(previousEpic);
+                }
+                stageEpic(epic.getId());
+                epic.addSubtask(subtask.getId());
+                affectedEpics.add(epic);
+            }
+            update.executeBatch();
+            for (Epic epic : affectedEpics) {
+                calculateEpicFields(epic);
+            }
+            return null;
+        });
+    }
+
+    @Override
+    public void deleteSubtasks(Collection<Integer> ids) {
+        List<Integer> deletedIds = inTransaction(() -> {
+            PreparedStatement delete = prepare(DELETE_TASK);
+            Set<Epic> affectedEpics = new LinkedHashSet<>();
+            List<Integer> result = new ArrayList<>();
+            for (Integer id : ids) {
+                Subtask subtask = selectById(TaskTypes.SUBTASK, id);
+                if (subtask == null) {
+                    continue;
+                }
+                delete.setInt(1, id);
+                delete.setString(2, TaskTypes.SUBTASK.name());
+                delete.addBatch();
+                Epic epic = epics.get(subtask.getEpicId());
+                stageEpic(epic.getId());
+                epic.deleteSubtask(subtask);
+                affectedEpics.add(epic);
+                result.add(id);
+            }
+            delete.executeBatch();
+            for (Epic epic : affectedEpics) {
+                calculateEpicFields(epic);
+            }
+            return result;
+        });
+        deletedIds.forEach(historyManager::remove);
+    }
+
+    private void checkBatch(List<? extends Task> batch) {
+        if (batch == null || batch.stream().anyMatch(Objects::isNull)) {
+            throw new IllegalArgumentException("Передан пустой пакет или пустая задача в пакете");
+        }
+    }
+
+    private Epic getExistingEpic(Integer epicId) {
+        Epic epic = epicId == null ? null : epics.get(epicId);
+        if (epic == null) {
+            throw new IllegalArgumentException("Эпик с id " + epicId + " не найден в хранилище");
+        }
+        return epic;
+    }
+
+    // Проверяет задачу на пересечение с задачами базы, кроме задач с ИД ignoredIds
+    private void checkIntersection(Task task, Set<Integer> ignoredIds) throws SQLException {
+        // Если в базе нет других задач со временем, то пересекаться не с чем
+        PreparedStatement selectOther = prepare(SELECT_OTHER_TIMED);
+        selectOther.setInt(1, task.getId() == null ? 0 : task.getId());
+        if (selectIds(selectOther).isEmpty()) {
+            return;
+        }
+        if (task.getStartTime() == null || task.getEndTime() == null) {
+            throw new IllegalArgumentException("Дата начала и длительность не указаны");
+        }
+        PreparedStatement select = prepare(SELECT_FIRST_ENDED);
+        select.setObject(1, task.getStartTime());
+        select.setInt(2, ignoredIds.size() + 1);
+        try (ResultSet rs = select.executeQuery()) {
+            while (rs.next()) {
+                if (ignoredIds.contains(rs.getInt(1))) {
+                    continue;
+                }
+                LocalDateTime startTime = rs.getObject(2, LocalDateTime.class);
+                // Касание границ считается пересечением
+                if (!startTime.isAfter(task.getEndTime())) {
+                    throw new NotAcceptableException("Найдено пересечение по времени выполнения");
+                }
+                return;
+            }
+        }
+    }
+
+    private void checkIntersectionForBatch(List<? extends Task> batch, Set<Integer> ignoredIds) throws SQLException {
+        // Сортируем задачи пакета по времени начала, чтобы найти пересечения внутри пакета за один проход
+        List<Task> sortedBatch = batch.stream()
+                .filter(task -> task.getStartTime() != null && task.getEndTime() != null)
+                .sorted(Comparator.comparing(Task::getStartTime))
+                .map(Task.class::cast)
+                .toList();
+        LocalDateTime maxEndTime = null;
+        for (Task task : sortedBatch) {
+            if (maxEndTime != null && !task.getStartTime().isAfter(maxEndTime)) {
+                throw new NotAcceptableException("Найдено пересечение по времени выполнения внутри пакета");
+            }
+            if (maxEndTime == null || task.getEndTime().isAfter(maxEndTime)) {
+                maxEndTime = task.getEndTime();
+            }
+        }
+        for (Task task : batch) {
+            checkIntersection(task, ignoredIds);
+        }
+    }
+
+    private void calculateEpicFields(Epic epic) throws SQLException {
+        PreparedStatement select = prepare(SELECT_EPIC_TOTALS);
+        select.setInt(1, epic.getId());
+        try (ResultSet rs = select.executeQuery()) {
+            rs.next();
+            long count = rs.getLong(1);
+            long newCount = rs.getLong(2);
+            long doneCount = rs.getLong(3);
+            StatusTypes status = StatusTypes.IN_PROGRESS;
+            if (count == newCount) {
+                status = StatusTypes.NEW;
+            } else if (count == doneCount) {
+                status = StatusTypes.DONE;
+            }
+            epic.setStatus(status);
+            epic.setStartTime(rs.getObject(4, LocalDateTime.class));
+            epic.setEndTime(rs.getObject(5, LocalDateTime.class));
+            Duration duration = getDuration(rs, 6);
+            epic.setDuration(duration == null ? Duration.ZERO : duration);
+        }
+        PreparedStatement update = prepare(UPDATE_EPIC_TOTALS);
+        update.setString(1, epic.getStatus().name());
+        update.setObject(2, epic.getStartTime());
+        update.setObject(3, epic.getEndTime());
+        setDuration(update, 4, epic.getDuration());
+        update.setInt(5, epic.getId());
+        update.executeUpdate();
+    }
+
+    private <T extends Task> T selectById(TaskTypes type, Integer id) throws SQLException {
+        if (id == null) {
+            return null;
+        }
+        PreparedStatement select = prepare(SELECT_BY_ID);
+        select.setInt(1, id);
+        select.setString(2, type.name());
+        List<T> result = select(select);
+        return result.isEmpty() ? null : result.getFirst();
+    }
+
+    private <T extends Task> List<T> selectByType(TaskTypes type) throws SQLException {
+        PreparedStatement select = prepare(SELECT_BY_TYPE);
+        select.setString(1, type.name());
+        return select(select);
+    }
+
+    private Void deleteById(TaskTypes type, int id) throws SQLException {
+        PreparedStatement delete = prepare(DELETE_TASK);
+        delete.setInt(1, id);
+        delete.setString(2, type.name());
+        delete.executeUpdate();
+        return null;
+    }
+
+    // Удаляет все записи типа и возвращает их ИД
+    private List<Integer> deleteByType(TaskTypes type) throws SQLException {
+        PreparedStatement selectIds = prepare(SELECT_IDS_BY_TYPE);
+        selectIds.setString(1, type.name());
+        List<Integer> ids = selectIds(selectIds);
+        PreparedStatement delete = prepare(DELETE_BY_TYPE);
+        delete.setString(1, type.name());
+        delete.executeUpdate();
+        return ids;
+    }
+
+    // Страница задач типа type (null - задачи и подзадачи вместе, в порядке приоритетов). Запрос собирается
+    // из условий фильтров и курсора и кешируется как подготовленный: вариантов условий немного.
+    // В порядке времени курсор - afterStart или время начала сущности after: времена начала в базе различны.
+    private <T extends Task> List<T> find(TaskTypes type, TaskQuery query) throws SQLException {
+        boolean byTime = type == null || query.hasTimeRange() && query.getEpicId() == null;
+        List<Object> parameters = new ArrayList<>();
+        StringBuilder sql = new StringBuilder("SELECT " + COLUMNS + " FROM tasks WHERE ");
+        if (type == null) {
+            sql.append("start_time IS NOT NULL");
+        } else {
+            sql.append("type = ?");
+            parameters.add(type.name());
+        }
+        appendFilters(sql, parameters, query);
+        if (query.getEpicId() != null) {
+            sql.append(" AND epic_id = ?");
+            parameters.add(query.getEpicId());
+        }
+        if (byTime && query.getAfterStart() != null) {
+            sql.append(" AND start_time > ?");
+            parameters.add(query.getAfterStart());
+        } else if (query.getAfter() != null) {
+            if (byTime) {
+                sql.append(" AND start_time > ?");
+                parameters.add(selectCursorStartTime(type, query.getAfter()));
+            } else {
+                sql.append(" AND id > ?");
+                parameters.add(query.getAfter());
+            }
+        }
+        sql.append(byTime ? " ORDER BY start_time, end_time" : " ORDER BY id").append(" LIMIT ?");
+        parameters.add(query.getLimit());
+        return select(bind(prepare(sql.toString()), parameters));
+    }
+
+    private static void appendFilters(StringBuilder sql, List<Object> parameters, TaskQuery query) {
+        if (query.getStatus() != null) {
+            sql.append(" AND status = ?");
+            parameters.add(query.getStatus().name());
+        }
+        if (query.getFrom() != null) {
+            sql.append(" AND start_time >= ?");
+            parameters.add(query.getFrom());
+        }
+        if (query.getTo() != null) {
+            sql.append(" AND start_time < ?");
+            parameters.add(query.getTo());
+        }
+    }
+
+    private LocalDateTime selectCursorStartTime(TaskTypes type, int id) throws SQLException {
+        PreparedStatement select = prepare(type == null ? SELECT_START_TIME : SELECT_TYPED_START_TIME);
+        select.setInt(1, id);
+        if (type != null) {
+            select.setString(2, type.name());
+        }
+        try (ResultSet rs = select.executeQuery()) {
+            LocalDateTime startTime = rs.next() ? rs.getObject(1, LocalDateTime.class) : null;
+            if (startTime == null) {
+                throw new NotFoundException("Задача с id " + id + " не найдена в списке приоритетов");
+            }
+            return startTime;
+        }
+    }
+
+    private static PreparedStatement bind(PreparedStatement statement, List<Object> parameters) throws SQLException {
+        for (int i = 0; i < parameters.size(); i++) {
+            statement.setObject(i + 1, parameters.get(i));
+        }
+        return statement;
+    }
+
+    private <T extends Task> List<T> select(PreparedStatement select) throws SQLException {
+        List<T> result = new ArrayList<>();
+        this.<T>scan(select, result::add);
+        return result;
+    }
+
+    private <T extends Task> Void scanByType(TaskTypes type, Consumer<? super T> action) throws SQLException {
+        PreparedStatement select = prepare(SELECT_BY_TYPE);
+        select.setString(1, type.name());
+        return scan(select, action);
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T extends Task> Void scan(PreparedStatement select, Consumer<? super T> action) throws SQLException {
+        try (ResultSet rs = select.executeQuery()) {
+            while (rs.next()) {
+                action.accept((T) readTask(rs));
+            }
+        }
+        return null;
+    }
+
+    private static List<Integer> selectIds(PreparedStatement select) throws SQLException {
+        List<Integer> result = new ArrayList<>();
+        try (ResultSet rs = select.executeQuery()) {
+            while (rs.next()) {
+                result.add(rs.getInt(1));
+            }
+        }
+        return result;
+    }
+
+    private static Task readTask(ResultSet rs) throws SQLException {
+        int id = rs.getInt(1);
+        String name = rs.getString(3);
+        String description = rs.getString(4);
+        StatusTypes status = parseStatus(rs.getString(5));
+        LocalDateTime startTime = rs.getObject(6, LocalDateTime.class);
+        Duration duration = getDuration(rs, 8);
+        int epicId = rs.getInt(9);
+        if (TaskTypes.valueOf(rs.getString(2)) == TaskTypes.SUBTASK) {
+            return new Subtask(id, status, name, description, startTime, duration, epicId);
+        }
+        return new Task(id, status, name, description, startTime, duration);
+    }
+
+    private static void bindInsert(PreparedStatement insert, Task task, Integer epicId) throws SQLException {
+        insert.setInt(1, task.getId());
+        insert.setString(2, epicId == null ? TaskTypes.TASK.name() : TaskTypes.SUBTASK.name());
+        insert.setString(3, task.getName());
+        insert.setString(4, task.getDescription());
+        insert.setString(5, task.getStatus() == null ? null : task.getStatus().name());
+        insert.setObject(6, task.getStartTime());
+        insert.setObject(7, task.getStartTime() == null ? null : task.getEndTime());
+        setDuration(insert, 8, task.getDuration());
+        if (epicId == null) {
+            insert.setNull(9, Types.INTEGER);
+        } else {
+            insert.setInt(9, epicId);
+        }
+    }
+
+    private static void bindUpdate(PreparedStatement update, Task task, Integer epicId) throws SQLException {
+        update.setString(1, task.getName());
+        update.setString(2, task.getDescription());
+        update.setString(3, task.getStatus() == null ? null : task.getStatus().name());
+        update.setObject(4, task.getStartTime());
+        update.setObject(5, task.getStartTime() == null ? null : task.getEndTime());
+        setDuration(update, 6, task.getDuration());
+        if (epicId == null) {
+            update.setNull(7, Types.INTEGER);
+        } else {
+            update.setInt(7, epicId);
+        }
+        update.setInt(8, task.getId() == null ? 0 : task.getId());
+        update.setString(9, epicId == null ? TaskTypes.TASK.name() : TaskTypes.SUBTASK.name());
+    }
+
+    // Длительность хранится в наносекундах
+    private static void setDuration(PreparedStatement statement, int index, Duration duration) throws SQLException {
+        if (duration == null) {
+            statement.setNull(index, Types.BIGINT);
+        } else {
+            statement.setLong(index, duration.toNanos());
+        }
+    }
+
+    private static Duration getDuration(ResultSet rs, int index) throws SQLException {
+        long nanos = rs.getLong(index);
+        return rs.wasNull() ? null : Duration.ofNanos(nanos);
+    }
+
+    private static StatusTypes parseStatus(String status) {
+        return status == null ? null : StatusTypes.valueOf(status);
+    }
+
+    private PreparedStatement prepare(String sql) throws SQLException {
+        PreparedStatement statement = statements.get(sql);
+        if (statement == null) {
+            statement = connection.prepareStatement(sql);
+            statements.put(sql, statement);
+        }
+        return statement;
+    }
+
+    private <T> T query(SqlAction<T> action) {
+        try {
+            return action.run();
+        } catch (SQLException e) {
+            throw new ManagerSaveException("Ошибка при чтении из базы " + url, e);
+        }
+    }
+
+    // Выполняет изменение одной транзакцией. При ошибке изменения базы и эпиков в памяти откатываются.
+    private <T> T inTransaction(SqlAction<T> action) {
+        try {
+            T result = action.run();
+            connection.commit();
+            stagedEpics.clear();
+            return result;
+        } catch (SQLException e) {
+            rollback();
+            throw new ManagerSaveException("Ошибка при записи в базу " + url, e);
+        } catch (RuntimeException e) {
+            rollback();
+            throw e;
+        }
+    }
+
+    private void rollback() {
+        restoreEpics();
+        try {
+            connection.rollback();
+        } catch (SQLException e) {
+            throw new ManagerSaveException("Ошибка при откате транзакции " + url, e);
+        }
+    }
+
+    // Запоминает состояние эпика до первого изменения в транзакции. Для эпика, которого ещё нет,
+    // запоминается его отсутствие.
+    private void stageEpic(Integer id) {
+        if (!stagedEpics.containsKey(id)) {
+            stagedEpics.put(id, new EpicSnapshot(epics.get(id)));
+        }
+    }
+
+    // Возвращает эпики, изменённые в транзакции, в состояние до её начала
+    private void restoreEpics() {
+        boolean reinserted = false;
+        for (Map.Entry<Integer, EpicSnapshot> entry : stagedEpics.entrySet()) {
+            EpicSnapshot snapshot = entry.getValue();
+            if (snapshot.epic == null) {
+                epics.remove(entry.getKey());
+            } else {
+                snapshot.restore();
+                reinserted |= epics.putIfAbsent(entry.getKey(), snapshot.epic) == null;
+            }
+        }
+        stagedEpics.clear();
+        // Удалённые эпики вернулись в конец, восстанавливаем порядок добавления, то есть порядок ИД
+        if (reinserted) {
+            List<Epic> orderedEpics = new ArrayList<>(epics.values());
+            orderedEpics.sort(Comparator.comparing(Task::getId));
+            epics.clear();
+            orderedEpics.forEach(epic -> epics.put(epic.getId(), epic));
+        }
+    }
+
+    @FunctionalInterface
+    private interface SqlAction<T> {
+        T run() throws SQLException;
+    }
+
+    // Поля эпика, которые изменяются в транзакции. Эпик восстанавливается на месте, чтобы ссылки на него
+    // из истории остались действительными.
+    private static class EpicSnapshot {
+
+        private final Epic epic;
+        private final String name;
+        private final String description;
+        private final StatusTypes status;
+        private final LocalDateTime startTime;
+        private final LocalDateTime endTime;
+        private final Duration duration;
+        private final List<Integer> subtaskIds;
+
+        private EpicSnapshot(Epic epic) {
+            this.epic = epic;
+            this.name = epic == null ? null : epic.getName();
+            this.description = epic == null ? null : epic.getDescription();
+            this.status = epic == null ? null : epic.getStatus();
+            this.startTime = epic == null ? null : epic.getStartTime();
+            this.endTime = epic == null ? null : epic.getEndTime();
+            this.duration = epic == null ? null : epic.getDuration();
+            this.subtaskIds = epic == null ? List.of() : List.copyOf(epic.getSubtaskIds());
+        }
+
+        private void restore() {
+            epic.setName(name);
+            epic.setDescription(description);
+            epic.setStatus(status);
+            epic.setStartTime(startTime);
+            epic.setEndTime(endTime);
+            epic.setDuration(duration);
+            epic.clearSubtasks();
+            epic.addSubtasks(subtaskIds);
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package ru.yandex.practicum.scheduler.managers;
+
+import java.util.List;
+import ru.yandex.practicum.scheduler.managers.interfaces.HistoryManager;
+import ru.yandex.practicum.scheduler.models.Task;
+
+// Потокобезопасная обёртка над менеджером истории
+public class SynchronizedHistoryManager implements HistoryManager {
+
+    private final HistoryManager historyManager;
+
+    public SynchronizedHistoryManager(HistoryManager historyManager) {
+        this.historyManager = historyManager;
+    }
+
+    @Override
+    public synchronized void addToHistory(Task task) {
+        historyManager.addToHistory(task);
+    }
+
+    @Override
+    public synchronized void remove(int id) {
+        historyManager.remove(id);
+    }
+
+    @Override
+    public synchronized List<Task> getHistory() {
+        return historyManager.getHistory();
+    }
+}
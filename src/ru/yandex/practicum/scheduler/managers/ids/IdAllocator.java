@@ -0,0 +1,34 @@
+package ru.yandex.practicum.scheduler.managers.ids;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+// Выдача ИД без блокировок.
+// Общий счётчик - 64-битный AtomicLong, каждый ИД - одно атомарное увеличение.
+// ИД не резервируются блоками по потокам: HTTP-сервер обрабатывает каждый запрос в новом виртуальном потоке,
+// и неиспользованный остаток блока каждого запроса терялся бы.
+public class IdAllocator {
+
+    private final AtomicLong lastId = new AtomicLong();
+
+    public long nextId() {
+        return lastId.incrementAndGet();
+    }
+
+    // ИД модели имеют тип Integer, поэтому выход за его пределы - ошибка, а не переполнение
+    public int nextIntId() {
+        long id = nextId();
+        if (id > Integer.MAX_VALUE) {
+            throw new IllegalStateException("Исчерпан диапазон ИД: " + id);
+        }
+        return (int) id;
+    }
+
+    // Сдвигает счётчик так, чтобы следующие ИД были больше уже использованного, например после загрузки из файла
+    public void advanceTo(long usedId) {
+        lastId.accumulateAndGet(usedId, Math::max);
+    }
+
+    public long getLastId() {
+        return lastId.get();
+    }
+}
@@ -0,0 +1,130 @@
+package ru.yandex.practicum.scheduler.managers.indexes;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import ru.yandex.practicum.scheduler.models.Epic;
+import ru.yandex.practicum.scheduler.models.Subtask;
+import ru.yandex.practicum.scheduler.models.enums.StatusTypes;
+
+// Инкрементально поддерживаемые итоги эпика по его подзадачам: количество подзадач в каждом статусе,
+// суммарная длительность, а также упорядоченные времена начала и окончания.
+// Изменение одной подзадачи обновляет итоги за O(log k) без обхода всех подзадач эпика.
+public class EpicAggregate {
+
+    // Вклад каждой подзадачи на момент её добавления.
+    // Подзадачу могут изменить снаружи, поэтому вычитать нужно сохранённые значения, а не текущие.
+    private final Map<Integer, Contribution> contributions = new HashMap<>();
+    private final int[] statusCounts = new int[StatusTypes.values().length];
+    // Количество подзадач для каждого времени начала и окончания
+    private final TreeMap<LocalDateTime, Integer> startTimes = new TreeMap<>();
+    private final TreeMap<LocalDateTime, Integer> endTimes = new TreeMap<>();
+    private Duration totalDuration = Duration.ZERO;
+
+    public int size() {
+        return contributions.size();
+    }
+
+    // Добавляет подзадачу или заменяет её прежний вклад
+    public void add(Subtask subtask) {
+        remove(subtask.getId());
+
+        Contribution contribution = new Contribution(subtask);
+        contributions.put(subtask.getId(), contribution);
+
+        if (contribution.status != null) {
+            statusCounts[contribution.status.ordinal()]++;
+        }
+        if (contribution.startTime != null) {
+            startTimes.merge(contribution.startTime, 1, Integer::sum);
+        }
+        if (contribution.endTime != null) {
+            endTimes.merge(contribution.endTime, 1, Integer::sum);
+        }
+        if (contribution.duration != null) {
+            totalDuration = totalDuration.plus(contribution.duration);
+        }
+    }
+
+    public void remove(int subtaskId) {
+        Contribution contribution = contributions.remove(subtaskId);
+        if (contribution == null) {
+            return;
+        }
+
+        if (contribution.status != null) {
+            statusCounts[contribution.status.ordinal()]--;
+        }
+        if (contribution.startTime != null) {
+            decrement(startTimes, contribution.startTime);
+        }
+        if (contribution.endTime != null) {
+            decrement(endTimes, contribution.endTime);
+        }
+        if (contribution.duration != null) {
+            totalDuration = totalDuration.minus(contribution.duration);
+        }
+    }
+
+    public void clear() {
+        contributions.clear();
+        startTimes.clear();
+        endTimes.clear();
+        totalDuration = Duration.ZERO;
+        for (int i = 0; i < statusCounts.length; i++) {
+            statusCounts[i] = 0;
+        }
+    }
+
+    public StatusTypes getStatus() {
+        int size = contributions.size();
+        if (size == 0 || statusCounts[StatusTypes.NEW.ordinal()] == size) {
+            return StatusTypes.NEW;
+        } else if (statusCounts[StatusTypes.DONE.ordinal()] == size) {
+            return StatusTypes.DONE;
+        } else {
+            return StatusTypes.IN_PROGRESS;
+        }
+    }
+
+    public LocalDateTime getStartTime() {
+        return startTimes.isEmpty() ? null : startTimes.firstKey();
+    }
+
+    public LocalDateTime getEndTime() {
+        return endTimes.isEmpty() ? null : endTimes.lastKey();
+    }
+
+    public Duration getDuration() {
+        return totalDuration;
+    }
+
+    // Записывает итоги в поля эпика
+    public void applyTo(Epic epic) {
+        epic.setStatus(getStatus());
+        epic.setStartTime(getStartTime());
+        epic.setEndTime(getEndTime());
+        epic.setDuration(getDuration());
+    }
+
+    private static void decrement(TreeMap<LocalDateTime, Integer> counts, LocalDateTime key) {
+        counts.computeIfPresent(key, (time, count) -> count == 1 ? null : count - 1);
+    }
+
+    private static class Contribution {
+
+        private final StatusTypes status;
+        private final LocalDateTime startTime;
+        private final LocalDateTime endTime;
+        private final Duration duration;
+
+        private Contribution(Subtask subtask) {
+            this.status = subtask.getStatus();
+            this.startTime = subtask.getStartTime();
+            this.endTime = subtask.getEndTime();
+            this.duration = subtask.getDuration();
+        }
+    }
+}
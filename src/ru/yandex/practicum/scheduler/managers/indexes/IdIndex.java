@@ -0,0 +1,143 @@
+package ru.yandex.practicum.scheduler.managers.indexes;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.function.IntPredicate;
+
+// Упорядоченные ИД сущностей одного типа для постраничного обхода по ИД.
+// ИД выдаются по возрастанию, поэтому новый ИД обычно дописывается в конец массива за O(1), по 4 байта на ИД.
+// Удалённый ИД находится двоичным поиском и помечается в битовой маске: обход перескакивает помеченные
+// позиции по 64 за шаг, а когда помеченных становится больше половины, массив сжимается при удалении.
+// ИД не больше последнего (загрузка из файла, повторное добавление) помечают массив
+// неупорядоченным, и он сортируется один раз перед следующим обходом или удалением.
+// Методы синхронизированы: в потокобезопасном хранилище ИД добавляют и обходят несколько потоков.
+// Обход держит монитор только на время чтения очередной порции ИД.
+public class IdIndex {
+
+    private static final int DEFAULT_CAPACITY = 16;
+    private static final int CHUNK_SIZE = 256;
+    private int[] ids = new int[DEFAULT_CAPACITY];
+    private int size;
+    // Позиции удалённых ИД, ещё оставшихся в массиве
+    private BitSet deleted = new BitSet();
+    private int removed;
+    private boolean sorted = true;
+
+    // Добавляет ИД, которого ещё нет в хранилище
+    public synchronized void add(int id) {
+        if (size > 0 && id <= ids[size - 1]) {
+            // Повторно добавленный ИД может ещё лежать в массиве помеченным
+            int position = sorted ? indexOf(id) : -1;
+            if (position >= 0) {
+                if (deleted.get(position)) {
+                    deleted.clear(position);
+                    removed--;
+                }
+                return;
+            }
+            sorted = false;
+        }
+        if (size == ids.length) {
+            ids = Arrays.copyOf(ids, size * 2);
+        }
+        ids[size++] = id;
+    }
+
+    // Убирает ИД, удалённый из хранилища
+    public synchronized void remove(int id) {
+        if (!sorted) {
+            normalize();
+        }
+        int position = indexOf(id);
+        if (position < 0 || deleted.get(position)) {
+            return;
+        }
+        deleted.set(position);
+        removed++;
+        // Сжатие за O(n) не чаще чем раз в n/2 удалений
+        if (removed > size / 2) {
+            normalize();
+        }
+    }
+
+    public synchronized void clear() {
+        ids = new int[DEFAULT_CAPACITY];
+        size = 0;
+        deleted = new BitSet();
+        removed = 0;
+        sorted = true;
+    }
+
+    // Передаёт ИД больше afterId по возрастанию, пока action возвращает true.
+    // ИД, удалённые во время обхода, тоже могут попасть в action, поэтому он проверяет их сам.
+    public void forEachAfter(int afterId, IntPredicate action) {
+        int[] chunk = new int[CHUNK_SIZE];
+        int position = afterId;
+        while (true) {
+            int count = readChunk(position, chunk);
+            for (int i = 0; i < count; i++) {
+                if (!action.test(chunk[i])) {
+                    return;
+                }
+            }
+            if (count < chunk.length) {
+                return;
+            }
+            // Массив между порциями мог измениться, поэтому следующая порция ищется по значению ИД
+            position = chunk[count - 1];
+        }
+    }
+
+    private synchronized int readChunk(int afterId, int[] chunk) {
+        if (!sorted) {
+            normalize();
+        }
+        int count = 0;
+        for (int i = deleted.nextClearBit(firstAfter(afterId)); i < size && count < chunk.length;
+                i = deleted.nextClearBit(i + 1)) {
+            chunk[count++] = ids[i];
+        }
+        return count;
+    }
+
+    // Выбрасывает удалённые ИД, сортирует массив и убирает повторы
+    private void normalize() {
+        int count = 0;
+        for (int i = deleted.nextClearBit(0); i < size; i = deleted.nextClearBit(i + 1)) {
+            ids[count++] = ids[i];
+        }
+        if (!sorted) {
+            Arrays.sort(ids, 0, count);
+        }
+        size = 0;
+        for (int i = 0; i < count; i++) {
+            if (size == 0 || ids[size - 1] != ids[i]) {
+                ids[size++] = ids[i];
+            }
+        }
+        deleted.clear();
+        removed = 0;
+        sorted = true;
+    }
+
+    // Позиция ИД в упорядоченном массиве или -1
+    private int indexOf(int id) {
+        int position = firstAfter(id - 1);
+        return position < size && ids[position] == id ? position : -1;
+    }
+
+    // Индекс первого ИД больше afterId
+    private int firstAfter(int afterId) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (ids[middle] <= afterId) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+}
@@ -0,0 +1,309 @@
+package ru.yandex.practicum.scheduler.managers.indexes;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.function.IntPredicate;
+import java.util.function.Predicate;
+import ru.yandex.practicum.scheduler.models.Task;
+
+// Индекс интервалов выполнения задач [startTime, getEndTime()].
+// Сбалансированное (AVL) дерево, упорядоченное по времени начала и ИД задачи. Каждый узел хранит максимальное
+// время окончания в своём поддереве, поэтому пересечение находится за O(log n) без обхода всех задач.
+public class IntervalIndex {
+
+    // Узлы индекса по ИД задачи, чтобы удалять задачу даже после изменения её времени
+    private final Map<Integer, Node> nodesById = new HashMap<>();
+    private Node root;
+
+    public int size() {
+        return nodesById.size();
+    }
+
+    public boolean isEmpty() {
+        return nodesById.isEmpty();
+    }
+
+    public boolean contains(int id) {
+        return nodesById.containsKey(id);
+    }
+
+    public Task get(int id) {
+        Node node = nodesById.get(id);
+        return node == null ? null : node.task;
+    }
+
+    public void clear() {
+        nodesById.clear();
+        root = null;
+    }
+
+    // Добавляет задачу в индекс. Задачи без времени начала или длительности не индексируются,
+    // предыдущая версия задачи с тем же ИД заменяется.
+    public boolean add(Task task) {
+        if (task == null || task.getId() == null || task.getStartTime() == null || task.getEndTime() == null) {
+            return false;
+        }
+        // Удаляем предыдущую версию задачи
+        remove(task.getId());
+
+        Node node = new Node(task);
+        root = insert(root, node);
+        nodesById.put(node.id, node);
+        return true;
+    }
+
+    // Добавляет задачи, уже упорядоченные по времени начала и ИД.
+    // В пустой индекс узлы добавляются построением сбалансированного дерева за O(n) без поворотов,
+    // в непустой - по одному.
+    public void addAllSorted(List<? extends Task> sortedTasks) {
+        if (!isEmpty()) {
+            sortedTasks.forEach(this::add);
+            return;
+        }
+
+        List<Node> nodes = new ArrayList<>(sortedTasks.size());
+        for (Task task : sortedTasks) {
+            if (task == null || task.getId() == null || task.getStartTime() == null || task.getEndTime() == null) {
+                continue;
+            }
+            Node node = new Node(task);
+            if (!nodes.isEmpty() && compare(node.start, node.id, nodes.get(nodes.size() - 1)) <= 0) {
+                throw new IllegalArgumentException("Задачи не упорядочены по времени начала и ИД");
+            }
+            nodes.add(node);
+            nodesById.put(node.id, node);
+        }
+        root = build(nodes, 0, nodes.size() - 1);
+    }
+
+    // Удаляет задачу из индекса по ИД и возвращает сохранённую версию задачи или null.
+    public Task remove(int id) {
+        Node node = nodesById.remove(id);
+        if (node == null) {
+            return null;
+        }
+        root = delete(root, node.start, node.id);
+        return node.task;
+    }
+
+    // Ищет задачу, пересекающуюся с интервалом [start, end], пропуская задачу с ИД ignoredId.
+    // Касание границ считается пересечением.
+    public Task findOverlap(LocalDateTime start, LocalDateTime end, Integer ignoredId) {
+        if (ignoredId == null) {
+            return findOverlap(root, start, end, id -> false);
+        }
+        int ignored = ignoredId;
+        return findOverlap(root, start, end, id -> id == ignored);
+    }
+
+    // Ищет задачу, пересекающуюся с интервалом [start, end], пропуская задачи, ИД которых принимает ignored
+    public Task findOverlapIgnoring(LocalDateTime start, LocalDateTime end, IntPredicate ignored) {
+        return findOverlap(root, start, end, ignored);
+    }
+
+    public boolean hasOverlap(LocalDateTime start, LocalDateTime end, Integer ignoredId) {
+        return findOverlap(start, end, ignoredId) != null;
+    }
+
+    // Передаёт все задачи, пересекающиеся с интервалом [start, end], в порядке времени начала и ИД.
+    // Поддеревья, где все интервалы заканчиваются раньше start или начинаются позже end, не обходятся.
+    public void findOverlaps(LocalDateTime start, LocalDateTime end, Consumer<Task> consumer) {
+        findOverlaps(root, start, end, consumer);
+    }
+
+    // Передаёт задачи в порядке времени начала и ИД, идущие после позиции (start, afterId), пока action
+    // возвращает true. Поддеревья, целиком лежащие до позиции, не обходятся, поэтому k задач находятся
+    // за O(log n + k). Позиция (from, Integer.MIN_VALUE) - начало с первой задачи, начинающейся не раньше from.
+    public void walkAfter(LocalDateTime start, int afterId, Predicate<? super Task> action) {
+        walkAfter(root, start, afterId, action);
+    }
+
+    private boolean walkAfter(Node node, LocalDateTime start, int afterId, Predicate<? super Task> action) {
+        if (node == null) {
+            return true;
+        }
+        // Узел и его левое поддерево не дальше позиции
+        if (compare(start, afterId, node) >= 0) {
+            return walkAfter(node.right, start, afterId, action);
+        }
+        return walkAfter(node.left, start, afterId, action) && action.test(node.task)
+                && walkAfter(node.right, start, afterId, action);
+    }
+
+    private void findOverlaps(Node node, LocalDateTime start, LocalDateTime end, Consumer<Task> consumer) {
+        if (node == null || node.maxEnd.isBefore(start)) {
+            return;
+        }
+        findOverlaps(node.left, start, end, consumer);
+        if (node.start.isAfter(end)) {
+            return;
+        }
+        if (!node.end.isBefore(start)) {
+            consumer.accept(node.task);
+        }
+        findOverlaps(node.right, start, end, consumer);
+    }
+
+    private Task findOverlap(Node node, LocalDateTime start, LocalDateTime end, IntPredicate ignored) {
+        // В поддереве нет интервалов, заканчивающихся не раньше start
+        if (node == null || node.maxEnd.isBefore(start)) {
+            return null;
+        }
+        // Сначала ищем в левом поддереве
+        Task result = findOverlap(node.left, start, end, ignored);
+        if (result != null) {
+            return result;
+        }
+        // Проверяем текущий узел
+        if (!node.start.isAfter(end) && !node.end.isBefore(start) && !ignored.test(node.id)) {
+            return node.task;
+        }
+        // Все интервалы правого поддерева начинаются не раньше текущего
+        if (node.start.isAfter(end)) {
+            return null;
+        }
+        return findOverlap(node.right, start, end, ignored);
+    }
+
+    private static int compare(LocalDateTime start, int id, Node node) {
+        int result = start.compareTo(node.start);
+        return result != 0 ? result : Integer.compare(id, node.id);
+    }
+
+    private static Node build(List<Node> nodes, int from, int to) {
+        if (from > to) {
+            return null;
+        }
+        // Средний узел становится корнем, поэтому высоты поддеревьев отличаются не больше чем на единицу
+        int middle = (from + to) >>> 1;
+        Node node = nodes.get(middle);
+        node.left = build(nodes, from, middle - 1);
+        node.right = build(nodes, middle + 1, to);
+        update(node);
+        return node;
+    }
+
+    private static Node insert(Node node, Node newNode) {
+        if (node == null) {
+            return newNode;
+        }
+        if (compare(newNode.start, newNode.id, node) < 0) {
+            node.left = insert(node.left, newNode);
+        } else {
+            node.right = insert(node.right, newNode);
+        }
+        return balance(node);
+    }
+
+    private static Node delete(Node node, LocalDateTime start, int id) {
+        if (node == null) {
+            return null;
+        }
+        int cmp = compare(start, id, node);
+        if (cmp < 0) {
+            node.left = delete(node.left, start, id);
+        } else if (cmp > 0) {
+            node.right = delete(node.right, start, id);
+        } else {
+            if (node.left == null) {
+                return node.right;
+            }
+            if (node.right == null) {
+                return node.left;
+            }
+            // Заменяем узел минимальным узлом правого поддерева
+            Node min = node.right;
+            while (min.left != null) {
+                min = min.left;
+            }
+            min.right = deleteMin(node.right);
+            min.left = node.left;
+            node = min;
+        }
+        return balance(node);
+    }
+
+    private static Node deleteMin(Node node) {
+        if (node.left == null) {
+            return node.right;
+        }
+        node.left = deleteMin(node.left);
+        return balance(node);
+    }
+
+    private static int height(Node node) {
+        return node == null ? 0 : node.height;
+    }
+
+    private static void update(Node node) {
+        node.height = Math.max(height(node.left), height(node.right)) + 1;
+        LocalDateTime maxEnd = node.end;
+        if (node.left != null && node.left.maxEnd.isAfter(maxEnd)) {
+            maxEnd = node.left.maxEnd;
+        }
+        if (node.right != null && node.right.maxEnd.isAfter(maxEnd)) {
+            maxEnd = node.right.maxEnd;
+        }
+        node.maxEnd = maxEnd;
+    }
+
+    private static Node balance(Node node) {
+        update(node);
+        int factor = height(node.left) - height(node.right);
+        if (factor > 1) {
+            if (height(node.left.left) < height(node.left.right)) {
+                node.left = rotateLeft(node.left);
+            }
+            return rotateRight(node);
+        }
+        if (factor < -1) {
+            if (height(node.right.right) < height(node.right.left)) {
+                node.right = rotateRight(node.right);
+            }
+            return rotateLeft(node);
+        }
+        return node;
+    }
+
+    private static Node rotateRight(Node node) {
+        Node left = node.left;
+        node.left = left.right;
+        left.right = node;
+        update(node);
+        update(left);
+        return left;
+    }
+
+    private static Node rotateLeft(Node node) {
+        Node right = node.right;
+        node.right = right.left;
+        right.left = node;
+        update(node);
+        update(right);
+        return right;
+    }
+
+    private static class Node {
+
+        private final Task task;
+        private final int id;
+        private final LocalDateTime start;
+        private final LocalDateTime end;
+        private LocalDateTime maxEnd;
+        private int height = 1;
+        private Node left;
+        private Node right;
+
+        private Node(Task task) {
+            this.task = task;
+            this.id = task.getId();
+            this.start = task.getStartTime();
+            this.end = task.getEndTime();
+            this.maxEnd = end;
+        }
+    }
+}
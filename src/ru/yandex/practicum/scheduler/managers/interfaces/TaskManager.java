@@ -1,7 +1,10 @@
 package ru.yandex.practicum.scheduler.managers.interfaces;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.function.Consumer;
+import ru.yandex.practicum.scheduler.managers.queries.TaskQuery;
 import ru.yandex.practicum.scheduler.models.Epic;
 import ru.yandex.practicum.scheduler.models.Subtask;
 import ru.yandex.practicum.scheduler.models.Task;
@@ -24,6 +27,12 @@ public interface TaskManager {
 
     void deleteTasks();
 
+    List<Integer> createTasks(List<Task> tasks);
+
+    void updateTasks(List<Task> tasks);
+
+    void deleteTasks(Collection<Integer> ids);
+
     List<Epic> getEpics();
 
     Optional<Epic> getEpicById(Integer id);
@@ -36,6 +45,12 @@ public interface TaskManager {
 
     void deleteEpics();
 
+    List<Integer> createEpics(List<Epic> epics);
+
+    void updateEpics(List<Epic> epics);
+
+    void deleteEpics(Collection<Integer> ids);
+
     List<Subtask> getSubtasks();
 
     Optional<Subtask> getSubtaskById(Integer id);
@@ -49,4 +64,40 @@ public interface TaskManager {
     void deleteSubtask(Integer id);
 
     void deleteSubtasks();
+
+    List<Integer> createSubtasks(List<Subtask> subtasks);
+
+    void updateSubtasks(List<Subtask> subtasks);
+
+    void deleteSubtasks(Collection<Integer> ids);
+
+    // Страницы списков по параметрам запроса. Обходят индексы хранилища с позиции курсора,
+    // а не фильтруют полную копию списка, и не попадают в историю просмотров.
+    // Если сущности-курсора after уже нет, а страница упорядочена по времени, бросается NotFoundException.
+    List<Task> findTasks(TaskQuery query);
+
+    List<Epic> findEpics(TaskQuery query);
+
+    List<Subtask> findSubtasks(TaskQuery query);
+
+    List<Task> findPrioritizedTasks(TaskQuery query);
+
+    // Обход сущностей без сборки их в новый список, например для потоковой отправки ответа.
+    // Из action нельзя изменять менеджер. По умолчанию обходится список из соответствующего get-метода.
+    default void forEachTask(Consumer<? super Task> action) {
+        getTasks().forEach(action);
+    }
+
+    default void forEachEpic(Consumer<? super Epic> action) {
+        getEpics().forEach(action);
+    }
+
+    default void forEachSubtask(Consumer<? super Subtask> action) {
+        getSubtasks().forEach(action);
+    }
+
+    // Обход в порядке приоритета
+    default void forEachPrioritizedTask(Consumer<? super Task> action) {
+        getPrioritizedTasks().forEach(action);
+    }
 }
\ No newline at end of file
@@ -0,0 +1,97 @@
+package ru.yandex.practicum.scheduler.managers.interfaces;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import ru.yandex.practicum.scheduler.models.Task;
+import ru.yandex.practicum.scheduler.models.enums.TaskTypes;
+
+// Хранилище, на котором работает менеджер задач.
+// Менеджер проверяет правила планирования (пересечения, итоги эпиков, связи подзадач), а хранилище
+// хранит сущности по типу и ИД и ведёт временную шкалу - задачи и подзадачи в порядке времени начала.
+// Хранилище возвращает те же объекты, что были в него положены: менеджер изменяет эпики на месте.
+// ИД null означает отсутствующую сущность.
+public interface TaskStore {
+
+    <T extends Task> T get(TaskTypes type, Integer id);
+
+    boolean contains(TaskTypes type, Integer id);
+
+    // Добавляет сущность или заменяет сущность её типа с тем же ИД
+    void put(Task task);
+
+    <T extends Task> T remove(TaskTypes type, Integer id);
+
+    // Все сущности типа. Хранилище нельзя изменять, пока идёт обход.
+    <T extends Task> Collection<T> scan(TaskTypes type);
+
+    // Сущности типа в порядке ИД, начиная с первой с ИД больше afterId, пока action возвращает true.
+    // По умолчанию сущности сортируются целиком; хранилище с упорядоченным индексом ИД обходит только страницу.
+    @SuppressWarnings("unchecked")
+    default <T extends Task> void walk(TaskTypes type, int afterId, Predicate<? super T> action) {
+        List<T> entities = new ArrayList<>((Collection<T>) scan(type));
+        entities.sort(Comparator.comparing(Task::getId));
+        for (T entity : entities) {
+            if (entity.getId() > afterId && !action.test(entity)) {
+                return;
+            }
+        }
+    }
+
+    int size(TaskTypes type);
+
+    void clear(TaskTypes type);
+
+    // Добавляет задачу на шкалу или заменяет прежнюю версию задачи с тем же ИД
+    void addToTimeline(Task task);
+
+    // Добавляет задачи на пустую или непустую шкалу. Хранилище может строить шкалу сразу целиком.
+    void addAllToTimeline(Collection<? extends Task> tasks);
+
+    // Удаляет задачу с ИД task.getId() со шкалы, даже если её время с тех пор изменилось
+    void removeFromTimeline(Task task);
+
+    // Задачи шкалы в порядке времени начала
+    List<Task> getTimeline();
+
+    // Обход шкалы в порядке времени начала без копирования. Шкалу нельзя изменять, пока идёт обход.
+    default void forEachInTimeline(Consumer<? super Task> action) {
+        getTimeline().forEach(action);
+    }
+
+    // Задачи шкалы с интервалом выполнения в порядке времени начала и ИД, идущие после позиции (start, afterId),
+    // пока action возвращает true. Позиция (from, Integer.MIN_VALUE) - начало с первой задачи, начинающейся
+    // не раньше from.
+    default void walkTimeline(LocalDateTime start, int afterId, Predicate<? super Task> action) {
+        for (Task task : getTimeline()) {
+            if (task.getStartTime() == null || task.getEndTime() == null) {
+                continue;
+            }
+            int position = task.getStartTime().compareTo(start);
+            if ((position > 0 || position == 0 && task.getId() > afterId) && !action.test(task)) {
+                return;
+            }
+        }
+    }
+
+    // Задачи, интервалы выполнения которых пересекаются с [from, to], в порядке времени начала
+    List<Task> range(LocalDateTime from, LocalDateTime to);
+
+    // Любая задача, пересекающаяся с [from, to], кроме задачи с ИД ignoredId, или null
+    Task findOverlap(LocalDateTime from, LocalDateTime to, Integer ignoredId);
+
+    // Любая задача, пересекающаяся с [from, to], кроме задач с ИД из ignoredIds, или null
+    Task findOverlapIgnoring(LocalDateTime from, LocalDateTime to, Set<Integer> ignoredIds);
+
+    // Количество задач шкалы, у которых есть интервал выполнения
+    int intervalCount();
+
+    boolean hasInterval(Integer id);
+
+    void clearTimeline();
+}
@@ -0,0 +1,361 @@
+package ru.yandex.practicum.scheduler.managers.persistence;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.function.Consumer;
+import ru.yandex.practicum.scheduler.exceptions.ManagerSaveException;
+import ru.yandex.practicum.scheduler.models.Epic;
+import ru.yandex.practicum.scheduler.models.Subtask;
+import ru.yandex.practicum.scheduler.models.Task;
+import ru.yandex.practicum.scheduler.models.enums.StatusTypes;
+import ru.yandex.practicum.scheduler.models.enums.TaskTypes;
+
+// Двоичный формат снимка.
+// Заголовок: сигнатура TKSB, версия формата, номер фиксации журнала и количество записей.
+// Запись: тип, ИД, статус, наименование и описание. Для задач и подзадач дальше идут флаги наличия,
+// начало в минутах от эпохи и длительность в минутах, для подзадач - ИД эпика.
+// Целые числа записываются как varint (отрицательные - в zigzag-кодировке), перечисления - номерами значений,
+// строки - длиной и байтами UTF-8. Даты не форматируются и не разбираются, поэтому загрузка в разы быстрее CSV.
+public final class BinarySnapshot {
+
+    public static final int VERSION = 1;
+    private static final byte[] MAGIC = {'T', 'K', 'S', 'B'};
+    private static final int BUFFER_SIZE = 64 * 1024;
+    // Наибольший размер отображаемого в память окна файла
+    private static final long MAX_WINDOW = Integer.MAX_VALUE;
+    private static final int HAS_START_TIME = 1;
+    private static final int HAS_DURATION = 2;
+    private static final TaskTypes[] TYPES = TaskTypes.values();
+    private static final StatusTypes[] STATUSES = StatusTypes.values();
+
+    private BinarySnapshot() {
+    }
+
+    // Проверяет по сигнатуре, записан ли файл в двоичном формате
+    public static boolean isBinary(Path path) throws IOException {
+        if (!Files.exists(path)) {
+            return false;
+        }
+        try (InputStream in = Files.newInputStream(path)) {
+            return Arrays.equals(MAGIC, in.readNBytes(MAGIC.length));
+        }
+    }
+
+    // Проверяет сигнатуру в начале потока, не сдвигая его. Поток должен поддерживать mark и reset.
+    public static boolean isBinary(InputStream in) throws IOException {
+        in.mark(MAGIC.length);
+        byte[] magic = in.readNBytes(MAGIC.length);
+        in.reset();
+        return Arrays.equals(MAGIC, magic);
+    }
+
+    public static void write(OutputStream out, long lsn, Collection<? extends Task> entities) throws IOException {
+        Encoder encoder = new Encoder(out);
+        encoder.writeBytes(MAGIC);
+        encoder.writeVarLong(VERSION);
+        encoder.writeVarLong(lsn);
+        encoder.writeVarLong(entities.size());
+        for (Task task : entities) {
+            encoder.writeTask(task);
+        }
+        encoder.flush();
+    }
+
+    // Читает снимок из буфера и передаёт сущности в consumer. Возвращает номер фиксации журнала из заголовка.
+    public static long read(ByteBuffer buffer, Consumer<Task> consumer) {
+        try {
+            Decoder decoder = new Decoder(buffer);
+            long lsn = decoder.readHeader();
+            long count = decoder.readVarLong();
+            for (long i = 0; i < count; i++) {
+                consumer.accept(decoder.readTask());
+            }
+            return lsn;
+        } catch (BufferUnderflowException | IndexOutOfBoundsException e) {
+            throw new ManagerSaveException("Снимок повреждён или обрезан", e);
+        }
+    }
+
+    // Читает снимок, отображая файл в память, и декодирует записи прямо из отображения
+    // без чтения строк и промежуточных массивов. Файлы больше 2 ГБ отображаются окнами:
+    // если запись не поместилась в окно, следующее окно отображается с начала этой записи.
+    public static long read(FileChannel channel, Consumer<Task> consumer) throws IOException {
+        long size = channel.size();
+        long windowStart = 0;
+        MappedByteBuffer window = map(channel, windowStart, size);
+        try {
+            Decoder decoder = new Decoder(window);
+            long lsn = decoder.readHeader();
+            long count = decoder.readVarLong();
+            for (long i = 0; i < count; i++) {
+                int recordStart = window.position();
+                Task task;
+                try {
+                    task = decoder.readTask();
+                } catch (BufferUnderflowException e) {
+                    if (windowStart + window.limit() >= size) {
+                        throw e;
+                    }
+                    windowStart += recordStart;
+                    window = map(channel, windowStart, size);
+                    decoder = new Decoder(window);
+                    task = decoder.readTask();
+                }
+                consumer.accept(task);
+            }
+            return lsn;
+        } catch (BufferUnderflowException | IndexOutOfBoundsException e) {
+            throw new ManagerSaveException("Снимок повреждён или обрезан", e);
+        }
+    }
+
+    // Читает снимок из потока, например распаковываемого, буфером фиксированного размера.
+    // Если запись не поместилась в остаток буфера, буфер сдвигается к её началу и дочитывается.
+    public static long read(InputStream in, Consumer<Task> consumer) throws IOException {
+        // Буфер в режиме чтения: непрочитанные байты от position до limit
+        ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE).limit(0);
+        boolean eof = fill(in, buffer);
+        try {
+            Decoder decoder = new Decoder(buffer);
+            long lsn = decoder.readHeader();
+            long count = decoder.readVarLong();
+            for (long i = 0; i < count; i++) {
+                int recordStart = buffer.position();
+                Task task = null;
+                while (task == null) {
+                    try {
+                        task = decoder.readTask();
+                    } catch (BufferUnderflowException e) {
+                        if (eof) {
+                            throw e;
+                        }
+                        buffer.position(recordStart);
+                        buffer.compact();
+                        // Запись больше буфера: увеличиваем его
+                        if (!buffer.hasRemaining()) {
+                            buffer = ByteBuffer.allocate(buffer.capacity() * 2).put(buffer.flip());
+                        }
+                        buffer.flip();
+                        eof = fill(in, buffer);
+                        decoder = new Decoder(buffer);
+                        recordStart = 0;
+                    }
+                }
+                consumer.accept(task);
+            }
+            return lsn;
+        } catch (BufferUnderflowException | IndexOutOfBoundsException e) {
+            throw new ManagerSaveException("Снимок повреждён или обрезан", e);
+        }
+    }
+
+    // Дописывает в буфер байты из потока до заполнения буфера и готовит его к чтению.
+    // Возвращает true, если поток закончился.
+    private static boolean fill(InputStream in, ByteBuffer buffer) throws IOException {
+        int position = buffer.position();
+        buffer.position(buffer.limit()).limit(buffer.capacity());
+        boolean eof = false;
+        while (buffer.hasRemaining()) {
+            int read = in.read(buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining());
+            if (read < 0) {
+                eof = true;
+                break;
+            }
+            buffer.position(buffer.position() + read);
+        }
+        buffer.limit(buffer.position()).position(position);
+        return eof;
+    }
+
+    private static MappedByteBuffer map(FileChannel channel, long position, long size) throws IOException {
+        return channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(size - position, MAX_WINDOW));
+    }
+
+    // Декодирует записи прямо из буфера
+    private static class Decoder {
+
+        private final ByteBuffer buffer;
+        // Буфер для строк, если байты буфера недоступны как массив. Переиспользуется между записями.
+        private byte[] strings = new byte[256];
+
+        private Decoder(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        // Проверяет сигнатуру и версию и возвращает номер фиксации журнала
+        private long readHeader() {
+            byte[] magic = new byte[MAGIC.length];
+            buffer.get(magic);
+            if (!Arrays.equals(MAGIC, magic)) {
+                throw new ManagerSaveException("Файл не является двоичным снимком");
+            }
+            long version = readVarLong();
+            if (version != VERSION) {
+                throw new ManagerSaveException("Неподдерживаемая версия снимка " + version);
+            }
+            return readVarLong();
+        }
+
+        private Task readTask() {
+            TaskTypes type = TYPES[buffer.get()];
+            int id = (int) readVarLong();
+            int statusOrdinal = buffer.get();
+            StatusTypes status = statusOrdinal == 0 ? null : STATUSES[statusOrdinal - 1];
+            String name = readString();
+            String description = readString();
+            if (type == TaskTypes.EPIC) {
+                // Статус и время эпика вычисляются по подзадачам
+                return new Epic(id, status, name, description);
+            }
+
+            int flags = buffer.get();
+            LocalDateTime startTime = (flags & HAS_START_TIME) == 0 ? null
+                    : LocalDateTime.ofEpochSecond(readZigZag() * 60, 0, ZoneOffset.UTC);
+            Duration duration = (flags & HAS_DURATION) == 0 ? null : Duration.ofMinutes(readZigZag());
+            if (type == TaskTypes.SUBTASK) {
+                int epicId = (int) readVarLong();
+                return new Subtask(id, status, name, description, startTime, duration, epicId);
+            }
+            return new Task(id, status, name, description, startTime, duration);
+        }
+
+        private String readString() {
+            // Длина хранится со сдвигом на единицу, ноль означает null
+            int length = (int) readVarLong() - 1;
+            if (length < 0) {
+                return null;
+            }
+            if (length > buffer.remaining()) {
+                throw new BufferUnderflowException();
+            }
+            if (buffer.hasArray()) {
+                // Декодируем прямо из массива буфера без копирования
+                String result = new String(buffer.array(), buffer.arrayOffset() + buffer.position(), length,
+                        StandardCharsets.UTF_8);
+                buffer.position(buffer.position() + length);
+                return result;
+            }
+            if (length > strings.length) {
+                strings = new byte[Math.max(length, strings.length * 2)];
+            }
+            buffer.get(strings, 0, length);
+            return new String(strings, 0, length, StandardCharsets.UTF_8);
+        }
+
+        private long readVarLong() {
+            long result = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                byte b = buffer.get();
+                result |= (long) (b & 0x7F) << shift;
+                if (b >= 0) {
+                    return result;
+                }
+            }
+            throw new ManagerSaveException("Снимок повреждён: слишком длинное число");
+        }
+
+        private long readZigZag() {
+            long value = readVarLong();
+            return (value >>> 1) ^ -(value & 1);
+        }
+    }
+
+    // Кодирует записи в собственный буфер и передаёт его в поток крупными блоками
+    private static class Encoder {
+
+        private final OutputStream out;
+        private final byte[] buffer = new byte[BUFFER_SIZE];
+        private int position;
+
+        private Encoder(OutputStream out) {
+            this.out = out;
+        }
+
+        private void writeTask(Task task) throws IOException {
+            writeByte(task.getType().ordinal());
+            writeVarLong(task.getId());
+            writeByte(task.getStatus() == null ? 0 : task.getStatus().ordinal() + 1);
+            writeString(task.getName());
+            writeString(task.getDescription());
+            if (task.getType() == TaskTypes.EPIC) {
+                return;
+            }
+
+            LocalDateTime startTime = task.getStartTime();
+            Duration duration = task.getDuration();
+            writeByte((startTime == null ? 0 : HAS_START_TIME) | (duration == null ? 0 : HAS_DURATION));
+            if (startTime != null) {
+                writeZigZag(Math.floorDiv(startTime.toEpochSecond(ZoneOffset.UTC), 60));
+            }
+            if (duration != null) {
+                writeZigZag(duration.toMinutes());
+            }
+            if (task.getType() == TaskTypes.SUBTASK) {
+                writeVarLong(((Subtask) task).getEpicId());
+            }
+        }
+
+        private void writeString(String value) throws IOException {
+            if (value == null) {
+                writeVarLong(0);
+                return;
+            }
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            writeVarLong(bytes.length + 1L);
+            writeBytes(bytes);
+        }
+
+        private void writeZigZag(long value) throws IOException {
+            writeVarLong((value << 1) ^ (value >> 63));
+        }
+
+        private void writeVarLong(long value) throws IOException {
+            ensure(10);
+            while ((value & ~0x7FL) != 0) {
+                buffer[position++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            buffer[position++] = (byte) value;
+        }
+
+        private void writeByte(int value) throws IOException {
+            ensure(1);
+            buffer[position++] = (byte) value;
+        }
+
+        private void writeBytes(byte[] bytes) throws IOException {
+            if (bytes.length > buffer.length) {
+                flush();
+                out.write(bytes);
+                return;
+            }
+            ensure(bytes.length);
+            System.arraycopy(bytes, 0, buffer, position, bytes.length);
+            position += bytes.length;
+        }
+
+        private void ensure(int length) throws IOException {
+            if (buffer.length - position < length) {
+                flush();
+            }
+        }
+
+        private void flush() throws IOException {
+            out.write(buffer, 0, position);
+            position = 0;
+        }
+    }
+}
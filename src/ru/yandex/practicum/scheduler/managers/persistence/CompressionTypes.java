@@ -0,0 +1,11 @@
+package ru.yandex.practicum.scheduler.managers.persistence;
+
+// Сжатие файла снимка или выгрузки
+public enum CompressionTypes {
+    // Без сжатия
+    NONE,
+    // Поток GZIP (GZIPOutputStream)
+    GZIP,
+    // Поток Deflate в обёртке zlib (DeflaterOutputStream)
+    DEFLATE
+}
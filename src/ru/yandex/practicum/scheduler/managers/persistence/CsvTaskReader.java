@@ -0,0 +1,300 @@
+package ru.yandex.practicum.scheduler.managers.persistence;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.time.DateTimeException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.function.Consumer;
+import ru.yandex.practicum.scheduler.exceptions.ManagerSaveException;
+import ru.yandex.practicum.scheduler.models.Epic;
+import ru.yandex.practicum.scheduler.models.Subtask;
+import ru.yandex.practicum.scheduler.models.Task;
+import ru.yandex.practicum.scheduler.models.enums.StatusTypes;
+import ru.yandex.practicum.scheduler.models.enums.TaskTypes;
+
+// Потоковое чтение задач из CSV по RFC 4180: поля в кавычках могут содержать запятые, кавычки и переводы строк.
+// Запись целиком читается в переиспользуемый буфер символов, для полей запоминаются только границы.
+// ИД, типы, статусы, даты и длительности разбираются прямо из буфера, строки создаются только
+// для наименования и описания.
+public class CsvTaskReader {
+
+    private static final int BUFFER_SIZE = 8 * 1024;
+    private static final int FIELD_COUNT = 8;
+    private static final TaskTypes[] TYPES = TaskTypes.values();
+    private static final StatusTypes[] STATUSES = StatusTypes.values();
+    private final Reader reader;
+    private char[] buffer;
+    // Начало текущей записи и конец прочитанных данных в буфере
+    private int position;
+    private int limit;
+    private boolean endOfInput;
+    // Границы полей текущей записи и признак поля в кавычках
+    private int[] fieldStarts = new int[FIELD_COUNT];
+    private int[] fieldEnds = new int[FIELD_COUNT];
+    private boolean[] fieldQuoted = new boolean[FIELD_COUNT];
+    private int fieldCount;
+
+    public CsvTaskReader(Reader reader) {
+        this.reader = reader;
+        this.buffer = new char[BUFFER_SIZE];
+    }
+
+    private CsvTaskReader(String record) {
+        this.reader = null;
+        this.buffer = record.toCharArray();
+        this.limit = buffer.length;
+        this.endOfInput = true;
+    }
+
+    // Разбирает одну запись задачи без перевода строки
+    public static Task parse(String record) {
+        try {
+            CsvTaskReader csvReader = new CsvTaskReader(record);
+            if (!csvReader.nextRecord()) {
+                throw new ManagerSaveException("Пустая запись CSV");
+            }
+            return csvReader.toTask();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // Читает все записи и передаёт задачи в consumer. Заголовок и пустые строки пропускаются.
+    // Возвращает номер фиксации журнала из строки #LSN или 0.
+    public long read(Consumer<Task> consumer) throws IOException {
+        long lsn = 0;
+        while (nextRecord()) {
+            if (fieldCount == 1 && isEmpty(0)) {
+                continue;
+            }
+            if (fieldEquals(0, "ID")) {
+                continue;
+            }
+            if (fieldEquals(0, "#LSN") && fieldCount > 1) {
+                lsn = parseLong(1);
+                continue;
+            }
+            consumer.accept(toTask());
+        }
+        return lsn;
+    }
+
+    private Task toTask() {
+        if (fieldCount < FIELD_COUNT) {
+            throw new ManagerSaveException("Неполная запись CSV: " + new String(buffer, fieldStarts[0],
+                    fieldEnds[fieldCount - 1] - fieldStarts[0]));
+        }
+        int id = (int) parseLong(0);
+        TaskTypes type = parseEnum(1, TYPES);
+        String name = parseString(2);
+        StatusTypes status = parseEnum(3, STATUSES);
+        String description = parseString(4);
+        LocalDateTime startTime = isEmpty(6) ? null : parseDateTime(6);
+        Duration duration = isEmpty(7) ? null : Duration.ofMinutes(parseLong(7));
+
+        switch (type) {
+            case EPIC -> {
+                return new Epic(id, status, name, description);
+            }
+            case SUBTASK -> {
+                return new Subtask(id, status, name, description, startTime, duration, (int) parseLong(5));
+            }
+            default -> {
+                return new Task(id, status, name, description, startTime, duration);
+            }
+        }
+    }
+
+    // Находит границы полей следующей записи. Возвращает false, если данных больше нет.
+    private boolean nextRecord() throws IOException {
+        fieldCount = 0;
+        int current = position;
+        int fieldStart = current;
+        boolean inQuotes = false;
+        while (true) {
+            if (current == limit) {
+                // Запись сдвигается в начало буфера, поэтому сдвигаем и позиции внутри неё
+                int shift = position;
+                boolean hasMore = fill();
+                current -= shift;
+                fieldStart -= shift;
+                if (!hasMore) {
+                    // Последняя запись без перевода строки
+                    if (current == position) {
+                        return false;
+                    }
+                    addField(fieldStart, current);
+                    position = current;
+                    return true;
+                }
+                continue;
+            }
+
+            char c = buffer[current];
+            if (c == '"') {
+                // Удвоенная кавычка внутри поля закрывает и сразу открывает кавычки
+                inQuotes = !inQuotes;
+            } else if (!inQuotes && c == ',') {
+                addField(fieldStart, current);
+                fieldStart = current + 1;
+            } else if (!inQuotes && c == '\n') {
+                int end = current > fieldStart && buffer[current - 1] == '\r' ? current - 1 : current;
+                addField(fieldStart, end);
+                position = current + 1;
+                return true;
+            }
+            current++;
+        }
+    }
+
+    private void addField(int start, int end) {
+        if (fieldCount == fieldStarts.length) {
+            fieldStarts = Arrays.copyOf(fieldStarts, fieldCount * 2);
+            fieldEnds = Arrays.copyOf(fieldEnds, fieldCount * 2);
+            fieldQuoted = Arrays.copyOf(fieldQuoted, fieldCount * 2);
+        }
+        boolean quoted = end - start >= 2 && buffer[start] == '"' && buffer[end - 1] == '"';
+        fieldStarts[fieldCount] = quoted ? start + 1 : start;
+        fieldEnds[fieldCount] = quoted ? end - 1 : end;
+        fieldQuoted[fieldCount] = quoted;
+        fieldCount++;
+    }
+
+    // Сдвигает текущую запись в начало буфера и дочитывает данные. Возвращает false, если данных больше нет.
+    private boolean fill() throws IOException {
+        int shift = position;
+        if (shift > 0) {
+            System.arraycopy(buffer, shift, buffer, 0, limit - shift);
+            limit -= shift;
+            position = 0;
+            for (int i = 0; i < fieldCount; i++) {
+                fieldStarts[i] -= shift;
+                fieldEnds[i] -= shift;
+            }
+        }
+        if (endOfInput) {
+            return false;
+        }
+        if (limit == buffer.length) {
+            // Запись не помещается в буфер
+            buffer = Arrays.copyOf(buffer, buffer.length * 2);
+        }
+        int read = reader.read(buffer, limit, buffer.length - limit);
+        if (read < 0) {
+            endOfInput = true;
+            return false;
+        }
+        limit += read;
+        return true;
+    }
+
+    private boolean isEmpty(int field) {
+        if (fieldStarts[field] == fieldEnds[field]) {
+            return true;
+        }
+        for (int i = fieldStarts[field]; i < fieldEnds[field]; i++) {
+            if (!Character.isWhitespace(buffer[i])) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean fieldEquals(int field, String value) {
+        int length = fieldEnds[field] - fieldStarts[field];
+        if (length != value.length()) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (buffer[fieldStarts[field] + i] != value.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private String parseString(int field) {
+        int start = fieldStarts[field];
+        int end = fieldEnds[field];
+        if (!fieldQuoted[field]) {
+            return new String(buffer, start, end - start);
+        }
+        // Заменяем удвоенные кавычки одинарными
+        StringBuilder sb = new StringBuilder(end - start);
+        for (int i = start; i < end; i++) {
+            sb.append(buffer[i]);
+            if (buffer[i] == '"' && i + 1 < end && buffer[i + 1] == '"') {
+                i++;
+            }
+        }
+        return sb.toString();
+    }
+
+    private long parseLong(int field) {
+        int i = fieldStarts[field];
+        int end = fieldEnds[field];
+        boolean negative = i < end && buffer[i] == '-';
+        if (negative) {
+            i++;
+        }
+        if (i == end) {
+            throw invalidField(field);
+        }
+        long result = 0;
+        for (; i < end; i++) {
+            int digit = buffer[i] - '0';
+            if (digit < 0 || digit > 9) {
+                throw invalidField(field);
+            }
+            result = result * 10 + digit;
+        }
+        return negative ? -result : result;
+    }
+
+    private <E extends Enum<E>> E parseEnum(int field, E[] values) {
+        for (E value : values) {
+            if (fieldEquals(field, value.name())) {
+                return value;
+            }
+        }
+        throw invalidField(field);
+    }
+
+    // Разбирает дату в формате Task.getFormatter(): HH:mm dd.MM.yyyy
+    private LocalDateTime parseDateTime(int field) {
+        int start = fieldStarts[field];
+        if (fieldEnds[field] - start != 16 || buffer[start + 2] != ':' || buffer[start + 5] != ' '
+                || buffer[start + 8] != '.' || buffer[start + 11] != '.') {
+            throw invalidField(field);
+        }
+        try {
+            return LocalDateTime.of(digits(field, start + 12, 4), digits(field, start + 9, 2),
+                    digits(field, start + 6, 2), digits(field, start, 2), digits(field, start + 3, 2));
+        } catch (DateTimeException e) {
+            throw new ManagerSaveException("Неверная дата в записи CSV: " + fieldText(field), e);
+        }
+    }
+
+    private int digits(int field, int from, int count) {
+        int result = 0;
+        for (int i = from; i < from + count; i++) {
+            int digit = buffer[i] - '0';
+            if (digit < 0 || digit > 9) {
+                throw invalidField(field);
+            }
+            result = result * 10 + digit;
+        }
+        return result;
+    }
+
+    private ManagerSaveException invalidField(int field) {
+        return new ManagerSaveException("Неверное значение поля CSV: " + fieldText(field));
+    }
+
+    private String fieldText(int field) {
+        return new String(buffer, fieldStarts[field], fieldEnds[field] - fieldStarts[field]);
+    }
+}
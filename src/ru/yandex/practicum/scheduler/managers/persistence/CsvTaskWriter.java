@@ -0,0 +1,188 @@
+package ru.yandex.practicum.scheduler.managers.persistence;
+
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.time.LocalDateTime;
+import ru.yandex.practicum.scheduler.models.Subtask;
+import ru.yandex.practicum.scheduler.models.Task;
+import ru.yandex.practicum.scheduler.models.enums.TaskTypes;
+
+// Потоковая запись задач в CSV по RFC 4180.
+// Поля с запятой, кавычкой или переводом строки заключаются в кавычки, кавычки внутри удваиваются.
+// Записи без таких символов совпадают с Task.toCSV(). Записи собираются в переиспользуемом буфере символов,
+// числа и даты пишутся цифрами без форматтера и промежуточных строк. Переданный поток не закрывается.
+public class CsvTaskWriter implements Flushable {
+
+    public static final String HEADER = "ID,TYPE,NAME,STATUS,DESCRIPTION,EPIC,START_TIME,DURATION";
+    // Строка снимка с номером последней фиксации журнала, изменения которой уже вошли в снимок
+    public static final String LSN_PREFIX = "#LSN,";
+    private static final int BUFFER_SIZE = 8 * 1024;
+    private final Writer writer;
+    private final char[] buffer = new char[BUFFER_SIZE];
+    private int position;
+
+    public CsvTaskWriter(Writer writer) {
+        this.writer = writer;
+    }
+
+    // Возвращает запись задачи без перевода строки
+    public static String format(Task task) {
+        StringWriter out = new StringWriter();
+        try {
+            CsvTaskWriter csvWriter = new CsvTaskWriter(out);
+            csvWriter.appendTask(task);
+            csvWriter.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out.toString();
+    }
+
+    public void writeHeader() throws IOException {
+        append(HEADER);
+        append('\n');
+    }
+
+    public void writeLsn(long lsn) throws IOException {
+        append(LSN_PREFIX);
+        appendLong(lsn);
+        append('\n');
+    }
+
+    public void write(Task task) throws IOException {
+        appendTask(task);
+        append('\n');
+    }
+
+    private void appendTask(Task task) throws IOException {
+        boolean timed = task.getType() != TaskTypes.EPIC;
+        appendLong(task.getId());
+        append(',');
+        append(task.getType().name());
+        append(',');
+        appendField(String.valueOf(task.getName()));
+        append(',');
+        append(String.valueOf(task.getStatus()));
+        append(',');
+        appendField(String.valueOf(task.getDescription()));
+        append(',');
+        if (task instanceof Subtask subtask) {
+            appendLong(subtask.getEpicId());
+        }
+        append(',');
+        if (timed && task.getStartTime() != null) {
+            appendDateTime(task.getStartTime());
+        }
+        append(',');
+        appendLong(timed && task.getDuration() != null ? task.getDuration().toMinutes() : 0);
+    }
+
+    private void appendField(String value) throws IOException {
+        if (!needsQuotes(value)) {
+            append(value);
+            return;
+        }
+        append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"') {
+                append('"');
+            }
+            append(c);
+        }
+        append('"');
+    }
+
+    private static boolean needsQuotes(String value) {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == ',' || c == '"' || c == '\n' || c == '\r') {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // Формат совпадает с Task.getFormatter(): HH:mm dd.MM.yyyy
+    private void appendDateTime(LocalDateTime dateTime) throws IOException {
+        if (dateTime.getYear() < 0 || dateTime.getYear() > 9999) {
+            append(dateTime.format(Task.getFormatter()));
+            return;
+        }
+        appendDigits(dateTime.getHour(), 2);
+        append(':');
+        appendDigits(dateTime.getMinute(), 2);
+        append(' ');
+        appendDigits(dateTime.getDayOfMonth(), 2);
+        append('.');
+        appendDigits(dateTime.getMonthValue(), 2);
+        append('.');
+        appendDigits(dateTime.getYear(), 4);
+    }
+
+    private void appendDigits(int value, int width) throws IOException {
+        ensure(width);
+        for (int i = position + width - 1; i >= position; i--) {
+            buffer[i] = (char) ('0' + value % 10);
+            value /= 10;
+        }
+        position += width;
+    }
+
+    private void appendLong(long value) throws IOException {
+        if (value < 0) {
+            append('-');
+            // Long.MIN_VALUE не встречается среди ИД и длительностей
+            value = -value;
+        }
+        ensure(20);
+        int start = position;
+        do {
+            buffer[position++] = (char) ('0' + value % 10);
+            value /= 10;
+        } while (value != 0);
+        // Цифры записаны в обратном порядке
+        for (int i = start, j = position - 1; i < j; i++, j--) {
+            char c = buffer[i];
+            buffer[i] = buffer[j];
+            buffer[j] = c;
+        }
+    }
+
+    private void append(String value) throws IOException {
+        int length = value.length();
+        if (length > buffer.length) {
+            flushBuffer();
+            writer.write(value);
+            return;
+        }
+        ensure(length);
+        value.getChars(0, length, buffer, position);
+        position += length;
+    }
+
+    private void append(char c) throws IOException {
+        ensure(1);
+        buffer[position++] = c;
+    }
+
+    private void ensure(int length) throws IOException {
+        if (buffer.length - position < length) {
+            flushBuffer();
+        }
+    }
+
+    private void flushBuffer() throws IOException {
+        writer.write(buffer, 0, position);
+        position = 0;
+    }
+
+    @Override
+    public void flush() throws IOException {
+        flushBuffer();
+        writer.flush();
+    }
+}
@@ -0,0 +1,11 @@
+package ru.yandex.practicum.scheduler.managers.persistence;
+
+// Способ сохранения состояния FileBackedTaskManager
+public enum PersistenceTypes {
+    // Полная перезапись снимка при каждом изменении
+    SNAPSHOT,
+    // Дописывание изменений в журнал и периодическая запись снимка
+    WRITE_AHEAD_LOG,
+    // Перезапись только сегментов снимка с изменёнными записями
+    SEGMENTED
+}
@@ -0,0 +1,216 @@
+package ru.yandex.practicum.scheduler.managers.persistence;
+
+import java.io.BufferedReader;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.function.Consumer;
+import ru.yandex.practicum.scheduler.exceptions.ManagerSaveException;
+import ru.yandex.practicum.scheduler.models.Task;
+
+// Снимок, разбитый на сегменты по диапазонам ИД: сегмент n содержит записи с ИД от n * size до (n + 1) * size - 1.
+// Каждый сегмент - отдельный файл в двоичном формате снимка в каталоге "путь.segments".
+// Манифест (сам файл по пути) перечисляет текущие файлы сегментов:
+// первая строка "#SEGMENTS,размер,поколение", дальше строки "номер,имя файла".
+// Изменённые сегменты записываются в новые файлы с номером поколения в имени, затем манифест атомарно
+// заменяется, и только после этого удаляются прежние файлы. При сбое манифест ссылается на полный набор
+// либо прежних, либо новых файлов.
+public class SegmentedStore {
+
+    public static final int DEFAULT_SEGMENT_SIZE = 1024;
+    private static final String MANIFEST_HEADER = "#SEGMENTS";
+    private static final String DIRECTORY_SUFFIX = ".segments";
+    private static final String SEGMENT_SUFFIX = ".seg";
+    private final Path manifest;
+    private final Path directory;
+    private int segmentSize;
+    private long generation;
+    // Номер сегмента -> имя его текущего файла
+    private Map<Integer, String> segmentFiles = new TreeMap<>();
+    private SyncTypes syncType = SyncTypes.EVERY_WRITE;
+
+    public SegmentedStore(Path manifest, int segmentSize) {
+        if (segmentSize < 1) {
+            throw new IllegalArgumentException("Размер сегмента должен быть положительным");
+        }
+        this.manifest = manifest;
+        this.directory = getDirectory(manifest);
+        this.segmentSize = segmentSize;
+    }
+
+    public static Path getDirectory(Path manifest) {
+        return manifest.resolveSibling(manifest.getFileName() + DIRECTORY_SUFFIX);
+    }
+
+    public void setSyncType(SyncTypes syncType) {
+        this.syncType = syncType;
+    }
+
+    public int getSegmentSize() {
+        return segmentSize;
+    }
+
+    public int getSegment(int id) {
+        return Math.floorDiv(id, segmentSize);
+    }
+
+    // Имена текущих файлов сегментов в порядке номеров
+    public List<String> getSegmentFiles() {
+        return List.copyOf(segmentFiles.values());
+    }
+
+    // Читает манифест и передаёт записи всех сегментов. Размер сегмента берётся из манифеста.
+    public void read(Consumer<Task> consumer) {
+        if (!Files.exists(manifest)) {
+            return;
+        }
+        Map<Integer, String> files = new TreeMap<>();
+        try (BufferedReader reader = Files.newBufferedReader(manifest, StandardCharsets.UTF_8)) {
+            String firstLine = reader.readLine();
+            String[] header = firstLine == null ? new String[0] : firstLine.split(",");
+            if (header.length != 3 || !header[0].equals(MANIFEST_HEADER)) {
+                throw new ManagerSaveException("Неверный заголовок манифеста " + manifest);
+            }
+            segmentSize = Integer.parseInt(header[1]);
+            generation = Long.parseLong(header[2]);
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isBlank()) {
+                    continue;
+                }
+                int comma = line.indexOf(',');
+                files.put(Integer.parseInt(line.substring(0, comma)), line.substring(comma + 1));
+            }
+        } catch (IOException e) {
+            throw new ManagerSaveException("Ошибка при чтении манифеста " + manifest, e);
+        } catch (RuntimeException e) {
+            if (e instanceof ManagerSaveException) {
+                throw e;
+            }
+            throw new ManagerSaveException("Неверный формат манифеста " + manifest, e);
+        }
+
+        for (String name : files.values()) {
+            Path segment = directory.resolve(name);
+            try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.READ)) {
+                BinarySnapshot.read(channel, consumer);
+            } catch (IOException e) {
+                throw new ManagerSaveException("Ошибка при чтении сегмента " + segment, e);
+            }
+        }
+        segmentFiles = files;
+    }
+
+    // Записывает переданные сегменты и атомарно публикует их новым манифестом.
+    // Пустой список записей удаляет сегмент. Если replaceAll, то сегменты, которых нет среди переданных,
+    // тоже удаляются вместе с любыми посторонними файлами сегментов в каталоге.
+    // Возвращает количество записанных байт сегментов.
+    public long write(Map<Integer, ? extends Collection<? extends Task>> segments, boolean replaceAll) {
+        // Новое хранилище поверх прежних файлов продолжает нумерацию их манифеста,
+        // чтобы не перезаписать файлы, на которые он ещё ссылается
+        long nextGeneration = Math.max(generation, replaceAll ? readGeneration() : 0) + 1;
+        Map<Integer, String> files = replaceAll ? new TreeMap<>() : new TreeMap<>(segmentFiles);
+        long written = 0;
+        try {
+            Files.createDirectories(directory);
+            for (Map.Entry<Integer, ? extends Collection<? extends Task>> entry : segments.entrySet()) {
+                if (entry.getValue().isEmpty()) {
+                    files.remove(entry.getKey());
+                    continue;
+                }
+                String name = entry.getKey() + "-" + nextGeneration + SEGMENT_SUFFIX;
+                written += writeSegment(directory.resolve(name), entry.getValue());
+                files.put(entry.getKey(), name);
+            }
+            writeManifest(files, nextGeneration);
+        } catch (IOException e) {
+            throw new ManagerSaveException("Ошибка при записи сегментов " + directory, e);
+        }
+
+        // Манифест заменён, поэтому прежние файлы больше ни на что не ссылаются
+        List<Path> obsolete = new ArrayList<>();
+        if (replaceAll) {
+            Set<String> current = new HashSet<>(files.values());
+            try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, "*" + SEGMENT_SUFFIX)) {
+                for (Path path : stream) {
+                    if (!current.contains(path.getFileName().toString())) {
+                        obsolete.add(path);
+                    }
+                }
+            } catch (IOException e) {
+                throw new ManagerSaveException("Ошибка при чтении каталога сегментов " + directory, e);
+            }
+        } else {
+            for (Integer segment : segments.keySet()) {
+                String previous = segmentFiles.get(segment);
+                if (previous != null) {
+                    obsolete.add(directory.resolve(previous));
+                }
+            }
+        }
+        segmentFiles = files;
+        generation = nextGeneration;
+        for (Path path : obsolete) {
+            try {
+                Files.deleteIfExists(path);
+            } catch (IOException e) {
+                throw new ManagerSaveException("Ошибка при удалении сегмента " + path, e);
+            }
+        }
+        return written;
+    }
+
+    private long readGeneration() {
+        if (!Files.exists(manifest)) {
+            return 0;
+        }
+        try (BufferedReader reader = Files.newBufferedReader(manifest, StandardCharsets.UTF_8)) {
+            String firstLine = reader.readLine();
+            String[] header = firstLine == null ? new String[0] : firstLine.split(",");
+            return header.length == 3 && header[0].equals(MANIFEST_HEADER) ? Long.parseLong(header[2]) : 0;
+        } catch (IOException | NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    private long writeSegment(Path path, Collection<? extends Task> records) throws IOException {
+        try (FileOutputStream out = new FileOutputStream(path.toFile())) {
+            BinarySnapshot.write(out, 0, records);
+            if (syncType != SyncTypes.OS_MANAGED) {
+                out.getFD().sync();
+            }
+            return out.getChannel().position();
+        }
+    }
+
+    private void writeManifest(Map<Integer, String> files, long manifestGeneration) throws IOException {
+        Path tempFile = manifest.resolveSibling(manifest.getFileName() + ".tmp");
+        try (FileOutputStream out = new FileOutputStream(tempFile.toFile())) {
+            Writer writer = new OutputStreamWriter(out, StandardCharsets.UTF_8);
+            writer.write(MANIFEST_HEADER + "," + segmentSize + "," + manifestGeneration + "\n");
+            for (Map.Entry<Integer, String> entry : files.entrySet()) {
+                writer.write(entry.getKey() + "," + entry.getValue() + "\n");
+            }
+            writer.flush();
+            if (syncType != SyncTypes.OS_MANAGED) {
+                out.getFD().sync();
+            }
+        }
+        Files.move(tempFile, manifest, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+}
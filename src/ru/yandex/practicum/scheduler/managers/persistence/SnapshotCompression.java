@@ -0,0 +1,79 @@
+package ru.yandex.practicum.scheduler.managers.persistence;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.InflaterInputStream;
+
+// Потоковое сжатие снимков и выгрузок средствами JDK.
+// При загрузке способ сжатия определяется по первым байтам файла: сигнатура GZIP 1F 8B или заголовок zlib
+// (метод 8 и контрольная сумма двух байт, кратная 31). Несжатые файлы начинаются с сигнатуры TKSB
+// или заголовка CSV и под эти признаки не подпадают.
+public final class SnapshotCompression {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private SnapshotCompression() {
+    }
+
+    public static CompressionTypes detect(Path path) throws IOException {
+        if (!Files.exists(path)) {
+            return CompressionTypes.NONE;
+        }
+        try (InputStream in = Files.newInputStream(path)) {
+            return detect(in.readNBytes(2));
+        }
+    }
+
+    static CompressionTypes detect(byte[] head) {
+        if (head.length < 2) {
+            return CompressionTypes.NONE;
+        }
+        int first = head[0] & 0xFF;
+        int second = head[1] & 0xFF;
+        if (first == 0x1F && second == 0x8B) {
+            return CompressionTypes.GZIP;
+        }
+        // Метод сжатия deflate, окно не больше 32 КБ, контрольная сумма заголовка
+        if ((first & 0x0F) == 8 && (first >> 4) <= 7 && (first * 256 + second) % 31 == 0) {
+            return CompressionTypes.DEFLATE;
+        }
+        return CompressionTypes.NONE;
+    }
+
+    // Оборачивает поток записи. Закрытие возвращённого потока закрывает и out.
+    public static OutputStream compress(OutputStream out, CompressionTypes compression) throws IOException {
+        return switch (compression) {
+            case NONE -> out;
+            case GZIP -> new GZIPOutputStream(out, BUFFER_SIZE);
+            // Сжатые блоки Deflater по умолчанию мелкие, поэтому в файл они идут через буфер
+            case DEFLATE -> new DeflaterOutputStream(new BufferedOutputStream(out, BUFFER_SIZE));
+        };
+    }
+
+    // Дописывает окончание сжатого потока и передаёт всё записанное в исходный поток, не закрывая его,
+    // чтобы файл можно было сбросить на диск до закрытия
+    public static void finish(OutputStream out) throws IOException {
+        if (out instanceof DeflaterOutputStream deflaterOut) {
+            deflaterOut.finish();
+        }
+        out.flush();
+    }
+
+    // Оборачивает поток чтения распаковкой. Возвращённый поток поддерживает mark и reset.
+    public static InputStream decompress(InputStream in, CompressionTypes compression) throws IOException {
+        return switch (compression) {
+            case NONE -> new BufferedInputStream(in, BUFFER_SIZE);
+            case GZIP -> new BufferedInputStream(new GZIPInputStream(in, BUFFER_SIZE), BUFFER_SIZE);
+            case DEFLATE -> new BufferedInputStream(new InflaterInputStream(new BufferedInputStream(in, BUFFER_SIZE)),
+                    BUFFER_SIZE);
+        };
+    }
+}
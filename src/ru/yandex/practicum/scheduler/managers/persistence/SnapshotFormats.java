@@ -0,0 +1,9 @@
+package ru.yandex.practicum.scheduler.managers.persistence;
+
+// Формат файла снимка
+public enum SnapshotFormats {
+    // Текст CSV, по строке на сущность. Используется для импорта и экспорта.
+    CSV,
+    // Компактный двоичный формат BinarySnapshot
+    BINARY
+}
@@ -0,0 +1,11 @@
+package ru.yandex.practicum.scheduler.managers.persistence;
+
+// Момент, после которого изменение считается сохранённым
+public enum SyncTypes {
+    // Каждая группа записей сбрасывается на диск через FileChannel.force
+    EVERY_WRITE,
+    // Записи сбрасываются на диск не чаще одного раза за заданный период
+    PERIODIC,
+    // Записи передаются операционной системе, сброс на диск остаётся за ней
+    OS_MANAGED
+}
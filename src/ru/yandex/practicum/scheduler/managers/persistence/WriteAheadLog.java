@@ -0,0 +1,602 @@
+package ru.yandex.practicum.scheduler.managers.persistence;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+import ru.yandex.practicum.scheduler.exceptions.ManagerSaveException;
+
+// Журнал изменений, в который записи только дописываются.
+// Каждая запись - "lsn,длина,crc,данные\n", где длина - размер данных в байтах UTF-8, а crc - CRC32
+// заголовка "lsn,длина," и данных. Длина позволяет хранить в данных переводы строк (например, в имени задачи),
+// а контрольная сумма - отличить повреждённую запись. Записи одной фиксации имеют общий номер lsn
+// и завершаются записью "COMMIT". При чтении группа без записи фиксации (например, оборванная при сбое)
+// отбрасывается. Повреждённая запись в конце журнала считается оборванной записью, а повреждённая запись,
+// за которой следуют целые, - порчей журнала: чтение прерывается ошибкой, журнал не обрезается.
+// Журнал состоит из активного сегмента и закрытых сегментов "путь.lsn", где lsn - номер последней
+// фиксации сегмента. Закрытые сегменты удаляются, когда их изменения попадают в снимок.
+// Фиксации из разных потоков ставятся в очередь, а один поток записи сбрасывает накопившиеся группы
+// одной записью и одним FileChannel.force (групповая фиксация).
+// Если запись группы не удалась, недописанные байты обрезаются, чтобы следующая группа не легла за порченой
+// записью. После ошибки сброса на диск неизвестно, какие данные сохранены, поэтому журнал отклоняет
+// новые фиксации, пока его не откроют заново.
+public class WriteAheadLog implements Closeable {
+
+    private static final String COMMIT = "COMMIT";
+    private final Path path;
+    private final ReentrantLock lock = new ReentrantLock();
+    // Сигнал потоку записи о новых фиксациях
+    private final Condition commitsQueued = lock.newCondition();
+    // Сигнал о том, что очередь пуста и поток записи ничего не пишет
+    private final Condition writerIdle = lock.newCondition();
+    private final ArrayDeque<Commit> queue = new ArrayDeque<>();
+    private SyncTypes syncType = SyncTypes.EVERY_WRITE;
+    private long syncPeriodNanos;
+    private long lastSyncNanos = System.nanoTime();
+    private FileChannel channel;
+    private Thread writer;
+    private boolean writing;
+    private boolean closing;
+    private long lastLsn;
+    private long recordCount;
+    // Ошибка, после которой журнал не принимает фиксации
+    private IOException failure;
+
+    public WriteAheadLog(Path path) {
+        this.path = path;
+    }
+
+    // Задаёт момент, когда фиксация считается сохранённой. Период используется только для PERIODIC.
+    public void setSyncPolicy(SyncTypes syncType, Duration syncPeriod) {
+        if (syncType == SyncTypes.PERIODIC && (syncPeriod == null || syncPeriod.isNegative())) {
+            throw new IllegalArgumentException("Для периодического сброса нужен неотрицательный период");
+        }
+        lock.lock();
+        try {
+            this.syncType = syncType;
+            this.syncPeriodNanos = syncPeriod == null ? 0 : syncPeriod.toNanos();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public Path getPath() {
+        return path;
+    }
+
+    public long getLastLsn() {
+        lock.lock();
+        try {
+            return lastLsn;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Количество записей в активном сегменте
+    public long getRecordCount() {
+        lock.lock();
+        try {
+            return recordCount;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Ставит записи в очередь одной фиксацией.
+    // Возвращённое значение завершается номером фиксации, когда она сохранена согласно политике сброса.
+    public CompletableFuture<Long> append(List<String> records) {
+        lock.lock();
+        try {
+            if (failure != null) {
+                throw new ManagerSaveException("Журнал " + path + " недоступен после ошибки записи", failure);
+            }
+            long lsn = ++lastLsn;
+            ByteArrayOutputStream data = new ByteArrayOutputStream();
+            for (String record : records) {
+                writeRecord(data, lsn, record);
+            }
+            writeRecord(data, lsn, COMMIT);
+
+            Commit commit = new Commit(lsn, ByteBuffer.wrap(data.toByteArray()));
+            queue.add(commit);
+            recordCount += records.size();
+            startWriter();
+            commitsQueued.signal();
+            return commit.durable;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void startWriter() {
+        if (writer == null) {
+            writer = new Thread(this::runWriter, "task-manager-wal-writer");
+            writer.setDaemon(true);
+            writer.start();
+        }
+    }
+
+    private void runWriter() {
+        while (true) {
+            List<Commit> batch;
+            FileChannel fileChannel;
+            boolean sync;
+            lock.lock();
+            try {
+                while (queue.isEmpty() && !closing) {
+                    commitsQueued.awaitUninterruptibly();
+                }
+                if (queue.isEmpty()) {
+                    writer = null;
+                    writerIdle.signalAll();
+                    return;
+                }
+                // При периодическом сбросе ждём окончания периода, собирая фиксации в одну группу
+                if (syncType == SyncTypes.PERIODIC) {
+                    long remaining = lastSyncNanos + syncPeriodNanos - System.nanoTime();
+                    while (remaining > 0 && !closing) {
+                        try {
+                            remaining = commitsQueued.awaitNanos(remaining);
+                        } catch (InterruptedException e) {
+                            break;
+                        }
+                    }
+                }
+                batch = new ArrayList<>(queue);
+                queue.clear();
+                sync = syncType != SyncTypes.OS_MANAGED;
+                writing = true;
+                // Фиксации, поставленные в очередь до ошибки, в журнал уже не пишутся
+                fileChannel = failure == null ? openChannel(batch) : null;
+            } finally {
+                lock.unlock();
+            }
+
+            IOException error = fileChannel == null ? failure : write(fileChannel, batch, sync);
+
+            lock.lock();
+            try {
+                writing = false;
+                if (error != null && failure == null && !(error instanceof PartialWriteException)) {
+                    failure = error;
+                }
+                if (sync) {
+                    lastSyncNanos = System.nanoTime();
+                }
+                writerIdle.signalAll();
+            } finally {
+                lock.unlock();
+            }
+
+            // Сообщаем ожидающим потокам о сохранении их фиксаций
+            for (Commit commit : batch) {
+                if (error == null) {
+                    commit.durable.complete(commit.lsn);
+                } else {
+                    commit.durable.completeExceptionally(
+                            new ManagerSaveException("Ошибка при записи в журнал " + path, error));
+                }
+            }
+        }
+    }
+
+    private FileChannel openChannel(List<Commit> batch) {
+        try {
+            return getChannel();
+        } catch (IOException e) {
+            for (Commit commit : batch) {
+                commit.durable.completeExceptionally(
+                        new ManagerSaveException("Ошибка при открытии журнала " + path, e));
+            }
+            batch.clear();
+            return null;
+        }
+    }
+
+    // Возвращает ошибку записи или null. Ошибка записи, после которой журнал обрезан до прежней длины,
+    // возвращается как PartialWriteException: журнал остаётся пригодным для следующих фиксаций.
+    private IOException write(FileChannel fileChannel, List<Commit> batch, boolean sync) {
+        ByteBuffer[] buffers = batch.stream().map(commit -> commit.data).toArray(ByteBuffer[]::new);
+        long start;
+        try {
+            // Канал открыт на дозапись, поэтому группы пишутся с конца файла
+            start = fileChannel.size();
+        } catch (IOException e) {
+            return e;
+        }
+        try {
+            // Пишем все группы одним вызовом
+            long remaining = batch.stream().mapToLong(commit -> commit.data.remaining()).sum();
+            while (remaining > 0) {
+                remaining -= fileChannel.write(buffers);
+            }
+        } catch (IOException e) {
+            // Убираем недописанные байты, чтобы следующая группа не оказалась после порченой записи
+            try {
+                fileChannel.truncate(start);
+            } catch (IOException truncateError) {
+                e.addSuppressed(truncateError);
+                return e;
+            }
+            return new PartialWriteException(e);
+        }
+        if (sync) {
+            try {
+                // и один раз сбрасываем их на диск
+                fileChannel.force(false);
+            } catch (IOException e) {
+                // Фиксациям сообщается об ошибке, поэтому они не должны повториться при чтении журнала
+                try {
+                    fileChannel.truncate(start);
+                } catch (IOException truncateError) {
+                    e.addSuppressed(truncateError);
+                }
+                return e;
+            }
+        }
+        return null;
+    }
+
+    // Ждёт, пока поток записи сбросит очередь. Вызывается под блокировкой.
+    private void awaitWriterIdle() {
+        while (writing || !queue.isEmpty()) {
+            writerIdle.awaitUninterruptibly();
+        }
+    }
+
+    // Передаёт в обработчик зафиксированные группы записей с номером больше afterLsn,
+    // сначала из закрытых сегментов, затем из активного.
+    // Оборванный хвост активного сегмента обрезается, чтобы следующие записи не склеились с ним.
+    public void replay(long afterLsn, Consumer<List<String>> consumer) {
+        lock.lock();
+        try {
+            awaitWriterIdle();
+            lastLsn = Math.max(lastLsn, afterLsn);
+            for (Path segment : getClosedSegments()) {
+                replaySegment(segment, afterLsn, consumer);
+            }
+            if (Files.exists(path)) {
+                recordCount = replaySegment(path, afterLsn, consumer);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Закрывает активный сегмент и начинает новый. Возвращает номер последней фиксации закрытого сегмента.
+    public long rotate() {
+        lock.lock();
+        try {
+            // Фиксации из очереди должны попасть в закрываемый сегмент
+            awaitWriterIdle();
+            closeChannel();
+            if (Files.exists(path) && Files.size(path) > 0) {
+                Files.move(path, getClosedSegmentPath(lastLsn), StandardCopyOption.ATOMIC_MOVE);
+            }
+            // Создаём пустой активный сегмент сразу, чтобы по нему можно было определить режим журнала
+            getChannel();
+            recordCount = 0;
+            return lastLsn;
+        } catch (IOException e) {
+            throw new ManagerSaveException("Ошибка при переключении сегмента журнала " + path, e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Удаляет закрытые сегменты, все фиксации которых не новее lsn.
+    // Может вызываться из другого потока: активный сегмент не затрагивается.
+    public void deleteClosedSegments(long lsn) {
+        for (Path segment : getClosedSegments()) {
+            if (getSegmentLsn(segment) <= lsn) {
+                try {
+                    Files.deleteIfExists(segment);
+                } catch (IOException e) {
+                    throw new ManagerSaveException("Ошибка при удалении сегмента журнала " + segment, e);
+                }
+            }
+        }
+    }
+
+    // Удаляет все сегменты журнала, например когда новый менеджер начинает работу поверх старых файлов
+    public void reset() {
+        lock.lock();
+        try {
+            awaitWriterIdle();
+            closeChannel();
+            deleteClosedSegments(Long.MAX_VALUE);
+            Files.deleteIfExists(path);
+            recordCount = 0;
+            failure = null;
+        } catch (IOException e) {
+            throw new ManagerSaveException("Ошибка при очистке журнала " + path, e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Повторяет группы закрытых сегментов с номерами фиксаций больше afterLsn и не больше upToLsn
+    // (номера, возвращённого rotate). Закрытые сегменты не меняются, поэтому они читаются без блокировки
+    // журнала, и фиксации в активный сегмент во время чтения не ждут.
+    public void replayClosed(long afterLsn, long upToLsn, Consumer<List<String>> consumer) {
+        for (Path segment : getClosedSegments()) {
+            if (getSegmentLsn(segment) > upToLsn) {
+                break;
+            }
+            scanSegment(segment, afterLsn, consumer);
+        }
+    }
+
+    private long replaySegment(Path segment, long afterLsn, Consumer<List<String>> consumer) {
+        SegmentScan scan = scanSegment(segment, afterLsn, consumer);
+        lastLsn = Math.max(lastLsn, scan.lastLsn);
+        if (segment.equals(path)) {
+            try {
+                getChannel().truncate(scan.validLength);
+            } catch (IOException e) {
+                throw new ManagerSaveException("Ошибка при обрезке журнала " + path, e);
+            }
+        }
+        return scan.count;
+    }
+
+    // Читает зафиксированные группы сегмента. Оборванный хвост не передаётся, его обрезает вызывающий.
+    private static SegmentScan scanSegment(Path segment, long afterLsn, Consumer<List<String>> consumer) {
+        byte[] data;
+        try {
+            data = Files.readAllBytes(segment);
+        } catch (IOException e) {
+            throw new ManagerSaveException("Ошибка при чтении журнала " + segment, e);
+        }
+
+        SegmentScan scan = new SegmentScan();
+        int offset = 0;
+        List<String> group = new ArrayList<>();
+        long groupLsn = -1;
+        while (offset < data.length) {
+            Record record = readRecord(data, offset);
+            if (record == null) {
+                // Оборванной может быть только последняя запись: если после неё есть целые,
+                // журнал испорчен, и отбрасывать зафиксированные после неё изменения нельзя
+                if (hasRecordAfter(data, offset)) {
+                    throw new ManagerSaveException("Повреждена запись журнала " + segment + " на позиции " + offset);
+                }
+                break;
+            }
+            offset = record.end;
+            if (record.lsn != groupLsn) {
+                group.clear();
+                groupLsn = record.lsn;
+            }
+            if (!record.data.equals(COMMIT)) {
+                group.add(record.data);
+                continue;
+            }
+
+            // Группа зафиксирована
+            if (record.lsn > afterLsn) {
+                consumer.accept(List.copyOf(group));
+            }
+            scan.count += group.size();
+            scan.lastLsn = Math.max(scan.lastLsn, record.lsn);
+            scan.validLength = offset;
+            group.clear();
+        }
+        return scan;
+    }
+
+    private static void writeRecord(ByteArrayOutputStream out, long lsn, String record) {
+        byte[] data = record.getBytes(StandardCharsets.UTF_8);
+        byte[] header = (lsn + "," + data.length + ",").getBytes(StandardCharsets.UTF_8);
+        out.writeBytes(header);
+        out.writeBytes((checksum(header, 0, header.length, data, 0, data.length) + ",")
+                .getBytes(StandardCharsets.UTF_8));
+        out.writeBytes(data);
+        out.write('\n');
+    }
+
+    // Читает запись с позиции offset. Возвращает null, если запись неполная или повреждена.
+    private static Record readRecord(byte[] data, int offset) {
+        int[] position = {offset};
+        long lsn = readNumber(data, position);
+        long length = readNumber(data, position);
+        int headerEnd = position[0];
+        long crc = readNumber(data, position);
+        if (lsn < 0 || length < 0 || crc < 0 || length > data.length - position[0] - 1) {
+            return null;
+        }
+        int dataStart = position[0];
+        int dataEnd = dataStart + (int) length;
+        if (data[dataEnd] != '\n'
+                || checksum(data, offset, headerEnd - offset, data, dataStart, (int) length) != crc) {
+            return null;
+        }
+        return new Record(lsn, new String(data, dataStart, (int) length, StandardCharsets.UTF_8), dataEnd + 1);
+    }
+
+    // Читает неотрицательное число, завершённое запятой, и сдвигает позицию за запятую. -1 - числа нет.
+    private static long readNumber(byte[] data, int[] position) {
+        long value = 0;
+        int digits = 0;
+        int i = position[0];
+        while (i < data.length && data[i] >= '0' && data[i] <= '9' && digits < 19) {
+            value = value * 10 + (data[i] - '0');
+            digits++;
+            i++;
+        }
+        if (digits == 0 || i >= data.length || data[i] != ',') {
+            return -1;
+        }
+        position[0] = i + 1;
+        return value;
+    }
+
+    private static long checksum(byte[] header, int headerOffset, int headerLength, byte[] data, int dataOffset,
+                                 int dataLength) {
+        CRC32 crc = new CRC32();
+        crc.update(header, headerOffset, headerLength);
+        crc.update(data, dataOffset, dataLength);
+        return crc.getValue();
+    }
+
+    // Есть ли целая запись, начинающаяся с новой строки после позиции offset
+    private static boolean hasRecordAfter(byte[] data, int offset) {
+        for (int i = offset + 1; i < data.length; i++) {
+            if (data[i - 1] == '\n' && readRecord(data, i) != null) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // Дожидается записи всех фиксаций из очереди, останавливает поток записи и закрывает файл.
+    // Следующая фиксация снова запустит поток записи.
+    @Override
+    public void close() {
+        Thread currentWriter;
+        lock.lock();
+        try {
+            closing = true;
+            commitsQueued.signalAll();
+            currentWriter = writer;
+        } finally {
+            lock.unlock();
+        }
+
+        if (currentWriter != null) {
+            boolean interrupted = false;
+            while (currentWriter.isAlive()) {
+                try {
+                    currentWriter.join();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        lock.lock();
+        try {
+            closing = false;
+            awaitWriterIdle();
+            closeChannel();
+        } catch (IOException e) {
+            throw new ManagerSaveException("Ошибка при закрытии журнала " + path, e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void closeChannel() throws IOException {
+        if (channel != null) {
+            channel.close();
+            channel = null;
+        }
+    }
+
+    private List<Path> getClosedSegments() {
+        Path directory = path.toAbsolutePath().getParent();
+        String prefix = path.getFileName() + ".";
+        List<Path> segments = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, prefix + "*")) {
+            for (Path segment : stream) {
+                if (getSegmentLsn(segment) >= 0) {
+                    segments.add(segment);
+                }
+            }
+        } catch (IOException e) {
+            throw new ManagerSaveException("Ошибка при чтении сегментов журнала " + path, e);
+        }
+        // Сегменты повторяются в порядке номеров фиксаций
+        segments.sort(Comparator.comparingLong(this::getSegmentLsn));
+        return segments;
+    }
+
+    private Path getClosedSegmentPath(long lsn) {
+        return path.resolveSibling(path.getFileName() + "." + lsn);
+    }
+
+    private long getSegmentLsn(Path segment) {
+        String suffix = segment.getFileName().toString().substring(path.getFileName().toString().length() + 1);
+        try {
+            return Long.parseLong(suffix);
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private FileChannel getChannel() throws IOException {
+        if (channel == null) {
+            channel = newChannel(path);
+        }
+        return channel;
+    }
+
+    // Открывает активный сегмент на дозапись. Тесты подменяют канал, чтобы проверить ошибки записи.
+    FileChannel newChannel(Path segment) throws IOException {
+        return FileChannel.open(segment, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.APPEND);
+    }
+
+    // Ошибка записи группы, после которой недописанные байты обрезаны
+    private static class PartialWriteException extends IOException {
+
+        private PartialWriteException(IOException cause) {
+            super(cause.getMessage(), cause);
+        }
+    }
+
+    // Итог чтения сегмента: число записей, последняя фиксация и длина целой части
+    private static class SegmentScan {
+
+        private long count;
+        private long lastLsn;
+        private int validLength;
+    }
+
+    private static class Record {
+
+        private final long lsn;
+        private final String data;
+        // Позиция следующей записи
+        private final int end;
+
+        private Record(long lsn, String data, int end) {
+            this.lsn = lsn;
+            this.data = data;
+            this.end = end;
+        }
+    }
+
+    private static class Commit {
+
+        private final long lsn;
+        private final ByteBuffer data;
+        private final CompletableFuture<Long> durable = new CompletableFuture<>();
+
+        private Commit(long lsn, ByteBuffer data) {
+            this.lsn = lsn;
+            this.data = data;
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package ru.yandex.practicum.scheduler.managers.queries;
+
+import java.time.LocalDateTime;
+import ru.yandex.practicum.scheduler.models.Subtask;
+import ru.yandex.practicum.scheduler.models.Task;
+import ru.yandex.practicum.scheduler.models.enums.StatusTypes;
+
+// Параметры постраничного запроса списка сущностей.
+// Страница идёт в порядке ИД, а список приоритетов и задачи или подзадачи с интервалом from-to без epicId -
+// в порядке времени начала и ИД. after - ИД последней сущности предыдущей страницы, страница начинается
+// со следующей за ней. В порядке времени позицию курсора задаёт и afterStart - время начала этой сущности:
+// тогда страница находится, даже если сущность-курсор уже удалена. Без afterStart время берётся у сущности after.
+// Пустые параметры не ограничивают выборку.
+public class TaskQuery {
+
+    private int limit = Integer.MAX_VALUE;
+    private Integer after;
+    private LocalDateTime afterStart;
+    private StatusTypes status;
+    // Время начала в полуинтервале [from, to)
+    private LocalDateTime from;
+    private LocalDateTime to;
+    private Integer epicId;
+
+    public int getLimit() {
+        return limit;
+    }
+
+    public TaskQuery setLimit(int limit) {
+        if (limit < 1) {
+            throw new IllegalArgumentException("Размер страницы должен быть положительным");
+        }
+        this.limit = limit;
+        return this;
+    }
+
+    public Integer getAfter() {
+        return after;
+    }
+
+    public TaskQuery setAfter(Integer after) {
+        this.after = after;
+        return this;
+    }
+
+    public LocalDateTime getAfterStart() {
+        return afterStart;
+    }
+
+    public TaskQuery setAfterStart(LocalDateTime afterStart) {
+        this.afterStart = afterStart;
+        return this;
+    }
+
+    public StatusTypes getStatus() {
+        return status;
+    }
+
+    public TaskQuery setStatus(StatusTypes status) {
+        this.status = status;
+        return this;
+    }
+
+    public LocalDateTime getFrom() {
+        return from;
+    }
+
+    public TaskQuery setFrom(LocalDateTime from) {
+        this.from = from;
+        return this;
+    }
+
+    public LocalDateTime getTo() {
+        return to;
+    }
+
+    public TaskQuery setTo(LocalDateTime to) {
+        this.to = to;
+        return this;
+    }
+
+    public Integer getEpicId() {
+        return epicId;
+    }
+
+    public TaskQuery setEpicId(Integer epicId) {
+        this.epicId = epicId;
+        return this;
+    }
+
+    public boolean hasTimeRange() {
+        return from != null || to != null;
+    }
+
+    // Проверяет фильтры статуса, времени начала и эпика. Курсор и размер страницы учитывает вызывающий.
+    public boolean matches(Task task) {
+        if (status != null && task.getStatus() != status) {
+            return false;
+        }
+        if (hasTimeRange()) {
+            LocalDateTime startTime = task.getStartTime();
+            if (startTime == null || from != null && startTime.isBefore(from)
+                    || to != null && !startTime.isBefore(to)) {
+                return false;
+            }
+        }
+        return epicId == null || task instanceof Subtask subtask && epicId.equals(subtask.getEpicId());
+    }
+}
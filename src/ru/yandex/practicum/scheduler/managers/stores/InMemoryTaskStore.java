@@ -0,0 +1,298 @@
+package ru.yandex.practicum.scheduler.managers.stores;
+
+import java.time.LocalDateTime;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.SortedSet;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+import ru.yandex.practicum.scheduler.managers.collections.IntObjectHashMap;
+import ru.yandex.practicum.scheduler.managers.indexes.IdIndex;
+import ru.yandex.practicum.scheduler.managers.indexes.IntervalIndex;
+import ru.yandex.practicum.scheduler.managers.interfaces.TaskStore;
+import ru.yandex.practicum.scheduler.models.Task;
+import ru.yandex.practicum.scheduler.models.enums.TaskTypes;
+
+// Хранилище в памяти: сущности каждого типа - в хеш-таблице по ИД,
+// временная шкала - в TreeSet и индексе интервалов.
+// Порядок TreeSet задаётся временем начала и ИД задачи на момент добавления, а не её текущим временем:
+// время задачи может измениться на месте, и удаление по текущему времени не нашло бы её в дереве.
+public class InMemoryTaskStore implements TaskStore {
+
+    private final Map<TaskTypes, Map<Integer, Task>> entities = new EnumMap<>(TaskTypes.class);
+    // ИД каждого типа по возрастанию для постраничного обхода
+    private final Map<TaskTypes, IdIndex> idIndexes = new EnumMap<>(TaskTypes.class);
+    private final TreeSet<TimelineEntry> prioritizedTasks = new TreeSet<>();
+    // Записи шкалы по ИД задачи для удаления по сохранённому ключу
+    private final Map<Integer, TimelineEntry> timelineEntries = new IntObjectHashMap<>();
+    private final IntervalIndex intervalIndex = new IntervalIndex();
+
+    public InMemoryTaskStore() {
+        this(IntObjectHashMap::new);
+    }
+
+    private InMemoryTaskStore(Supplier<Map<Integer, Task>> storageFactory) {
+        for (TaskTypes type : TaskTypes.values()) {
+            entities.put(type, storageFactory.get());
+            idIndexes.put(type, new IdIndex());
+        }
+    }
+
+    // Хранилище на ConcurrentHashMap: получение по ИД и списков не блокируется.
+    // Временную шкалу вызывающий защищает сам.
+    public static InMemoryTaskStore concurrent() {
+        return new InMemoryTaskStore(ConcurrentHashMap::new);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T extends Task> T get(TaskTypes type, Integer id) {
+        return id == null ? null : (T) entities.get(type).get(id);
+    }
+
+    @Override
+    public boolean contains(TaskTypes type, Integer id) {
+        return id != null && entities.get(type).containsKey(id);
+    }
+
+    @Override
+    public void put(Task task) {
+        if (entities.get(task.getType()).put(task.getId(), task) == null) {
+            idIndexes.get(task.getType()).add(task.getId());
+        }
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T extends Task> T remove(TaskTypes type, Integer id) {
+        T removed = id == null ? null : (T) entities.get(type).remove(id);
+        if (removed != null) {
+            idIndexes.get(type).remove(id);
+        }
+        return removed;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T extends Task> Collection<T> scan(TaskTypes type) {
+        return (Collection<T>) entities.get(type).values();
+    }
+
+    // Обход по индексу ИД: пропущенные курсором ИД находятся двоичным поиском, а не перебором
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T extends Task> void walk(TaskTypes type, int afterId, Predicate<? super T> action) {
+        Map<Integer, Task> storage = entities.get(type);
+        idIndexes.get(type).forEachAfter(afterId, id -> {
+            T entity = (T) storage.get(id);
+            // Сущность могла быть удалена после чтения ИД из индекса
+            return entity == null || action.test(entity);
+        });
+    }
+
+    @Override
+    public int size(TaskTypes type) {
+        return entities.get(type).size();
+    }
+
+    @Override
+    public void clear(TaskTypes type) {
+        entities.get(type).clear();
+        idIndexes.get(type).clear();
+    }
+
+    @Override
+    public void addToTimeline(Task task) {
+        // Предыдущая версия задачи с тем же ИД заменяется
+        removeEntry(task.getId());
+        TimelineEntry entry = new TimelineEntry(task);
+        prioritizedTasks.add(entry);
+        timelineEntries.put(entry.id, entry);
+        intervalIndex.add(task);
+    }
+
+    // Задачи сортируются один раз, после чего пустые список приоритетов и индекс интервалов
+    // строятся из упорядоченного списка за линейное время
+    @Override
+    public void addAllToTimeline(Collection<? extends Task> tasks) {
+        if (!prioritizedTasks.isEmpty() || !intervalIndex.isEmpty()) {
+            tasks.forEach(this::addToTimeline);
+            return;
+        }
+
+        List<TimelineEntry> sortedEntries = new ArrayList<>(tasks.size());
+        for (Task task : tasks) {
+            sortedEntries.add(new TimelineEntry(task));
+        }
+        sortedEntries.sort(null);
+        List<Task> sortedTasks = new ArrayList<>(sortedEntries.size());
+        for (TimelineEntry entry : sortedEntries) {
+            timelineEntries.put(entry.id, entry);
+            sortedTasks.add(entry.task);
+        }
+        prioritizedTasks.addAll(new SortedListSet(sortedEntries));
+        // Задачи без времени начала индекс интервалов пропускает сам
+        intervalIndex.addAllSorted(sortedTasks);
+    }
+
+    @Override
+    public void removeFromTimeline(Task task) {
+        // Удаляем по ИД: время переданной и сохранённой версии задачи могло измениться
+        intervalIndex.remove(task.getId());
+        removeEntry(task.getId());
+    }
+
+    private void removeEntry(int id) {
+        TimelineEntry entry = timelineEntries.remove(id);
+        if (entry != null) {
+            prioritizedTasks.remove(entry);
+        }
+    }
+
+    @Override
+    public List<Task> getTimeline() {
+        List<Task> timeline = new ArrayList<>(prioritizedTasks.size());
+        for (TimelineEntry entry : prioritizedTasks) {
+            timeline.add(entry.task);
+        }
+        return timeline;
+    }
+
+    @Override
+    public void forEachInTimeline(Consumer<? super Task> action) {
+        for (TimelineEntry entry : prioritizedTasks) {
+            action.accept(entry.task);
+        }
+    }
+
+    @Override
+    public void walkTimeline(LocalDateTime start, int afterId, Predicate<? super Task> action) {
+        intervalIndex.walkAfter(start, afterId, action);
+    }
+
+    @Override
+    public List<Task> range(LocalDateTime from, LocalDateTime to) {
+        List<Task> result = new ArrayList<>();
+        intervalIndex.findOverlaps(from, to, result::add);
+        return result;
+    }
+
+    @Override
+    public Task findOverlap(LocalDateTime from, LocalDateTime to, Integer ignoredId) {
+        return intervalIndex.findOverlap(from, to, ignoredId);
+    }
+
+    @Override
+    public Task findOverlapIgnoring(LocalDateTime from, LocalDateTime to, Set<Integer> ignoredIds) {
+        return intervalIndex.findOverlapIgnoring(from, to, ignoredIds::contains);
+    }
+
+    @Override
+    public int intervalCount() {
+        return intervalIndex.size();
+    }
+
+    @Override
+    public boolean hasInterval(Integer id) {
+        return id != null && intervalIndex.contains(id);
+    }
+
+    @Override
+    public void clearTimeline() {
+        prioritizedTasks.clear();
+        timelineEntries.clear();
+        intervalIndex.clear();
+    }
+
+    // Задача шкалы с временем начала и ИД на момент добавления. Задачи без времени начала идут в конце.
+    private static final class TimelineEntry implements Comparable<TimelineEntry> {
+
+        private static final Comparator<TimelineEntry> ORDER = Comparator
+                .comparing((TimelineEntry entry) -> entry.start, Comparator.nullsLast(Comparator.naturalOrder()))
+                .thenComparingInt(entry -> entry.id);
+
+        private final Task task;
+        private final LocalDateTime start;
+        private final int id;
+
+        private TimelineEntry(Task task) {
+            this.task = task;
+            this.start = task.getStartTime();
+            this.id = task.getId();
+        }
+
+        @Override
+        public int compareTo(TimelineEntry o) {
+            return ORDER.compare(this, o);
+        }
+    }
+
+    // Уже упорядоченный список записей шкалы без повторов в виде SortedSet.
+    // TreeSet.addAll строит из такого набора пустое дерево за O(n) без сравнений и поднаборы не запрашивает,
+    // поэтому они не поддерживаются.
+    private static final class SortedListSet extends AbstractSet<TimelineEntry> implements SortedSet<TimelineEntry> {
+
+        private final List<TimelineEntry> elements;
+
+        private SortedListSet(List<TimelineEntry> sortedElements) {
+            this.elements = sortedElements;
+        }
+
+        @Override
+        public Iterator<TimelineEntry> iterator() {
+            return elements.iterator();
+        }
+
+        @Override
+        public int size() {
+            return elements.size();
+        }
+
+        @Override
+        public Comparator<? super TimelineEntry> comparator() {
+            return null;
+        }
+
+        @Override
+        public TimelineEntry first() {
+            if (elements.isEmpty()) {
+                throw new NoSuchElementException();
+            }
+            return elements.get(0);
+        }
+
+        @Override
+        public TimelineEntry last() {
+            if (elements.isEmpty()) {
+                throw new NoSuchElementException();
+            }
+            return elements.get(elements.size() - 1);
+        }
+
+        @Override
+        public SortedSet<TimelineEntry> subSet(TimelineEntry fromElement, TimelineEntry toElement) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public SortedSet<TimelineEntry> headSet(TimelineEntry toElement) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public SortedSet<TimelineEntry> tailSet(TimelineEntry fromElement) {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
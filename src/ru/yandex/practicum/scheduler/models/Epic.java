@@ -1,16 +1,26 @@
 package ru.yandex.practicum.scheduler.models;
 
 import java.time.LocalDateTime;
-import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
+import java.util.NavigableSet;
+import java.util.TreeSet;
 import ru.yandex.practicum.scheduler.models.enums.StatusTypes;
 import ru.yandex.practicum.scheduler.models.enums.TaskTypes;
 
 public class Epic extends Task {
 
-    private final List<Integer> subtaskIds = new ArrayList<>();
+    // ИД подзадач в порядке возрастания: добавление и удаление за O(log k),
+    // страница подзадач начинается с курсора без сортировки всего списка
+    private final TreeSet<Integer> subtaskIds = new TreeSet<>();
     private LocalDateTime endTime;
 
+    // Используется Gson при десериализации, чтобы список подзадач был инициализирован
+    private Epic() {
+        this.type = TaskTypes.EPIC;
+    }
+
     public Epic(String name, String description) {
         super(name, description);
         this.type = TaskTypes.EPIC;
@@ -22,33 +32,32 @@ public class Epic extends Task {
     }
 
     public List<Integer> getSubtaskIds() {
-        return subtaskIds;
+        return List.copyOf(subtaskIds);
+    }
+
+    // ИД подзадач, больших afterId, в порядке возрастания. Представление набора, а не копия.
+    public NavigableSet<Integer> getSubtaskIdsAfter(int afterId) {
+        return Collections.unmodifiableNavigableSet(subtaskIds.tailSet(afterId, false));
     }
 
     public void addSubtask(Integer subtaskId) {
         if (subtaskId != null) {
-            int index = subtaskIds.indexOf(subtaskId);
-            if (index == -1) {
-                subtaskIds.add(subtaskId);
-            }
+            subtaskIds.add(subtaskId);
         }
     }
 
-    public void updateSubtask(Integer subtaskId) {
-        if (subtaskId != null) {
-            int index = subtaskIds.indexOf(subtaskId);
-
-            if (index != -1) {
-                subtaskIds.set(index, subtaskId);
-            }
+    public void addSubtasks(Collection<Integer> subtaskIds) {
+        for (Integer subtaskId : subtaskIds) {
+            addSubtask(subtaskId);
         }
     }
 
+    public void updateSubtask(Integer subtaskId) {
+        // Эпик хранит только ИД подзадачи, который при обновлении не меняется
+    }
+
     public void deleteSubtask(Subtask subtask) {
-        int index = subtaskIds.indexOf(subtask.getId());
-        if (index != -1) {
-            subtaskIds.remove(index);
-        }
+        subtaskIds.remove(subtask.getId());
     }
 
     public void clearSubtasks() {
@@ -0,0 +1,11 @@
+package ru.yandex.practicum.scheduler.servers.http;
+
+// Потоки, в которых сервер выполняет обработчики запросов
+public enum ExecutorTypes {
+    // Поток диспетчера HttpServer: запросы выполняются по одному. Подходит для менеджера без синхронизации.
+    SAME_THREAD,
+    // Отдельный виртуальный поток на каждый запрос
+    VIRTUAL_THREADS,
+    // Ограниченный пул платформенных потоков
+    FIXED_POOL
+}
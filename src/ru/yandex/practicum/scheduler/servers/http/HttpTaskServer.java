@@ -7,8 +7,15 @@ import java.io.IOException;
 import java.net.InetSocketAddress;
 import java.time.Duration;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import ru.yandex.practicum.scheduler.managers.FileBackedTaskManager;
 import ru.yandex.practicum.scheduler.managers.Managers;
 import ru.yandex.practicum.scheduler.managers.interfaces.TaskManager;
+import ru.yandex.practicum.scheduler.servers.http.handlers.BaseHttpHandler;
 import ru.yandex.practicum.scheduler.servers.http.handlers.EpicHttpHandler;
 import ru.yandex.practicum.scheduler.servers.http.handlers.HistoryHttpHandler;
 import ru.yandex.practicum.scheduler.servers.http.handlers.PrioritizedHttpHandler;
@@ -20,36 +27,96 @@ import ru.yandex.practicum.scheduler.servers.http.typeadapters.LocalDateTimeType
 public class HttpTaskServer {
 
     private static final int PORT = 8080;
+    // Очередь соединений, ещё не принятых сервером
+    public static final int DEFAULT_BACKLOG = 256;
     private final HttpServer httpServer;
-    private final TaskManager taskManager = Managers.getDefault();
+    private final TaskManager taskManager;
+    // Компактный вывод по умолчанию и вывод с отступами по запросу клиента (?pretty=true
+    // или Accept: application/json;pretty=true). Оба экземпляра создаются один раз.
     private final Gson gson;
+    private final Gson prettyGson;
+    private final List<BaseHttpHandler> handlers = new ArrayList<>();
+    // Потоки обработчиков. null - обработчики выполняются в потоке диспетчера.
+    private final ExecutorService executor;
 
+    // Сервер с потокобезопасным менеджером в памяти и виртуальным потоком на запрос.
+    // Менеджер не должен привязывать состояние к потоку: каждый запрос выполняется в новом потоке.
     public HttpTaskServer() throws IOException {
+        this(Managers.getConcurrent(), ExecutorTypes.VIRTUAL_THREADS);
+    }
+
+    // Обработчики выполняются в потоке диспетчера, поэтому менеджер может быть не потокобезопасным
+    public HttpTaskServer(TaskManager taskManager) throws IOException {
+        this(taskManager, ExecutorTypes.SAME_THREAD);
+    }
+
+    // Пул FIXED_POOL получает по потоку на ядро
+    public HttpTaskServer(TaskManager taskManager, ExecutorTypes executorType) throws IOException {
+        this(taskManager, executorType, Runtime.getRuntime().availableProcessors(), DEFAULT_BACKLOG);
+    }
+
+    // Обработчики отвечают после возврата из метода менеджера. Для менеджера с сохранением в файл
+    // это значит, что ответ 201 отправляется только после сохранения изменения, если у менеджера
+    // не включена отложенная запись.
+    // При VIRTUAL_THREADS и FIXED_POOL методы менеджера вызываются из нескольких потоков одновременно,
+    // поэтому менеджер должен быть потокобезопасным: ConcurrentTaskManager или FileBackedTaskManager.
+    // poolSize используется только для FIXED_POOL.
+    public HttpTaskServer(TaskManager taskManager, ExecutorTypes executorType, int poolSize, int backlog)
+            throws IOException {
+        if (executorType == null) {
+            throw new IllegalArgumentException("Тип исполнителя не может быть null");
+        }
+        if (poolSize < 1) {
+            throw new IllegalArgumentException("Размер пула должен быть положительным");
+        }
+        if (backlog < 0) {
+            throw new IllegalArgumentException("Очередь соединений не может быть отрицательной");
+        }
+        this.taskManager = taskManager;
         // Создаём и настраиваем Gson
         this.gson = configureGson();
+        this.prettyGson = gson.newBuilder().setPrettyPrinting().create();
         // Создаём сервер
-        this.httpServer = HttpServer.create(new InetSocketAddress(PORT), 0);
+        this.httpServer = HttpServer.create(new InetSocketAddress(PORT), backlog);
+        this.executor = createExecutor(executorType, poolSize);
+        this.httpServer.setExecutor(executor);
         // Добавляем точку входа /tasks
-        this.httpServer.createContext("/tasks", new TaskHttpHandler(taskManager, gson));
+        addContext("/tasks", new TaskHttpHandler(taskManager, gson, prettyGson));
         // Добавляем точку входа /subtasks
-        this.httpServer.createContext("/subtasks", new SubtaskHttpHandler(taskManager, gson));
+        addContext("/subtasks", new SubtaskHttpHandler(taskManager, gson, prettyGson));
         // Добавляем точку входа /epics
-        this.httpServer.createContext("/epics", new EpicHttpHandler(taskManager, gson));
+        addContext("/epics", new EpicHttpHandler(taskManager, gson, prettyGson));
         // Добавляем точку входа /history
-        this.httpServer.createContext("/history", new HistoryHttpHandler(taskManager, gson));
+        addContext("/history", new HistoryHttpHandler(taskManager, gson, prettyGson));
         // Добавляем точку входа /prioritized
-        this.httpServer.createContext("/prioritized", new PrioritizedHttpHandler(taskManager, gson));
+        addContext("/prioritized", new PrioritizedHttpHandler(taskManager, gson, prettyGson));
     }
 
     public static void main(String[] args) throws IOException {
+        // Заголовки и тело ответа отправляются отдельными записями. Без TCP_NODELAY вторая запись ждёт
+        // отложенного подтверждения клиента, и каждый запрос задерживается примерно на 40 мс.
+        System.setProperty("sun.net.httpserver.nodelay", "true");
         HttpTaskServer server = new HttpTaskServer();
         server.start();
     }
 
+    private static ExecutorService createExecutor(ExecutorTypes executorType, int poolSize) {
+        return switch (executorType) {
+            case SAME_THREAD -> null;
+            case VIRTUAL_THREADS -> Executors.newThreadPerTaskExecutor(
+                    Thread.ofVirtual().name("http-handler-", 0).factory());
+            case FIXED_POOL -> Executors.newFixedThreadPool(poolSize,
+                    Thread.ofPlatform().name("http-handler-", 0).daemon().factory());
+        };
+    }
+
+    private void addContext(String path, BaseHttpHandler handler) {
+        httpServer.createContext(path, handler);
+        handlers.add(handler);
+    }
+
     private Gson configureGson() {
         return new GsonBuilder()
-                // Включаем форматирование вывода.
-                .setPrettyPrinting()
                 // Включаем сериализацию пустых значений.
                 .serializeNulls()
                 // Подключаем адаптеры
@@ -65,15 +132,41 @@ public class HttpTaskServer {
         return gson;
     }
 
+    public Gson getPrettyGson() {
+        return prettyGson;
+    }
+
     public TaskManager getTaskManager() {
         return taskManager;
     }
 
+    // Ответы длиннее порога сжимаются, если клиент передал Accept-Encoding: gzip или deflate.
+    // По умолчанию порог BaseHttpHandler.DEFAULT_COMPRESSION_THRESHOLD байт, null отключает сжатие ответов.
+    // Сжатые тела запросов (Content-Encoding) принимаются всегда.
+    public void setCompressionThreshold(Integer compressionThreshold) {
+        for (BaseHttpHandler handler : handlers) {
+            handler.setCompressionThreshold(compressionThreshold);
+        }
+    }
+
     public void start() {
         httpServer.start();
     }
 
+    // Дожидается завершения начатых обработчиков и сохраняет изменения,
+    // накопленные менеджером с отложенной записью
     public void stop() {
         httpServer.stop(1);
+        if (executor != null) {
+            executor.shutdown();
+            try {
+                executor.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        if (taskManager instanceof FileBackedTaskManager fileBackedTaskManager) {
+            fileBackedTaskManager.flush();
+        }
     }
 }
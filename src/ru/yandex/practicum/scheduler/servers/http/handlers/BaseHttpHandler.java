@@ -2,48 +2,256 @@ package ru.yandex.practicum.scheduler.servers.http.handlers;
 
 import com.google.gson.Gson;
 import com.google.gson.JsonObject;
+import com.google.gson.stream.JsonWriter;
 import com.sun.net.httpserver.HttpExchange;
 import com.sun.net.httpserver.HttpHandler;
-import java.io.BufferedReader;
+import java.io.BufferedOutputStream;
+import java.io.BufferedWriter;
 import java.io.IOException;
-import java.io.InputStreamReader;
+import java.io.InputStream;
 import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.net.URLDecoder;
 import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
+import ru.yandex.practicum.scheduler.exceptions.BadRequestException;
+import ru.yandex.practicum.scheduler.exceptions.UnsupportedMediaTypeException;
 import ru.yandex.practicum.scheduler.managers.interfaces.TaskManager;
+import ru.yandex.practicum.scheduler.managers.persistence.CompressionTypes;
+import ru.yandex.practicum.scheduler.managers.persistence.SnapshotCompression;
+import ru.yandex.practicum.scheduler.managers.queries.TaskQuery;
+import ru.yandex.practicum.scheduler.models.Task;
+import ru.yandex.practicum.scheduler.models.enums.StatusTypes;
 
 public abstract class BaseHttpHandler implements HttpHandler {
 
+    // Ответы короче порога сжатие почти не уменьшает, а время на него тратится
+    public static final int DEFAULT_COMPRESSION_THRESHOLD = 1024;
+    // Предел тела запроса после распаковки: небольшое сжатое тело может распаковаться в гигабайты
+    public static final int MAX_REQUEST_BODY_SIZE = 32 * 1024 * 1024;
+    private static final String PRETTY_PARAMETER = "pretty";
+    private static final int COMPRESSION_DISABLED = -1;
+    private static final Set<String> QUERY_PARAMETERS = Set.of("limit", "after", "afterStart", "status", "from", "to",
+            "epicId");
+
+    // Компактный вывод по умолчанию, он же разбирает тела запросов
     protected final Gson gson;
+    // Вывод с отступами по запросу клиента
+    protected final Gson prettyGson;
     protected TaskManager taskManager;
+    private volatile int compressionThreshold = DEFAULT_COMPRESSION_THRESHOLD;
 
-    public BaseHttpHandler(TaskManager taskManager, Gson gson) {
+    public BaseHttpHandler(TaskManager taskManager, Gson gson, Gson prettyGson) {
         this.taskManager = taskManager;
         this.gson = gson;
+        this.prettyGson = prettyGson;
+    }
+
+    // Вывод с отступами включается параметром запроса pretty=true или параметром типа в заголовке
+    // Accept: application/json;pretty=true. Параметр запроса важнее заголовка.
+    protected Gson gsonFor(HttpExchange exchange) {
+        return isPrettyRequested(exchange) ? prettyGson : gson;
+    }
+
+    private static boolean isPrettyRequested(HttpExchange exchange) {
+        String query = exchange.getRequestURI().getRawQuery();
+        if (query != null) {
+            for (String parameter : query.split("&")) {
+                String[] pair = parameter.split("=", 2);
+                if (pair[0].equals(PRETTY_PARAMETER)) {
+                    return pair.length == 1 || Boolean.parseBoolean(pair[1]);
+                }
+            }
+        }
+        for (String accept : exchange.getRequestHeaders().getOrDefault("Accept", List.of())) {
+            // Перебираем типы заголовка и их параметры: application/json;pretty=true, */*;q=0.5
+            for (String mediaRange : accept.split(",")) {
+                String[] parts = mediaRange.split(";");
+                for (int i = 1; i < parts.length; i++) {
+                    String[] pair = parts[i].trim().split("=", 2);
+                    if (pair.length == 2 && pair[0].trim().equalsIgnoreCase(PRETTY_PARAMETER)) {
+                        return Boolean.parseBoolean(pair[1].trim());
+                    }
+                }
+            }
+        }
+        return false;
+    }
+
+    // Параметры постраничного запроса списка: limit, after, status, from, to и epicId.
+    // Время принимается в формате задач (HH:mm dd.MM.yyyy) или ISO. Если параметров нет, возвращает null,
+    // и список отправляется целиком. Неверное значение параметра - BadRequestException.
+    protected static TaskQuery getTaskQuery(HttpExchange exchange) {
+        String rawQuery = exchange.getRequestURI().getRawQuery();
+        if (rawQuery == null) {
+            return null;
+        }
+        TaskQuery query = null;
+        for (String parameter : rawQuery.split("&")) {
+            String[] pair = parameter.split("=", 2);
+            if (pair.length < 2 || !QUERY_PARAMETERS.contains(pair[0])) {
+                continue;
+            }
+            String value = URLDecoder.decode(pair[1], StandardCharsets.UTF_8).trim();
+            if (query == null) {
+                query = new TaskQuery();
+            }
+            try {
+                switch (pair[0]) {
+                    case "limit" -> query.setLimit(Integer.parseInt(value));
+                    case "after" -> query.setAfter(Integer.parseInt(value));
+                    case "afterStart" -> query.setAfterStart(parseDateTime(value));
+                    case "status" -> query.setStatus(StatusTypes.valueOf(value.toUpperCase()));
+                    case "from" -> query.setFrom(parseDateTime(value));
+                    case "to" -> query.setTo(parseDateTime(value));
+                    case "epicId" -> query.setEpicId(Integer.parseInt(value));
+                }
+            } catch (IllegalArgumentException | DateTimeParseException e) {
+                // Ошибка в параметрах - ошибка клиента, а не сервера
+                throw new BadRequestException("Неверное значение параметра " + pair[0] + ": " + value);
+            }
+        }
+        return query;
+    }
+
+    private static LocalDateTime parseDateTime(String value) {
+        try {
+            return LocalDateTime.parse(value, Task.getFormatter());
+        } catch (DateTimeParseException e) {
+            return LocalDateTime.parse(value);
+        }
     }
 
     protected void sendText(HttpExchange exchange, int statusCode, String text) throws IOException {
+        // Если часть потокового ответа уже отправлена, ответить ошибкой нельзя. Исключение прерывает
+        // обработку, и сервер закрывает соединение, не завершив тело, поэтому клиент не примет
+        // обрезанный ответ за полный.
+        if (exchange.getResponseCode() != -1) {
+            throw new IOException("Ответ уже начат с кодом " + exchange.getResponseCode());
+        }
         // Получаем массив байт из сообщения.
         byte[] resp = text.getBytes(StandardCharsets.UTF_8);
-        // Устанавливаем заголовок.
-        exchange.getResponseHeaders().add("Content-Type", "application/json;charset=utf-8");
+        // Устанавливаем заголовки.
+        addResponseHeaders(exchange);
+        CompressionTypes encoding = negotiateEncoding(exchange);
 
-        try (OutputStream os = exchange.getResponseBody()) {
-            // Отправляем заголовок.
-            exchange.sendResponseHeaders(statusCode, resp.length);
-            // Отправляем сообщение.
-            os.write(resp);
+        if (encoding == CompressionTypes.NONE) {
+            try (OutputStream os = exchange.getResponseBody()) {
+                // Отправляем заголовок.
+                exchange.sendResponseHeaders(statusCode, resp.length);
+                // Отправляем сообщение.
+                os.write(resp);
+            }
+        } else {
+            // Поток сам отправит короткое сообщение без сжатия
+            try (OutputStream os = new CompressingResponseStream(exchange, statusCode, encoding,
+                    compressionThreshold)) {
+                os.write(resp);
+            }
         }
         exchange.close();
     }
 
+    // Отправляет массив JSON, сериализуя элементы по одному по мере обхода source.
+    // Ответ не собирается ни в строку, ни в массив байт: длина заранее неизвестна, поэтому тело
+    // передаётся частями (chunked), а в памяти находятся только буферы потока.
+    // Если клиент принимает сжатие, тело длиннее порога сжимается на лету, короткое отправляется как есть.
+    protected void sendJsonArray(HttpExchange exchange, int statusCode, ElementSource source)
+            throws IOException {
+        // Устанавливаем заголовки.
+        addResponseHeaders(exchange);
+        CompressionTypes encoding = negotiateEncoding(exchange);
+        // Без сжатия ответ передаётся частями с первого сброса буфера
+        OutputStream body = new CompressingResponseStream(exchange, statusCode, encoding,
+                encoding == CompressionTypes.NONE ? 0 : compressionThreshold);
+        // При ошибке обхода или записи writer не закрывается, чтобы не завершить обрезанное тело:
+        // обработчик попробует отправить ошибку, и если заголовки уже ушли, sendText выбросит исключение,
+        // а сервер закроет соединение.
+        // JsonWriter пишет ответ мелкими частями. BufferedWriter собирает их в буфер символов:
+        // OutputStreamWriter на каждую запись создаёт объект-обёртку над строкой.
+        Gson responseGson = gsonFor(exchange);
+        JsonWriter writer = responseGson.newJsonWriter(new BufferedWriter(new OutputStreamWriter(
+                new BufferedOutputStream(body), StandardCharsets.UTF_8)));
+        writer.beginArray();
+        // Сериализуем по фактическому типу элемента, как gson.toJson для списка.
+        source.forEach(element -> responseGson.toJson(element, element.getClass(), writer));
+        writer.endArray();
+        writer.close();
+        exchange.close();
+    }
+
+    // Размер тела ответа в байтах, начиная с которого ответ сжимается. null отключает сжатие ответов.
+    public void setCompressionThreshold(Integer compressionThreshold) {
+        if (compressionThreshold != null && compressionThreshold < 0) {
+            throw new IllegalArgumentException("Порог сжатия не может быть отрицательным");
+        }
+        this.compressionThreshold = compressionThreshold == null ? COMPRESSION_DISABLED : compressionThreshold;
+    }
+
+    private static void addResponseHeaders(HttpExchange exchange) {
+        exchange.getResponseHeaders().add("Content-Type", "application/json;charset=utf-8");
+        // Вид ответа зависит от заголовков Accept и Accept-Encoding, кешам нужно это учитывать
+        exchange.getResponseHeaders().add("Vary", "Accept, Accept-Encoding");
+    }
+
+    // Выбирает сжатие по заголовку Accept-Encoding: gzip, если клиент его принимает, иначе deflate.
+    // Кодировка с q=0 клиентом не принимается.
+    private CompressionTypes negotiateEncoding(HttpExchange exchange) {
+        if (compressionThreshold == COMPRESSION_DISABLED) {
+            return CompressionTypes.NONE;
+        }
+        boolean gzip = false;
+        boolean deflate = false;
+        for (String acceptEncoding : exchange.getRequestHeaders().getOrDefault("Accept-Encoding", List.of())) {
+            for (String coding : acceptEncoding.split(",")) {
+                String[] parts = coding.split(";");
+                String name = parts[0].trim().toLowerCase();
+                boolean accepted = true;
+                for (int i = 1; i < parts.length; i++) {
+                    String[] pair = parts[i].trim().split("=", 2);
+                    if (pair.length == 2 && pair[0].trim().equals("q")) {
+                        try {
+                            accepted = Double.parseDouble(pair[1].trim()) > 0;
+                        } catch (NumberFormatException e) {
+                            accepted = false;
+                        }
+                    }
+                }
+                switch (name) {
+                    case "gzip", "x-gzip" -> gzip = accepted;
+                    case "deflate" -> deflate = accepted;
+                    default -> {
+                    }
+                }
+            }
+        }
+        if (gzip) {
+            return CompressionTypes.GZIP;
+        }
+        return deflate ? CompressionTypes.DEFLATE : CompressionTypes.NONE;
+    }
+
+    protected void sendBadRequest(HttpExchange exchange, String text) throws IOException {
+        JsonObject jsonObject = new JsonObject();
+        // Добавляем текст ошибки.
+        jsonObject.addProperty("errorCode", 400);
+        jsonObject.addProperty("errorMessage", text);
+        // Отправляем ответ.
+        sendText(exchange, 400, gsonFor(exchange).toJson(jsonObject));
+    }
+
     protected void sendNotFound(HttpExchange exchange, String text) throws IOException {
         JsonObject jsonObject = new JsonObject();
         // Добавляем текст ошибки.
         jsonObject.addProperty("errorCode", 404);
         jsonObject.addProperty("errorMessage", text);
         // Отправляем ответ.
-        sendText(exchange, 404, gson.toJson(jsonObject));
+        sendText(exchange, 404, gsonFor(exchange).toJson(jsonObject));
     }
 
     protected void sendHasInteractions(HttpExchange exchange, String text) throws IOException {
@@ -52,7 +260,16 @@ public abstract class BaseHttpHandler implements HttpHandler {
         jsonObject.addProperty("errorCode", 406);
         jsonObject.addProperty("errorMessage", text);
         // Отправляем ответ.
-        sendText(exchange, 406, gson.toJson(jsonObject));
+        sendText(exchange, 406, gsonFor(exchange).toJson(jsonObject));
+    }
+
+    protected void sendUnsupportedMediaType(HttpExchange exchange, String text) throws IOException {
+        JsonObject jsonObject = new JsonObject();
+        // Добавляем текст ошибки.
+        jsonObject.addProperty("errorCode", 415);
+        jsonObject.addProperty("errorMessage", text);
+        // Отправляем ответ.
+        sendText(exchange, 415, gsonFor(exchange).toJson(jsonObject));
     }
 
     protected void sendInternalError(HttpExchange exchange, String text) throws IOException {
@@ -61,7 +278,7 @@ public abstract class BaseHttpHandler implements HttpHandler {
         jsonObject.addProperty("errorCode", 500);
         jsonObject.addProperty("errorMessage", text);
         // Отправляем ответ.
-        sendText(exchange, 500, gson.toJson(jsonObject));
+        sendText(exchange, 500, gsonFor(exchange).toJson(jsonObject));
     }
 
     protected String getRequestBody(HttpExchange exchange) throws IOException {
@@ -70,12 +287,50 @@ public abstract class BaseHttpHandler implements HttpHandler {
             // то возвращаем пустую строку.
             return "";
         } else {
-            // Иначе
-            try (BufferedReader br = new BufferedReader(
-                    new InputStreamReader(exchange.getRequestBody(), StandardCharsets.UTF_8))) {
-                // собираем тело запроса в строку с разделителем.
-                return br.lines().collect(Collectors.joining("\n"));
+            // Иначе распаковываем тело, если клиент его сжал,
+            byte[] body = readRequestBody(exchange.getRequestBody(), getContentEncoding(exchange));
+            // и собираем тело запроса в строку с разделителем.
+            return new String(body, StandardCharsets.UTF_8).lines().collect(Collectors.joining("\n"));
+        }
+    }
+
+    // Читает тело не длиннее MAX_REQUEST_BODY_SIZE после распаковки.
+    // Повреждённое сжатое тело - ошибка клиента, а не сервера.
+    private static byte[] readRequestBody(InputStream in, CompressionTypes compression) throws IOException {
+        byte[] body;
+        try (InputStream decompressed = SnapshotCompression.decompress(in, compression)) {
+            body = decompressed.readNBytes(MAX_REQUEST_BODY_SIZE + 1);
+        } catch (IOException e) {
+            if (compression == CompressionTypes.NONE) {
+                throw e;
             }
+            throw new BadRequestException("Не удалось распаковать тело запроса: " + e.getMessage());
+        }
+        if (body.length > MAX_REQUEST_BODY_SIZE) {
+            throw new BadRequestException("Тело запроса длиннее " + MAX_REQUEST_BODY_SIZE + " байт");
         }
+        return body;
+    }
+
+    // Сжатие тела запроса по заголовку Content-Encoding, например для загрузки большого пакета задач.
+    // Неизвестное сжатие - UnsupportedMediaTypeException.
+    private static CompressionTypes getContentEncoding(HttpExchange exchange) {
+        String contentEncoding = exchange.getRequestHeaders().getFirst("Content-Encoding");
+        if (contentEncoding == null) {
+            return CompressionTypes.NONE;
+        }
+        return switch (contentEncoding.trim().toLowerCase()) {
+            case "", "identity" -> CompressionTypes.NONE;
+            case "gzip", "x-gzip" -> CompressionTypes.GZIP;
+            case "deflate" -> CompressionTypes.DEFLATE;
+            default -> throw new UnsupportedMediaTypeException("Неподдерживаемое сжатие тела запроса: "
+                    + contentEncoding);
+        };
+    }
+
+    // Обход элементов ответа, например taskManager::forEachTask или список::forEach
+    @FunctionalInterface
+    protected interface ElementSource {
+        void forEach(Consumer<Object> action);
     }
-}
\ No newline at end of file
+}
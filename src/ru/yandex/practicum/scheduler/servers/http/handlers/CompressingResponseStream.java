@@ -0,0 +1,83 @@
+package ru.yandex.practicum.scheduler.servers.http.handlers;
+
+import com.sun.net.httpserver.HttpExchange;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import ru.yandex.practicum.scheduler.managers.persistence.CompressionTypes;
+import ru.yandex.practicum.scheduler.managers.persistence.SnapshotCompression;
+
+// Тело ответа, которое сжимается, только если оказалось больше порога.
+// Первые threshold байт копятся в буфере. Если ответ закончился раньше, он отправляется без сжатия
+// с известной длиной. Иначе заголовки отправляются с Content-Encoding, и тело передаётся частями
+// через поток сжатия, поэтому в памяти остаются только буфер до порога и буферы сжатия.
+// При ошибке поток не закрывают: начатое тело не должно выглядеть завершённым.
+final class CompressingResponseStream extends OutputStream {
+
+    private final HttpExchange exchange;
+    private final int statusCode;
+    private final CompressionTypes encoding;
+    private final int threshold;
+    // Начало тела, пока не решено, сжимать ли его. null после отправки заголовков.
+    private ByteArrayOutputStream head = new ByteArrayOutputStream();
+    private OutputStream out;
+
+    CompressingResponseStream(HttpExchange exchange, int statusCode, CompressionTypes encoding, int threshold) {
+        this.exchange = exchange;
+        this.statusCode = statusCode;
+        this.encoding = encoding;
+        this.threshold = threshold;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        write(new byte[]{(byte) b}, 0, 1);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        if (out == null) {
+            if (head.size() + len <= threshold) {
+                head.write(b, off, len);
+                return;
+            }
+            startChunked();
+        }
+        out.write(b, off, len);
+    }
+
+    // Сбрасывает только уже начатое тело: пока решение о сжатии не принято, отправлять нечего
+    @Override
+    public void flush() throws IOException {
+        if (out != null) {
+            out.flush();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (out == null) {
+            // Тело не превысило порог: отправляем его целиком без сжатия. Длина -1 означает пустое тело.
+            exchange.sendResponseHeaders(statusCode, head.size() == 0 ? -1 : head.size());
+            try (OutputStream body = exchange.getResponseBody()) {
+                head.writeTo(body);
+            }
+            head = null;
+        } else {
+            SnapshotCompression.finish(out);
+            out.close();
+        }
+    }
+
+    private void startChunked() throws IOException {
+        if (encoding != CompressionTypes.NONE) {
+            exchange.getResponseHeaders().set("Content-Encoding",
+                    encoding == CompressionTypes.GZIP ? "gzip" : "deflate");
+        }
+        // Длина 0 включает передачу частями
+        exchange.sendResponseHeaders(statusCode, 0);
+        out = SnapshotCompression.compress(exchange.getResponseBody(), encoding);
+        head.writeTo(out);
+        head = null;
+    }
+}
@@ -7,16 +7,19 @@ import com.google.gson.JsonParser;
 import com.sun.net.httpserver.HttpExchange;
 import java.io.IOException;
 import java.util.Optional;
+import ru.yandex.practicum.scheduler.exceptions.BadRequestException;
 import ru.yandex.practicum.scheduler.exceptions.ManagerSaveException;
 import ru.yandex.practicum.scheduler.exceptions.NotFoundException;
+import ru.yandex.practicum.scheduler.exceptions.UnsupportedMediaTypeException;
 import ru.yandex.practicum.scheduler.managers.interfaces.TaskManager;
+import ru.yandex.practicum.scheduler.managers.queries.TaskQuery;
 import ru.yandex.practicum.scheduler.models.Epic;
 import ru.yandex.practicum.scheduler.models.enums.TaskTypes;
 
 public class EpicHttpHandler extends BaseHttpHandler {
 
-    public EpicHttpHandler(TaskManager taskManager, Gson gson) {
-        super(taskManager, gson);
+    public EpicHttpHandler(TaskManager taskManager, Gson gson, Gson prettyGson) {
+        super(taskManager, gson, prettyGson);
     }
 
     @Override
@@ -38,6 +41,12 @@ public class EpicHttpHandler extends BaseHttpHandler {
                 default -> throw new Exception(
                         "Во время обработки запроса использован неизвестный метод \"" + method + "\"");
             }
+        } catch (BadRequestException e) {
+            // Отправляем ошибку 400 при неверных параметрах запроса
+            sendBadRequest(exchange, e.getMessage());
+        } catch (UnsupportedMediaTypeException e) {
+            // Отправляем ошибку 415 при неизвестном сжатии тела запроса
+            sendUnsupportedMediaType(exchange, e.getMessage());
         } catch (NotFoundException e) {
             // Отправляем ошибку 404
             sendNotFound(exchange, e.getMessage());
@@ -115,8 +124,14 @@ public class EpicHttpHandler extends BaseHttpHandler {
     private void handleGet(String[] pathParts, HttpExchange exchange) throws Exception {
         // Проверяем путь.
         if (pathParts.length == 2) { // GET /epics/
-            // Возвращаем коллекцию задач.
-            sendText(exchange, 200, gson.toJson(taskManager.getEpics()));
+            TaskQuery query = getTaskQuery(exchange);
+            if (query == null) {
+                // Возвращаем коллекцию эпиков.
+                sendJsonArray(exchange, 200, taskManager::forEachEpic);
+            } else {
+                // или страницу эпиков по параметрам запроса.
+                sendJsonArray(exchange, 200, taskManager.findEpics(query)::forEach);
+            }
         } else if (pathParts.length == 3) { // GET /epics/{id}
             // Получаем id из url.
             int id = Integer.parseInt(pathParts[2]);
@@ -125,7 +140,7 @@ public class EpicHttpHandler extends BaseHttpHandler {
             // Если эпик найден,
             if (epicOpt.isPresent()) {
                 // то отправляем его
-                sendText(exchange, 200, gson.toJson(epicOpt.get()));
+                sendText(exchange, 200, gsonFor(exchange).toJson(epicOpt.get()));
             } else {
                 // Иначе выбрасываем исключение
                 throw new NotFoundException("Эпик с id " + id + " не найден");
@@ -138,7 +153,7 @@ public class EpicHttpHandler extends BaseHttpHandler {
             // Если эпик найден
             if (epicOpt.isPresent()) {
                 // Отправляем коллекцию подзадач
-                sendText(exchange, 200, gson.toJson(taskManager.getEpicSubtasks(epicOpt.get().getId())));
+                sendJsonArray(exchange, 200, taskManager.getEpicSubtasks(epicOpt.get().getId())::forEach);
             } else {
                 throw new NotFoundException("Эпик с id " + id + " не найден");
             }
@@ -7,8 +7,8 @@ import ru.yandex.practicum.scheduler.managers.interfaces.TaskManager;
 
 public class HistoryHttpHandler extends BaseHttpHandler {
 
-    public HistoryHttpHandler(TaskManager taskManager, Gson gson) {
-        super(taskManager, gson);
+    public HistoryHttpHandler(TaskManager taskManager, Gson gson, Gson prettyGson) {
+        super(taskManager, gson, prettyGson);
     }
 
     @Override
@@ -37,7 +37,7 @@ public class HistoryHttpHandler extends BaseHttpHandler {
         // Проверяем путь.
         if (pathParts.length == 2) { // GET /history/
             // Возвращаем коллекцию.
-            sendText(exchange, 200, gson.toJson(taskManager.getHistory()));
+            sendJsonArray(exchange, 200, taskManager.getHistory()::forEach);
         } else {
             // Выбрасываем исключение 500.
             throw new Exception("Ошибка при обращении к ресурсу " + String.join("/", pathParts));
@@ -3,12 +3,15 @@ package ru.yandex.practicum.scheduler.servers.http.handlers;
 import com.google.gson.Gson;
 import com.sun.net.httpserver.HttpExchange;
 import java.io.IOException;
+import ru.yandex.practicum.scheduler.exceptions.BadRequestException;
+import ru.yandex.practicum.scheduler.exceptions.NotFoundException;
 import ru.yandex.practicum.scheduler.managers.interfaces.TaskManager;
+import ru.yandex.practicum.scheduler.managers.queries.TaskQuery;
 
 public class PrioritizedHttpHandler extends BaseHttpHandler {
 
-    public PrioritizedHttpHandler(TaskManager taskManager, Gson gson) {
-        super(taskManager, gson);
+    public PrioritizedHttpHandler(TaskManager taskManager, Gson gson, Gson prettyGson) {
+        super(taskManager, gson, prettyGson);
     }
 
     @Override
@@ -27,6 +30,12 @@ public class PrioritizedHttpHandler extends BaseHttpHandler {
                 // Выбрасываем исключение для других методов.
                 throw new Exception("Во время обработки запроса использован неизвестный метод \"" + method + "\"");
             }
+        } catch (BadRequestException e) {
+            // Отправляем ошибку 400 при неверных параметрах запроса
+            sendBadRequest(exchange, e.getMessage());
+        } catch (NotFoundException e) {
+            // Отправляем ошибку 404, если задачи-курсора страницы больше нет
+            sendNotFound(exchange, e.getMessage());
         } catch (Exception e) {
             // Отправляем другие ошибки 500
             sendInternalError(exchange, "Внутренняя ошибка сервера: " + e.getMessage());
@@ -36,8 +45,14 @@ public class PrioritizedHttpHandler extends BaseHttpHandler {
     private void handleGet(String[] pathParts, HttpExchange exchange) throws Exception {
         // Проверяем путь
         if (pathParts.length == 2) { // GET /prioritized/
-            // Возвращаем коллекцию
-            sendText(exchange, 200, gson.toJson(taskManager.getPrioritizedTasks()));
+            TaskQuery query = getTaskQuery(exchange);
+            if (query == null) {
+                // Возвращаем коллекцию
+                sendJsonArray(exchange, 200, taskManager::forEachPrioritizedTask);
+            } else {
+                // или страницу по параметрам запроса
+                sendJsonArray(exchange, 200, taskManager.findPrioritizedTasks(query)::forEach);
+            }
         } else {
             // Выбрасываем исключение 500.
             throw new Exception("Ошибка при обращении к ресурсу " + String.join("/", pathParts));
@@ -7,17 +7,20 @@ import com.google.gson.JsonParser;
 import com.sun.net.httpserver.HttpExchange;
 import java.io.IOException;
 import java.util.Optional;
+import ru.yandex.practicum.scheduler.exceptions.BadRequestException;
 import ru.yandex.practicum.scheduler.exceptions.ManagerSaveException;
 import ru.yandex.practicum.scheduler.exceptions.NotAcceptableException;
 import ru.yandex.practicum.scheduler.exceptions.NotFoundException;
+import ru.yandex.practicum.scheduler.exceptions.UnsupportedMediaTypeException;
 import ru.yandex.practicum.scheduler.managers.interfaces.TaskManager;
+import ru.yandex.practicum.scheduler.managers.queries.TaskQuery;
 import ru.yandex.practicum.scheduler.models.Subtask;
 import ru.yandex.practicum.scheduler.models.enums.TaskTypes;
 
 public class SubtaskHttpHandler extends BaseHttpHandler {
 
-    public SubtaskHttpHandler(TaskManager taskManager, Gson gson) {
-        super(taskManager, gson);
+    public SubtaskHttpHandler(TaskManager taskManager, Gson gson, Gson prettyGson) {
+        super(taskManager, gson, prettyGson);
     }
 
     @Override
@@ -39,6 +42,12 @@ public class SubtaskHttpHandler extends BaseHttpHandler {
                 default -> throw new Exception(
                         "Во время обработки запроса использован неизвестный метод \"" + method + "\"");
             }
+        } catch (BadRequestException e) {
+            // Отправляем ошибку 400 при неверных параметрах запроса
+            sendBadRequest(exchange, e.getMessage());
+        } catch (UnsupportedMediaTypeException e) {
+            // Отправляем ошибку 415 при неизвестном сжатии тела запроса
+            sendUnsupportedMediaType(exchange, e.getMessage());
         } catch (NotFoundException e) {
             // Отправляем ошибку 404
             sendNotFound(exchange, e.getMessage());
@@ -137,8 +146,14 @@ public class SubtaskHttpHandler extends BaseHttpHandler {
     private void handleGet(String[] pathParts, HttpExchange exchange) throws Exception {
         // Проверяем путь.
         if (pathParts.length == 2) { // GET /subtasks/
-            // Возвращаем коллекцию подзадач.
-            sendText(exchange, 200, gson.toJson(taskManager.getSubtasks()));
+            TaskQuery query = getTaskQuery(exchange);
+            if (query == null) {
+                // Возвращаем коллекцию подзадач.
+                sendJsonArray(exchange, 200, taskManager::forEachSubtask);
+            } else {
+                // или страницу подзадач по параметрам запроса.
+                sendJsonArray(exchange, 200, taskManager.findSubtasks(query)::forEach);
+            }
         } else if (pathParts.length == 3) { // GET /subtasks/{id}
             // Получаем id из url.
             int id = Integer.parseInt(pathParts[2]);
@@ -147,7 +162,7 @@ public class SubtaskHttpHandler extends BaseHttpHandler {
             // Если подзадача получена,
             if (subtask.isPresent()) {
                 // то отправляем её.
-                sendText(exchange, 200, gson.toJson(subtask.get()));
+                sendText(exchange, 200, gsonFor(exchange).toJson(subtask.get()));
             } else {
                 // Выбрасываем исключение 404.
                 throw new NotFoundException("Подзадача с id " + id + " не найдена");
@@ -7,17 +7,20 @@ import com.google.gson.JsonParser;
 import com.sun.net.httpserver.HttpExchange;
 import java.io.IOException;
 import java.util.Optional;
+import ru.yandex.practicum.scheduler.exceptions.BadRequestException;
 import ru.yandex.practicum.scheduler.exceptions.ManagerSaveException;
 import ru.yandex.practicum.scheduler.exceptions.NotAcceptableException;
 import ru.yandex.practicum.scheduler.exceptions.NotFoundException;
+import ru.yandex.practicum.scheduler.exceptions.UnsupportedMediaTypeException;
 import ru.yandex.practicum.scheduler.managers.interfaces.TaskManager;
+import ru.yandex.practicum.scheduler.managers.queries.TaskQuery;
 import ru.yandex.practicum.scheduler.models.Task;
 import ru.yandex.practicum.scheduler.models.enums.TaskTypes;
 
 public class TaskHttpHandler extends BaseHttpHandler {
 
-    public TaskHttpHandler(TaskManager taskManager, Gson gson) {
-        super(taskManager, gson);
+    public TaskHttpHandler(TaskManager taskManager, Gson gson, Gson prettyGson) {
+        super(taskManager, gson, prettyGson);
     }
 
     @Override
@@ -39,6 +42,12 @@ public class TaskHttpHandler extends BaseHttpHandler {
                 default -> throw new Exception(
                         "Во время обработки запроса использован неизвестный метод \"" + method + "\"");
             }
+        } catch (BadRequestException e) {
+            // Отправляем ошибку 400 при неверных параметрах запроса
+            sendBadRequest(exchange, e.getMessage());
+        } catch (UnsupportedMediaTypeException e) {
+            // Отправляем ошибку 415 при неизвестном сжатии тела запроса
+            sendUnsupportedMediaType(exchange, e.getMessage());
         } catch (NotFoundException e) {
             // Отправляем ошибку 404
             sendNotFound(exchange, e.getMessage());
@@ -136,8 +145,14 @@ public class TaskHttpHandler extends BaseHttpHandler {
     private void handleGet(String[] pathParts, HttpExchange exchange) throws Exception {
         // Проверяем путь.
         if (pathParts.length == 2) { // GET /tasks/
-            // Возвращаем коллекцию задач.
-            sendText(exchange, 200, gson.toJson(taskManager.getTasks()));
+            TaskQuery query = getTaskQuery(exchange);
+            if (query == null) {
+                // Возвращаем коллекцию задач.
+                sendJsonArray(exchange, 200, taskManager::forEachTask);
+            } else {
+                // или страницу задач по параметрам запроса.
+                sendJsonArray(exchange, 200, taskManager.findTasks(query)::forEach);
+            }
         } else if (pathParts.length == 3) { // GET /tasks/{id}
             // Получаем id из url.
             int id = Integer.parseInt(pathParts[2]);
@@ -146,7 +161,7 @@ public class TaskHttpHandler extends BaseHttpHandler {
             // Если задача получена,
             if (taskOpt.isPresent()) {
                 // то отправляем её.
-                sendText(exchange, 200, gson.toJson(taskOpt.get()));
+                sendText(exchange, 200, gsonFor(exchange).toJson(taskOpt.get()));
             } else {
                 // Иначе выбрасываем ошибку 404.
                 throw new NotFoundException("Задача с id " + id + " не найдена");
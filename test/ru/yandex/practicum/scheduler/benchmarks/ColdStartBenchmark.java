@@ -0,0 +1,56 @@
+package ru.yandex.practicum.scheduler.benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import ru.yandex.practicum.scheduler.managers.FileBackedTaskManager;
+import ru.yandex.practicum.scheduler.managers.Managers;
+import ru.yandex.practicum.scheduler.managers.persistence.PersistenceTypes;
+import ru.yandex.practicum.scheduler.models.Task;
+
+// Время от начала загрузки менеджера до ответа на первый запрос по ИД
+// при построении индекса интервалов во время загрузки и в фоновом потоке.
+// Запуск: java -Xmx2g ... ru.yandex.practicum.scheduler.benchmarks.ColdStartBenchmark [количество задач]
+public class ColdStartBenchmark {
+
+    private static final int ROUNDS = 5;
+
+    public static void main(String[] args) throws IOException {
+        int entries = args.length > 0 ? Integer.parseInt(args[0]) : 200_000;
+        File file = File.createTempFile("snapshot", ".bin");
+        file.deleteOnExit();
+
+        FileBackedTaskManager taskManager = new FileBackedTaskManager(Managers.getDefaultHistory(), file);
+        List<Task> tasks = new ArrayList<>(entries);
+        LocalDateTime startTime = LocalDateTime.of(2025, 1, 1, 0, 0);
+        for (int i = 0; i < entries; i++) {
+            tasks.add(new Task("Task " + i, "Description of task " + i, startTime.plusMinutes(i * 10L),
+                    Duration.ofMinutes(5)));
+        }
+        taskManager.createTasks(tasks);
+
+        long eagerNanos = measureFirstRequest(file, false);
+        long deferredNanos = measureFirstRequest(file, true);
+
+        System.out.printf("Задач: %d, снимок %,d байт%n", entries, file.length());
+        System.out.printf("Индекс при загрузке: первый ответ через %d мс%n", eagerNanos / 1_000_000);
+        System.out.printf("Индекс в фоне:       первый ответ через %d мс%n", deferredNanos / 1_000_000);
+    }
+
+    private static long measureFirstRequest(File file, boolean deferTimeIndex) {
+        long best = Long.MAX_VALUE;
+        for (int i = 0; i < ROUNDS; i++) {
+            long start = System.nanoTime();
+            FileBackedTaskManager taskManager = FileBackedTaskManager.loadFromFile(file, PersistenceTypes.SNAPSHOT,
+                    deferTimeIndex);
+            taskManager.getTaskById(1).orElseThrow();
+            best = Math.min(best, System.nanoTime() - start);
+            // Не начинаем следующий запуск, пока фоновый поток занят
+            taskManager.awaitTimeIndex();
+        }
+        return best;
+    }
+}
@@ -0,0 +1,84 @@
+package ru.yandex.practicum.scheduler.benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import ru.yandex.practicum.scheduler.managers.FileBackedTaskManager;
+import ru.yandex.practicum.scheduler.managers.Managers;
+import ru.yandex.practicum.scheduler.managers.persistence.CompressionTypes;
+import ru.yandex.practicum.scheduler.managers.persistence.SnapshotFormats;
+import ru.yandex.practicum.scheduler.models.Epic;
+import ru.yandex.practicum.scheduler.models.Subtask;
+
+// Степень сжатия снимков CSV и двоичного и скорость их загрузки без сжатия, с GZIP и с Deflate.
+// Запуск: java -Xmx4g ... ru.yandex.practicum.scheduler.benchmarks.CompressionBenchmark [количество записей]
+public class CompressionBenchmark {
+
+    private static final int EPICS = 1_000;
+    private static final int ROUNDS = 3;
+
+    public static void main(String[] args) throws IOException {
+        int entries = args.length > 0 ? Integer.parseInt(args[0]) : 500_000;
+        File file = File.createTempFile("snapshot", ".bin");
+        file.deleteOnExit();
+        FileBackedTaskManager taskManager = createBoard(file, entries);
+
+        System.out.printf("Записей: %d%n", entries);
+        for (SnapshotFormats format : SnapshotFormats.values()) {
+            long plainSize = 0;
+            for (CompressionTypes compression : CompressionTypes.values()) {
+                taskManager.setSnapshotFormat(format);
+                taskManager.setSnapshotCompression(compression);
+                long start = System.nanoTime();
+                taskManager.checkpoint();
+                long writeNanos = System.nanoTime() - start;
+                long size = file.length();
+                if (compression == CompressionTypes.NONE) {
+                    plainSize = size;
+                }
+                long loadNanos = measureLoad(file);
+                // Скорость загрузки считается по несжатому размеру снимка
+                System.out.printf("%-6s %-7s %,13d байт, сжатие %4.1f раза, запись %,6d мс, загрузка %,6d мс "
+                                + "(%,.0f записей/с, %,.1f МБ/с)%n", format, compression, size,
+                        (double) plainSize / size, writeNanos / 1_000_000, loadNanos / 1_000_000,
+                        entries / (loadNanos / 1e9), plainSize / (loadNanos / 1e9) / (1 << 20));
+            }
+        }
+    }
+
+    private static FileBackedTaskManager createBoard(File file, int entries) {
+        FileBackedTaskManager taskManager = new FileBackedTaskManager(Managers.getDefaultHistory(), file);
+        List<Epic> epics = new ArrayList<>(EPICS);
+        for (int i = 0; i < EPICS; i++) {
+            epics.add(new Epic("Epic " + i, "Description of epic " + i));
+        }
+        List<Integer> epicIds = taskManager.createEpics(epics);
+
+        List<Subtask> subtasks = new ArrayList<>(entries);
+        LocalDateTime startTime = LocalDateTime.of(2025, 1, 1, 0, 0);
+        for (int i = 0; i < entries - EPICS; i++) {
+            subtasks.add(new Subtask("Subtask " + i, "Description of subtask " + i, startTime.plusMinutes(i * 10L),
+                    Duration.ofMinutes(5), epicIds.get(i % EPICS)));
+        }
+        taskManager.createSubtasks(subtasks);
+        return taskManager;
+    }
+
+    private static long measureLoad(File file) {
+        // Лучший результат из нескольких запусков, первые запуски прогревают JIT
+        long best = Long.MAX_VALUE;
+        for (int i = 0; i < ROUNDS; i++) {
+            long start = System.nanoTime();
+            FileBackedTaskManager taskManager = FileBackedTaskManager.loadFromFile(file);
+            long elapsed = System.nanoTime() - start;
+            if (taskManager.getSubtasks().isEmpty()) {
+                throw new IllegalStateException();
+            }
+            best = Math.min(best, elapsed);
+        }
+        return best;
+    }
+}
@@ -0,0 +1,91 @@
+package ru.yandex.practicum.scheduler.benchmarks;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import ru.yandex.practicum.scheduler.managers.persistence.CsvTaskReader;
+import ru.yandex.practicum.scheduler.managers.persistence.CsvTaskWriter;
+import ru.yandex.practicum.scheduler.models.Task;
+import ru.yandex.practicum.scheduler.models.enums.StatusTypes;
+
+// Объём памяти, выделяемой на одну запись при разборе CSV:
+// прежний разбор (readLine, split и DateTimeFormatter) и CsvTaskReader.
+// Выделенная память считается по com.sun.management.ThreadMXBean текущего потока, объекты задач входят в оба замера.
+// Запуск: java ... ru.yandex.practicum.scheduler.benchmarks.CsvAllocationBenchmark [количество задач]
+public class CsvAllocationBenchmark {
+
+    private static final int ROUNDS = 5;
+
+    public static void main(String[] args) throws IOException {
+        int entries = args.length > 0 ? Integer.parseInt(args[0]) : 200_000;
+        StringWriter out = new StringWriter();
+        CsvTaskWriter writer = new CsvTaskWriter(out);
+        writer.writeHeader();
+        LocalDateTime startTime = LocalDateTime.of(2025, 1, 1, 0, 0);
+        for (int i = 1; i <= entries; i++) {
+            writer.write(new Task(i, StatusTypes.NEW, "Task " + i, "Description of task " + i,
+                    startTime.plusMinutes(i * 10L), Duration.ofMinutes(5)));
+        }
+        writer.flush();
+        String csv = out.toString();
+
+        long legacyBytes = Long.MAX_VALUE;
+        long readerBytes = Long.MAX_VALUE;
+        for (int i = 0; i < ROUNDS; i++) {
+            legacyBytes = Math.min(legacyBytes, measure(() -> parseLegacy(csv)));
+            readerBytes = Math.min(readerBytes, measure(() -> parseWithReader(csv)));
+        }
+
+        System.out.printf("Записей: %d%n", entries);
+        System.out.printf("split и DateTimeFormatter: %.0f байт на запись%n", (double) legacyBytes / entries);
+        System.out.printf("CsvTaskReader:             %.0f байт на запись%n", (double) readerBytes / entries);
+        System.out.printf("Меньше в %.1f раза%n", (double) legacyBytes / readerBytes);
+    }
+
+    private static List<Task> parseLegacy(String csv) throws IOException {
+        List<Task> result = new ArrayList<>();
+        BufferedReader br = new BufferedReader(new StringReader(csv));
+        String line;
+        while ((line = br.readLine()) != null) {
+            if (line.isBlank() || line.equals(CsvTaskWriter.HEADER)) {
+                continue;
+            }
+            String[] paramsArray = line.split(",");
+            LocalDateTime startTime =
+                    paramsArray[6].isBlank() ? null : LocalDateTime.parse(paramsArray[6], Task.getFormatter());
+            Duration duration = paramsArray[7].isBlank() ? null : Duration.ofMinutes(Integer.parseInt(paramsArray[7]));
+            result.add(new Task(Integer.parseInt(paramsArray[0]), StatusTypes.valueOf(paramsArray[3]), paramsArray[2],
+                    paramsArray[4], startTime, duration));
+        }
+        return result;
+    }
+
+    private static List<Task> parseWithReader(String csv) throws IOException {
+        List<Task> result = new ArrayList<>();
+        new CsvTaskReader(new StringReader(csv)).read(result::add);
+        return result;
+    }
+
+    private static long measure(Parser parser) throws IOException {
+        com.sun.management.ThreadMXBean threadBean =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().threadId();
+        long before = threadBean.getThreadAllocatedBytes(threadId);
+        List<Task> result = parser.parse();
+        long allocated = threadBean.getThreadAllocatedBytes(threadId) - before;
+        if (result.isEmpty()) {
+            throw new IllegalStateException();
+        }
+        return allocated;
+    }
+
+    private interface Parser {
+        List<Task> parse() throws IOException;
+    }
+}
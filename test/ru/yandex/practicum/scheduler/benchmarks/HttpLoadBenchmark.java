@@ -0,0 +1,135 @@
+package ru.yandex.practicum.scheduler.benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import ru.yandex.practicum.scheduler.managers.FileBackedTaskManager;
+import ru.yandex.practicum.scheduler.managers.Managers;
+import ru.yandex.practicum.scheduler.managers.interfaces.TaskManager;
+import ru.yandex.practicum.scheduler.models.Task;
+import ru.yandex.practicum.scheduler.servers.http.ExecutorTypes;
+import ru.yandex.practicum.scheduler.servers.http.HttpTaskServer;
+
+// Пропускная способность HttpTaskServer с разными исполнителями при росте числа одновременных клиентов.
+// Чтение: GET /tasks/{id} у менеджера в памяти. Запись: каждый десятый запрос - POST /tasks
+// у менеджера с сохранением снимка в файл, остальные - GET.
+// Запуск: java ... ru.yandex.practicum.scheduler.benchmarks.HttpLoadBenchmark [секунд на замер]
+public class HttpLoadBenchmark {
+
+    private static final int TASKS = 1_000;
+    private static final int WRITE_RATIO = 10;
+    private static final LocalDateTime START_TIME = LocalDateTime.of(2025, 1, 1, 0, 0);
+
+    public static void main(String[] args) throws Exception {
+        int seconds = args.length > 0 ? Integer.parseInt(args[0]) : 3;
+        // Без TCP_NODELAY ответ из заголовков и тела ждёт отложенного подтверждения клиента около 40 мс
+        System.setProperty("sun.net.httpserver.nodelay", "true");
+        int cores = Runtime.getRuntime().availableProcessors();
+        List<Integer> clientCounts = new ArrayList<>();
+        for (int clients = 1; clients <= 4 * cores; clients *= 2) {
+            clientCounts.add(clients);
+        }
+
+        // Прогреваем JIT сервера и клиента, результат не выводим
+        HttpTaskServer warmupServer = new HttpTaskServer(Managers.getConcurrent(), ExecutorTypes.FIXED_POOL);
+        warmupServer.start();
+        try {
+            measure(warmupServer, cores, false, seconds);
+        } finally {
+            warmupServer.stop();
+        }
+
+        System.out.printf("Ядер: %d, замер %d с%n", cores, seconds);
+        run("Чтение", Managers::getConcurrent, false, clientCounts, seconds);
+        run("Запись", HttpLoadBenchmark::createFileBackedManager, true, clientCounts, seconds);
+    }
+
+    private static TaskManager createFileBackedManager() {
+        try {
+            File file = File.createTempFile("http-load", ".bin");
+            file.deleteOnExit();
+            return new FileBackedTaskManager(Managers.getDefaultHistory(), file);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static void run(String name, Supplier<TaskManager> managerFactory, boolean writes,
+                            List<Integer> clientCounts, int seconds) throws Exception {
+        System.out.printf("%s, запросов в секунду:%n", name);
+        System.out.printf("%-16s", "Клиентов");
+        clientCounts.forEach(clients -> System.out.printf("%10d", clients));
+        System.out.println();
+        for (ExecutorTypes executorType : ExecutorTypes.values()) {
+            System.out.printf("%-16s", executorType);
+            for (int clients : clientCounts) {
+                TaskManager taskManager = managerFactory.get();
+                List<Task> tasks = new ArrayList<>(TASKS);
+                for (int i = 0; i < TASKS; i++) {
+                    tasks.add(new Task("Task " + i, "Description of task " + i, START_TIME.plusMinutes(i * 10L),
+                            Duration.ofMinutes(5)));
+                }
+                taskManager.createTasks(tasks);
+
+                HttpTaskServer server = new HttpTaskServer(taskManager, executorType);
+                server.start();
+                try {
+                    System.out.printf("%10.0f", measure(server, clients, writes, seconds));
+                } finally {
+                    server.stop();
+                }
+            }
+            System.out.println();
+        }
+    }
+
+    private static double measure(HttpTaskServer server, int clients, boolean writes, int seconds)
+            throws InterruptedException {
+        String baseUri = "http://localhost:" + server.getPort() + "/tasks";
+        // Новые задачи идут после загруженных, каждая в своё время
+        AtomicLong nextMinute = new AtomicLong(TASKS * 10L);
+        AtomicLong requests = new AtomicLong();
+        long deadline = System.nanoTime() + seconds * 1_000_000_000L;
+
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int c = 0; c < clients; c++) {
+                executor.submit(() -> {
+                    // Свой клиент на поток, чтобы соединения не делились между потоками
+                    try (HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build()) {
+                        long count = 0;
+                        while (System.nanoTime() < deadline) {
+                            HttpRequest request;
+                            if (writes && count % WRITE_RATIO == 0) {
+                                Task task = new Task("New task", "New task description",
+                                        START_TIME.plusMinutes(nextMinute.getAndAdd(10)), Duration.ofMinutes(5));
+                                request = HttpRequest.newBuilder(URI.create(baseUri))
+                                        .POST(HttpRequest.BodyPublishers.ofString(server.getGson().toJson(task)))
+                                        .build();
+                            } else {
+                                int id = ThreadLocalRandom.current().nextInt(1, TASKS + 1);
+                                request = HttpRequest.newBuilder(URI.create(baseUri + "/" + id)).GET().build();
+                            }
+                            client.send(request, HttpResponse.BodyHandlers.discarding());
+                            count++;
+                        }
+                        requests.addAndGet(count);
+                    }
+                    return null;
+                });
+            }
+        }
+        return requests.get() / (double) seconds;
+    }
+}
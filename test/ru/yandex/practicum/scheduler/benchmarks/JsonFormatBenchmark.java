@@ -0,0 +1,88 @@
+package ru.yandex.practicum.scheduler.benchmarks;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import ru.yandex.practicum.scheduler.managers.Managers;
+import ru.yandex.practicum.scheduler.managers.interfaces.TaskManager;
+import ru.yandex.practicum.scheduler.models.Epic;
+import ru.yandex.practicum.scheduler.models.Subtask;
+import ru.yandex.practicum.scheduler.models.Task;
+import ru.yandex.practicum.scheduler.servers.http.ExecutorTypes;
+import ru.yandex.practicum.scheduler.servers.http.HttpTaskServer;
+
+// Размер ответа и время запроса GET /tasks и GET /prioritized в компактном виде и с отступами (?pretty=true).
+// Запуск: java ... ru.yandex.practicum.scheduler.benchmarks.JsonFormatBenchmark [количество задач]
+public class JsonFormatBenchmark {
+
+    private static final int EPICS = 100;
+    private static final int REQUESTS = 50;
+    private static final LocalDateTime START_TIME = LocalDateTime.of(2025, 1, 1, 0, 0);
+
+    public static void main(String[] args) throws Exception {
+        int entries = args.length > 0 ? Integer.parseInt(args[0]) : 10_000;
+        System.setProperty("sun.net.httpserver.nodelay", "true");
+        TaskManager taskManager = Managers.getConcurrent();
+        fillBoard(taskManager, entries);
+
+        HttpTaskServer server = new HttpTaskServer(taskManager, ExecutorTypes.SAME_THREAD);
+        server.start();
+        try (HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build()) {
+            String baseUri = "http://localhost:" + server.getPort();
+            System.out.printf("Задач и подзадач: %d, запросов на замер: %d%n", entries, REQUESTS);
+            for (String path : List.of("/tasks", "/prioritized")) {
+                // Прогреваем JIT обоими видами вывода
+                measure(client, baseUri + path);
+                measure(client, baseUri + path + "?pretty=true");
+
+                long[] compact = measure(client, baseUri + path);
+                long[] pretty = measure(client, baseUri + path + "?pretty=true");
+                System.out.printf("%-13s компактный %,12d байт %8.2f мс, с отступами %,12d байт %8.2f мс, "
+                                + "экономия %4.1f%% трафика, %4.1f%% времени%n", path, compact[0], compact[1] / 1e6,
+                        pretty[0], pretty[1] / 1e6, 100.0 * (pretty[0] - compact[0]) / pretty[0],
+                        100.0 * (pretty[1] - compact[1]) / pretty[1]);
+            }
+        } finally {
+            server.stop();
+        }
+    }
+
+    private static void fillBoard(TaskManager taskManager, int entries) {
+        List<Epic> epics = new ArrayList<>(EPICS);
+        for (int i = 0; i < EPICS; i++) {
+            epics.add(new Epic("Epic " + i, "Description of epic " + i));
+        }
+        List<Integer> epicIds = taskManager.createEpics(epics);
+
+        // Половина - задачи, половина - подзадачи, чтобы список приоритетов был вдвое длиннее списка задач
+        List<Task> tasks = new ArrayList<>(entries / 2);
+        List<Subtask> subtasks = new ArrayList<>(entries / 2);
+        for (int i = 0; i < entries; i++) {
+            LocalDateTime startTime = START_TIME.plusMinutes(i * 10L);
+            if (i % 2 == 0) {
+                tasks.add(new Task("Task " + i, "Description of task " + i, startTime, Duration.ofMinutes(5)));
+            } else {
+                subtasks.add(new Subtask("Subtask " + i, "Description of subtask " + i, startTime,
+                        Duration.ofMinutes(5), epicIds.get(i % EPICS)));
+            }
+        }
+        taskManager.createTasks(tasks);
+        taskManager.createSubtasks(subtasks);
+    }
+
+    // Возвращает размер тела и среднее время запроса в наносекундах
+    private static long[] measure(HttpClient client, String uri) throws Exception {
+        HttpRequest request = HttpRequest.newBuilder(URI.create(uri)).GET().build();
+        long size = 0;
+        long start = System.nanoTime();
+        for (int i = 0; i < REQUESTS; i++) {
+            size = client.send(request, HttpResponse.BodyHandlers.ofByteArray()).body().length;
+        }
+        return new long[]{size, (System.nanoTime() - start) / REQUESTS};
+    }
+}
@@ -0,0 +1,107 @@
+package ru.yandex.practicum.scheduler.benchmarks;
+
+import com.google.gson.Gson;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import ru.yandex.practicum.scheduler.managers.Managers;
+import ru.yandex.practicum.scheduler.managers.interfaces.TaskManager;
+import ru.yandex.practicum.scheduler.models.Task;
+import ru.yandex.practicum.scheduler.servers.http.ExecutorTypes;
+import ru.yandex.practicum.scheduler.servers.http.HttpTaskServer;
+
+// Ответ GET /tasks при росте числа задач: размер тела, время до первого байта и до конца ответа
+// и память, выделенная потоком обработчика на запрос. Для сравнения - память, которую выделяет
+// сборка того же ответа в строку и массив байт, как до потоковой отправки.
+// Запуск: java ... ru.yandex.practicum.scheduler.benchmarks.ListResponseBenchmark [максимум задач]
+public class ListResponseBenchmark {
+
+    private static final int ROUNDS = 5;
+    private static final LocalDateTime START_TIME = LocalDateTime.of(2025, 1, 1, 0, 0);
+
+    public static void main(String[] args) throws Exception {
+        int maxTasks = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+        System.setProperty("sun.net.httpserver.nodelay", "true");
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+        System.out.printf("%10s %14s %12s %12s %16s %16s%n", "Задач", "Тело, байт", "Первый, мс", "Весь, мс",
+                "Поток, байт", "В строку, байт");
+        for (int count = 1_000; count <= maxTasks; count *= 10) {
+            TaskManager taskManager = Managers.getConcurrent();
+            List<Task> tasks = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                tasks.add(new Task("Задача " + i, "Описание задачи " + i, START_TIME.plusMinutes(i * 10L),
+                        Duration.ofMinutes(5)));
+            }
+            taskManager.createTasks(tasks);
+
+            // Обработчики выполняются в потоке диспетчера, выделенную им память считаем по этому потоку
+            HttpTaskServer server = new HttpTaskServer(taskManager, ExecutorTypes.SAME_THREAD);
+            server.start();
+            try (HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build()) {
+                long dispatcherId = findThread("HTTP-Dispatcher").threadId();
+                HttpRequest request = HttpRequest.newBuilder(
+                        URI.create("http://localhost:" + server.getPort() + "/tasks")).GET().build();
+                long size = 0;
+                long bestFirst = Long.MAX_VALUE;
+                long bestTotal = Long.MAX_VALUE;
+                long bestAllocated = Long.MAX_VALUE;
+                for (int round = 0; round < ROUNDS; round++) {
+                    long allocatedBefore = threads.getThreadAllocatedBytes(dispatcherId);
+                    long start = System.nanoTime();
+                    HttpResponse<InputStream> response = client.send(request, HttpResponse.BodyHandlers.ofInputStream());
+                    long first = 0;
+                    size = 0;
+                    try (InputStream body = response.body()) {
+                        byte[] buffer = new byte[8192];
+                        int read;
+                        while ((read = body.read(buffer)) != -1) {
+                            if (size == 0) {
+                                first = System.nanoTime() - start;
+                            }
+                            size += read;
+                        }
+                    }
+                    long total = System.nanoTime() - start;
+                    bestFirst = Math.min(bestFirst, first);
+                    bestTotal = Math.min(bestTotal, total);
+                    bestAllocated = Math.min(bestAllocated,
+                            threads.getThreadAllocatedBytes(dispatcherId) - allocatedBefore);
+                }
+                System.out.printf("%,10d %,14d %12.1f %12.1f %,16d %,16d%n", count, size, bestFirst / 1e6,
+                        bestTotal / 1e6, bestAllocated, measureBuffered(server.getGson(), taskManager, threads));
+            } finally {
+                server.stop();
+            }
+        }
+    }
+
+    private static long measureBuffered(Gson gson, TaskManager taskManager, com.sun.management.ThreadMXBean threads) {
+        long best = Long.MAX_VALUE;
+        for (int round = 0; round < ROUNDS; round++) {
+            long before = threads.getCurrentThreadAllocatedBytes();
+            byte[] body = gson.toJson(taskManager.getTasks()).getBytes(StandardCharsets.UTF_8);
+            best = Math.min(best, threads.getCurrentThreadAllocatedBytes() - before);
+            if (body.length == 0) {
+                throw new IllegalStateException();
+            }
+        }
+        return best;
+    }
+
+    private static Thread findThread(String name) throws IOException {
+        return Thread.getAllStackTraces().keySet().stream()
+                .filter(thread -> thread.getName().startsWith(name))
+                .findFirst()
+                .orElseThrow(() -> new IOException("Не найден поток " + name));
+    }
+}
@@ -0,0 +1,82 @@
+package ru.yandex.practicum.scheduler.benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import ru.yandex.practicum.scheduler.managers.FileBackedTaskManager;
+import ru.yandex.practicum.scheduler.managers.Managers;
+import ru.yandex.practicum.scheduler.managers.persistence.PersistenceTypes;
+import ru.yandex.practicum.scheduler.models.Epic;
+import ru.yandex.practicum.scheduler.models.Subtask;
+import ru.yandex.practicum.scheduler.models.Task;
+
+// Зависимость времени полной загрузки менеджера (вместе с индексом интервалов) от числа записей.
+// В снимке задачи, эпики и по десять подзадач на эпик. При линейной загрузке время на запись не растёт.
+// Запуск: java -Xmx4g ... ru.yandex.practicum.scheduler.benchmarks.LoadScalingBenchmark [наибольшее число записей]
+public class LoadScalingBenchmark {
+
+    private static final int ROUNDS = 3;
+    private static final int SUBTASKS_PER_EPIC = 10;
+
+    public static void main(String[] args) throws IOException {
+        int maxRecords = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        System.out.println("Записей      Загрузка, мс   На запись, нс");
+        for (int records = maxRecords / 8; records <= maxRecords; records *= 2) {
+            File file = createSnapshot(records);
+            long nanos = measureLoad(file);
+            System.out.printf("%,10d %14d %15d%n", records, nanos / 1_000_000, nanos / records);
+            file.delete();
+        }
+    }
+
+    private static File createSnapshot(int records) throws IOException {
+        File file = File.createTempFile("snapshot", ".bin");
+        file.deleteOnExit();
+        FileBackedTaskManager taskManager = new FileBackedTaskManager(Managers.getDefaultHistory(), file);
+        LocalDateTime startTime = LocalDateTime.of(2025, 1, 1, 0, 0);
+        // Половина записей - задачи, остальное - эпики с подзадачами
+        int taskCount = records / 2;
+        int epicCount = (records - taskCount) / (SUBTASKS_PER_EPIC + 1);
+
+        List<Task> tasks = new ArrayList<>(taskCount);
+        for (int i = 0; i < taskCount; i++) {
+            tasks.add(new Task("Task " + i, "Task description", startTime.plusMinutes(i * 10L),
+                    Duration.ofMinutes(5)));
+        }
+        taskManager.createTasks(tasks);
+
+        List<Epic> epics = new ArrayList<>(epicCount);
+        for (int i = 0; i < epicCount; i++) {
+            epics.add(new Epic("Epic " + i, "Epic description"));
+        }
+        taskManager.createEpics(epics);
+
+        List<Subtask> subtasks = new ArrayList<>(epicCount * SUBTASKS_PER_EPIC);
+        long slot = taskCount;
+        for (Epic epic : epics) {
+            for (int i = 0; i < SUBTASKS_PER_EPIC; i++, slot++) {
+                subtasks.add(new Subtask("Subtask " + slot, "Subtask description", startTime.plusMinutes(slot * 10),
+                        Duration.ofMinutes(5), epic.getId()));
+            }
+        }
+        taskManager.createSubtasks(subtasks);
+        return file;
+    }
+
+    private static long measureLoad(File file) {
+        long best = Long.MAX_VALUE;
+        for (int i = 0; i < ROUNDS; i++) {
+            long start = System.nanoTime();
+            FileBackedTaskManager taskManager = FileBackedTaskManager.loadFromFile(file, PersistenceTypes.SNAPSHOT,
+                    false);
+            best = Math.min(best, System.nanoTime() - start);
+            if (taskManager.getPrioritizedTasks().isEmpty()) {
+                throw new IllegalStateException();
+            }
+        }
+        return best;
+    }
+}
@@ -0,0 +1,79 @@
+package ru.yandex.practicum.scheduler.benchmarks;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import ru.yandex.practicum.scheduler.managers.Managers;
+import ru.yandex.practicum.scheduler.managers.interfaces.TaskManager;
+import ru.yandex.practicum.scheduler.managers.queries.TaskQuery;
+import ru.yandex.practicum.scheduler.models.Task;
+
+// Время получения страницы задач в начале, середине и конце списка: по индексу ИД (findTasks),
+// по временной шкале (findPrioritizedTasks) и, для сравнения, фильтрацией полной копии списка.
+// Запуск: java ... ru.yandex.practicum.scheduler.benchmarks.PaginationBenchmark [количество задач]
+public class PaginationBenchmark {
+
+    private static final int PAGE_SIZE = 100;
+    private static final int ROUNDS = 200;
+    private static final LocalDateTime START_TIME = LocalDateTime.of(2025, 1, 1, 0, 0);
+
+    public static void main(String[] args) {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        TaskManager taskManager = Managers.getConcurrent();
+        List<Task> tasks = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            tasks.add(new Task("Task " + i, "Description of task " + i, START_TIME.plusMinutes(i * 10L),
+                    Duration.ofMinutes(5)));
+        }
+        List<Integer> ids = taskManager.createTasks(tasks);
+
+        System.out.printf("Задач: %,d, страница: %d, мкс на страницу%n", count, PAGE_SIZE);
+        System.out.printf("%-10s %14s %14s %14s%n", "Курсор", "По ИД", "По времени", "Копия списка");
+        for (int position : new int[]{0, count / 2, count - PAGE_SIZE - 1}) {
+            int after = ids.get(position);
+            // Прогреваем JIT каждым способом
+            measure(() -> taskManager.findTasks(new TaskQuery().setLimit(PAGE_SIZE).setAfter(after)));
+            measure(() -> taskManager.findPrioritizedTasks(new TaskQuery().setLimit(PAGE_SIZE).setAfter(after)));
+            System.out.printf("%,10d %14.1f %14.1f %14.1f%n", position,
+                    measure(() -> taskManager.findTasks(new TaskQuery().setLimit(PAGE_SIZE).setAfter(after))) / 1e3,
+                    measure(() -> taskManager.findPrioritizedTasks(new TaskQuery().setLimit(PAGE_SIZE)
+                            .setAfter(after))) / 1e3,
+                    measureCopy(taskManager, after) / 1e3);
+        }
+    }
+
+    // Среднее время получения страницы в наносекундах
+    private static double measure(PageSource source) {
+        long start = System.nanoTime();
+        for (int i = 0; i < ROUNDS; i++) {
+            if (source.get().size() != PAGE_SIZE) {
+                throw new IllegalStateException("Неполная страница");
+            }
+        }
+        return (System.nanoTime() - start) / (double) ROUNDS;
+    }
+
+    // Страница из полной копии списка: O(n) на каждый запрос
+    private static double measureCopy(TaskManager taskManager, int after) {
+        int rounds = 5;
+        long start = System.nanoTime();
+        for (int i = 0; i < rounds; i++) {
+            List<Task> page = taskManager.getTasks().stream()
+                    .filter(task -> task.getId() > after)
+                    .sorted(Comparator.comparing(Task::getId))
+                    .limit(PAGE_SIZE)
+                    .toList();
+            if (page.size() != PAGE_SIZE) {
+                throw new IllegalStateException("Неполная страница");
+            }
+        }
+        return (System.nanoTime() - start) / (double) rounds;
+    }
+
+    @FunctionalInterface
+    private interface PageSource {
+        List<Task> get();
+    }
+}
@@ -0,0 +1,93 @@
+package ru.yandex.practicum.scheduler.benchmarks;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import ru.yandex.practicum.scheduler.managers.Managers;
+import ru.yandex.practicum.scheduler.managers.interfaces.TaskManager;
+import ru.yandex.practicum.scheduler.models.Epic;
+import ru.yandex.practicum.scheduler.models.Subtask;
+import ru.yandex.practicum.scheduler.models.Task;
+import ru.yandex.practicum.scheduler.servers.http.ExecutorTypes;
+import ru.yandex.practicum.scheduler.servers.http.HttpTaskServer;
+
+// Размер ответа и время запроса списков без сжатия, с GZIP и с Deflate (Accept-Encoding).
+// Время измеряется на локальном соединении, поэтому показывает цену сжатия на сервере,
+// а выигрыш на медленном канале пропорционален уменьшению размера.
+// Запуск: java ... ru.yandex.practicum.scheduler.benchmarks.ResponseCompressionBenchmark [количество задач]
+public class ResponseCompressionBenchmark {
+
+    private static final int EPICS = 100;
+    private static final int REQUESTS = 50;
+    private static final LocalDateTime START_TIME = LocalDateTime.of(2025, 1, 1, 0, 0);
+    private static final List<String> ENCODINGS = List.of("identity", "gzip", "deflate");
+
+    public static void main(String[] args) throws Exception {
+        int entries = args.length > 0 ? Integer.parseInt(args[0]) : 10_000;
+        System.setProperty("sun.net.httpserver.nodelay", "true");
+        TaskManager taskManager = Managers.getConcurrent();
+        fillBoard(taskManager, entries);
+
+        HttpTaskServer server = new HttpTaskServer(taskManager, ExecutorTypes.SAME_THREAD);
+        server.start();
+        try (HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build()) {
+            String baseUri = "http://localhost:" + server.getPort();
+            System.out.printf("Задач и подзадач: %d, запросов на замер: %d%n", entries, REQUESTS);
+            for (String path : List.of("/tasks", "/subtasks", "/prioritized")) {
+                long identitySize = 0;
+                for (String encoding : ENCODINGS) {
+                    // Прогреваем JIT
+                    measure(client, baseUri + path, encoding);
+                    long[] result = measure(client, baseUri + path, encoding);
+                    if (encoding.equals("identity")) {
+                        identitySize = result[0];
+                    }
+                    System.out.printf("%-13s %-9s %,12d байт, сжатие %4.1f раза, %8.2f мс%n", path, encoding,
+                            result[0], (double) identitySize / result[0], result[1] / 1e6);
+                }
+            }
+        } finally {
+            server.stop();
+        }
+    }
+
+    private static void fillBoard(TaskManager taskManager, int entries) {
+        List<Epic> epics = new ArrayList<>(EPICS);
+        for (int i = 0; i < EPICS; i++) {
+            epics.add(new Epic("Epic " + i, "Description of epic " + i));
+        }
+        List<Integer> epicIds = taskManager.createEpics(epics);
+
+        List<Task> tasks = new ArrayList<>(entries / 2);
+        List<Subtask> subtasks = new ArrayList<>(entries / 2);
+        for (int i = 0; i < entries; i++) {
+            LocalDateTime startTime = START_TIME.plusMinutes(i * 10L);
+            if (i % 2 == 0) {
+                tasks.add(new Task("Task " + i, "Description of task " + i, startTime, Duration.ofMinutes(5)));
+            } else {
+                subtasks.add(new Subtask("Subtask " + i, "Description of subtask " + i, startTime,
+                        Duration.ofMinutes(5), epicIds.get(i % EPICS)));
+            }
+        }
+        taskManager.createTasks(tasks);
+        taskManager.createSubtasks(subtasks);
+    }
+
+    // Возвращает размер тела на проводе и среднее время запроса в наносекундах.
+    // HttpClient не распаковывает ответы сам, поэтому тело приходит сжатым.
+    private static long[] measure(HttpClient client, String uri, String encoding) throws Exception {
+        HttpRequest request = HttpRequest.newBuilder(URI.create(uri)).header("Accept-Encoding", encoding).GET()
+                .build();
+        long size = 0;
+        long start = System.nanoTime();
+        for (int i = 0; i < REQUESTS; i++) {
+            size = client.send(request, HttpResponse.BodyHandlers.ofByteArray()).body().length;
+        }
+        return new long[]{size, (System.nanoTime() - start) / REQUESTS};
+    }
+}
@@ -0,0 +1,100 @@
+package ru.yandex.practicum.scheduler.benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import ru.yandex.practicum.scheduler.managers.FileBackedTaskManager;
+import ru.yandex.practicum.scheduler.managers.Managers;
+import ru.yandex.practicum.scheduler.managers.persistence.PersistenceTypes;
+import ru.yandex.practicum.scheduler.managers.persistence.SegmentedStore;
+import ru.yandex.practicum.scheduler.models.Epic;
+import ru.yandex.practicum.scheduler.models.Subtask;
+import ru.yandex.practicum.scheduler.models.enums.StatusTypes;
+
+// Объём записи и время одного updateSubtask при полной перезаписи снимка и при перезаписи сегментов.
+// Запуск: java -Xmx4g ... ru.yandex.practicum.scheduler.benchmarks.SegmentedWriteBenchmark [количество записей]
+public class SegmentedWriteBenchmark {
+
+    private static final int EPICS = 1_000;
+    private static final int UPDATES = 20;
+
+    public static void main(String[] args) throws IOException {
+        int entries = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+
+        File snapshotFile = File.createTempFile("snapshot", ".bin");
+        snapshotFile.deleteOnExit();
+        FileBackedTaskManager snapshotManager = createBoard(snapshotFile, PersistenceTypes.SNAPSHOT, entries);
+        long snapshotNanos = measureUpdates(snapshotManager);
+        System.out.printf("Снимок:   %,d байт на изменение, %.1f мс на изменение%n", snapshotFile.length(),
+                snapshotNanos / 1e6);
+        snapshotManager = null;
+
+        File manifest = File.createTempFile("segments", ".manifest");
+        manifest.deleteOnExit();
+        FileBackedTaskManager segmentedManager = createBoard(manifest, PersistenceTypes.SEGMENTED, entries);
+        Path directory = SegmentedStore.getDirectory(manifest.toPath());
+        Set<Path> before = listFiles(directory);
+        long segmentedNanos = measureUpdates(segmentedManager);
+        long rewritten = 0;
+        Set<Path> after = listFiles(directory);
+        for (Path path : after) {
+            if (!before.contains(path)) {
+                rewritten += Files.size(path);
+            }
+        }
+        // Изменения затрагивают одни и те же сегменты подзадачи и её эпика, поэтому новыми остаются
+        // только их файлы последней записи
+        System.out.printf("Сегменты: %,d байт на изменение, %.1f мс на изменение (сегментов %d)%n",
+                rewritten + manifest.length(), segmentedNanos / 1e6, after.size());
+
+        for (Path path : after) {
+            Files.deleteIfExists(path);
+        }
+        Files.deleteIfExists(directory);
+    }
+
+    private static FileBackedTaskManager createBoard(File file, PersistenceTypes persistenceType, int entries) {
+        FileBackedTaskManager taskManager = new FileBackedTaskManager(Managers.getDefaultHistory(), file,
+                persistenceType);
+        List<Epic> epics = new ArrayList<>(EPICS);
+        for (int i = 0; i < EPICS; i++) {
+            epics.add(new Epic("Epic " + i, "Description of epic " + i));
+        }
+        List<Integer> epicIds = taskManager.createEpics(epics);
+
+        List<Subtask> subtasks = new ArrayList<>(entries);
+        LocalDateTime startTime = LocalDateTime.of(2025, 1, 1, 0, 0);
+        for (int i = 0; i < entries - EPICS; i++) {
+            subtasks.add(new Subtask("Subtask " + i, "Description of subtask " + i, startTime.plusMinutes(i * 10L),
+                    Duration.ofMinutes(5), epicIds.get(i % EPICS)));
+        }
+        taskManager.createSubtasks(subtasks);
+        return taskManager;
+    }
+
+    private static long measureUpdates(FileBackedTaskManager taskManager) {
+        Subtask subtask = taskManager.getSubtaskById(taskManager.getSubtasks().size()).orElseThrow();
+        long start = System.nanoTime();
+        for (int i = 0; i < UPDATES; i++) {
+            StatusTypes status = i % 2 == 0 ? StatusTypes.DONE : StatusTypes.IN_PROGRESS;
+            taskManager.updateSubtask(new Subtask(subtask.getId(), status, subtask.getName(),
+                    subtask.getDescription(), subtask.getStartTime(), subtask.getDuration(), subtask.getEpicId()));
+        }
+        return (System.nanoTime() - start) / UPDATES;
+    }
+
+    private static Set<Path> listFiles(Path directory) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.collect(Collectors.toCollection(HashSet::new));
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package ru.yandex.practicum.scheduler.benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import ru.yandex.practicum.scheduler.managers.FileBackedTaskManager;
+import ru.yandex.practicum.scheduler.managers.Managers;
+import ru.yandex.practicum.scheduler.managers.persistence.SnapshotFormats;
+import ru.yandex.practicum.scheduler.models.Task;
+
+// Сравнение размера снимка и времени загрузки менеджера для форматов CSV и двоичного.
+// Запуск: java -Xmx2g ... ru.yandex.practicum.scheduler.benchmarks.SnapshotFormatBenchmark [количество задач]
+public class SnapshotFormatBenchmark {
+
+    private static final int ROUNDS = 5;
+
+    public static void main(String[] args) throws IOException {
+        int entries = args.length > 0 ? Integer.parseInt(args[0]) : 200_000;
+        File binaryFile = File.createTempFile("snapshot", ".bin");
+        File csvFile = File.createTempFile("snapshot", ".csv");
+        binaryFile.deleteOnExit();
+        csvFile.deleteOnExit();
+
+        FileBackedTaskManager taskManager = new FileBackedTaskManager(Managers.getDefaultHistory(), binaryFile);
+        taskManager.setSnapshotFormat(SnapshotFormats.BINARY);
+        List<Task> tasks = new ArrayList<>(entries);
+        LocalDateTime startTime = LocalDateTime.of(2025, 1, 1, 0, 0);
+        for (int i = 0; i < entries; i++) {
+            tasks.add(new Task("Task " + i, "Description of task " + i, startTime.plusMinutes(i * 10L),
+                    Duration.ofMinutes(5)));
+        }
+        taskManager.createTasks(tasks);
+        taskManager.exportCsv(csvFile);
+
+        long csvNanos = measureLoad(csvFile);
+        long binaryNanos = measureLoad(binaryFile);
+
+        System.out.printf("Задач: %d%n", entries);
+        System.out.printf("CSV:       %,d байт, загрузка %d мс%n", csvFile.length(), csvNanos / 1_000_000);
+        System.out.printf("Двоичный:  %,d байт, загрузка %d мс%n", binaryFile.length(), binaryNanos / 1_000_000);
+        System.out.printf("Размер меньше в %.1f раза, загрузка быстрее в %.1f раза%n",
+                (double) csvFile.length() / binaryFile.length(), (double) csvNanos / binaryNanos);
+    }
+
+    private static long measureLoad(File file) {
+        // Лучший результат из нескольких запусков, первые запуски прогревают JIT
+        long best = Long.MAX_VALUE;
+        for (int i = 0; i < ROUNDS; i++) {
+            long start = System.nanoTime();
+            FileBackedTaskManager taskManager = FileBackedTaskManager.loadFromFile(file);
+            long elapsed = System.nanoTime() - start;
+            if (taskManager.getTasks().isEmpty()) {
+                throw new IllegalStateException();
+            }
+            best = Math.min(best, elapsed);
+        }
+        return best;
+    }
+}
@@ -0,0 +1,119 @@
+package ru.yandex.practicum.scheduler.benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import ru.yandex.practicum.scheduler.managers.FileBackedTaskManager;
+import ru.yandex.practicum.scheduler.managers.Managers;
+import ru.yandex.practicum.scheduler.managers.SqlTaskManager;
+import ru.yandex.practicum.scheduler.managers.interfaces.TaskManager;
+import ru.yandex.practicum.scheduler.managers.persistence.PersistenceTypes;
+import ru.yandex.practicum.scheduler.models.Epic;
+import ru.yandex.practicum.scheduler.models.Subtask;
+import ru.yandex.practicum.scheduler.models.Task;
+import ru.yandex.practicum.scheduler.models.enums.StatusTypes;
+
+// Сравнение FileBackedTaskManager (сегменты) и SqlTaskManager: занятая куча, заполнение доски,
+// подзадачи эпика, добавление задачи с проверкой пересечений и изменение подзадачи.
+// Запуск: java -Xmx4g -cp ...:h2.jar ru.yandex.practicum.scheduler.benchmarks.SqlBenchmark [количество записей]
+public class SqlBenchmark {
+
+    private static final int EPICS = 1_000;
+    private static final int OPERATIONS = 200;
+
+    public static void main(String[] args) throws IOException {
+        int entries = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        File directory = Files.createTempDirectory("sql-benchmark").toFile();
+
+        long before = usedMemory();
+        long start = System.nanoTime();
+        FileBackedTaskManager fileManager = new FileBackedTaskManager(Managers.getDefaultHistory(),
+                new File(directory, "board.manifest"), PersistenceTypes.SEGMENTED);
+        fillBoard(fileManager, entries);
+        long fillNanos = System.nanoTime() - start;
+        long heap = usedMemory() - before;
+        report("Файл", fileManager, fillNanos, heap);
+        fileManager = null;
+
+        before = usedMemory();
+        start = System.nanoTime();
+        try (SqlTaskManager sqlManager = Managers.getSql(new File(directory, "board"))) {
+            fillBoard(sqlManager, entries);
+            fillNanos = System.nanoTime() - start;
+            heap = usedMemory() - before;
+            report("SQL", sqlManager, fillNanos, heap);
+        }
+
+        deleteRecursively(directory);
+    }
+
+    private static void fillBoard(TaskManager taskManager, int entries) {
+        List<Epic> epics = new ArrayList<>(EPICS);
+        for (int i = 0; i < EPICS; i++) {
+            epics.add(new Epic("Epic " + i, "Description of epic " + i));
+        }
+        List<Integer> epicIds = taskManager.createEpics(epics);
+
+        List<Subtask> subtasks = new ArrayList<>(entries);
+        LocalDateTime startTime = LocalDateTime.of(2025, 1, 1, 0, 0);
+        for (int i = 0; i < entries - EPICS; i++) {
+            subtasks.add(new Subtask("Subtask " + i, "Description of subtask " + i, startTime.plusMinutes(i * 10L),
+                    Duration.ofMinutes(5), epicIds.get(i % EPICS)));
+        }
+        taskManager.createSubtasks(subtasks);
+    }
+
+    private static void report(String name, TaskManager taskManager, long fillNanos, long heap) {
+        // Подзадачи эпиков
+        long start = System.nanoTime();
+        int found = 0;
+        for (int i = 0; i < OPERATIONS; i++) {
+            found += taskManager.getEpicSubtasks(1 + i % EPICS).size();
+        }
+        long epicSubtasksNanos = (System.nanoTime() - start) / OPERATIONS;
+
+        // Новые задачи попадают в промежутки между подзадачами, поэтому проверка пересечений идёт по всей шкале
+        LocalDateTime startTime = LocalDateTime.of(2025, 1, 1, 0, 6);
+        start = System.nanoTime();
+        for (int i = 0; i < OPERATIONS; i++) {
+            taskManager.createTask(new Task("Task " + i, "Description of task " + i,
+                    startTime.plusMinutes(i * 5_000L), Duration.ofMinutes(2)));
+        }
+        long createNanos = (System.nanoTime() - start) / OPERATIONS;
+
+        Subtask subtask = taskManager.getSubtaskById(EPICS + 1).orElseThrow();
+        start = System.nanoTime();
+        for (int i = 0; i < OPERATIONS; i++) {
+            StatusTypes status = i % 2 == 0 ? StatusTypes.DONE : StatusTypes.IN_PROGRESS;
+            taskManager.updateSubtask(new Subtask(subtask.getId(), status, subtask.getName(),
+                    subtask.getDescription(), subtask.getStartTime(), subtask.getDuration(), subtask.getEpicId()));
+        }
+        long updateNanos = (System.nanoTime() - start) / OPERATIONS;
+
+        System.out.printf("%-5s куча %,d байт, заполнение %,d мс, подзадачи эпика %.2f мс (%d), "
+                        + "createTask %.2f мс, updateSubtask %.2f мс%n", name, heap, fillNanos / 1_000_000,
+                epicSubtasksNanos / 1e6, found / OPERATIONS, createNanos / 1e6, updateNanos / 1e6);
+    }
+
+    private static long usedMemory() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    private static void deleteRecursively(File file) {
+        File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                deleteRecursively(child);
+            }
+        }
+        file.delete();
+    }
+}
@@ -0,0 +1,54 @@
+package ru.yandex.practicum.scheduler.benchmarks;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Supplier;
+import ru.yandex.practicum.scheduler.managers.collections.IntObjectHashMap;
+
+// Сравнение объёма памяти хранилища задач: HashMap<Integer, Object> и IntObjectHashMap.
+// Запуск: java -Xmx2g ... ru.yandex.practicum.scheduler.benchmarks.StorageFootprintBenchmark [количество записей]
+public class StorageFootprintBenchmark {
+
+    public static void main(String[] args) {
+        int entries = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        // Значения общие для обоих вариантов, чтобы измерялись только накладные расходы хранилища
+        Object value = new Object();
+
+        long hashMapBytes = measure(() -> fill(new HashMap<>(), entries, value));
+        long intMapBytes = measure(() -> fill(new IntObjectHashMap<>(), entries, value));
+
+        System.out.printf("Записей: %d%n", entries);
+        System.out.printf("HashMap<Integer, V>:  %,d байт (%.1f байт на запись)%n", hashMapBytes,
+                (double) hashMapBytes / entries);
+        System.out.printf("IntObjectHashMap<V>:  %,d байт (%.1f байт на запись)%n", intMapBytes,
+                (double) intMapBytes / entries);
+        System.out.printf("Экономия: %.1f раза%n", (double) hashMapBytes / intMapBytes);
+    }
+
+    private static Map<Integer, Object> fill(Map<Integer, Object> map, int entries, Object value) {
+        // ИД больше 127, чтобы Integer не брались из кэша, как и у реальных задач
+        for (int id = 1_000; id < 1_000 + entries; id++) {
+            map.put(id, value);
+        }
+        return map;
+    }
+
+    private static long measure(Supplier<Map<Integer, Object>> factory) {
+        long before = usedMemory();
+        Map<Integer, Object> map = factory.get();
+        long after = usedMemory();
+        // Удерживаем хранилище до окончания замера
+        if (map.isEmpty()) {
+            throw new IllegalStateException();
+        }
+        return after - before;
+    }
+
+    private static long usedMemory() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
@@ -0,0 +1,194 @@
+package ru.yandex.practicum.scheduler.managers;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.scheduler.exceptions.NotAcceptableException;
+import ru.yandex.practicum.scheduler.models.Epic;
+import ru.yandex.practicum.scheduler.models.Subtask;
+import ru.yandex.practicum.scheduler.models.Task;
+import ru.yandex.practicum.scheduler.models.enums.StatusTypes;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ConcurrentTaskManagerTest extends TaskManagerTest<ConcurrentTaskManager> {
+
+    private static final int THREADS = 8;
+
+    @Override
+    protected ConcurrentTaskManager createTaskManager() {
+        ConcurrentTaskManager concurrentTaskManager = new ConcurrentTaskManager(new InMemoryHistoryManager());
+        concurrentTaskManager.setEpicAggregatesVerification(true);
+        return concurrentTaskManager;
+    }
+
+    private void runInParallel(List<Callable<Void>> jobs) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            for (Future<Void> future : executor.invokeAll(jobs)) {
+                future.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @DisplayName("Параллельные изменения подзадач разных эпиков")
+    @Test
+    void testParallelSubtaskMutations() throws Exception {
+        LocalDateTime startTime = subtask.getEndTime().plusMinutes(1);
+        List<Callable<Void>> jobs = new ArrayList<>();
+
+        for (int i = 0; i < THREADS; i++) {
+            Epic epic1 = new Epic("Epic " + i, "Epic description");
+            taskManager.createEpic(epic1);
+            LocalDateTime threadStartTime = startTime.plusDays(i);
+
+            jobs.add(() -> {
+                for (int j = 0; j < 100; j++) {
+                    Subtask subtask1 = new Subtask("Subtask " + j, "Subtask description",
+                            threadStartTime.plusMinutes(j * 10L), Duration.ofMinutes(5), epic1.getId());
+                    taskManager.createSubtask(subtask1);
+                    if (j % 2 == 0) {
+                        subtask1.setStatus(StatusTypes.DONE);
+                        taskManager.updateSubtask(subtask1);
+                    }
+                }
+                return null;
+            });
+        }
+        runInParallel(jobs);
+
+        assertEquals(THREADS * 100 + 1, taskManager.getSubtasks().size(), "Не все подзадачи добавлены");
+        assertEquals(THREADS * 100 + 2, taskManager.getPrioritizedTasks().size(),
+                "Не все подзадачи добавлены в список приоритетов");
+        for (Epic epic1 : taskManager.getEpics()) {
+            if (!epic1.equals(epic)) {
+                assertEquals(100, taskManager.getEpicSubtasks(epic1.getId()).size(), "Неверное число подзадач эпика");
+                assertEquals(StatusTypes.IN_PROGRESS, epic1.getStatus(), "Неверный статус эпика");
+                assertEquals(Duration.ofMinutes(500), epic1.getDuration(), "Неверная длительность эпика");
+            }
+        }
+    }
+
+    @DisplayName("Параллельное добавление пересекающихся задач")
+    @Test
+    void testParallelIntersection() throws Exception {
+        LocalDateTime startTime = subtask.getEndTime().plusMinutes(1);
+        AtomicInteger created = new AtomicInteger();
+        AtomicInteger rejected = new AtomicInteger();
+        List<Callable<Void>> jobs = new ArrayList<>();
+
+        for (int i = 0; i < THREADS; i++) {
+            jobs.add(() -> {
+                try {
+                    taskManager.createTask(new Task("Task", "Task description", startTime, Duration.ofMinutes(10)));
+                    created.incrementAndGet();
+                } catch (NotAcceptableException e) {
+                    rejected.incrementAndGet();
+                }
+                return null;
+            });
+        }
+        runInParallel(jobs);
+
+        assertEquals(1, created.get(), "Добавлено больше одной пересекающейся задачи");
+        assertEquals(THREADS - 1, rejected.get(), "Не все пересекающиеся задачи отклонены");
+        assertEquals(2, taskManager.getTasks().size(), "Неверное количество задач в хранилище");
+    }
+
+    @DisplayName("Параллельные обновление и удаление задач не оставляют их на шкале")
+    @Test
+    void testParallelUpdateAndDelete() throws Exception {
+        LocalDateTime startTime = subtask.getEndTime().plusMinutes(1);
+        List<Task> tasks = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            Task newTask = new Task("Task " + i, "Task description", startTime.plusMinutes(i * 20L),
+                    Duration.ofMinutes(10));
+            taskManager.createTask(newTask);
+            tasks.add(newTask);
+        }
+        List<Callable<Void>> jobs = new ArrayList<>();
+
+        for (int i = 0; i < THREADS; i++) {
+            boolean deleting = i % 2 == 0;
+            jobs.add(() -> {
+                for (Task storedTask : tasks) {
+                    if (deleting) {
+                        taskManager.deleteTask(storedTask.getId());
+                    } else {
+                        taskManager.updateTask(new Task(storedTask.getId(), StatusTypes.DONE, storedTask.getName(),
+                                storedTask.getDescription(), storedTask.getStartTime(), storedTask.getDuration()));
+                    }
+                }
+                return null;
+            });
+        }
+        runInParallel(jobs);
+
+        assertEquals(1, taskManager.getTasks().size(), "Не все задачи удалены");
+        assertEquals(2, taskManager.getPrioritizedTasks().size(), "На шкале остались удалённые задачи");
+    }
+
+    @DisplayName("Чтение эпиков параллельно с добавлением подзадач видит согласованные копии")
+    @Test
+    void testParallelEpicReadsAndWrites() throws Exception {
+        LocalDateTime startTime = subtask.getEndTime().plusMinutes(1);
+        List<Epic> epics = new ArrayList<>();
+        for (int i = 0; i < THREADS / 2; i++) {
+            Epic epic1 = new Epic("Epic " + i, "Epic description");
+            taskManager.createEpic(epic1);
+            epics.add(epic1);
+        }
+        AtomicInteger writers = new AtomicInteger(epics.size());
+        AtomicInteger reads = new AtomicInteger();
+        List<Callable<Void>> jobs = new ArrayList<>();
+
+        for (int i = 0; i < epics.size(); i++) {
+            Epic epic1 = epics.get(i);
+            LocalDateTime threadStartTime = startTime.plusDays(i * 3L);
+            jobs.add(() -> {
+                try {
+                    for (int j = 0; j < 300; j++) {
+                        taskManager.createSubtask(new Subtask("Subtask " + j, "Subtask description",
+                                threadStartTime.plusMinutes(j * 10L), Duration.ofMinutes(5), epic1.getId()));
+                    }
+                } finally {
+                    writers.decrementAndGet();
+                }
+                return null;
+            });
+            jobs.add(() -> {
+                while (writers.get() > 0) {
+                    // Список подзадач и итоги каждого эпика должны относиться к одному состоянию
+                    taskManager.forEachEpic(epic2 -> {
+                        if (!epic2.equals(epic)) {
+                            assertEquals(Duration.ofMinutes(5L * epic2.getSubtaskIds().size()),
+                                    epic2.getDuration() == null ? Duration.ZERO : epic2.getDuration(),
+                                    "Эпик прочитан во время изменения");
+                        }
+                    });
+                    taskManager.getEpicById(epic1.getId()).orElseThrow().getSubtaskIds().forEach(id -> { });
+                    reads.incrementAndGet();
+                }
+                return null;
+            });
+        }
+        runInParallel(jobs);
+
+        assertTrue(reads.get() > 0, "Чтения не выполнялись");
+        for (Epic epic1 : epics) {
+            assertEquals(300, taskManager.getEpicById(epic1.getId()).orElseThrow().getSubtaskIds().size(),
+                    "Неверное число подзадач эпика");
+        }
+    }
+}
@@ -2,22 +2,34 @@ package ru.yandex.practicum.scheduler.managers;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.time.Duration;
 import java.time.LocalDateTime;
 import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import ru.yandex.practicum.scheduler.exceptions.ManagerSaveException;
+import ru.yandex.practicum.scheduler.exceptions.NotAcceptableException;
 import ru.yandex.practicum.scheduler.managers.interfaces.HistoryManager;
 import ru.yandex.practicum.scheduler.managers.interfaces.TaskManager;
+import ru.yandex.practicum.scheduler.managers.persistence.BinarySnapshot;
+import ru.yandex.practicum.scheduler.managers.persistence.CompressionTypes;
+import ru.yandex.practicum.scheduler.managers.persistence.PersistenceTypes;
+import ru.yandex.practicum.scheduler.managers.persistence.SnapshotCompression;
 import ru.yandex.practicum.scheduler.models.Epic;
 import ru.yandex.practicum.scheduler.models.Subtask;
 import ru.yandex.practicum.scheduler.models.Task;
+import ru.yandex.practicum.scheduler.models.enums.StatusTypes;
 
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 public class FileBackedTaskManagerTest extends TaskManagerTest<FileBackedTaskManager> {
@@ -147,4 +159,181 @@ public class FileBackedTaskManagerTest extends TaskManagerTest<FileBackedTaskMan
                 subtaskSM.getEndTime().truncatedTo(ChronoUnit.MINUTES),
                 "Подзадачи: Не совпадает значение метода getEndTime()");
     }
+
+    @DisplayName("Транзакции: Сохранение в файл при завершении")
+    @Test
+    void testTransactionCommit() {
+        FileBackedTaskManager manager = (FileBackedTaskManager) taskManager;
+        long sizeBefore = tempFile.toFile().length();
+
+        manager.inTransaction(tm -> {
+            tm.deleteSubtask(subtask.getId());
+            tm.createTask(new Task("Second task", "Second task description", subtask.getEndTime().plusMinutes(1),
+                    Duration.ofMinutes(10)));
+
+            assertEquals(sizeBefore, tempFile.toFile().length(), "Файл перезаписан до завершения транзакции");
+        });
+
+        FileBackedTaskManager loadedManager = FileBackedTaskManager.loadFromFile(tempFile.toFile());
+
+        assertEquals(2, loadedManager.getTasks().size(), "Задача транзакции не сохранена в файл");
+        assertTrue(loadedManager.getSubtasks().isEmpty(), "Удаление в транзакции не сохранено в файл");
+    }
+
+    @DisplayName("Транзакции: Откат при ошибке")
+    @Test
+    void testTransactionRollback() throws IOException {
+        FileBackedTaskManager manager = (FileBackedTaskManager) taskManager;
+        manager.getTaskById(task.getId());
+        manager.getSubtaskById(subtask.getId());
+        List<Task> history = manager.getHistory();
+        List<Task> prioritizedTasks = manager.getPrioritizedTasks();
+        byte[] before = Files.readAllBytes(tempFile);
+
+        assertThrows(IllegalStateException.class, () -> manager.inTransaction(tm -> {
+            tm.deleteEpic(epic.getId());
+            tm.deleteTask(task.getId());
+            throw new IllegalStateException();
+        }), "Не выброшено исключение из транзакции");
+
+        assertArrayEquals(before, Files.readAllBytes(tempFile), "Файл изменён откатанной транзакцией");
+        assertEquals(prioritizedTasks, manager.getPrioritizedTasks(), "Список приоритетов не восстановлен");
+        assertEquals(history, manager.getHistory(), "История не восстановлена");
+        assertEquals(List.of(subtask), manager.getEpicSubtasks(epic.getId()), "Подзадачи эпика не восстановлены");
+        assertEquals(subtask.getEndTime(), manager.getEpicById(epic.getId()).orElseThrow().getEndTime(),
+                "Итоги эпика не восстановлены");
+        assertFalse(manager.getTasks().isEmpty(), "Задача не восстановлена");
+    }
+
+    @DisplayName("Транзакции: Откат созданных и изменённых сущностей на месте")
+    @Test
+    void testTransactionRollbackInPlace() {
+        FileBackedTaskManager manager = (FileBackedTaskManager) taskManager;
+        Task storedTask = manager.getTaskById(task.getId()).orElseThrow();
+        Epic storedEpic = manager.getEpicById(epic.getId()).orElseThrow();
+        List<Task> prioritizedTasks = manager.getPrioritizedTasks();
+        LocalDateTime epicEndTime = storedEpic.getEndTime();
+
+        assertThrows(IllegalStateException.class, () -> manager.inTransaction(tm -> {
+            tm.createTask(new Task("Second task", "Second task description", subtask.getEndTime().plusMinutes(1),
+                    Duration.ofMinutes(10)));
+            Epic secondEpic = new Epic("Second epic", "Second epic description");
+            tm.createEpic(secondEpic);
+            tm.updateSubtask(new Subtask(subtask.getId(), StatusTypes.DONE, subtask.getName(),
+                    subtask.getDescription(), subtask.getStartTime(), subtask.getDuration(), secondEpic.getId()));
+            tm.updateTask(new Task(task.getId(), StatusTypes.DONE, "Updated task", task.getDescription(),
+                    task.getStartTime(), task.getDuration()));
+            throw new IllegalStateException();
+        }), "Не выброшено исключение из транзакции");
+
+        assertEquals(List.of(task), manager.getTasks(), "Созданная в транзакции задача не удалена");
+        assertEquals(List.of(epic), manager.getEpics(), "Созданный в транзакции эпик не удалён");
+        assertSame(storedTask, manager.getTaskById(task.getId()).orElseThrow(), "Задача заменена другим объектом");
+        assertEquals(task.getName(), storedTask.getName(), "Изменение задачи не откатано");
+        assertEquals(epic.getId(), manager.getSubtaskById(subtask.getId()).orElseThrow().getEpicId(),
+                "Перенос подзадачи не откатан");
+        assertEquals(List.of(subtask), manager.getEpicSubtasks(epic.getId()), "Подзадачи эпика не восстановлены");
+        assertEquals(epicEndTime, manager.getEpicById(epic.getId()).orElseThrow().getEndTime(),
+                "Итоги эпика не восстановлены");
+        assertEquals(prioritizedTasks, manager.getPrioritizedTasks(), "Список приоритетов не восстановлен");
+    }
+
+    @DisplayName("Двоичный снимок: Сохраняются запятые в наименованиях и описаниях")
+    @Test
+    void testBinarySnapshot() throws IOException {
+        Task taskWithComma = new Task(null, StatusTypes.IN_PROGRESS, "Name, with comma", "Описание, с запятой",
+                subtask.getEndTime().plusMinutes(1), Duration.ofMinutes(15));
+        taskManager.createTask(taskWithComma);
+
+        assertTrue(BinarySnapshot.isBinary(tempFile), "Снимок записан не в двоичном формате");
+        FileBackedTaskManager loadedTaskManager = FileBackedTaskManager.loadFromFile(tempFile.toFile());
+        Task loadedTask = loadedTaskManager.getTaskById(taskWithComma.getId()).orElseThrow();
+        assertEquals(taskWithComma.getName(), loadedTask.getName(), "Не совпадают наименования");
+        assertEquals(taskWithComma.getDescription(), loadedTask.getDescription(), "Не совпадают описания");
+        assertEquals(taskWithComma.getStatus(), loadedTask.getStatus(), "Не совпадают статусы");
+        // Время хранится с точностью до минуты, как и в CSV
+        assertEquals(taskWithComma.getStartTime().truncatedTo(ChronoUnit.MINUTES), loadedTask.getStartTime(),
+                "Не совпадает время начала");
+        assertEquals(taskWithComma.getDuration(), loadedTask.getDuration(), "Не совпадает длительность");
+        assertEquals(subtask.getEpicId(),
+                loadedTaskManager.getSubtaskById(subtask.getId()).orElseThrow().getEpicId(), "Не совпадают эпики");
+    }
+
+    @DisplayName("Двоичный снимок: Выгрузка в CSV и загрузка из CSV")
+    @Test
+    void testCsvExportAndImport() throws IOException {
+        File csvFile = File.createTempFile("export", ".csv");
+        csvFile.deleteOnExit();
+        FileBackedTaskManager manager = (FileBackedTaskManager) taskManager;
+        manager.exportCsv(csvFile);
+
+        assertTrue(Files.readString(csvFile.toPath()).contains(task.toCSV()), "Задача не выгружена в CSV");
+        FileBackedTaskManager importedTaskManager = FileBackedTaskManager.loadFromFile(csvFile);
+        assertEquals(manager.getTasks(), importedTaskManager.getTasks(), "Не совпадают списки задач");
+        assertEquals(manager.getEpics(), importedTaskManager.getEpics(), "Не совпадают списки эпиков");
+        assertEquals(manager.getSubtasks(), importedTaskManager.getSubtasks(), "Не совпадают списки подзадач");
+
+        // Следующее изменение сохраняет загруженный из CSV снимок в двоичном формате
+        importedTaskManager.deleteTask(task.getId());
+        assertTrue(BinarySnapshot.isBinary(csvFile.toPath()), "Снимок не переведён в двоичный формат");
+    }
+
+    @DisplayName("Сжатие: Снимок GZIP загружается с определением сжатия")
+    @Test
+    void testGzipSnapshot() throws IOException {
+        FileBackedTaskManager manager = (FileBackedTaskManager) taskManager;
+        manager.setSnapshotCompression(CompressionTypes.GZIP);
+        // Записи снимка не помещаются в один буфер чтения распакованного потока
+        List<Task> newTasks = new ArrayList<>();
+        for (int i = 0; i < 5_000; i++) {
+            newTasks.add(new Task("Task " + i, "Description of task " + i,
+                    subtask.getEndTime().plusMinutes(1 + 2L * i), Duration.ofMinutes(1)));
+        }
+        manager.createTasks(newTasks);
+
+        assertEquals(CompressionTypes.GZIP, SnapshotCompression.detect(tempFile), "Снимок записан без сжатия");
+        FileBackedTaskManager loadedTaskManager = FileBackedTaskManager.loadFromFile(tempFile.toFile());
+        assertEquals(manager.getTasks().size(), loadedTaskManager.getTasks().size(), "Не совпадают списки задач");
+        assertEquals(manager.getEpics(), loadedTaskManager.getEpics(), "Не совпадают списки эпиков");
+        assertEquals(manager.getSubtasks(), loadedTaskManager.getSubtasks(), "Не совпадают списки подзадач");
+        assertEquals(newTasks.getLast().getName(),
+                loadedTaskManager.getTaskById(newTasks.getLast().getId()).orElseThrow().getName(),
+                "Последняя запись снимка не загружена");
+    }
+
+    @DisplayName("Сжатие: Выгрузка CSV со сжатием Deflate и загрузка из неё")
+    @Test
+    void testDeflateCsvExport() throws IOException {
+        File csvFile = File.createTempFile("export", ".csv.z");
+        csvFile.deleteOnExit();
+        FileBackedTaskManager manager = (FileBackedTaskManager) taskManager;
+        manager.exportCsv(csvFile, CompressionTypes.DEFLATE);
+
+        assertEquals(CompressionTypes.DEFLATE, SnapshotCompression.detect(csvFile.toPath()),
+                "Выгрузка записана без сжатия");
+        FileBackedTaskManager importedTaskManager = FileBackedTaskManager.loadFromFile(csvFile);
+        assertEquals(manager.getTasks(), importedTaskManager.getTasks(), "Не совпадают списки задач");
+        assertEquals(manager.getEpics(), importedTaskManager.getEpics(), "Не совпадают списки эпиков");
+        assertEquals(manager.getSubtasks(), importedTaskManager.getSubtasks(), "Не совпадают списки подзадач");
+    }
+
+    @DisplayName("Загрузка: Индекс интервалов строится в фоне после загрузки хранилищ")
+    @Test
+    void testDeferredTimeIndex() {
+        FileBackedTaskManager loadedTaskManager = FileBackedTaskManager.loadFromFile(tempFile.toFile(),
+                PersistenceTypes.SNAPSHOT, true);
+
+        // Хранилища доступны сразу
+        assertEquals(task.getId(), loadedTaskManager.getTaskById(task.getId()).orElseThrow().getId(),
+                "Задача не загружена");
+        assertEquals(taskManager.getSubtasks(), loadedTaskManager.getSubtasks(), "Не совпадают списки подзадач");
+        // Проверка пересечений дожидается построения индекса
+        Task overlappingTask = new Task("Overlapping task", "Overlapping task description", task.getStartTime(),
+                task.getDuration());
+        assertThrows(NotAcceptableException.class, () -> loadedTaskManager.createTask(overlappingTask),
+                "Пересечение не найдено по индексу, построенному в фоне");
+        loadedTaskManager.awaitTimeIndex();
+        assertEquals(taskManager.getPrioritizedTasks(), loadedTaskManager.getPrioritizedTasks(),
+                "Не совпадают списки приоритетов");
+    }
 }
@@ -1,10 +1,17 @@
 package ru.yandex.practicum.scheduler.managers;
 
 import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import ru.yandex.practicum.scheduler.exceptions.NotAcceptableException;
+import ru.yandex.practicum.scheduler.models.Epic;
+import ru.yandex.practicum.scheduler.models.Subtask;
 import ru.yandex.practicum.scheduler.models.Task;
+import ru.yandex.practicum.scheduler.models.enums.StatusTypes;
 
 import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
 import static org.junit.jupiter.api.Assertions.assertThrows;
@@ -13,7 +20,10 @@ public class InMemoryTaskManagerTest extends TaskManagerTest<InMemoryTaskManager
 
     @Override
     protected InMemoryTaskManager createTaskManager() {
-        return new InMemoryTaskManager(new InMemoryHistoryManager());
+        InMemoryTaskManager inMemoryTaskManager = new InMemoryTaskManager(new InMemoryHistoryManager());
+        // Сверяем инкрементальные итоги эпиков с полным пересчётом после каждого изменения
+        inMemoryTaskManager.setEpicAggregatesVerification(true);
+        return inMemoryTaskManager;
     }
 
     @DisplayName("Пересечение интервалов: добавление с пересечением")
@@ -40,4 +50,44 @@ public class InMemoryTaskManagerTest extends TaskManagerTest<InMemoryTaskManager
             taskManager.createTask(task2);
         }, "Выброшено исключение");
     }
+
+    @DisplayName("Итоги эпиков: совпадение с полным пересчётом после случайных изменений")
+    @Test
+    void testEpicAggregatesMatchFullRecalculation() {
+        Random random = new Random(7);
+        List<Epic> epics = new ArrayList<>();
+        List<Subtask> subtasks = new ArrayList<>();
+        LocalDateTime startTime = subtask.getEndTime().plusMinutes(1);
+
+        for (int i = 0; i < 5; i++) {
+            Epic epic1 = new Epic("Epic " + i, "Epic description");
+            taskManager.createEpic(epic1);
+            epics.add(epic1);
+        }
+
+        // Проверка выполняется внутри менеджера при каждом пересчёте полей эпика
+        assertDoesNotThrow(() -> {
+            for (int i = 0; i < 300; i++) {
+                int action = random.nextInt(3);
+                Epic epic1 = epics.get(random.nextInt(epics.size()));
+                if (action == 0 || subtasks.isEmpty()) {
+                    Subtask subtask1 = new Subtask("Subtask " + i, "Subtask description",
+                            startTime.plusMinutes(i * 10L), Duration.ofMinutes(1 + random.nextInt(5)), epic1.getId());
+                    taskManager.createSubtask(subtask1);
+                    subtasks.add(subtask1);
+                } else if (action == 1) {
+                    Subtask subtask1 = subtasks.get(random.nextInt(subtasks.size()));
+                    Subtask updatedSubtask = new Subtask(subtask1.getId(),
+                            StatusTypes.values()[random.nextInt(StatusTypes.values().length)], subtask1.getName(),
+                            subtask1.getDescription(), subtask1.getStartTime().plusMinutes(random.nextInt(3)),
+                            Duration.ofMinutes(1 + random.nextInt(5)), epic1.getId());
+                    taskManager.updateSubtask(updatedSubtask);
+                    subtasks.set(subtasks.indexOf(subtask1), updatedSubtask);
+                } else {
+                    Subtask subtask1 = subtasks.remove(random.nextInt(subtasks.size()));
+                    taskManager.deleteSubtask(subtask1.getId());
+                }
+            }
+        }, "Итоги эпиков разошлись с полным пересчётом");
+    }
 }
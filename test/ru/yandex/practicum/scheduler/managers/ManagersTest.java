@@ -3,11 +3,16 @@ package ru.yandex.practicum.scheduler.managers;
 import java.io.File;
 import java.io.IOException;
 import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import ru.yandex.practicum.scheduler.managers.interfaces.HistoryManager;
 import ru.yandex.practicum.scheduler.managers.interfaces.TaskManager;
+import ru.yandex.practicum.scheduler.managers.stores.InMemoryTaskStore;
 import ru.yandex.practicum.scheduler.models.Task;
+import ru.yandex.practicum.scheduler.models.enums.TaskTypes;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -21,6 +26,27 @@ class ManagersTest {
         assertNotNull(taskManager, "Менеджер задач вернулся пустым");
     }
 
+    @DisplayName("Получение потокобезопасного менеджера задач")
+    @Test
+    void getConcurrent() {
+        TaskManager taskManager = Managers.getConcurrent();
+
+        assertInstanceOf(ConcurrentTaskManager.class, taskManager, "Менеджер задач не потокобезопасный");
+    }
+
+    @DisplayName("Менеджер поверх переданного хранилища")
+    @Test
+    void getDefaultWithStore() {
+        InMemoryTaskStore store = new InMemoryTaskStore();
+        TaskManager taskManager = Managers.getDefault(store);
+
+        Task task = new Task("Task", "Task description", LocalDateTime.now(), Duration.ofMinutes(10));
+        taskManager.createTask(task);
+
+        assertSame(task, store.get(TaskTypes.TASK, task.getId()), "Задача не сохранена в хранилище");
+        assertEquals(List.of(task), store.getTimeline(), "Задача не добавлена на шкалу хранилища");
+    }
+
     @DisplayName("Получение менеджера истории по умолчанию")
     @Test
     void getDefaultHistory() {
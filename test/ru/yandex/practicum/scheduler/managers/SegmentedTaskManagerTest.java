@@ -0,0 +1,146 @@
+package ru.yandex.practicum.scheduler.managers;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import ru.yandex.practicum.scheduler.managers.persistence.PersistenceTypes;
+import ru.yandex.practicum.scheduler.managers.persistence.SegmentedStore;
+import ru.yandex.practicum.scheduler.models.Epic;
+import ru.yandex.practicum.scheduler.models.Subtask;
+import ru.yandex.practicum.scheduler.models.Task;
+import ru.yandex.practicum.scheduler.models.enums.StatusTypes;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class SegmentedTaskManagerTest extends TaskManagerTest<FileBackedTaskManager> {
+
+    @TempDir
+    Path tempDir;
+    private File file;
+
+    @Override
+    protected FileBackedTaskManager createTaskManager() {
+        file = tempDir.resolve("database.csv").toFile();
+        return new FileBackedTaskManager(Managers.getDefaultHistory(), file, PersistenceTypes.SEGMENTED);
+    }
+
+    private Set<String> getSegmentFiles() throws IOException {
+        try (Stream<Path> files = Files.list(SegmentedStore.getDirectory(file.toPath()))) {
+            return files.map(path -> path.getFileName().toString()).collect(Collectors.toSet());
+        }
+    }
+
+    // Создаёт задачи, которые займут ещё два сегмента после первого
+    private List<Task> createTasksInNextSegments() {
+        List<Task> newTasks = new ArrayList<>();
+        for (int i = 0; i < 2 * SegmentedStore.DEFAULT_SEGMENT_SIZE; i++) {
+            newTasks.add(new Task("Task " + i, "Description " + i, subtask.getEndTime().plusMinutes(1 + 2L * i),
+                    Duration.ofMinutes(1)));
+        }
+        taskManager.createTasks(newTasks);
+        return newTasks;
+    }
+
+    private void assertSameState(FileBackedTaskManager expected, FileBackedTaskManager actual) {
+        assertEquals(expected.getTasks(), actual.getTasks(), "Не совпадают списки задач");
+        assertEquals(expected.getEpics(), actual.getEpics(), "Не совпадают списки эпиков");
+        assertEquals(expected.getSubtasks(), actual.getSubtasks(), "Не совпадают списки подзадач");
+        assertEquals(expected.getPrioritizedTasks(), actual.getPrioritizedTasks(), "Не совпадают списки приоритетов");
+        for (Epic expectedEpic : expected.getEpics()) {
+            Epic loadedEpic = actual.getEpicById(expectedEpic.getId()).orElseThrow();
+            assertEquals(expectedEpic.getStatus(), loadedEpic.getStatus(), "Не совпадают статусы эпиков");
+            assertEquals(expectedEpic.getSubtaskIds(), loadedEpic.getSubtaskIds(), "Не совпадают подзадачи эпиков");
+        }
+    }
+
+    @DisplayName("Сегменты: Изменение перезаписывает только свой сегмент")
+    @Test
+    void testOnlyDirtySegmentsAreRewritten() throws IOException {
+        List<Task> newTasks = createTasksInNextSegments();
+        Set<String> before = getSegmentFiles();
+        assertEquals(3, before.size(), "Неверное количество сегментов");
+
+        Task lastTask = newTasks.get(newTasks.size() - 1);
+        taskManager.updateTask(new Task(lastTask.getId(), StatusTypes.DONE, lastTask.getName(),
+                lastTask.getDescription(), lastTask.getStartTime(), lastTask.getDuration()));
+
+        Set<String> after = getSegmentFiles();
+        assertEquals(3, after.size(), "Прежний файл сегмента не удалён");
+        Set<String> kept = before.stream().filter(after::contains).collect(Collectors.toSet());
+        assertEquals(2, kept.size(), "Перезаписаны сегменты без изменений");
+        assertFalse(kept.stream().anyMatch(name -> name.startsWith("2-")), "Изменённый сегмент не перезаписан");
+    }
+
+    @DisplayName("Сегменты: Загрузка после изменений, переноса подзадачи и удаления эпика")
+    @Test
+    void testReload() {
+        createTasksInNextSegments();
+        // Новый эпик попадает в другой сегмент, чем первый эпик и его подзадача
+        Epic secondEpic = new Epic("Second epic", "Second epic description");
+        taskManager.createEpic(secondEpic);
+        Subtask movedSubtask = new Subtask(subtask.getId(), StatusTypes.DONE, subtask.getName(),
+                subtask.getDescription(), subtask.getStartTime(), subtask.getDuration(), secondEpic.getId());
+        taskManager.updateSubtask(movedSubtask);
+        Epic thirdEpic = new Epic("Third epic", "Third epic description");
+        taskManager.createEpic(thirdEpic);
+        Subtask thirdSubtask = new Subtask("Third subtask", "Third subtask description",
+                task.getStartTime().minusHours(2), Duration.ofMinutes(30), thirdEpic.getId());
+        taskManager.createSubtask(thirdSubtask);
+        taskManager.deleteEpic(thirdEpic.getId());
+        taskManager.deleteTask(task.getId());
+
+        FileBackedTaskManager loaded = FileBackedTaskManager.loadFromFile(file);
+
+        assertSameState(taskManager, loaded);
+        assertEquals(StatusTypes.NEW, loaded.getEpicById(epic.getId()).orElseThrow().getStatus(),
+                "Статус эпика без подзадач не пересчитан");
+        assertEquals(StatusTypes.DONE, loaded.getEpicById(secondEpic.getId()).orElseThrow().getStatus(),
+                "Статус эпика перенесённой подзадачи не пересчитан");
+        assertEquals(subtask.getEndTime().truncatedTo(ChronoUnit.MINUTES),
+                loaded.getEpicById(secondEpic.getId()).orElseThrow().getEndTime(), "Неверное окончание эпика");
+    }
+
+    @DisplayName("Сегменты: Изменения загруженного менеджера")
+    @Test
+    void testChangesAfterLoad() {
+        createTasksInNextSegments();
+        FileBackedTaskManager loaded = FileBackedTaskManager.loadFromFile(file, PersistenceTypes.SEGMENTED);
+        loaded.deleteSubtask(subtask.getId());
+        Task secondTask = new Task("Second task", "Second task description", task.getStartTime().minusHours(2),
+                Duration.ofMinutes(10));
+        loaded.createTask(secondTask);
+
+        FileBackedTaskManager reloaded = FileBackedTaskManager.loadFromFile(file);
+
+        assertSameState(loaded, reloaded);
+        assertTrue(reloaded.getTaskById(secondTask.getId()).isPresent(), "Новая задача не загружена");
+    }
+
+    @DisplayName("Сегменты: Новый менеджер заменяет прежние сегменты")
+    @Test
+    void testNewManagerReplacesSegments() throws IOException {
+        createTasksInNextSegments();
+
+        FileBackedTaskManager newManager = new FileBackedTaskManager(Managers.getDefaultHistory(), file,
+                PersistenceTypes.SEGMENTED);
+        Task newTask = new Task("New task", "New task description", task.getStartTime(), Duration.ofMinutes(10));
+        newManager.createTask(newTask);
+
+        assertEquals(1, getSegmentFiles().size(), "Сегменты прежнего состояния не удалены");
+        FileBackedTaskManager loaded = FileBackedTaskManager.loadFromFile(file);
+        assertEquals(List.of(newTask), loaded.getTasks(), "Загружено прежнее состояние");
+    }
+}
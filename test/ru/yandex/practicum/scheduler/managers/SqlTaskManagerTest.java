@@ -0,0 +1,115 @@
+package ru.yandex.practicum.scheduler.managers;
+
+import java.io.File;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.List;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import ru.yandex.practicum.scheduler.exceptions.ManagerSaveException;
+import ru.yandex.practicum.scheduler.exceptions.NotAcceptableException;
+import ru.yandex.practicum.scheduler.models.Epic;
+import ru.yandex.practicum.scheduler.models.Subtask;
+import ru.yandex.practicum.scheduler.models.Task;
+import ru.yandex.practicum.scheduler.models.enums.StatusTypes;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class SqlTaskManagerTest extends TaskManagerTest<SqlTaskManager> {
+
+    @TempDir
+    Path tempDir;
+    private File file;
+
+    @Override
+    protected SqlTaskManager createTaskManager() {
+        file = tempDir.resolve("board").toFile();
+        return Managers.getSql(file);
+    }
+
+    @Override
+    @AfterEach
+    void halt() {
+        super.halt();
+        taskManager.close();
+    }
+
+    @DisplayName("SQL: Открытие базы восстанавливает задачи, эпики и счётчик ИД")
+    @Test
+    void testReopen() {
+        Subtask doneSubtask = new Subtask(subtask.getId(), StatusTypes.DONE, subtask.getName(),
+                subtask.getDescription(), subtask.getStartTime(), subtask.getDuration(), epic.getId());
+        taskManager.updateSubtask(doneSubtask);
+        List<Task> prioritizedTasks = taskManager.getPrioritizedTasks();
+        taskManager.close();
+
+        taskManager = Managers.getSql(file);
+
+        assertEquals(List.of(task), taskManager.getTasks(), "Задачи не восстановлены");
+        assertEquals(List.of(doneSubtask), taskManager.getSubtasks(), "Подзадачи не восстановлены");
+        assertEquals(prioritizedTasks, taskManager.getPrioritizedTasks(), "Список приоритетов не восстановлен");
+        Epic loadedEpic = taskManager.getEpicById(epic.getId()).orElseThrow();
+        assertEquals(StatusTypes.DONE, loadedEpic.getStatus(), "Статус эпика не восстановлен");
+        assertEquals(List.of(subtask.getId()), loadedEpic.getSubtaskIds(), "Подзадачи эпика не восстановлены");
+        assertEquals(subtask.getEndTime(), loadedEpic.getEndTime(), "Окончание эпика не восстановлено");
+
+        Task newTask = new Task("New task", "New task description", subtask.getEndTime().plusMinutes(1),
+                Duration.ofMinutes(10));
+        taskManager.createTask(newTask);
+        assertEquals(subtask.getId() + 1, newTask.getId(), "Счётчик ИД не восстановлен");
+    }
+
+    @DisplayName("SQL: Пакет с пересечением не сохраняется частично")
+    @Test
+    void testBatchRollback() {
+        Task first = new Task("First", "First description", subtask.getEndTime().plusMinutes(1),
+                Duration.ofMinutes(10));
+        Task overlapping = new Task("Overlapping", "Overlapping description", task.getStartTime(),
+                Duration.ofMinutes(10));
+
+        assertThrows(NotAcceptableException.class, () -> taskManager.createTasks(List.of(first, overlapping)));
+        assertEquals(List.of(task), taskManager.getTasks(), "Пакет сохранён частично");
+    }
+
+    @DisplayName("SQL: Ошибка базы в пакете подзадач не меняет эпики в памяти")
+    @Test
+    void testSubtaskBatchFailureRestoresEpics() throws SQLException {
+        // Запрещаем в базе подзадачи с наименованием Broken, чтобы пакет упал уже после изменения эпиков
+        try (Connection connection = DriverManager.getConnection("jdbc:h2:file:" + file.getAbsolutePath());
+             Statement statement = connection.createStatement()) {
+            statement.execute("ALTER TABLE tasks ADD CONSTRAINT no_broken CHECK (name <> 'Broken')");
+        }
+        Epic otherEpic = new Epic("Other epic", "Other epic description");
+        taskManager.createEpic(otherEpic);
+        Subtask first = new Subtask("First", "First description", subtask.getEndTime().plusMinutes(1),
+                Duration.ofMinutes(10), otherEpic.getId());
+        Subtask broken = new Subtask("Broken", "Broken description", subtask.getEndTime().plusMinutes(20),
+                Duration.ofMinutes(10), epic.getId());
+
+        assertThrows(ManagerSaveException.class, () -> taskManager.createSubtasks(List.of(first, broken)));
+        assertEquals(List.of(subtask), taskManager.getEpicSubtasks(epic.getId()), "Подзадачи эпика изменены");
+        assertEquals(List.of(subtask.getId()), taskManager.getEpicById(epic.getId()).orElseThrow().getSubtaskIds(),
+                "Список подзадач эпика изменён");
+        assertEquals(List.of(), taskManager.getEpicById(otherEpic.getId()).orElseThrow().getSubtaskIds(),
+                "Список подзадач другого эпика изменён");
+
+        // Перенос подзадачи в другой эпик пакетом, который падает в базе
+        Subtask moved = new Subtask(subtask.getId(), StatusTypes.DONE, "Broken", subtask.getDescription(),
+                subtask.getStartTime(), subtask.getDuration(), otherEpic.getId());
+
+        assertThrows(ManagerSaveException.class, () -> taskManager.updateSubtasks(List.of(moved)));
+        Epic storedEpic = taskManager.getEpicById(epic.getId()).orElseThrow();
+        assertEquals(List.of(subtask.getId()), storedEpic.getSubtaskIds(), "Подзадача удалена из эпика");
+        assertEquals(StatusTypes.NEW, storedEpic.getStatus(), "Статус эпика изменён");
+        assertEquals(List.of(), taskManager.getEpicById(otherEpic.getId()).orElseThrow().getSubtaskIds(),
+                "Подзадача добавлена в другой эпик");
+        assertEquals(List.of(subtask), taskManager.getEpicSubtasks(epic.getId()), "Подзадачи эпика изменены");
+    }
+}
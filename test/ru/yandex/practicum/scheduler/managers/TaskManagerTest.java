@@ -2,13 +2,17 @@ package ru.yandex.practicum.scheduler.managers;
 
 import java.time.Duration;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.scheduler.exceptions.NotAcceptableException;
+import ru.yandex.practicum.scheduler.exceptions.NotFoundException;
 import ru.yandex.practicum.scheduler.managers.interfaces.TaskManager;
+import ru.yandex.practicum.scheduler.managers.queries.TaskQuery;
 import ru.yandex.practicum.scheduler.models.Epic;
 import ru.yandex.practicum.scheduler.models.Subtask;
 import ru.yandex.practicum.scheduler.models.Task;
@@ -16,6 +20,7 @@ import ru.yandex.practicum.scheduler.models.enums.StatusTypes;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 abstract class TaskManagerTest<T extends TaskManager> {
@@ -92,6 +97,117 @@ abstract class TaskManagerTest<T extends TaskManager> {
         assertTrue(taskManager.getTasks().isEmpty(), "Хранилище задач не очищено");
     }
 
+    @DisplayName("Операции со списками: Обход без копирования")
+    @Test
+    void testForEach() {
+        taskManager.createTask(new Task("Second task", "Second task description",
+                subtask.getEndTime().plusMinutes(1), Duration.ofMinutes(10)));
+        taskManager.createEpic(new Epic("Second epic", "Second epic description"));
+
+        List<Task> tasks = new ArrayList<>();
+        taskManager.forEachTask(tasks::add);
+        List<Epic> epics = new ArrayList<>();
+        taskManager.forEachEpic(epics::add);
+        List<Subtask> subtasks = new ArrayList<>();
+        taskManager.forEachSubtask(subtasks::add);
+        List<Task> prioritizedTasks = new ArrayList<>();
+        taskManager.forEachPrioritizedTask(prioritizedTasks::add);
+
+        assertEquals(taskManager.getTasks(), tasks, "Обход задач не совпадает со списком");
+        assertEquals(taskManager.getEpics(), epics, "Обход эпиков не совпадает со списком");
+        assertEquals(taskManager.getSubtasks(), subtasks, "Обход подзадач не совпадает со списком");
+        assertEquals(taskManager.getPrioritizedTasks(), prioritizedTasks,
+                "Обход списка приоритетов не совпадает со списком");
+    }
+
+    @DisplayName("Операции со списками: Страницы по ИД с курсором и фильтром статуса")
+    @Test
+    void testFindById() {
+        LocalDateTime startTime = subtask.getEndTime().plusMinutes(1);
+        for (int i = 0; i < 5; i++) {
+            taskManager.createTask(new Task("Task " + i, "Task description " + i,
+                    startTime.plusMinutes(i * 20L), Duration.ofMinutes(10)));
+        }
+        Task doneTask = new Task("Done task", "Done task description", startTime.plusMinutes(200),
+                Duration.ofMinutes(10));
+        taskManager.createTask(doneTask);
+        doneTask.setStatus(StatusTypes.DONE);
+        taskManager.updateTask(doneTask);
+
+        // Проходим все задачи страницами по две, передавая ИД последней задачи страницы
+        List<Integer> pagedIds = new ArrayList<>();
+        List<Task> page = taskManager.findTasks(new TaskQuery().setLimit(2));
+        while (!page.isEmpty()) {
+            assertTrue(page.size() <= 2, "Страница больше лимита");
+            page.forEach(pageTask -> pagedIds.add(pageTask.getId()));
+            page = taskManager.findTasks(new TaskQuery().setLimit(2).setAfter(page.getLast().getId()));
+        }
+        List<Integer> expectedIds = taskManager.getTasks().stream().map(Task::getId).sorted().toList();
+        assertEquals(expectedIds, pagedIds, "Страницы не совпадают со списком задач");
+
+        List<Task> doneTasks = taskManager.findTasks(new TaskQuery().setStatus(StatusTypes.DONE));
+        assertEquals(List.of(doneTask.getId()), doneTasks.stream().map(Task::getId).toList(),
+                "Фильтр по статусу вернул не те задачи");
+        assertTrue(taskManager.findEpics(new TaskQuery().setStatus(StatusTypes.DONE)).isEmpty(),
+                "Фильтр по статусу вернул эпик с другим статусом");
+        assertEquals(List.of(epic.getId()), taskManager.findEpics(new TaskQuery().setLimit(1)).stream()
+                .map(Epic::getId).toList(), "Страница эпиков не совпадает со списком");
+        assertTrue(taskManager.getHistory().isEmpty(), "Страница попала в историю просмотров");
+    }
+
+    @DisplayName("Операции со списками: Страницы по времени начала и подзадачи эпика")
+    @Test
+    void testFindByTime() {
+        LocalDateTime startTime = subtask.getEndTime().plusMinutes(1);
+        List<Task> tasks = new ArrayList<>();
+        // Задачи создаются в обратном порядке времени, чтобы порядок ИД и времени различался
+        for (int i = 4; i >= 0; i--) {
+            Task newTask = new Task("Task " + i, "Task description " + i, startTime.plusMinutes(i * 20L),
+                    Duration.ofMinutes(10));
+            taskManager.createTask(newTask);
+            tasks.addFirst(newTask);
+        }
+        Subtask secondSubtask = new Subtask("Second subtask", "Second subtask description",
+                startTime.plusMinutes(32), Duration.ofMinutes(5), epic.getId());
+        taskManager.createSubtask(secondSubtask);
+
+        List<Integer> pagedIds = new ArrayList<>();
+        List<Task> page = taskManager.findPrioritizedTasks(new TaskQuery().setLimit(3));
+        while (!page.isEmpty()) {
+            page.forEach(pageTask -> pagedIds.add(pageTask.getId()));
+            page = taskManager.findPrioritizedTasks(new TaskQuery().setLimit(3).setAfter(page.getLast().getId()));
+        }
+        assertEquals(taskManager.getPrioritizedTasks().stream().map(Task::getId).toList(), pagedIds,
+                "Страницы не совпадают со списком приоритетов");
+
+        // Полуинтервал [from, to) по времени начала, задачи - в порядке времени
+        TaskQuery range = new TaskQuery().setFrom(tasks.get(1).getStartTime()).setTo(tasks.get(4).getStartTime());
+        assertEquals(List.of(tasks.get(1).getId(), tasks.get(2).getId(), tasks.get(3).getId()),
+                taskManager.findTasks(range).stream().map(Task::getId).toList(), "Неверные задачи интервала");
+        assertEquals(List.of(tasks.get(3).getId()), taskManager.findTasks(range.setAfter(tasks.get(2).getId()))
+                .stream().map(Task::getId).toList(), "Курсор не сдвинул страницу интервала");
+        assertEquals(List.of(secondSubtask.getId()), taskManager.findSubtasks(new TaskQuery()
+                .setFrom(startTime)).stream().map(Task::getId).toList(), "Неверные подзадачи интервала");
+
+        assertEquals(List.of(subtask.getId()), taskManager.findSubtasks(new TaskQuery().setEpicId(epic.getId())
+                .setLimit(1)).stream().map(Task::getId).toList(), "Неверная первая страница подзадач эпика");
+        assertEquals(List.of(secondSubtask.getId()), taskManager.findSubtasks(new TaskQuery().setEpicId(epic.getId())
+                .setAfter(subtask.getId())).stream().map(Task::getId).toList(),
+                "Неверная вторая страница подзадач эпика");
+
+        // Курсор по времени задаётся удалённой задачей
+        taskManager.deleteTask(tasks.get(0).getId());
+        assertThrows(NotFoundException.class, () -> taskManager.findPrioritizedTasks(new TaskQuery()
+                .setAfter(tasks.get(0).getId())), "Удалённая задача-курсор не обнаружена");
+        // С временем начала курсора страница продолжается со следующей задачи
+        assertEquals(List.of(tasks.get(1).getId()), taskManager.findPrioritizedTasks(new TaskQuery().setLimit(1)
+                .setAfter(tasks.get(0).getId()).setAfterStart(tasks.get(0).getStartTime()))
+                .stream().map(Task::getId).toList(), "Страница после удалённой задачи-курсора не найдена");
+        assertEquals(List.of(tasks.get(2).getId()), taskManager.findTasks(new TaskQuery().setLimit(1)
+                .setFrom(startTime).setAfter(tasks.get(0).getId()).setAfterStart(tasks.get(1).getStartTime()))
+                .stream().map(Task::getId).toList(), "Курсор по времени начала не сдвинул страницу интервала");
+    }
+
     @DisplayName("Операции с Task: Изменение")
     @Test
     void testUpdateTask() {
@@ -106,6 +222,56 @@ abstract class TaskManagerTest<T extends TaskManager> {
         assertEquals(updatedTask, retrievedTask.get(), "Задача не обновлена новыми значениями");
     }
 
+    @DisplayName("Операции с Task: Изменение задачи, время которой изменено на месте")
+    @Test
+    void testUpdateTaskChangedInPlace() {
+        LocalDateTime startTime = subtask.getEndTime().plusMinutes(1);
+        List<Task> tasks = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            Task newTask = new Task("Task " + i, "Task description", startTime.plusMinutes(i * 20L),
+                    Duration.ofMinutes(10));
+            taskManager.createTask(newTask);
+            tasks.add(newTask);
+        }
+        // Время сохранённой задачи меняется на месте, затем задача обновляется
+        Task storedTask = taskManager.getTaskById(tasks.getLast().getId()).orElseThrow();
+        storedTask.setStartTime(task.getStartTime().minusDays(1));
+        Task updatedTask = new Task(storedTask.getId(), StatusTypes.NEW, "Updated task", "Task description",
+                startTime.plusMinutes(93), Duration.ofMinutes(5));
+
+        taskManager.updateTask(updatedTask);
+
+        List<Integer> prioritizedIds = taskManager.getPrioritizedTasks().stream().map(Task::getId).toList();
+        assertEquals(12, prioritizedIds.size(), "В списке приоритетов осталась прежняя версия задачи");
+        assertEquals(updatedTask.getId(), prioritizedIds.get(7), "Обновлённая задача не на своём месте");
+    }
+
+    @DisplayName("Операции с Task: Отклонённый пакет не убирает задачи, время которых изменено на месте")
+    @Test
+    void testRejectedBatchKeepsTasksChangedInPlace() {
+        LocalDateTime startTime = subtask.getEndTime().plusMinutes(1);
+        Task first = new Task("First", "Task description", startTime, Duration.ofMinutes(30));
+        Task second = new Task("Second", "Task description", startTime.plusMinutes(60), Duration.ofMinutes(30));
+        Subtask third = new Subtask("Third", "Subtask description", startTime.plusMinutes(120),
+                Duration.ofMinutes(30), epic.getId());
+        taskManager.createTask(first);
+        taskManager.createTask(second);
+        taskManager.createSubtask(third);
+        int prioritizedCount = taskManager.getPrioritizedTasks().size();
+
+        // Время сохранённых задачи и подзадачи меняется на месте так, что они пересекаются со второй задачей
+        Task storedTask = taskManager.getTaskById(first.getId()).orElseThrow();
+        storedTask.setStartTime(startTime.plusMinutes(70));
+        assertThrows(NotAcceptableException.class, () -> taskManager.updateTasks(List.of(storedTask)));
+        Subtask storedSubtask = taskManager.getSubtaskById(third.getId()).orElseThrow();
+        storedSubtask.setStartTime(startTime.plusMinutes(70));
+        assertThrows(NotAcceptableException.class, () -> taskManager.updateSubtasks(List.of(storedSubtask)));
+
+        assertEquals(prioritizedCount, taskManager.getPrioritizedTasks().size(),
+                "Задачи отклонённого пакета пропали из списка приоритетов");
+        assertEquals(3, taskManager.getTasks().size(), "Неверное количество задач");
+    }
+
     @DisplayName("Операции с Task: Удаление")
     @Test
     void testDeleteTask() {
@@ -312,6 +478,107 @@ abstract class TaskManagerTest<T extends TaskManager> {
         assertTrue(retrievedEpic.get().getSubtaskIds().isEmpty(), "Список подзадач родительского эпика не очищен");
     }
 
+    @DisplayName("Операции с Subtask: Перенос в другой эпик")
+    @Test
+    void testMoveSubtaskToAnotherEpic() {
+        Epic epic1 = new Epic("Second epic", "Second epic description");
+        taskManager.createEpic(epic1);
+
+        Subtask movedSubtask = new Subtask(subtask.getId(), StatusTypes.DONE, subtask.getName(),
+                subtask.getDescription(), subtask.getStartTime(), subtask.getDuration(), epic1.getId());
+        taskManager.updateSubtask(movedSubtask);
+
+        assertTrue(taskManager.getEpicSubtasks(epic.getId()).isEmpty(), "Подзадача осталась в прежнем эпике");
+        assertEquals(List.of(movedSubtask), taskManager.getEpicSubtasks(epic1.getId()),
+                "Подзадача не перенесена в новый эпик");
+        assertEquals(StatusTypes.NEW, epic.getStatus(), "Не пересчитан статус прежнего эпика");
+        assertEquals(StatusTypes.DONE, epic1.getStatus(), "Не пересчитан статус нового эпика");
+    }
+
+    @DisplayName("Операции с Epic: Расчёт времени по подзадачам")
+    @Test
+    void testEpicTimeFields() {
+        Subtask subtask1 = new Subtask("Second subtask", "Second description", subtask.getEndTime().plusMinutes(1),
+                Duration.ofMinutes(15), epic.getId());
+        taskManager.createSubtask(subtask1);
+
+        assertEquals(List.of(subtask.getId(), subtask1.getId()), epic.getSubtaskIds(),
+                "Список подзадач эпика не совпадает");
+        assertEquals(subtask.getStartTime(), epic.getStartTime(), "Неверное время начала эпика");
+        assertEquals(subtask1.getEndTime(), epic.getEndTime(), "Неверное время окончания эпика");
+        assertEquals(subtask.getDuration().plus(subtask1.getDuration()), epic.getDuration(),
+                "Неверная длительность эпика");
+    }
+
+    @DisplayName("Пакетные операции с Task: Добавление")
+    @Test
+    void testCreateTasksBatch() {
+        Task task1 = new Task("Second task", "Task description", subtask.getEndTime().plusMinutes(1),
+                Duration.ofMinutes(10));
+        Task task2 = new Task("Third task", "Task description", task1.getEndTime().plusMinutes(1),
+                Duration.ofMinutes(10));
+
+        List<Integer> ids = taskManager.createTasks(List.of(task2, task1));
+
+        assertEquals(List.of(task2.getId(), task1.getId()), ids, "Не вернулись ИД добавленных задач");
+        assertEquals(3, taskManager.getTasks().size(), "Не все задачи пакета добавлены");
+        assertEquals(4, taskManager.getPrioritizedTasks().size(), "Не все задачи пакета в списке приоритетов");
+    }
+
+    @DisplayName("Пакетные операции с Task: Пересечение внутри пакета")
+    @Test
+    void testCreateTasksBatchIntersection() {
+        Task task1 = new Task("Second task", "Task description", subtask.getEndTime().plusMinutes(1),
+                Duration.ofMinutes(10));
+        Task task2 = new Task("Third task", "Task description", task1.getStartTime().plusMinutes(5),
+                Duration.ofMinutes(10));
+
+        assertThrows(NotAcceptableException.class, () -> taskManager.createTasks(List.of(task1, task2)),
+                "Не выброшено ожидаемое исключение");
+        assertEquals(1, taskManager.getTasks().size(), "Пакет с пересечением добавлен частично");
+        assertEquals(2, taskManager.getPrioritizedTasks().size(), "Список приоритетов изменился");
+    }
+
+    @DisplayName("Пакетные операции с Task: Обмен временем выполнения")
+    @Test
+    void testUpdateTasksBatchSwap() {
+        Task task1 = new Task("Second task", "Task description", subtask.getEndTime().plusMinutes(1),
+                task.getDuration());
+        taskManager.createTask(task1);
+
+        Task updatedTask = new Task(task.getId(), StatusTypes.DONE, task.getName(), task.getDescription(),
+                task1.getStartTime(), task1.getDuration());
+        Task updatedTask1 = new Task(task1.getId(), StatusTypes.DONE, task1.getName(), task1.getDescription(),
+                task.getStartTime(), task.getDuration());
+        taskManager.updateTasks(List.of(updatedTask, updatedTask1));
+
+        List<Task> prioritizedTasks = taskManager.getPrioritizedTasks();
+
+        assertEquals(updatedTask1, prioritizedTasks.getFirst(), "Задачи не поменялись местами");
+        assertEquals(StatusTypes.DONE, taskManager.getTasks().getFirst().getStatus(), "Задачи не обновлены");
+    }
+
+    @DisplayName("Пакетные операции с Subtask: Добавление и удаление")
+    @Test
+    void testSubtasksBatch() {
+        Subtask subtask1 = new Subtask("Second subtask", "Second description", subtask.getEndTime().plusMinutes(1),
+                Duration.ofMinutes(10), epic.getId());
+        Subtask subtask2 = new Subtask("Third subtask", "Third description", subtask1.getEndTime().plusMinutes(1),
+                Duration.ofMinutes(10), epic.getId());
+        subtask2.setStatus(StatusTypes.DONE);
+
+        taskManager.createSubtasks(List.of(subtask1, subtask2));
+
+        assertEquals(3, taskManager.getEpicSubtasks(epic.getId()).size(), "Подзадачи пакета не добавлены к эпику");
+        assertEquals(StatusTypes.IN_PROGRESS, epic.getStatus(), "Не пересчитан статус эпика");
+        assertEquals(subtask2.getEndTime(), epic.getEndTime(), "Не пересчитано время окончания эпика");
+
+        taskManager.deleteSubtasks(List.of(subtask.getId(), subtask1.getId()));
+
+        assertEquals(List.of(subtask2), taskManager.getEpicSubtasks(epic.getId()), "Подзадачи пакета не удалены");
+        assertEquals(StatusTypes.DONE, epic.getStatus(), "Не пересчитан статус эпика");
+    }
+
     @DisplayName("Получение списка приоритетных задач")
     @Test
     void testGetPrioritizedTasks() {
@@ -0,0 +1,262 @@
+package ru.yandex.practicum.scheduler.managers;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.temporal.ChronoUnit;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Future;
+import java.util.stream.IntStream;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import ru.yandex.practicum.scheduler.managers.persistence.PersistenceTypes;
+import ru.yandex.practicum.scheduler.managers.persistence.SyncTypes;
+import ru.yandex.practicum.scheduler.models.Epic;
+import ru.yandex.practicum.scheduler.models.Subtask;
+import ru.yandex.practicum.scheduler.models.Task;
+import ru.yandex.practicum.scheduler.models.enums.StatusTypes;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class WriteAheadLogTaskManagerTest extends TaskManagerTest<FileBackedTaskManager> {
+
+    @TempDir
+    Path tempDir;
+    private File file;
+
+    @Override
+    protected FileBackedTaskManager createTaskManager() {
+        file = tempDir.resolve("database.csv").toFile();
+        return new FileBackedTaskManager(Managers.getDefaultHistory(), file, PersistenceTypes.WRITE_AHEAD_LOG);
+    }
+
+    @Override
+    @AfterEach
+    void halt() {
+        super.halt();
+        // Дожидаемся фоновой записи снимков до удаления временного каталога
+        taskManager.close();
+    }
+
+    private void assertSameState(FileBackedTaskManager expected, FileBackedTaskManager actual) {
+        assertEquals(expected.getTasks(), actual.getTasks(), "Не совпадают списки задач");
+        assertEquals(expected.getEpics(), actual.getEpics(), "Не совпадают списки эпиков");
+        assertEquals(expected.getSubtasks(), actual.getSubtasks(), "Не совпадают списки подзадач");
+        assertEquals(expected.getPrioritizedTasks(), actual.getPrioritizedTasks(), "Не совпадают списки приоритетов");
+        for (Epic epic : expected.getEpics()) {
+            Epic loadedEpic = actual.getEpicById(epic.getId()).orElseThrow();
+            assertEquals(epic.getStatus(), loadedEpic.getStatus(), "Не совпадают статусы эпиков");
+            assertEquals(epic.getEndTime().truncatedTo(ChronoUnit.MINUTES), loadedEpic.getEndTime(),
+                    "Не совпадает время окончания эпиков");
+            assertEquals(epic.getSubtaskIds(), loadedEpic.getSubtaskIds(), "Не совпадают подзадачи эпиков");
+        }
+    }
+
+    @DisplayName("Журнал: Изменения дописываются в журнал без перезаписи снимка")
+    @Test
+    void testChangesAreAppendedToLog() {
+        long snapshotSize = file.length();
+        Path logPath = FileBackedTaskManager.getLogPath(file);
+        long logSize = logPath.toFile().length();
+
+        taskManager.createTask(new Task("Second task", "Second task description", subtask.getEndTime().plusMinutes(1),
+                Duration.ofMinutes(10)));
+
+        assertEquals(snapshotSize, file.length(), "Снимок перезаписан при изменении");
+        assertTrue(logPath.toFile().length() > logSize, "Изменение не записано в журнал");
+    }
+
+    @DisplayName("Журнал: Загрузка снимка и повтор журнала")
+    @Test
+    void testReplay() {
+        Epic secondEpic = new Epic("Second epic", "Second epic description");
+        taskManager.createEpic(secondEpic);
+        Subtask movedSubtask = new Subtask(subtask.getId(), StatusTypes.DONE, subtask.getName(),
+                subtask.getDescription(), subtask.getStartTime(), subtask.getDuration(), secondEpic.getId());
+        taskManager.updateSubtask(movedSubtask);
+        Task updatedTask = new Task(task.getId(), StatusTypes.IN_PROGRESS, "Updated task", task.getDescription(),
+                task.getStartTime(), task.getDuration());
+        taskManager.updateTask(updatedTask);
+        taskManager.deleteEpic(epic.getId());
+
+        try (FileBackedTaskManager loadedManager = FileBackedTaskManager.loadFromFile(file)) {
+            assertSameState(taskManager, loadedManager);
+            assertEquals("Updated task", loadedManager.getTasks().getFirst().getName(), "Не повторено обновление");
+            assertEquals(StatusTypes.DONE, loadedManager.getEpicById(secondEpic.getId()).orElseThrow().getStatus(),
+                    "Не пересчитан статус эпика после повтора");
+        }
+    }
+
+    @DisplayName("Журнал: Повтор пакета с обменом временем выполнения")
+    @Test
+    void testReplayBatchSwap() {
+        Task secondTask = new Task("Second task", "Second task description", subtask.getEndTime().plusMinutes(1),
+                task.getDuration());
+        taskManager.createTask(secondTask);
+        taskManager.updateTasks(List.of(
+                new Task(task.getId(), StatusTypes.NEW, task.getName(), task.getDescription(),
+                        secondTask.getStartTime(), secondTask.getDuration()),
+                new Task(secondTask.getId(), StatusTypes.NEW, secondTask.getName(), secondTask.getDescription(),
+                        task.getStartTime(), task.getDuration())));
+
+        try (FileBackedTaskManager loadedManager = FileBackedTaskManager.loadFromFile(file)) {
+            assertSameState(taskManager, loadedManager);
+        }
+    }
+
+    @DisplayName("Журнал: Запись снимка по количеству записей журнала")
+    @Test
+    void testCheckpoint() throws Exception {
+        taskManager.setCheckpointInterval(3);
+        for (int i = 1; i <= 5; i++) {
+            taskManager.createTask(new Task("Task " + i, "Task description",
+                    subtask.getEndTime().plusMinutes(i * 10L), Duration.ofMinutes(5)));
+            // Дожидаемся фоновой записи снимка, если она была запущена
+            taskManager.close();
+        }
+
+        List<String> logLines = Files.readAllLines(FileBackedTaskManager.getLogPath(file));
+
+        assertEquals(2, logLines.size(), "Журнал не очищен после записи снимка");
+
+        try (FileBackedTaskManager loadedManager = FileBackedTaskManager.loadFromFile(file)) {
+            assertSameState(taskManager, loadedManager);
+
+            Task nextTask = new Task("Next task", "Next task description",
+                    subtask.getEndTime().plusMinutes(100), Duration.ofMinutes(5));
+            loadedManager.createTask(nextTask);
+
+            assertTrue(nextTask.getId() > taskManager.getTasks().stream().mapToInt(Task::getId).max().orElseThrow(),
+                    "Счётчик ИД не сдвинут после повтора журнала");
+        }
+    }
+
+    @DisplayName("Журнал: Изменения во время фоновой записи снимка")
+    @Test
+    void testWritesDuringCompaction() throws Exception {
+        Future<?> compaction = taskManager.compact();
+        for (int i = 1; i <= 3; i++) {
+            taskManager.createTask(new Task("Task " + i, "Task description",
+                    subtask.getEndTime().plusMinutes(i * 10L), Duration.ofMinutes(5)));
+        }
+        compaction.get();
+
+        try (FileBackedTaskManager loadedManager = FileBackedTaskManager.loadFromFile(file)) {
+            assertSameState(taskManager, loadedManager);
+        }
+    }
+
+    @DisplayName("Журнал: Снимок собирается из прежнего снимка и закрытых сегментов")
+    @Test
+    void testCheckpointFromPreviousSnapshot() throws Exception {
+        taskManager.checkpoint();
+        Epic secondEpic = new Epic("Second epic", "Second epic description");
+        taskManager.createEpic(secondEpic);
+        Subtask movedSubtask = new Subtask(subtask.getId(), StatusTypes.DONE, subtask.getName(),
+                subtask.getDescription(), subtask.getStartTime(), subtask.getDuration(), secondEpic.getId());
+        taskManager.updateSubtask(movedSubtask);
+        Subtask deletedSubtask = new Subtask("Deleted subtask", "Deleted subtask description",
+                subtask.getEndTime().plusMinutes(10), Duration.ofMinutes(5), epic.getId());
+        taskManager.createSubtask(deletedSubtask);
+        // Удаление эпика удаляет и его подзадачу
+        taskManager.deleteEpic(epic.getId());
+        taskManager.updateTask(new Task(task.getId(), StatusTypes.IN_PROGRESS, "Updated task",
+                task.getDescription(), task.getStartTime(), task.getDuration()));
+
+        taskManager.checkpoint();
+
+        assertEquals(0, Files.size(FileBackedTaskManager.getLogPath(file)), "Журнал не перенесён в снимок");
+        try (FileBackedTaskManager loadedManager = FileBackedTaskManager.loadFromFile(file)) {
+            assertSameState(taskManager, loadedManager);
+            assertEquals(List.of(movedSubtask), loadedManager.getSubtasks(), "Снимок содержит удалённую подзадачу");
+        }
+    }
+
+    @DisplayName("Журнал: Запись снимка по времени")
+    @Test
+    void testCheckpointPeriod() throws Exception {
+        taskManager.setCheckpointPeriod(Duration.ZERO);
+        taskManager.deleteSubtask(subtask.getId());
+
+        // Дожидаемся фоновой записи снимка
+        taskManager.close();
+
+        assertEquals(0, Files.size(FileBackedTaskManager.getLogPath(file)), "Журнал не перенесён в снимок");
+        // Журнал пуст, поэтому загруженное состояние целиком взято из снимка
+        FileBackedTaskManager loadedTaskManager = FileBackedTaskManager.loadFromFile(file);
+        assertEquals(List.of(task), loadedTaskManager.getTasks(), "Снимок не содержит задачу");
+        assertTrue(loadedTaskManager.getSubtasks().isEmpty(), "Снимок содержит удалённую подзадачу");
+    }
+
+    @DisplayName("Журнал: Переводы строк в имени и описании переживают перезапуск")
+    @Test
+    void testMultilineFieldsSurviveRestart() throws Exception {
+        for (SyncTypes syncType : SyncTypes.values()) {
+            File logFile = tempDir.resolve("multiline-" + syncType + ".csv").toFile();
+            LocalDateTime startTime = LocalDateTime.of(2025, 1, 1, 0, 0);
+            FileBackedTaskManager manager = new FileBackedTaskManager(Managers.getDefaultHistory(), logFile,
+                    PersistenceTypes.WRITE_AHEAD_LOG);
+            // Первый менеджер закрывается до загрузки второго
+            try (manager) {
+                manager.setSyncPolicy(syncType, Duration.ofMillis(5));
+                // Снимок пишется посреди изменений, поэтому часть из них читается из снимка, часть - из журнала
+                manager.setCheckpointInterval(3);
+                manager.createTask(new Task("multi\nline", "carriage\r\nreturn", startTime, Duration.ofMinutes(5)));
+                Epic multilineEpic = new Epic("epic\rname", "epic\n\ndescription");
+                manager.createEpic(multilineEpic);
+                for (int i = 1; i <= 3; i++) {
+                    manager.createTask(new Task("Task " + i, "line\nbreak " + i, startTime.plusMinutes(i * 10L),
+                            Duration.ofMinutes(5)));
+                }
+                manager.createSubtask(new Subtask("sub\ntask", "\r\n", startTime.plusMinutes(100),
+                        Duration.ofMinutes(5), multilineEpic.getId()));
+            }
+
+            try (FileBackedTaskManager loadedManager = FileBackedTaskManager.loadFromFile(logFile)) {
+                assertEquals(4, loadedManager.getTasks().size(), "Потеряны задачи после перезапуска, " + syncType);
+                assertSameState(manager, loadedManager);
+                Task multilineTask = loadedManager.getTasks().stream()
+                        .filter(loadedTask -> loadedTask.getName().equals("multi\nline"))
+                        .findFirst()
+                        .orElseThrow();
+                assertEquals("carriage\r\nreturn", multilineTask.getDescription(),
+                        "Не совпадает описание задачи, " + syncType);
+                assertEquals("epic\n\ndescription", loadedManager.getEpics().getFirst().getDescription(),
+                        "Не совпадает описание эпика, " + syncType);
+                assertEquals("sub\ntask", loadedManager.getSubtasks().getFirst().getName(),
+                        "Не совпадает имя подзадачи, " + syncType);
+            }
+        }
+    }
+
+    @DisplayName("Журнал: Изменения из разных потоков сохраняются до возврата из метода")
+    @Test
+    void testConcurrentWritersAreDurable() {
+        taskManager.setSyncPolicy(SyncTypes.PERIODIC, Duration.ofMillis(5));
+        LocalDateTime startTime = subtask.getEndTime().plusMinutes(1);
+        int threads = 4;
+        int tasksPerThread = 25;
+
+        List<CompletableFuture<Void>> writers = IntStream.range(0, threads)
+                .mapToObj(thread -> CompletableFuture.runAsync(() -> {
+                    for (int i = 0; i < tasksPerThread; i++) {
+                        long slot = (long) thread * tasksPerThread + i;
+                        taskManager.createTask(new Task("Task " + slot, "Task description",
+                                startTime.plusMinutes(slot * 15), Duration.ofMinutes(10)));
+                    }
+                }))
+                .toList();
+        writers.forEach(CompletableFuture::join);
+
+        // Журнал читается без закрытия менеджера: все изменения уже сохранены
+        FileBackedTaskManager loadedTaskManager = FileBackedTaskManager.loadFromFile(file);
+        assertEquals(threads * tasksPerThread + 1, loadedTaskManager.getTasks().size(), "Потеряны изменения");
+        assertSameState(taskManager, loadedTaskManager);
+    }
+}
@@ -0,0 +1,117 @@
+package ru.yandex.practicum.scheduler.managers;
+
+import java.io.File;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import ru.yandex.practicum.scheduler.managers.persistence.PersistenceTypes;
+import ru.yandex.practicum.scheduler.models.Task;
+import ru.yandex.practicum.scheduler.models.enums.StatusTypes;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+public class WriteBehindTaskManagerTest extends TaskManagerTest<FileBackedTaskManager> {
+
+    // Задержка больше времени теста: файл записывается только по flush, close или compact
+    private static final Duration LONG_DELAY = Duration.ofHours(1);
+
+    @TempDir
+    Path tempDir;
+    private File file;
+
+    @Override
+    protected FileBackedTaskManager createTaskManager() {
+        file = tempDir.resolve("database.bin").toFile();
+        FileBackedTaskManager manager = new FileBackedTaskManager(Managers.getDefaultHistory(), file);
+        manager.setWriteDelay(LONG_DELAY);
+        return manager;
+    }
+
+    @Override
+    @AfterEach
+    void halt() {
+        super.halt();
+        taskManager.close();
+    }
+
+    private FileBackedTaskManager createManager(String name, PersistenceTypes persistenceType, Duration delay) {
+        file = tempDir.resolve(name).toFile();
+        FileBackedTaskManager manager = new FileBackedTaskManager(Managers.getDefaultHistory(), file,
+                persistenceType);
+        manager.setWriteDelay(delay);
+        return manager;
+    }
+
+    private List<Task> createTasks(FileBackedTaskManager manager, int count) {
+        List<Task> newTasks = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            Task newTask = new Task("Task " + i, "Description " + i, subtask.getEndTime().plusMinutes(1 + 2L * i),
+                    Duration.ofMinutes(1));
+            manager.createTask(newTask);
+            newTasks.add(newTask);
+        }
+        return newTasks;
+    }
+
+    @DisplayName("Отложенная запись: Изменения записываются в файл только по flush")
+    @Test
+    void testFlush() {
+        assertFalse(file.exists(), "Файл записан до истечения задержки");
+
+        taskManager.flush();
+
+        FileBackedTaskManager loaded = FileBackedTaskManager.loadFromFile(file);
+        assertEquals(List.of(task), loaded.getTasks(), "Задачи не записаны");
+        assertEquals(List.of(epic), loaded.getEpics(), "Эпики не записаны");
+        assertEquals(List.of(subtask), loaded.getSubtasks(), "Подзадачи не записаны");
+    }
+
+    @DisplayName("Отложенная запись: Поток записи сохраняет изменения по истечении задержки")
+    @Test
+    void testAwaitPersisted() {
+        FileBackedTaskManager manager = createManager("segments.manifest", PersistenceTypes.SEGMENTED,
+                Duration.ofMillis(50));
+        List<Task> newTasks = createTasks(manager, 100);
+
+        manager.awaitPersisted();
+
+        assertEquals(new HashSet<>(newTasks), new HashSet<>(FileBackedTaskManager.loadFromFile(file).getTasks()),
+                "Изменения не сохранены");
+        manager.close();
+    }
+
+    @DisplayName("Отложенная запись: Закрытие менеджера сохраняет накопленные изменения журнала")
+    @Test
+    void testCloseFlushesLog() {
+        FileBackedTaskManager manager = createManager("log.bin", PersistenceTypes.WRITE_AHEAD_LOG, LONG_DELAY);
+        List<Task> newTasks = createTasks(manager, 10);
+        Task firstTask = newTasks.getFirst();
+        manager.updateTask(new Task(firstTask.getId(), StatusTypes.DONE, firstTask.getName(),
+                firstTask.getDescription(), firstTask.getStartTime(), firstTask.getDuration()));
+        manager.deleteTask(newTasks.getLast().getId());
+
+        manager.close();
+
+        FileBackedTaskManager loaded = FileBackedTaskManager.loadFromFile(file);
+        assertEquals(new HashSet<>(newTasks.subList(0, newTasks.size() - 1)), new HashSet<>(loaded.getTasks()),
+                "Изменения не сохранены");
+        assertEquals(StatusTypes.DONE, loaded.getTaskById(firstTask.getId()).orElseThrow().getStatus(),
+                "Изменение задачи не сохранено");
+        loaded.close();
+    }
+
+    @DisplayName("Отложенная запись: Снимок по compact записывает поток записи")
+    @Test
+    void testCompact() throws Exception {
+        taskManager.compact().get();
+
+        assertEquals(List.of(task), FileBackedTaskManager.loadFromFile(file).getTasks(), "Снимок не записан");
+    }
+}
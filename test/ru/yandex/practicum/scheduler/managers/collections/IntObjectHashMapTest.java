@@ -0,0 +1,67 @@
+package ru.yandex.practicum.scheduler.managers.collections;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class IntObjectHashMapTest {
+
+    @DisplayName("Добавление, получение и удаление по ключу int")
+    @Test
+    void testPutGetRemove() {
+        IntObjectHashMap<String> map = new IntObjectHashMap<>();
+
+        assertNull(map.put(1, "first"), "Для нового ключа вернулось прежнее значение");
+        assertEquals("first", map.put(1, "second"), "Не вернулось прежнее значение");
+        assertEquals("second", map.get(1), "Значение не обновилось");
+        assertTrue(map.containsKey(1), "Ключ не найден");
+        assertEquals("second", map.remove(1), "Не вернулось удалённое значение");
+        assertFalse(map.containsKey(1), "Ключ не удалён");
+        assertTrue(map.isEmpty(), "Таблица не пуста после удаления");
+    }
+
+    @DisplayName("Содержимое совпадает с HashMap после случайных операций")
+    @Test
+    void testMatchesHashMap() {
+        Random random = new Random(11);
+        IntObjectHashMap<Integer> map = new IntObjectHashMap<>();
+        Map<Integer, Integer> expected = new HashMap<>();
+
+        for (int i = 0; i < 100_000; i++) {
+            int key = random.nextInt(5_000);
+            if (random.nextInt(3) == 0) {
+                assertEquals(expected.remove(key), map.remove(key), "Не совпадает результат удаления");
+            } else {
+                assertEquals(expected.put(key, i), map.put(key, (Integer) i), "Не совпадает результат добавления");
+            }
+        }
+
+        assertEquals(expected.size(), map.size(), "Не совпадает размер");
+        assertEquals(expected, map, "Не совпадает содержимое");
+        assertEquals(new ArrayList<>(expected.values()).stream().sorted().toList(),
+                new ArrayList<>(map.values()).stream().sorted().toList(), "Не совпадают значения");
+    }
+
+    @DisplayName("Работа через интерфейс Map")
+    @Test
+    void testMapInterface() {
+        Map<Integer, String> map = new IntObjectHashMap<>();
+        map.put(1000, "value");
+        map.computeIfAbsent(2000, key -> "computed");
+        List<Integer> keys = new ArrayList<>(map.keySet());
+
+        assertEquals("value", map.get(1000), "Значение не получено по упакованному ключу");
+        assertEquals("computed", map.get(2000), "Не сработал computeIfAbsent");
+        assertEquals(2, keys.size(), "Не совпадает количество ключей");
+        assertNull(map.get("1000"), "Найдено значение по ключу другого типа");
+    }
+}
@@ -0,0 +1,95 @@
+package ru.yandex.practicum.scheduler.managers.ids;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class IdAllocatorTest {
+
+    @DisplayName("Последовательная выдача ИД без блоков")
+    @Test
+    void testSequentialIds() {
+        IdAllocator idAllocator = new IdAllocator();
+
+        assertEquals(1, idAllocator.nextIntId(), "Неверный первый ИД");
+        assertEquals(2, idAllocator.nextIntId(), "Неверный второй ИД");
+    }
+
+    @DisplayName("Уникальность ИД при параллельной выдаче")
+    @Test
+    void testUniqueIdsInParallel() throws Exception {
+        IdAllocator idAllocator = new IdAllocator();
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        List<Callable<List<Long>>> jobs = new ArrayList<>();
+
+        for (int i = 0; i < 8; i++) {
+            jobs.add(() -> {
+                List<Long> ids = new ArrayList<>();
+                for (int j = 0; j < 10_000; j++) {
+                    ids.add(idAllocator.nextId());
+                }
+                return ids;
+            });
+        }
+
+        Set<Long> ids = new HashSet<>();
+        try {
+            for (Future<List<Long>> future : executor.invokeAll(jobs)) {
+                ids.addAll(future.get());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals(80_000, ids.size(), "Выданы повторяющиеся ИД");
+    }
+
+    @DisplayName("ИД из коротких потоков идут подряд")
+    @Test
+    void testShortLivedThreads() throws Exception {
+        IdAllocator idAllocator = new IdAllocator();
+        List<Long> ids = new ArrayList<>();
+        // Как HTTP-сервер: каждый ИД выдаётся в новом виртуальном потоке
+        for (int i = 0; i < 3; i++) {
+            try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+                ids.add(executor.submit(idAllocator::nextId).get());
+            }
+        }
+
+        assertEquals(List.of(1L, 2L, 3L), ids, "ИД из разных потоков пропущены");
+    }
+
+    @DisplayName("После сдвига счётчика ИД продолжаются с использованного")
+    @Test
+    void testAdvanceTo() {
+        IdAllocator idAllocator = new IdAllocator();
+
+        assertEquals(1, idAllocator.nextId(), "Неверный первый ИД");
+
+        idAllocator.advanceTo(10);
+        assertEquals(11, idAllocator.nextId(), "ИД не сдвинут после использованного");
+
+        idAllocator.advanceTo(5);
+        assertEquals(12, idAllocator.nextId(), "Счётчик сдвинут назад");
+    }
+
+    @DisplayName("Выход за пределы Integer при выдаче ИД задачи")
+    @Test
+    void testIntOverflow() {
+        IdAllocator idAllocator = new IdAllocator();
+        idAllocator.advanceTo(Integer.MAX_VALUE);
+
+        assertEquals(Integer.MAX_VALUE + 1L, idAllocator.nextId(), "64-битный ИД выдан неверно");
+        assertThrows(IllegalStateException.class, idAllocator::nextIntId, "Не выброшено ожидаемое исключение");
+    }
+}
@@ -0,0 +1,64 @@
+package ru.yandex.practicum.scheduler.managers.indexes;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.IntStream;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class IdIndexTest {
+
+    private IdIndex index;
+
+    @BeforeEach
+    void init() {
+        index = new IdIndex();
+    }
+
+    private List<Integer> collectAfter(int afterId, int limit) {
+        List<Integer> ids = new ArrayList<>();
+        index.forEachAfter(afterId, id -> {
+            ids.add(id);
+            return ids.size() < limit;
+        });
+        return ids;
+    }
+
+    @DisplayName("Удалённые ИД не попадают в обход")
+    @Test
+    void testRemove() {
+        IntStream.rangeClosed(1, 1000).forEach(index::add);
+        // Удаляем меньше половины, чтобы ИД остались помеченными в массиве
+        IntStream.rangeClosed(100, 499).forEach(index::remove);
+
+        assertEquals(List.of(98, 99, 500, 501), collectAfter(97, 4), "Обход не пропустил удалённые ИД");
+        assertEquals(600, collectAfter(0, Integer.MAX_VALUE).size(), "Неверное количество ИД");
+    }
+
+    @DisplayName("Повторно добавленный и загруженный не по порядку ИД обходятся по возрастанию")
+    @Test
+    void testReAddAndUnordered() {
+        index.add(5);
+        index.add(3);
+        index.add(9);
+        index.remove(5);
+        index.add(5);
+        index.add(1);
+        index.remove(9);
+
+        assertEquals(List.of(1, 3, 5), collectAfter(0, Integer.MAX_VALUE), "Неверный порядок ИД");
+    }
+
+    @DisplayName("Сжатие после удаления большей части ИД")
+    @Test
+    void testCompaction() {
+        IntStream.rangeClosed(1, 1000).forEach(index::add);
+        IntStream.rangeClosed(1, 999).forEach(index::remove);
+        index.add(1001);
+
+        assertEquals(List.of(1000, 1001), collectAfter(0, Integer.MAX_VALUE), "Неверные ИД после сжатия");
+    }
+}
@@ -0,0 +1,125 @@
+package ru.yandex.practicum.scheduler.managers.indexes;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.scheduler.models.Task;
+import ru.yandex.practicum.scheduler.models.enums.StatusTypes;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class IntervalIndexTest {
+
+    private static final LocalDateTime START = LocalDateTime.of(2024, 1, 1, 0, 0);
+    private IntervalIndex index;
+
+    @BeforeEach
+    void init() {
+        index = new IntervalIndex();
+    }
+
+    private Task createTask(int id, long startMinutes, long durationMinutes) {
+        return new Task(id, StatusTypes.NEW, "Task " + id, "Task description", START.plusMinutes(startMinutes),
+                Duration.ofMinutes(durationMinutes));
+    }
+
+    @DisplayName("Поиск пересечения: пересечение, касание и отсутствие пересечения")
+    @Test
+    void testFindOverlap() {
+        index.add(createTask(1, 0, 10));
+        index.add(createTask(2, 20, 10));
+
+        assertTrue(index.hasOverlap(START.plusMinutes(5), START.plusMinutes(6), null), "Пересечение не найдено");
+        assertTrue(index.hasOverlap(START.plusMinutes(10), START.plusMinutes(15), null),
+                "Касание границ должно считаться пересечением");
+        assertFalse(index.hasOverlap(START.plusMinutes(11), START.plusMinutes(19), null),
+                "Найдено несуществующее пересечение");
+        assertFalse(index.hasOverlap(START.plusMinutes(5), START.plusMinutes(6), 1),
+                "Не пропущена задача с игнорируемым ИД");
+    }
+
+    @DisplayName("Удаление задачи после изменения её времени")
+    @Test
+    void testRemoveAfterTimeChange() {
+        Task task = createTask(1, 0, 10);
+        index.add(task);
+        task.setStartTime(START.plusMinutes(100));
+
+        assertEquals(task, index.remove(1), "Задача не удалена из индекса");
+        assertTrue(index.isEmpty(), "Индекс не пуст после удаления");
+        assertNull(index.findOverlap(START, START.plusMinutes(10), null), "Найдено пересечение с удалённой задачей");
+    }
+
+    @DisplayName("Результаты индекса совпадают с полным перебором")
+    @Test
+    void testMatchesFullScan() {
+        Random random = new Random(42);
+        List<Task> stored = new ArrayList<>();
+
+        for (int id = 1; id <= 500; id++) {
+            Task task = createTask(id, random.nextInt(10_000), random.nextInt(30));
+            index.add(task);
+            stored.add(task);
+            if (random.nextInt(4) == 0) {
+                Task removed = stored.remove(random.nextInt(stored.size()));
+                index.remove(removed.getId());
+            }
+        }
+
+        for (int i = 0; i < 1_000; i++) {
+            LocalDateTime start = START.plusMinutes(random.nextInt(10_000));
+            LocalDateTime end = start.plusMinutes(random.nextInt(30));
+            boolean expected = stored.stream()
+                    .anyMatch(task -> !task.getEndTime().isBefore(start) && !task.getStartTime().isAfter(end));
+
+            assertEquals(expected, index.hasOverlap(start, end, null), "Результат индекса не совпадает с перебором");
+        }
+        assertEquals(stored.size(), index.size(), "Размер индекса не совпадает с количеством задач");
+    }
+
+    @DisplayName("Построение из упорядоченного списка совпадает с добавлением по одной задаче")
+    @Test
+    void testAddAllSorted() {
+        Random random = new Random(7);
+        List<Task> stored = new ArrayList<>();
+        IntervalIndex incrementalIndex = new IntervalIndex();
+        for (int id = 1; id <= 500; id++) {
+            Task task = createTask(id, random.nextInt(10_000), random.nextInt(30));
+            stored.add(task);
+            incrementalIndex.add(task);
+        }
+        stored.sort(Comparator.comparing(Task::getStartTime).thenComparing(Task::getId));
+
+        index.addAllSorted(stored);
+
+        assertEquals(stored.size(), index.size(), "Размер индекса не совпадает с количеством задач");
+        for (int i = 0; i < 1_000; i++) {
+            LocalDateTime start = START.plusMinutes(random.nextInt(10_000));
+            LocalDateTime end = start.plusMinutes(random.nextInt(30));
+            assertEquals(incrementalIndex.hasOverlap(start, end, null), index.hasOverlap(start, end, null),
+                    "Результат построенного индекса не совпадает с добавлением по одной задаче");
+        }
+        // Построенное дерево остаётся рабочим при дальнейших изменениях
+        assertEquals(stored.get(0), index.remove(stored.get(0).getId()), "Задача не удалена из индекса");
+        assertTrue(index.add(createTask(1_000, 20_000, 10)), "Задача не добавлена в индекс");
+    }
+
+    @DisplayName("Построение из неупорядоченного списка отклоняется")
+    @Test
+    void testAddAllSortedRejectsUnsorted() {
+        List<Task> unsorted = List.of(createTask(1, 20, 10), createTask(2, 0, 10));
+
+        assertThrows(IllegalArgumentException.class, () -> index.addAllSorted(unsorted),
+                "Неупорядоченный список не отклонён");
+    }
+}
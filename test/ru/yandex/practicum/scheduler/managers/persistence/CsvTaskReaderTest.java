@@ -0,0 +1,107 @@
+package ru.yandex.practicum.scheduler.managers.persistence;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.scheduler.exceptions.ManagerSaveException;
+import ru.yandex.practicum.scheduler.models.Epic;
+import ru.yandex.practicum.scheduler.models.Subtask;
+import ru.yandex.practicum.scheduler.models.Task;
+import ru.yandex.practicum.scheduler.models.enums.StatusTypes;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class CsvTaskReaderTest {
+
+    private static final LocalDateTime START = LocalDateTime.of(2024, 3, 7, 9, 5);
+
+    private List<Task> readAll(String csv, long expectedLsn) throws IOException {
+        List<Task> result = new ArrayList<>();
+        long lsn = new CsvTaskReader(new StringReader(csv)).read(result::add);
+        assertEquals(expectedLsn, lsn, "Неверный номер фиксации журнала");
+        return result;
+    }
+
+    private void assertSameTask(Task expected, Task actual) {
+        assertEquals(expected.getId(), actual.getId(), "Не совпадают ИД");
+        assertEquals(expected.getType(), actual.getType(), "Не совпадают типы");
+        assertEquals(expected.getName(), actual.getName(), "Не совпадают наименования");
+        assertEquals(expected.getDescription(), actual.getDescription(), "Не совпадают описания");
+        assertEquals(expected.getStatus(), actual.getStatus(), "Не совпадают статусы");
+    }
+
+    @DisplayName("Запись без спецсимволов совпадает с Task.toCSV()")
+    @Test
+    void testPlainRecordMatchesToCsv() {
+        Task task = new Task(1, StatusTypes.NEW, "Task", "Task description", START, Duration.ofMinutes(15));
+        Subtask subtask = new Subtask(3, StatusTypes.DONE, "Subtask", "Subtask description", START.plusHours(1),
+                Duration.ofMinutes(30), 2);
+        Epic epic = new Epic(2, StatusTypes.IN_PROGRESS, "Epic", "Epic description");
+
+        assertEquals(task.toCSV(), CsvTaskWriter.format(task), "Запись задачи не совпадает с toCSV");
+        assertEquals(subtask.toCSV(), CsvTaskWriter.format(subtask), "Запись подзадачи не совпадает с toCSV");
+        assertEquals(epic.toCSV(), CsvTaskWriter.format(epic), "Запись эпика не совпадает с toCSV");
+    }
+
+    @DisplayName("Запятые, кавычки и переводы строк сохраняются при записи и чтении")
+    @Test
+    void testQuotedFields() throws IOException {
+        Task task = new Task(1, StatusTypes.IN_PROGRESS, "Name, with \"quotes\"", "Line one\nline two, \r\nend",
+                START, Duration.ofMinutes(15));
+        Subtask subtask = new Subtask(3, StatusTypes.DONE, "\"", ",", START.plusHours(1), Duration.ofMinutes(30), 2);
+        StringWriter out = new StringWriter();
+        CsvTaskWriter writer = new CsvTaskWriter(out);
+        writer.writeHeader();
+        writer.writeLsn(42);
+        writer.write(task);
+        writer.write(subtask);
+        writer.flush();
+
+        List<Task> result = readAll(out.toString(), 42);
+
+        assertEquals(2, result.size(), "Неверное количество записей");
+        assertSameTask(task, result.get(0));
+        assertEquals(START, result.get(0).getStartTime(), "Не совпадает время начала");
+        assertEquals(Duration.ofMinutes(15), result.get(0).getDuration(), "Не совпадает длительность");
+        assertSameTask(subtask, result.get(1));
+        assertEquals(2, ((Subtask) result.get(1)).getEpicId(), "Не совпадает эпик подзадачи");
+    }
+
+    @DisplayName("Записи длиннее буфера, переводы строк CRLF и пустые строки")
+    @Test
+    void testLongRecordsAndCrlf() throws IOException {
+        String longDescription = "x".repeat(20_000);
+        String csv = CsvTaskWriter.HEADER + "\r\n"
+                + "\r\n"
+                + "1,TASK,First,NEW," + longDescription + ",,09:05 07.03.2024,15\r\n"
+                + "2,EPIC,Second,DONE,Epic,,,0";
+
+        List<Task> result = readAll(csv, 0);
+
+        assertEquals(2, result.size(), "Неверное количество записей");
+        assertEquals(longDescription, result.get(0).getDescription(), "Длинное описание прочитано неверно");
+        assertEquals(Duration.ofMinutes(15), result.get(0).getDuration(), "Длительность прочитана с символом \\r");
+        assertEquals("Second", result.get(1).getName(), "Запись без перевода строки не прочитана");
+    }
+
+    @DisplayName("Неверные значения полей отклоняются")
+    @Test
+    void testInvalidFields() {
+        assertThrows(ManagerSaveException.class, () -> CsvTaskReader.parse("x,TASK,Task,NEW,Description,,,0"),
+                "Неверный ИД не отклонён");
+        assertThrows(ManagerSaveException.class, () -> CsvTaskReader.parse("1,NOTE,Task,NEW,Description,,,0"),
+                "Неверный тип не отклонён");
+        assertThrows(ManagerSaveException.class,
+                () -> CsvTaskReader.parse("1,TASK,Task,NEW,Description,,2024-03-07 09:05,0"),
+                "Неверная дата не отклонена");
+        assertThrows(ManagerSaveException.class, () -> CsvTaskReader.parse("1,TASK,Task"),
+                "Неполная запись не отклонена");
+    }
+}
@@ -0,0 +1,86 @@
+package ru.yandex.practicum.scheduler.managers.persistence;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.scheduler.exceptions.ManagerSaveException;
+import ru.yandex.practicum.scheduler.models.Task;
+import ru.yandex.practicum.scheduler.models.enums.StatusTypes;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class SnapshotCompressionTest {
+
+    private static byte[] writeSnapshot(List<Task> tasks, CompressionTypes compression) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (OutputStream out = SnapshotCompression.compress(bytes, compression)) {
+            BinarySnapshot.write(out, 7, tasks);
+            SnapshotCompression.finish(out);
+        }
+        return bytes.toByteArray();
+    }
+
+    @DisplayName("Сжатие определяется по первым байтам, несжатые форматы не распознаются как сжатые")
+    @Test
+    void testDetect() throws IOException {
+        List<Task> tasks = List.of(new Task(1, StatusTypes.NEW, "Task", "Description"));
+
+        assertEquals(CompressionTypes.GZIP, SnapshotCompression.detect(writeSnapshot(tasks, CompressionTypes.GZIP)));
+        assertEquals(CompressionTypes.DEFLATE,
+                SnapshotCompression.detect(writeSnapshot(tasks, CompressionTypes.DEFLATE)));
+        assertEquals(CompressionTypes.NONE, SnapshotCompression.detect(writeSnapshot(tasks, CompressionTypes.NONE)));
+        assertEquals(CompressionTypes.NONE,
+                SnapshotCompression.detect(CsvTaskWriter.HEADER.getBytes(StandardCharsets.UTF_8)));
+        assertEquals(CompressionTypes.NONE, SnapshotCompression.detect(new byte[0]));
+    }
+
+    @DisplayName("Потоковое чтение записей больше буфера и на границе буфера")
+    @Test
+    void testStreamingRead() throws IOException {
+        List<Task> tasks = new ArrayList<>();
+        for (int i = 1; i <= 3_000; i++) {
+            tasks.add(new Task(i, StatusTypes.DONE, "Task " + i, "Description " + i,
+                    LocalDateTime.of(2025, 1, 1, 0, 0).plusMinutes(i), Duration.ofMinutes(1)));
+        }
+        // Описание больше буфера чтения
+        tasks.add(new Task(3_001, StatusTypes.NEW, "Long task", "x".repeat(200_000)));
+        byte[] snapshot = writeSnapshot(tasks, CompressionTypes.DEFLATE);
+
+        List<Task> result = new ArrayList<>();
+        try (InputStream in = SnapshotCompression.decompress(new ByteArrayInputStream(snapshot),
+                CompressionTypes.DEFLATE)) {
+            assertEquals(7, BinarySnapshot.read(in, result::add), "Неверный номер фиксации журнала");
+        }
+
+        assertEquals(tasks.size(), result.size(), "Прочитаны не все записи");
+        for (int i = 0; i < tasks.size(); i++) {
+            assertEquals(tasks.get(i).getId(), result.get(i).getId(), "Не совпадают ИД");
+            assertEquals(tasks.get(i).getDescription(), result.get(i).getDescription(), "Не совпадают описания");
+        }
+    }
+
+    @DisplayName("Обрезанный сжатый снимок не загружается")
+    @Test
+    void testTruncated() throws IOException {
+        List<Task> tasks = new ArrayList<>();
+        for (int i = 1; i <= 1_000; i++) {
+            tasks.add(new Task(i, StatusTypes.NEW, "Task " + i, "Description " + i));
+        }
+        byte[] snapshot = writeSnapshot(tasks, CompressionTypes.NONE);
+        byte[] truncated = new byte[snapshot.length - 10];
+        System.arraycopy(snapshot, 0, truncated, 0, truncated.length);
+
+        assertThrows(ManagerSaveException.class, () -> BinarySnapshot.read(new ByteArrayInputStream(truncated),
+                task -> { }), "Обрезанный снимок загружен");
+    }
+}
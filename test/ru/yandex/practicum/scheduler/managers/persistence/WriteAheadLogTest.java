@@ -0,0 +1,331 @@
+package ru.yandex.practicum.scheduler.managers.persistence;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.stream.IntStream;
+import java.util.stream.LongStream;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import ru.yandex.practicum.scheduler.exceptions.ManagerSaveException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class WriteAheadLogTest {
+
+    @TempDir
+    Path tempDir;
+
+    @DisplayName("Повтор зафиксированных групп после номера снимка")
+    @Test
+    void testReplayAfterLsn() {
+        Path path = tempDir.resolve("log.wal");
+        try (WriteAheadLog log = new WriteAheadLog(path)) {
+            log.append(List.of("PUT,1"));
+            log.append(List.of("PUT,2", "DEL,1"));
+        }
+
+        List<List<String>> groups = new ArrayList<>();
+        try (WriteAheadLog log = new WriteAheadLog(path)) {
+            log.replay(1, groups::add);
+
+            assertEquals(List.of(List.of("PUT,2", "DEL,1")), groups, "Неверные повторённые группы");
+            assertEquals(2, log.getLastLsn(), "Неверный номер последней фиксации");
+        }
+    }
+
+    @DisplayName("Оборванная группа отбрасывается и обрезается")
+    @Test
+    void testTornTail() throws Exception {
+        Path path = tempDir.resolve("log.wal");
+        try (WriteAheadLog log = new WriteAheadLog(path)) {
+            log.append(List.of("PUT,1"));
+        }
+        long validSize = Files.size(path);
+        try (WriteAheadLog log = new WriteAheadLog(path)) {
+            log.replay(0, group -> { });
+            log.append(List.of("PUT,2"));
+        }
+        // Обрываем запись фиксации второй группы
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+            channel.truncate(Files.size(path) - 3);
+        }
+
+        List<List<String>> groups = new ArrayList<>();
+        try (WriteAheadLog log = new WriteAheadLog(path)) {
+            log.replay(0, groups::add);
+
+            assertEquals(List.of(List.of("PUT,1")), groups, "Повторена незафиксированная группа");
+            assertEquals(validSize, Files.size(path), "Оборванный хвост журнала не обрезан");
+
+            log.append(List.of("PUT,3"));
+        }
+
+        groups.clear();
+        try (WriteAheadLog log = new WriteAheadLog(path)) {
+            log.replay(0, groups::add);
+
+            assertEquals(List.of(List.of("PUT,1"), List.of("PUT,3")), groups, "Новая группа не прочитана");
+        }
+    }
+
+    @DisplayName("Записи с переводами строк повторяются целиком")
+    @Test
+    void testMultilineRecords() {
+        Path path = tempDir.resolve("log.wal");
+        try (WriteAheadLog log = new WriteAheadLog(path)) {
+            log.append(List.of("PUT,\"multi\nline\"", "PUT,\"carriage\r\nreturn\""));
+            log.append(List.of("PUT,2"));
+        }
+
+        List<List<String>> groups = new ArrayList<>();
+        try (WriteAheadLog log = new WriteAheadLog(path)) {
+            log.replay(0, groups::add);
+        }
+        assertEquals(List.of(List.of("PUT,\"multi\nline\"", "PUT,\"carriage\r\nreturn\""), List.of("PUT,2")), groups,
+                "Записи с переводами строк повторены неверно");
+    }
+
+    @DisplayName("Повреждённая запись в середине журнала - ошибка без обрезки")
+    @Test
+    void testCorruptedMiddle() throws Exception {
+        Path path = tempDir.resolve("log.wal");
+        try (WriteAheadLog log = new WriteAheadLog(path)) {
+            log.append(List.of("PUT,1"));
+            log.append(List.of("PUT,2"));
+            log.append(List.of("PUT,3"));
+        }
+        // Портим данные второй группы, не меняя длину
+        byte[] data = Files.readAllBytes(path);
+        String text = new String(data, StandardCharsets.UTF_8);
+        data[text.indexOf("PUT,2")] = 'X';
+        Files.write(path, data);
+
+        try (WriteAheadLog log = new WriteAheadLog(path)) {
+            assertThrows(ManagerSaveException.class, () -> log.replay(0, group -> { }),
+                    "Повреждение в середине журнала не обнаружено");
+        }
+        assertEquals(data.length, Files.size(path), "Журнал с повреждением в середине обрезан");
+    }
+
+    @DisplayName("Фиксации из разных потоков сохраняются группами")
+    @Test
+    void testGroupCommit() {
+        Path path = tempDir.resolve("log.wal");
+        int threads = 8;
+        int commitsPerThread = 50;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try (WriteAheadLog log = new WriteAheadLog(path)) {
+            log.setSyncPolicy(SyncTypes.PERIODIC, Duration.ofMillis(5));
+            List<CompletableFuture<Long>> commits = IntStream.range(0, threads)
+                    .mapToObj(thread -> CompletableFuture.supplyAsync(() -> IntStream.range(0, commitsPerThread)
+                            .mapToObj(i -> log.append(List.of("PUT," + thread + "-" + i)))
+                            .toList(), executor))
+                    .map(CompletableFuture::join)
+                    .flatMap(List::stream)
+                    .toList();
+
+            List<Long> lsns = commits.stream().map(CompletableFuture::join).sorted().toList();
+            assertEquals(LongStream.rangeClosed(1, threads * commitsPerThread).boxed().toList(), lsns, "Потеряны или повторены фиксации");
+        } finally {
+            executor.shutdown();
+        }
+
+        List<List<String>> groups = new ArrayList<>();
+        try (WriteAheadLog log = new WriteAheadLog(path)) {
+            log.replay(0, groups::add);
+        }
+        assertEquals(threads * commitsPerThread, groups.size(), "Не все фиксации записаны в журнал");
+        assertTrue(groups.stream().allMatch(group -> group.size() == 1), "Записи разных фиксаций перемешаны");
+    }
+
+    @DisplayName("Недописанная группа обрезается, журнал принимает следующие фиксации")
+    @Test
+    void testFailedWriteIsTruncated() throws Exception {
+        Path path = tempDir.resolve("log.wal");
+        FailingLog log = new FailingLog(path);
+        try (log) {
+            log.append(List.of("PUT,1")).get();
+            log.failWrite = true;
+            CompletableFuture<Long> failed = log.append(List.of("PUT,2"));
+
+            assertThrows(ExecutionException.class, failed::get, "Ошибка записи не передана фиксации");
+
+            log.failWrite = false;
+            log.append(List.of("PUT,3")).get();
+        }
+
+        List<List<String>> groups = new ArrayList<>();
+        try (WriteAheadLog loaded = new WriteAheadLog(path)) {
+            loaded.replay(0, groups::add);
+        }
+        assertEquals(List.of(List.of("PUT,1"), List.of("PUT,3")), groups, "Неверные группы после ошибки записи");
+    }
+
+    @DisplayName("После ошибки сброса журнал отклоняет фиксации, а неудачная не повторяется")
+    @Test
+    void testFailedForceRejectsAppends() throws Exception {
+        Path path = tempDir.resolve("log.wal");
+        FailingLog log = new FailingLog(path);
+        try (log) {
+            log.append(List.of("PUT,1")).get();
+            log.failForce = true;
+            CompletableFuture<Long> failed = log.append(List.of("PUT,2"));
+
+            assertThrows(ExecutionException.class, failed::get, "Ошибка сброса не передана фиксации");
+            log.failForce = false;
+            assertThrows(ManagerSaveException.class, () -> log.append(List.of("PUT,3")),
+                    "Журнал принял фиксацию после ошибки сброса");
+        }
+
+        List<List<String>> groups = new ArrayList<>();
+        try (WriteAheadLog loaded = new WriteAheadLog(path)) {
+            loaded.replay(0, groups::add);
+            loaded.append(List.of("PUT,4")).get();
+        }
+        assertEquals(List.of(List.of("PUT,1")), groups, "Повторена фиксация, о которой сообщено как о неудачной");
+    }
+
+    // Журнал, канал которого по флагам обрывает запись или сброс на диск
+    private static class FailingLog extends WriteAheadLog {
+
+        private volatile boolean failWrite;
+        private volatile boolean failForce;
+
+        private FailingLog(Path path) {
+            super(path);
+        }
+
+        @Override
+        FileChannel newChannel(Path segment) throws IOException {
+            return new FailingChannel(super.newChannel(segment), this);
+        }
+    }
+
+    private static class FailingChannel extends FileChannel {
+
+        private final FileChannel channel;
+        private final FailingLog log;
+
+        private FailingChannel(FileChannel channel, FailingLog log) {
+            this.channel = channel;
+            this.log = log;
+        }
+
+        @Override
+        public long write(ByteBuffer[] srcs, int offset, int length) throws IOException {
+            if (log.failWrite) {
+                // Успеваем записать половину первой группы
+                ByteBuffer src = srcs[offset];
+                ByteBuffer half = src.duplicate();
+                half.limit(half.position() + half.remaining() / 2);
+                channel.write(half);
+                throw new IOException("Нет места на диске");
+            }
+            return channel.write(srcs, offset, length);
+        }
+
+        @Override
+        public void force(boolean metaData) throws IOException {
+            if (log.failForce) {
+                throw new IOException("Ошибка сброса на диск");
+            }
+            channel.force(metaData);
+        }
+
+        @Override
+        public int write(ByteBuffer src) throws IOException {
+            return channel.write(src);
+        }
+
+        @Override
+        public int read(ByteBuffer dst) throws IOException {
+            return channel.read(dst);
+        }
+
+        @Override
+        public long read(ByteBuffer[] dsts, int offset, int length) throws IOException {
+            return channel.read(dsts, offset, length);
+        }
+
+        @Override
+        public long position() throws IOException {
+            return channel.position();
+        }
+
+        @Override
+        public FileChannel position(long newPosition) throws IOException {
+            channel.position(newPosition);
+            return this;
+        }
+
+        @Override
+        public long size() throws IOException {
+            return channel.size();
+        }
+
+        @Override
+        public FileChannel truncate(long size) throws IOException {
+            channel.truncate(size);
+            return this;
+        }
+
+        @Override
+        public long transferTo(long position, long count, WritableByteChannel target) throws IOException {
+            return channel.transferTo(position, count, target);
+        }
+
+        @Override
+        public long transferFrom(ReadableByteChannel src, long position, long count) throws IOException {
+            return channel.transferFrom(src, position, count);
+        }
+
+        @Override
+        public int read(ByteBuffer dst, long position) throws IOException {
+            return channel.read(dst, position);
+        }
+
+        @Override
+        public int write(ByteBuffer src, long position) throws IOException {
+            return channel.write(src, position);
+        }
+
+        @Override
+        public MappedByteBuffer map(MapMode mode, long position, long size) throws IOException {
+            return channel.map(mode, position, size);
+        }
+
+        @Override
+        public FileLock lock(long position, long size, boolean shared) throws IOException {
+            return channel.lock(position, size, shared);
+        }
+
+        @Override
+        public FileLock tryLock(long position, long size, boolean shared) throws IOException {
+            return channel.tryLock(position, size, shared);
+        }
+
+        @Override
+        protected void implCloseChannel() throws IOException {
+            channel.close();
+        }
+    }
+}
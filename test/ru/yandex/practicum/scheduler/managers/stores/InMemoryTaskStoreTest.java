@@ -0,0 +1,105 @@
+package ru.yandex.practicum.scheduler.managers.stores;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.scheduler.models.Epic;
+import ru.yandex.practicum.scheduler.models.Subtask;
+import ru.yandex.practicum.scheduler.models.Task;
+import ru.yandex.practicum.scheduler.models.enums.StatusTypes;
+import ru.yandex.practicum.scheduler.models.enums.TaskTypes;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class InMemoryTaskStoreTest {
+
+    private static final LocalDateTime START = LocalDateTime.of(2024, 1, 1, 0, 0);
+    private InMemoryTaskStore store;
+
+    @BeforeEach
+    void init() {
+        store = new InMemoryTaskStore();
+    }
+
+    private Task createTask(int id, long startMinutes, long durationMinutes) {
+        return new Task(id, StatusTypes.NEW, "Task " + id, "Task description", START.plusMinutes(startMinutes),
+                Duration.ofMinutes(durationMinutes));
+    }
+
+    @DisplayName("Сущности хранятся отдельно по типам")
+    @Test
+    void testGetPutRemoveScan() {
+        Task task = createTask(1, 0, 10);
+        Epic epic = new Epic(2, StatusTypes.NEW, "Epic", "Epic description");
+        Subtask subtask = new Subtask(3, StatusTypes.NEW, "Subtask", "Subtask description", START.plusHours(1),
+                Duration.ofMinutes(10), 2);
+        store.put(task);
+        store.put(epic);
+        store.put(subtask);
+
+        assertSame(epic, store.get(TaskTypes.EPIC, 2), "Эпик не получен по ИД");
+        assertNull(store.get(TaskTypes.TASK, 2), "Эпик получен как задача");
+        assertNull(store.get(TaskTypes.TASK, null), "Получена сущность с ИД null");
+        assertFalse(store.contains(TaskTypes.SUBTASK, null), "Найдена сущность с ИД null");
+        assertEquals(List.of(subtask), List.copyOf(store.scan(TaskTypes.SUBTASK)), "Неверный список подзадач");
+
+        assertSame(task, store.remove(TaskTypes.TASK, 1), "Удалена не та задача");
+        assertEquals(0, store.size(TaskTypes.TASK), "Задача не удалена");
+        assertEquals(1, store.size(TaskTypes.EPIC), "Удаление задачи затронуло эпики");
+    }
+
+    @DisplayName("Временная шкала: порядок, выборка по интервалу и замена версии задачи")
+    @Test
+    void testTimeline() {
+        Task late = createTask(1, 100, 10);
+        Task early = createTask(2, 0, 10);
+        Task middle = createTask(3, 50, 10);
+        store.addAllToTimeline(List.of(late, early));
+        store.addToTimeline(middle);
+
+        assertEquals(List.of(early, middle, late), store.getTimeline(), "Неверный порядок шкалы");
+        assertEquals(List.of(middle, late), store.range(START.plusMinutes(55), START.plusMinutes(100)),
+                "Неверная выборка по интервалу");
+        assertEquals(middle, store.findOverlap(START.plusMinutes(55), START.plusMinutes(56), null),
+                "Пересечение не найдено");
+        assertNull(store.findOverlap(START.plusMinutes(55), START.plusMinutes(56), 3), "Не пропущена сама задача");
+
+        // Удаление по ИД находит задачу, даже если у переданной версии другое время
+        store.removeFromTimeline(createTask(3, 500, 10));
+
+        assertEquals(List.of(early, late), store.getTimeline(), "Задача не удалена со шкалы");
+        assertEquals(2, store.intervalCount(), "Неверное количество интервалов");
+        assertTrue(store.hasInterval(1), "Интервал задачи не найден");
+        assertFalse(store.hasInterval(3), "Интервал удалённой задачи остался");
+    }
+
+    @DisplayName("Временная шкала: замена задачи, время которой изменено на месте")
+    @Test
+    void testReplaceTaskChangedInPlace() {
+        List<Task> tasks = new ArrayList<>();
+        for (int i = 1; i <= 10; i++) {
+            tasks.add(createTask(i, i * 100L, 10));
+        }
+        store.addAllToTimeline(tasks);
+
+        // Время сохранённой задачи меняется на месте, и поиск по текущему времени пошёл бы в другое поддерево
+        Task last = tasks.getLast();
+        last.setStartTime(START.plusMinutes(50));
+        store.removeFromTimeline(last);
+        Task updated = createTask(10, 550, 10);
+        store.addToTimeline(updated);
+
+        List<Task> expected = new ArrayList<>(tasks.subList(0, 9));
+        expected.add(5, updated);
+        assertEquals(expected, store.getTimeline(), "На шкале осталась прежняя версия задачи");
+        assertEquals(10, store.intervalCount(), "Неверное количество интервалов");
+    }
+}
@@ -242,4 +242,17 @@ class EpicTest {
 
         assertTrue(isNew, "Эпики не сменили свой статус после удаления всех подзадач");
     }
-}
\ No newline at end of file
+
+    @DisplayName("ИД подзадач эпика упорядочены независимо от порядка добавления")
+    @Test
+    void shouldKeepSubtaskIdsOrdered() {
+        Epic epic = new Epic("Epic", "Epic description");
+        epic.addSubtask(30);
+        epic.addSubtask(10);
+        epic.addSubtasks(List.of(20, 10, 40));
+        epic.deleteSubtask(new Subtask(40, StatusTypes.NEW, "Subtask", "Subtask description", 1));
+
+        assertEquals(List.of(10, 20, 30), epic.getSubtaskIds(), "ИД подзадач не упорядочены");
+        assertEquals(List.of(20, 30), List.copyOf(epic.getSubtaskIdsAfter(10)), "Неверные ИД после курсора");
+    }
+}
@@ -0,0 +1,398 @@
+package ru.yandex.practicum.scheduler.servers.http;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.stream.IntStream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.InflaterInputStream;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.scheduler.managers.ConcurrentTaskManager;
+import ru.yandex.practicum.scheduler.managers.Managers;
+import ru.yandex.practicum.scheduler.managers.interfaces.TaskManager;
+import ru.yandex.practicum.scheduler.models.Epic;
+import ru.yandex.practicum.scheduler.models.Subtask;
+import ru.yandex.practicum.scheduler.models.Task;
+import ru.yandex.practicum.scheduler.servers.http.handlers.BaseHttpHandler;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class HttpTaskServerTest {
+
+    private static final int REQUESTS = 4;
+
+    // Менеджер, который отвечает на получение списка задач, только когда его одновременно ждут все запросы
+    private static class BlockingTaskManager extends ConcurrentTaskManager {
+
+        private final CountDownLatch latch = new CountDownLatch(REQUESTS);
+
+        BlockingTaskManager() {
+            super(Managers.getDefaultHistory());
+        }
+
+        @Override
+        public void forEachTask(Consumer<? super Task> action) {
+            latch.countDown();
+            try {
+                latch.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            super.forEachTask(action);
+        }
+    }
+
+    // Менеджер, обход задач которого прерывается ошибкой после указанного количества задач
+    private static class FailingTaskManager extends ConcurrentTaskManager {
+
+        private final int failAfter;
+
+        FailingTaskManager(int failAfter) {
+            super(Managers.getDefaultHistory());
+            this.failAfter = failAfter;
+        }
+
+        @Override
+        public void forEachTask(Consumer<? super Task> action) {
+            int[] count = {0};
+            super.forEachTask(task -> {
+                action.accept(task);
+                if (++count[0] == failAfter) {
+                    throw new IllegalStateException("Ошибка чтения");
+                }
+            });
+        }
+    }
+
+    private void assertRequestsRunConcurrently(ExecutorTypes executorType) throws IOException {
+        BlockingTaskManager taskManager = new BlockingTaskManager();
+        HttpTaskServer taskServer = new HttpTaskServer(taskManager, executorType, REQUESTS,
+                HttpTaskServer.DEFAULT_BACKLOG);
+        taskServer.start();
+        try {
+            HttpClient client = HttpClient.newHttpClient();
+            HttpRequest request = HttpRequest.newBuilder().GET()
+                    .uri(URI.create("http://localhost:" + taskServer.getPort() + "/tasks")).build();
+            List<CompletableFuture<HttpResponse<String>>> responses = IntStream.range(0, REQUESTS)
+                    .mapToObj(i -> client.sendAsync(request, HttpResponse.BodyHandlers.ofString()))
+                    .toList();
+
+            for (CompletableFuture<HttpResponse<String>> response : responses) {
+                assertEquals(200, response.join().statusCode(), "Код ответа не соответствует ожидаемому");
+            }
+            assertEquals(0, taskManager.latch.getCount(), "Запросы обработаны не одновременно");
+        } finally {
+            taskServer.stop();
+        }
+    }
+
+    @DisplayName("Сервер: Виртуальные потоки обрабатывают запросы одновременно")
+    @Test
+    void testVirtualThreads() throws IOException {
+        assertRequestsRunConcurrently(ExecutorTypes.VIRTUAL_THREADS);
+    }
+
+    @DisplayName("Сервер: Пул потоков обрабатывает запросы одновременно")
+    @Test
+    void testFixedPool() throws IOException {
+        assertRequestsRunConcurrently(ExecutorTypes.FIXED_POOL);
+    }
+
+    @DisplayName("Сервер: Список передаётся частями и совпадает с сериализацией списка")
+    @Test
+    void testStreamedList() throws IOException, InterruptedException {
+        HttpTaskServer taskServer = new HttpTaskServer(Managers.getConcurrent(), ExecutorTypes.SAME_THREAD);
+        TaskManager taskManager = taskServer.getTaskManager();
+        LocalDateTime startTime = LocalDateTime.of(2025, 1, 1, 0, 0);
+        for (int i = 0; i < 1_000; i++) {
+            taskManager.createTask(new Task("Task " + i, "Описание задачи " + i, startTime.plusMinutes(i * 10L),
+                    Duration.ofMinutes(5)));
+        }
+        Epic epic = new Epic("Epic", "Epic description");
+        taskManager.createEpic(epic);
+        taskManager.createSubtask(new Subtask("Subtask", "Subtask description", startTime.minusHours(1),
+                Duration.ofMinutes(5), epic.getId()));
+        taskServer.start();
+        try {
+            HttpClient client = HttpClient.newHttpClient();
+            HttpResponse<String> tasks = client.send(HttpRequest.newBuilder().GET()
+                    .uri(URI.create("http://localhost:" + taskServer.getPort() + "/tasks")).build(),
+                    HttpResponse.BodyHandlers.ofString());
+            HttpResponse<String> prioritized = client.send(HttpRequest.newBuilder().GET()
+                    .uri(URI.create("http://localhost:" + taskServer.getPort() + "/prioritized")).build(),
+                    HttpResponse.BodyHandlers.ofString());
+
+            assertEquals(200, tasks.statusCode(), "Код ответа не соответствует ожидаемому");
+            assertEquals(Optional.of("chunked"), tasks.headers().firstValue("Transfer-Encoding"),
+                    "Список передан не частями");
+            assertEquals(taskServer.getGson().toJson(taskManager.getTasks()), tasks.body(),
+                    "Ответ не совпадает с сериализацией списка задач");
+            // Подзадача в списке приоритетов сериализуется со своими полями
+            assertEquals(taskServer.getGson().toJson(taskManager.getPrioritizedTasks()), prioritized.body(),
+                    "Ответ не совпадает с сериализацией списка приоритетов");
+        } finally {
+            taskServer.stop();
+        }
+    }
+
+    @DisplayName("Сервер: Компактный вывод по умолчанию, с отступами по запросу клиента")
+    @Test
+    void testPrettyNegotiation() throws IOException, InterruptedException {
+        HttpTaskServer taskServer = new HttpTaskServer(Managers.getConcurrent(), ExecutorTypes.SAME_THREAD);
+        Task task = new Task("Task", "Task description", LocalDateTime.of(2025, 1, 1, 0, 0), Duration.ofMinutes(5));
+        taskServer.getTaskManager().createTask(task);
+        taskServer.start();
+        try {
+            HttpClient client = HttpClient.newHttpClient();
+            String baseUri = "http://localhost:" + taskServer.getPort();
+            String compactList = taskServer.getGson().toJson(List.of(task));
+            String prettyList = taskServer.getPrettyGson().toJson(List.of(task));
+
+            HttpResponse<String> response = client.send(HttpRequest.newBuilder().GET()
+                    .uri(URI.create(baseUri + "/tasks")).build(), HttpResponse.BodyHandlers.ofString());
+            assertEquals(compactList, response.body(), "По умолчанию ответ не компактный");
+            assertEquals(Optional.of("Accept, Accept-Encoding"), response.headers().firstValue("Vary"),
+                    "Ответ не отмечен как зависящий от Accept");
+
+            response = client.send(HttpRequest.newBuilder().GET()
+                    .uri(URI.create(baseUri + "/tasks?pretty=true")).build(), HttpResponse.BodyHandlers.ofString());
+            assertEquals(prettyList, response.body(), "Параметр запроса не включил отступы");
+
+            response = client.send(HttpRequest.newBuilder().GET()
+                    .uri(URI.create(baseUri + "/tasks/" + task.getId()))
+                    .header("Accept", "text/html, application/json; pretty=true").build(),
+                    HttpResponse.BodyHandlers.ofString());
+            assertEquals(taskServer.getPrettyGson().toJson(task), response.body(), "Заголовок Accept не включил отступы");
+
+            // Параметр запроса важнее заголовка
+            response = client.send(HttpRequest.newBuilder().GET()
+                    .uri(URI.create(baseUri + "/tasks?pretty=false"))
+                    .header("Accept", "application/json;pretty=true").build(), HttpResponse.BodyHandlers.ofString());
+            assertEquals(compactList, response.body(), "Параметр запроса не отключил отступы");
+        } finally {
+            taskServer.stop();
+        }
+    }
+
+    @DisplayName("Сервер: Страницы списков по параметрам запроса")
+    @Test
+    void testPagination() throws IOException, InterruptedException {
+        HttpTaskServer taskServer = createServerWithTasks(10);
+        TaskManager taskManager = taskServer.getTaskManager();
+        List<Task> tasks = taskManager.getTasks().stream().sorted(Comparator.comparing(Task::getId)).toList();
+        taskServer.start();
+        try {
+            HttpResponse<byte[]> response = get(taskServer, "/tasks?limit=3", "identity");
+            assertEquals(taskServer.getGson().toJson(tasks.subList(0, 3)), new String(response.body(),
+                    StandardCharsets.UTF_8), "Неверная первая страница");
+
+            response = get(taskServer, "/tasks?limit=3&after=" + tasks.get(2).getId(), "identity");
+            assertEquals(taskServer.getGson().toJson(tasks.subList(3, 6)), new String(response.body(),
+                    StandardCharsets.UTF_8), "Неверная страница после курсора");
+
+            // Время в формате задач, пробел закодирован
+            response = get(taskServer, "/prioritized?from=00:30+01.01.2025&to=2025-01-01T01:00", "identity");
+            assertEquals(taskServer.getGson().toJson(tasks.subList(3, 6)), new String(response.body(),
+                    StandardCharsets.UTF_8), "Неверная страница интервала");
+
+            response = get(taskServer, "/tasks?status=done", "identity");
+            assertEquals("[]", new String(response.body(), StandardCharsets.UTF_8), "Неверный фильтр по статусу");
+
+            assertEquals(404, get(taskServer, "/prioritized?after=1000", "identity").statusCode(),
+                    "Отсутствующий курсор по времени не обнаружен");
+            // Позиция курсора по времени начала не зависит от того, есть ли ещё задача-курсор
+            response = get(taskServer, "/prioritized?limit=2&after=1000&afterStart=2025-01-01T00:30", "identity");
+            assertEquals(taskServer.getGson().toJson(tasks.subList(4, 6)), new String(response.body(),
+                    StandardCharsets.UTF_8), "Неверная страница после позиции курсора");
+            assertEquals(400, get(taskServer, "/tasks?limit=0", "identity").statusCode(),
+                    "Неверный размер страницы не обнаружен");
+            assertEquals(400, get(taskServer, "/tasks?status=bogus", "identity").statusCode(),
+                    "Неверный статус не обнаружен");
+            assertEquals(400, get(taskServer, "/subtasks?epicId=abc", "identity").statusCode(),
+                    "Неверный ИД эпика не обнаружен");
+            assertEquals(400, get(taskServer, "/epics?after=abc", "identity").statusCode(),
+                    "Неверный курсор не обнаружен");
+            assertEquals(400, get(taskServer, "/prioritized?from=yesterday", "identity").statusCode(),
+                    "Неверное время не обнаружено");
+        } finally {
+            taskServer.stop();
+        }
+    }
+
+    private static HttpTaskServer createServerWithTasks(int count) throws IOException {
+        HttpTaskServer taskServer = new HttpTaskServer(Managers.getConcurrent(), ExecutorTypes.SAME_THREAD);
+        LocalDateTime startTime = LocalDateTime.of(2025, 1, 1, 0, 0);
+        for (int i = 0; i < count; i++) {
+            taskServer.getTaskManager().createTask(new Task("Task " + i, "Описание задачи " + i,
+                    startTime.plusMinutes(i * 10L), Duration.ofMinutes(5)));
+        }
+        return taskServer;
+    }
+
+    private static HttpResponse<byte[]> get(HttpTaskServer taskServer, String path, String acceptEncoding)
+            throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder().GET()
+                .uri(URI.create("http://localhost:" + taskServer.getPort() + path))
+                .header("Accept-Encoding", acceptEncoding).build();
+        return HttpClient.newHttpClient().send(request, HttpResponse.BodyHandlers.ofByteArray());
+    }
+
+    @DisplayName("Сервер: Длинный ответ сжимается согласно Accept-Encoding")
+    @Test
+    void testCompressedResponse() throws IOException, InterruptedException {
+        HttpTaskServer taskServer = createServerWithTasks(100);
+        taskServer.start();
+        try {
+            String expected = taskServer.getGson().toJson(taskServer.getTaskManager().getTasks());
+
+            HttpResponse<byte[]> response = get(taskServer, "/tasks", "gzip, deflate");
+            assertEquals(Optional.of("gzip"), response.headers().firstValue("Content-Encoding"),
+                    "Ответ не сжат GZIP");
+            assertEquals(expected, new String(new GZIPInputStream(new ByteArrayInputStream(response.body()))
+                    .readAllBytes(), StandardCharsets.UTF_8), "Распакованный ответ не совпадает со списком");
+            assertTrue(response.body().length < expected.length() / 2, "Ответ сжат слабо");
+
+            // gzip с q=0 клиент не принимает
+            response = get(taskServer, "/tasks", "gzip;q=0, deflate;q=0.5");
+            assertEquals(Optional.of("deflate"), response.headers().firstValue("Content-Encoding"),
+                    "Ответ не сжат Deflate");
+            assertEquals(expected, new String(new InflaterInputStream(new ByteArrayInputStream(response.body()))
+                    .readAllBytes(), StandardCharsets.UTF_8), "Распакованный ответ не совпадает со списком");
+
+            // Ответ короче порога не сжимается и отправляется с известной длиной
+            HttpResponse<byte[]> small = get(taskServer, "/tasks/1", "gzip");
+            assertTrue(small.headers().firstValue("Content-Encoding").isEmpty(), "Короткий ответ сжат");
+            assertEquals(Optional.of(String.valueOf(small.body().length)),
+                    small.headers().firstValue("Content-Length"), "Длина короткого ответа не передана");
+
+            taskServer.setCompressionThreshold(null);
+            response = get(taskServer, "/tasks", "gzip");
+            assertTrue(response.headers().firstValue("Content-Encoding").isEmpty(), "Сжатие не отключено");
+            assertEquals(expected, new String(response.body(), StandardCharsets.UTF_8),
+                    "Ответ без сжатия не совпадает со списком");
+        } finally {
+            taskServer.stop();
+        }
+    }
+
+    @DisplayName("Сервер: Сжатое тело запроса распаковывается")
+    @Test
+    void testCompressedRequest() throws IOException, InterruptedException {
+        HttpTaskServer taskServer = createServerWithTasks(0);
+        taskServer.start();
+        try {
+            Task task = new Task("Task", "Task description", LocalDateTime.of(2025, 1, 1, 0, 0),
+                    Duration.ofMinutes(5));
+            ByteArrayOutputStream body = new ByteArrayOutputStream();
+            try (GZIPOutputStream out = new GZIPOutputStream(body)) {
+                out.write(taskServer.getGson().toJson(task).getBytes(StandardCharsets.UTF_8));
+            }
+            HttpRequest request = HttpRequest.newBuilder()
+                    .POST(HttpRequest.BodyPublishers.ofByteArray(body.toByteArray()))
+                    .uri(URI.create("http://localhost:" + taskServer.getPort() + "/tasks"))
+                    .header("Content-Encoding", "gzip").build();
+            HttpResponse<String> response = HttpClient.newHttpClient().send(request,
+                    HttpResponse.BodyHandlers.ofString());
+
+            assertEquals(201, response.statusCode(), "Код ответа не соответствует ожидаемому");
+            assertEquals(1, taskServer.getTaskManager().getTasks().size(), "Задача не добавлена");
+            assertEquals("Task description", taskServer.getTaskManager().getTasks().getFirst().getDescription(),
+                    "Задача распакована неверно");
+
+            // Неизвестное сжатие тела - ошибка клиента 415, задача не добавляется
+            for (String path : List.of("/tasks", "/subtasks", "/epics")) {
+                request = HttpRequest.newBuilder()
+                        .POST(HttpRequest.BodyPublishers.ofByteArray(body.toByteArray()))
+                        .uri(URI.create("http://localhost:" + taskServer.getPort() + path))
+                        .header("Content-Encoding", "br").build();
+                response = HttpClient.newHttpClient().send(request, HttpResponse.BodyHandlers.ofString());
+
+                assertEquals(415, response.statusCode(), "Неизвестное сжатие не отклонено для " + path);
+            }
+
+            // Повреждённое сжатое тело и тело, распакованное сверх предела, - ошибка клиента 400
+            byte[] corrupted = body.toByteArray();
+            corrupted[corrupted.length / 2] ^= 0x5A;
+            ByteArrayOutputStream oversized = new ByteArrayOutputStream();
+            try (GZIPOutputStream out = new GZIPOutputStream(oversized)) {
+                out.write(new byte[BaseHttpHandler.MAX_REQUEST_BODY_SIZE + 1]);
+            }
+            for (byte[] invalidBody : List.of(corrupted, oversized.toByteArray())) {
+                request = HttpRequest.newBuilder()
+                        .POST(HttpRequest.BodyPublishers.ofByteArray(invalidBody))
+                        .uri(URI.create("http://localhost:" + taskServer.getPort() + "/tasks"))
+                        .header("Content-Encoding", "gzip").build();
+                response = HttpClient.newHttpClient().send(request, HttpResponse.BodyHandlers.ofString());
+
+                assertEquals(400, response.statusCode(), "Неверное сжатое тело не отклонено");
+            }
+            assertEquals(1, taskServer.getTaskManager().getTasks().size(), "Добавлена лишняя задача");
+        } finally {
+            taskServer.stop();
+        }
+    }
+
+    @DisplayName("Сервер: Ошибка при передаче списка - 500 до начала ответа, обрыв соединения после")
+    @Test
+    void testStreamedListFailure() throws IOException, InterruptedException {
+        // Ошибка до отправки первой части: клиент получает ошибку 500
+        assertStreamedListFailure(2, 1, false);
+        // Ошибка после отправки заголовков и части тела: соединение закрывается
+        assertStreamedListFailure(1_000, 500, true);
+    }
+
+    private void assertStreamedListFailure(int tasks, int failAfter, boolean aborted)
+            throws IOException, InterruptedException {
+        HttpTaskServer taskServer = new HttpTaskServer(new FailingTaskManager(failAfter), ExecutorTypes.SAME_THREAD);
+        LocalDateTime startTime = LocalDateTime.of(2025, 1, 1, 0, 0);
+        for (int i = 0; i < tasks; i++) {
+            taskServer.getTaskManager().createTask(new Task("Task " + i, "Task description " + i,
+                    startTime.plusMinutes(i * 10L), Duration.ofMinutes(5)));
+        }
+        taskServer.start();
+        try {
+            HttpClient client = HttpClient.newHttpClient();
+            HttpRequest request = HttpRequest.newBuilder().GET()
+                    .uri(URI.create("http://localhost:" + taskServer.getPort() + "/tasks")).build();
+
+            if (aborted) {
+                // Клиент не должен получить обрезанный массив как полный ответ
+                assertThrows(IOException.class, () -> client.send(request, HttpResponse.BodyHandlers.ofString()));
+            } else {
+                assertEquals(500, client.send(request, HttpResponse.BodyHandlers.ofString()).statusCode(),
+                        "Код ответа не соответствует ожидаемому");
+            }
+        } finally {
+            taskServer.stop();
+        }
+    }
+
+    @DisplayName("Сервер: Неверные параметры исполнителя")
+    @Test
+    void testInvalidArguments() {
+        assertThrows(IllegalArgumentException.class,
+                () -> new HttpTaskServer(Managers.getConcurrent(), null, 1, HttpTaskServer.DEFAULT_BACKLOG));
+        assertThrows(IllegalArgumentException.class, () -> new HttpTaskServer(Managers.getConcurrent(),
+                ExecutorTypes.FIXED_POOL, 0, HttpTaskServer.DEFAULT_BACKLOG));
+        assertThrows(IllegalArgumentException.class, () -> new HttpTaskServer(Managers.getConcurrent(),
+                ExecutorTypes.VIRTUAL_THREADS, 1, -1));
+    }
+}
@@ -136,6 +136,28 @@ public class TaskHttpHandlerTest {
         assertEquals(id, jsonObject.get("id").getAsInt(), "ИД обновлённой и сохранённой задачи не совпадают");
     }
 
+    @DisplayName("Операции с Task: ИД задач из разных запросов идут подряд")
+    @Test
+    void testSequentialIdsAcrossRequests() throws IOException, InterruptedException {
+        // Сервер по умолчанию обрабатывает каждый запрос в новом виртуальном потоке
+        List<Integer> ids = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            Task newTask = new Task("Task " + i, "Task description", task.getStartTime().plusMinutes(i * 10L),
+                    Duration.ofMinutes(5));
+            HttpRequest request = HttpRequest.newBuilder()
+                    .POST(HttpRequest.BodyPublishers.ofString(taskServer.getGson().toJson(newTask)))
+                    .uri(URI.create("http://localhost:" + taskServer.getPort() + "/tasks"))
+                    .header("Content-Type", "application/json").build();
+            HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+
+            assertEquals(201, response.statusCode(), "Код ответа не соответствует ожидаемому");
+            ids.add(JsonParser.parseString(response.body()).getAsJsonObject().get("id").getAsInt());
+        }
+
+        assertEquals(List.of(ids.getFirst(), ids.getFirst() + 1, ids.getFirst() + 2), ids,
+                "ИД между запросами пропущены");
+    }
+
     @DisplayName("Операции с Task: DELETE (без ошибок)")
     @Test
     void testDeleteTaskNoErrors() throws IOException, InterruptedException {